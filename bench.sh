@@ -0,0 +1,4 @@
+#!/bin/bash
+# build and run the JMH benchmarks, any arguments are passed on to JMH (try -h)
+(cd bench && mvn -q -B package) || exit 1
+java -Dfile.encoding=UTF-8 -classpath ./bench/target/benchmarks.jar:./libs/slick2d/lib/slick.jar:./libs/slick2d/lib/lwjgl.jar:./libs/slick2d/lib/jorbis-0.0.15.jar:./libs/slick2d/lib/jogg-0.0.7.jar org.openjdk.jmh.Main "$@"
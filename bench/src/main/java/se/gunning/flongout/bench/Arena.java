@@ -0,0 +1,152 @@
+package se.gunning.flongout.bench;
+
+import java.util.Random;
+
+import se.gunning.flongout.Ball;
+import se.gunning.flongout.BrickGrid;
+import se.gunning.flongout.Paddle;
+import se.gunning.flongout.Physics;
+import se.gunning.flongout.Rect;
+import se.gunning.flongout.Vec2;
+
+/**
+ * The physics side of a game in progress, laid out like in GameScene:
+ * the same walls, goals, brick grid, paddles and gravity. Keeps itself
+ * going for as long as a benchmark runs, by putting balls that reach a
+ * goal back in the middle, replacing broken bricks right away and
+ * relaunching balls that have come to rest.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-06
+ */
+public class Arena
+{
+	/**
+	 * The physics world.
+	 */
+	public final Physics world;
+	
+	/**
+	 * The brick grid.
+	 */
+	public final BrickGrid bricks;
+	
+	/**
+	 * Collision actions to step the world with.
+	 */
+	public final Physics.CollisionAction[] actions;
+	
+	/**
+	 * Random number generator, seeded so that every run is the same.
+	 */
+	private final Random rng = new Random(4711);
+	
+	/**
+	 * Create a new arena.
+	 *
+	 * @param ballCount Number of balls, more than one means multi-ball mode
+	 */
+	public Arena(int ballCount)
+	{
+		world = new Physics();
+		world.setGravity(-20.0);
+		world.setMultiBall(ballCount > 1);
+		
+		world.addWall("left", -14.0, -4.5, 5.0, 9.0);
+		world.addWall("right", 9.0, -4.5, 5.0, 9.0);
+		world.addWall("static", -9.0, 4.5, 18.0, 5.0);
+		world.addWall("static", -9.0, -9.5, 18.0, 5.0);
+		
+		bricks = new BrickGrid(new Rect(-0.5, -4.5, 1.0, 4.5), 8, 2);
+		
+		for (int i = 0; i < 16; ++i)
+		{
+			bricks.spawnRandomBrick(world);
+		}
+		
+		bricks.setBrickBreakAction(new BrickGrid.BrickBreakAction()
+		{
+			@Override
+			public void onBrickBroken(BrickGrid grid, Rect brick)
+			{
+				grid.spawnRandomBrick(world);
+			}
+		});
+		
+		Paddle one = new Paddle(1.0, Math.PI);
+		one.setArea(new Rect(-6.4, -3.0, 2.0, 6.0));
+		one.setPosition(new Vec2(-6.0, 0.0));
+		one.setDirection(new Vec2(1, 0));
+		world.addPaddle(one);
+		
+		Paddle two = new Paddle(1.0, 0.0);
+		two.setArea(new Rect(4.4, -3.0, 2.0, 6.0));
+		two.setPosition(new Vec2(6.0, 0.0));
+		two.setDirection(new Vec2(1, 0));
+		world.addPaddle(two);
+		
+		for (int i = 0; i < ballCount; ++i)
+		{
+			Ball b = new Ball(0.15);
+			b.setPosition(new Vec2(-4.0 + (i % 25) * 0.32, 4.0 - (i / 25 % 25) * 0.32));
+			launch(b);
+			world.addBall(b);
+		}
+		
+		Physics.CollisionAction goals = new Physics.CollisionAction()
+		{
+			@Override
+			public void onCollision(Ball ball, Rect wall, String group, Physics world)
+			{
+				if (group.equals("left") || group.equals("right"))
+				{
+					ball.setPosition(0.0, 2.0);
+					launch(ball);
+				}
+			}
+			
+			@Override
+			public void onCollision(Ball ball, Paddle paddle, Physics world)
+			{
+			}
+			
+			@Override
+			public void onPaddleHit(Ball ball, Paddle paddle, Physics world)
+			{
+			}
+		};
+		
+		actions = new Physics.CollisionAction[]{bricks.getCollisionAction(), goals};
+	}
+	
+	/**
+	 * Relaunch any balls that have come to rest, like GameScene does.
+	 */
+	public void relaunchStoppedBalls()
+	{
+		for (int i = 0; i < world.getBalls().size(); ++i)
+		{
+			Ball b = world.getBalls().get(i);
+			
+			if (b.getVelocityX() * b.getVelocityX() + b.getVelocityY() * b.getVelocityY() < 0.01)
+			{
+				launch(b);
+			}
+		}
+	}
+	
+	/**
+	 * Shoot a ball to the left or right, like GameScene does.
+	 *
+	 * @param b Ball to shoot
+	 */
+	private void launch(Ball b)
+	{
+		double xvel = 6 + rng.nextInt(6);
+		double yvel = 4 + rng.nextInt(4);
+		
+		b.setVelocity(rng.nextBoolean() ? -xvel : xvel, yvel);
+	}
+}
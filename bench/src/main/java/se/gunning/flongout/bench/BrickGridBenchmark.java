@@ -0,0 +1,81 @@
+package se.gunning.flongout.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.gunning.flongout.Ball;
+import se.gunning.flongout.BrickGrid;
+import se.gunning.flongout.Physics;
+import se.gunning.flongout.Rect;
+
+/**
+ * Benchmarks the brick grid collision action on a full grid, both for a
+ * brick being hit and for a ball hitting some other wall. The ball has no
+ * penetration power, so the brick that is hit never breaks and every call
+ * does the same work.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-06
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BrickGridBenchmark
+{
+	private Physics world;
+	private Physics.CollisionAction action;
+	private Ball ball;
+	private Rect lastBrick;
+	private Rect wall;
+	
+	@Setup
+	public void setUp()
+	{
+		world = new Physics();
+		
+		// the grid of the game, filled up
+		BrickGrid grid = new BrickGrid(new Rect(-0.5, -4.5, 1.0, 4.5), 8, 2);
+		
+		for (int i = 0; i < 16; ++i)
+		{
+			grid.spawnRandomBrick(world);
+		}
+		
+		action = grid.getCollisionAction();
+		
+		ball = new Ball(0.15);
+		ball.setPenetrationPower(0);
+		
+		// the wall of the brick in the last row and column, the very
+		// rectangle the world hands the action when a ball hits it
+		lastBrick = grid.getBrickRect(7, 1);
+		wall = new Rect(-9.0, 4.5, 18.0, 5.0);
+	}
+	
+	@Benchmark
+	public void hitBrick()
+	{
+		action.onCollision(ball, lastBrick, "brickgrid-brick", world);
+	}
+	
+	@Benchmark
+	public void hitOtherWall()
+	{
+		action.onCollision(ball, wall, "static", world);
+	}
+}
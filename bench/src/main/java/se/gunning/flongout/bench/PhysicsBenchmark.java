@@ -0,0 +1,63 @@
+package se.gunning.flongout.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks a single physics step (a millisecond of game time) in a game
+ * in progress, with one ball and in multi-ball mode.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-06
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhysicsBenchmark
+{
+	/**
+	 * Number of balls.
+	 */
+	@Param({"1", "50", "500"})
+	public int balls;
+	
+	private Arena arena;
+	
+	private int steps;
+	
+	@Setup
+	public void setUp()
+	{
+		arena = new Arena(balls);
+	}
+	
+	@Benchmark
+	public double step()
+	{
+		arena.world.step(1.0/1000.0, arena.actions);
+		
+		// the game checks for stopped balls once per tick, every ten steps
+		if (++steps % 10 == 0)
+		{
+			arena.relaunchStoppedBalls();
+		}
+		
+		return arena.world.getBalls().get(0).getX();
+	}
+}
@@ -0,0 +1,100 @@
+package se.gunning.flongout.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.gunning.flongout.Controller;
+import se.gunning.flongout.EndlessGame;
+import se.gunning.flongout.GameScene;
+import se.gunning.flongout.SimulationClock;
+
+/**
+ * Benchmarks a netplay rollback: putting the game back the way it was some
+ * ticks ago and playing those ticks again, taking a snapshot before each one
+ * just like RollbackSession does. All of it has to fit in a frame of 1/60 s.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-17
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RollbackBenchmark
+{
+	/**
+	 * Number of balls.
+	 */
+	@Param({"1", "50"})
+	public int balls;
+	
+	/**
+	 * Number of ticks to play again.
+	 */
+	@Param({"10", "15"})
+	public int depth;
+	
+	private SimulationClock clock;
+	private GameScene game;
+	private Controller[] input;
+	private GameScene.Snapshot start;
+	private GameScene.Snapshot[] snapshots;
+	
+	@Setup
+	public void setUp()
+	{
+		clock = new SimulationClock(GameScene.TICK_MILLIS);
+		game = new GameScene(null, false, new EndlessGame(), clock, balls, 1);
+		game.initHeadless();
+		game.setMuted(true);
+		
+		input = new Controller[]{new Controller(), new Controller()};
+		input[0].leftAnalog.setDirection(0.0, 0.5);
+		input[1].rightAnalog.setDirection(0.0, -1.0);
+		
+		// get past the first countdown
+		for (int i = 0; i < 4 * 60; ++i)
+		{
+			game.tick(input);
+			clock.tick();
+		}
+		
+		start = game.snapshot();
+		snapshots = new GameScene.Snapshot[depth];
+		
+		for (int i = 0; i < depth; ++i)
+		{
+			snapshots[i] = game.snapshot();
+		}
+	}
+	
+	@Benchmark
+	public long rollback()
+	{
+		game.restore(start);
+		
+		for (int i = 0; i < depth; ++i)
+		{
+			game.snapshot(snapshots[i]);
+			game.tick(input);
+			clock.tick();
+		}
+		
+		return clock.getTicks();
+	}
+}
@@ -0,0 +1,126 @@
+package se.gunning.flongout.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.gunning.flongout.MutableVec2;
+import se.gunning.flongout.Paddle;
+import se.gunning.flongout.Rect;
+import se.gunning.flongout.Vec2;
+
+/**
+ * Benchmarks the distance and sweep queries on walls and paddles that the
+ * physics step makes for every wall and paddle near a ball. Queries go
+ * through a fixed set of points around the shapes, some inside, most near
+ * and some far away.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-06
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShapeBenchmark
+{
+	/**
+	 * Number of query points, a power of two.
+	 */
+	private static final int POINTS = 1024;
+	
+	private Rect rect;
+	private Paddle paddle;
+	private double[] xs, ys;
+	private Vec2[] vecs;
+	private MutableVec2 out;
+	private int next;
+	
+	@Setup
+	public void setUp()
+	{
+		rect = new Rect(-0.5, -4.5, 0.5, 0.5625);
+		
+		paddle = new Paddle(1.0, Math.PI);
+		paddle.setPosition(new Vec2(-6.0, 0.0));
+		paddle.setAngle(Math.PI * 0.9);
+		
+		Random rng = new Random(4711);
+		xs = new double[POINTS];
+		ys = new double[POINTS];
+		vecs = new Vec2[POINTS];
+		
+		for (int i = 0; i < POINTS; ++i)
+		{
+			// around the rectangle for the first half, the paddle for the rest
+			double cx = (i < POINTS / 2) ? -0.25 : -6.75;
+			double cy = (i < POINTS / 2) ? -4.2 : 0.2;
+			
+			xs[i] = cx + rng.nextGaussian();
+			ys[i] = cy + rng.nextGaussian();
+			vecs[i] = new Vec2(xs[i], ys[i]);
+		}
+		
+		out = new MutableVec2();
+	}
+	
+	private int nextIndex()
+	{
+		next = (next + 1) & (POINTS - 1);
+		return next;
+	}
+	
+	@Benchmark
+	public double rectShortestVector()
+	{
+		int i = nextIndex();
+		return rect.shortestVectorToPoint(xs[i], ys[i], out);
+	}
+	
+	@Benchmark
+	public Vec2 rectShortestVectorVec2()
+	{
+		return rect.shortestVectorToPoint(vecs[nextIndex()]);
+	}
+	
+	@Benchmark
+	public double rectSweepCircle()
+	{
+		int i = nextIndex();
+		return rect.sweepCircle(xs[i], ys[i], 0.25, -0.1, 0.15);
+	}
+	
+	@Benchmark
+	public double paddleShortestVector()
+	{
+		int i = nextIndex();
+		return paddle.getShortestVectorToPoint(xs[i], ys[i], out);
+	}
+	
+	@Benchmark
+	public Vec2 paddleShortestVectorVec2()
+	{
+		return paddle.getShortestVectorToPoint(vecs[nextIndex()]);
+	}
+	
+	@Benchmark
+	public double paddleSweepCircle()
+	{
+		int i = nextIndex();
+		return paddle.sweepCircle(xs[i], ys[i], 0.25, -0.1, 0.15);
+	}
+}
@@ -0,0 +1,67 @@
+package se.gunning.flongout.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.gunning.flongout.EndlessGame;
+import se.gunning.flongout.HeadlessMatch;
+
+/**
+ * Benchmarks a whole game tick without a display, as run by GameScene.update
+ * once per 1/60 s: cpu players, physics, bricks, powerups and all. The game
+ * never ends, and the round start countdowns are part of what is measured
+ * just like in a real game.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-06
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TickBenchmark
+{
+	/**
+	 * Number of balls.
+	 */
+	@Param({"1", "500"})
+	public int balls;
+	
+	/**
+	 * CPU players, "simple" or a difficulty of the predictive CPU.
+	 */
+	@Param({"simple", "hard"})
+	public String cpu;
+	
+	private HeadlessMatch match;
+	
+	@Setup
+	public void setUp()
+	{
+		match = new HeadlessMatch(new EndlessGame(), HeadlessMatch.createCpu(cpu), HeadlessMatch.createCpu(cpu), balls);
+		
+		// get past the first countdown
+		match.run(4 * 60);
+	}
+	
+	@Benchmark
+	public boolean tick()
+	{
+		return match.tick();
+	}
+}
@@ -0,0 +1,88 @@
+package se.gunning.flongout.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.gunning.flongout.MutableVec2;
+import se.gunning.flongout.Vec2;
+
+/**
+ * Benchmarks the vector math used all over the game, the immutable Vec2
+ * against MutableVec2 where there is one.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-06
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Vec2Benchmark
+{
+	// not final, so that the JIT can't fold the math away
+	private Vec2 u = new Vec2(3.0, -4.0);
+	private Vec2 v = new Vec2(-1.5, 2.5);
+	private MutableVec2 m = new MutableVec2(3.0, -4.0);
+	private double s = 0.75;
+	
+	@Benchmark
+	public Vec2 addScale()
+	{
+		return u.add(v).scale(s);
+	}
+	
+	@Benchmark
+	public MutableVec2 addScaleMutable()
+	{
+		return m.set(u.x, u.y).add(v.x, v.y).scale(s);
+	}
+	
+	@Benchmark
+	public Vec2 normalize()
+	{
+		return u.normalize();
+	}
+	
+	@Benchmark
+	public double length()
+	{
+		return u.length();
+	}
+	
+	@Benchmark
+	public Vec2 projectOnto()
+	{
+		return u.projectOnto(v);
+	}
+	
+	@Benchmark
+	public Vec2 rotate()
+	{
+		return u.rotate(s);
+	}
+	
+	@Benchmark
+	public double getAngle()
+	{
+		return u.getAngle();
+	}
+	
+	@Benchmark
+	public int compareTo()
+	{
+		return u.compareTo(v);
+	}
+}
@@ -0,0 +1,460 @@
+package se.gunning.flongout;
+
+import java.awt.Font;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.imageio.ImageIO;
+
+import org.newdawn.slick.Image;
+import org.newdawn.slick.SlickException;
+import org.newdawn.slick.Sound;
+import org.newdawn.slick.TrueTypeFont;
+import org.newdawn.slick.openal.OggData;
+import org.newdawn.slick.openal.OggDecoder;
+import org.newdawn.slick.opengl.ImageIOImageData;
+
+/**
+ * Loads the images, sounds and fonts of the game once and shares them between
+ * all scenes. Assets are kept by path and parameters, such as the scale of an
+ * image or the size of a font, so asking for the same asset twice gives the
+ * same object back.
+ *
+ * Decoding PNG and OGG files is slow, so it's done by worker threads, several
+ * files at a time. Preloading an asset starts decoding it right away; getting
+ * it waits for it to be decoded if needed and then turns it into a texture or
+ * sound buffer. Only that last step needs OpenGL, so assets must be gotten on
+ * the thread that draws the game, while preloading can be done from anywhere.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-12
+ */
+public class AssetManager
+{
+	/**
+	 * Worker threads decoding the assets.
+	 */
+	private ExecutorService workers;
+	
+	/**
+	 * Decoded assets, or assets being decoded, by kind and path.
+	 */
+	private HashMap<String, Future<?>> decoded;
+	
+	/**
+	 * Finished assets, by kind, path and parameters.
+	 */
+	private HashMap<String, Object> loaded;
+	
+	/**
+	 * Create a new asset manager with one worker thread per processor.
+	 */
+	public AssetManager()
+	{
+		this(Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Create a new asset manager.
+	 *
+	 * @param threads Number of worker threads, at least one
+	 * @throws IllegalArgumentException If there are no worker threads
+	 */
+	public AssetManager(int threads)
+	{
+		if (threads < 1)
+		{
+			throw new IllegalArgumentException("Need at least one worker thread");
+		}
+		
+		// the workers shouldn't keep the game running after it's been closed
+		workers = Executors.newFixedThreadPool(threads, new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable r)
+			{
+				Thread t = new Thread(r, "asset decoder");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		
+		decoded = new HashMap<String, Future<?>>();
+		loaded = new HashMap<String, Object>();
+	}
+	
+	/**
+	 * Start decoding an image to be gotten with getImage.
+	 *
+	 * @param path Path of the image file
+	 */
+	public void preloadImage(final String path)
+	{
+		decode("image:" + path, new Callable<ImageIOImageData>()
+		{
+			@Override
+			public ImageIOImageData call() throws IOException
+			{
+				ImageIOImageData data = new ImageIOImageData();
+				data.imageToByteBuffer(readImage(path), false, false, null);
+				return data;
+			}
+		});
+	}
+	
+	/**
+	 * Start decoding an image to be packed into an atlas with getAtlas.
+	 *
+	 * @param path Path of the image file
+	 */
+	public void preloadAtlasImage(final String path)
+	{
+		decode("pixels:" + path, new Callable<BufferedImage>()
+		{
+			@Override
+			public BufferedImage call() throws IOException
+			{
+				return readImage(path);
+			}
+		});
+	}
+	
+	/**
+	 * Start decoding a sound to be gotten with getSound.
+	 *
+	 * @param path Path of the OGG file
+	 */
+	public void preloadSound(final String path)
+	{
+		decode("sound:" + path, new Callable<byte[]>()
+		{
+			@Override
+			public byte[] call() throws IOException
+			{
+				InputStream in = new FileInputStream(path);
+				
+				try
+				{
+					return toWav(new OggDecoder().getData(in));
+				}
+				finally
+				{
+					in.close();
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Start reading a font to be gotten with getFont.
+	 *
+	 * @param path Path of the TrueType file
+	 */
+	public void preloadFont(final String path)
+	{
+		decode("font:" + path, new Callable<Font>()
+		{
+			@Override
+			public Font call() throws Exception
+			{
+				InputStream in = new FileInputStream(path);
+				
+				try
+				{
+					return Font.createFont(Font.TRUETYPE_FONT, in);
+				}
+				finally
+				{
+					in.close();
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Get an image.
+	 *
+	 * @param path Path of the image file
+	 * @param scale Scale of the image
+	 * @return The image
+	 * @throws SlickException If the image can't be loaded
+	 */
+	public Image getImage(String path, float scale) throws SlickException
+	{
+		String key = "image:" + path + "@" + scale;
+		Image img = (Image)loaded.get(key);
+		
+		if (img == null)
+		{
+			if (scale == 1.0f)
+			{
+				preloadImage(path);
+				img = new Image((ImageIOImageData)await("image:" + path));
+			}
+			else
+			{
+				img = getImage(path, 1.0f).getScaledCopy(scale);
+			}
+			
+			loaded.put(key, img);
+		}
+		
+		return img;
+	}
+	
+	/**
+	 * Get an atlas of a number of images. The images in the atlas are named by
+	 * their paths.
+	 *
+	 * @param paths Paths of the image files
+	 * @return The built atlas
+	 * @throws SlickException If any of the images can't be loaded
+	 */
+	public TextureAtlas getAtlas(String[] paths) throws SlickException
+	{
+		StringBuilder key = new StringBuilder("atlas:");
+		
+		for (String path : paths)
+		{
+			key.append(path).append(';');
+		}
+		
+		TextureAtlas atlas = (TextureAtlas)loaded.get(key.toString());
+		
+		if (atlas == null)
+		{
+			// have every image decoding before waiting for the first one
+			for (String path : paths)
+			{
+				preloadAtlasImage(path);
+			}
+			
+			atlas = new TextureAtlas();
+			
+			for (String path : paths)
+			{
+				atlas.add(path, (BufferedImage)await("pixels:" + path));
+			}
+			
+			atlas.build();
+			loaded.put(key.toString(), atlas);
+		}
+		
+		return atlas;
+	}
+	
+	/**
+	 * Get a sound.
+	 *
+	 * @param path Path of the OGG file
+	 * @return The sound
+	 * @throws SlickException If the sound can't be loaded
+	 */
+	public Sound getSound(String path) throws SlickException
+	{
+		String key = "sound:" + path;
+		Sound sound = (Sound)loaded.get(key);
+		
+		if (sound == null)
+		{
+			preloadSound(path);
+			
+			// the sound has already been decoded into a WAV, and what kind of
+			// sound it is goes by the file extension
+			sound = new Sound(new ByteArrayInputStream((byte[])await(key)), path + ".wav");
+			loaded.put(key, sound);
+		}
+		
+		return sound;
+	}
+	
+	/**
+	 * Get a font from a TrueType file.
+	 *
+	 * @param path Path of the TrueType file
+	 * @param size Size of the font
+	 * @param antiAlias Whether to anti-alias the font
+	 * @return The font
+	 * @throws SlickException If the font can't be loaded
+	 */
+	public TrueTypeFont getFont(String path, float size, boolean antiAlias) throws SlickException
+	{
+		String key = "font:" + path + "@" + size + "," + antiAlias;
+		TrueTypeFont font = (TrueTypeFont)loaded.get(key);
+		
+		if (font == null)
+		{
+			// the same file is often used at several sizes
+			Font base = (Font)loaded.get("font:" + path);
+			
+			if (base == null)
+			{
+				preloadFont(path);
+				base = (Font)await("font:" + path);
+				loaded.put("font:" + path, base);
+			}
+			
+			font = new TrueTypeFont(base.deriveFont(size), antiAlias);
+			loaded.put(key, font);
+		}
+		
+		return font;
+	}
+	
+	/**
+	 * Get an anti-aliased font installed on the system.
+	 *
+	 * @param family Name of the font family, such as "monospace"
+	 * @param style Font style, such as Font.PLAIN or Font.BOLD
+	 * @param size Size of the font
+	 * @return The font
+	 */
+	public TrueTypeFont getSystemFont(String family, int style, int size)
+	{
+		String key = "system font:" + family + "@" + style + "," + size;
+		TrueTypeFont font = (TrueTypeFont)loaded.get(key);
+		
+		if (font == null)
+		{
+			font = new TrueTypeFont(new Font(family, style, size), true);
+			loaded.put(key, font);
+		}
+		
+		return font;
+	}
+	
+	/**
+	 * Check whether everything that has been started decoding is done, so
+	 * that getting it won't have to wait.
+	 *
+	 * @return True if nothing is left decoding
+	 */
+	public synchronized boolean isDecoded()
+	{
+		for (Future<?> result : decoded.values())
+		{
+			if (!result.isDone())
+			{
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Start decoding something, unless it's already been started.
+	 *
+	 * @param key Kind and path of the asset
+	 * @param task Decoder for the asset
+	 */
+	private synchronized void decode(String key, Callable<?> task)
+	{
+		if (!decoded.containsKey(key))
+		{
+			decoded.put(key, workers.submit(task));
+		}
+	}
+	
+	/**
+	 * Wait for something to be decoded, and forget about it once it has been,
+	 * since only the finished asset is kept.
+	 *
+	 * @param key Kind and path of the asset
+	 * @return The decoded asset
+	 * @throws SlickException If decoding failed
+	 */
+	private Object await(String key) throws SlickException
+	{
+		Future<?> result;
+		
+		synchronized (this)
+		{
+			result = decoded.remove(key);
+		}
+		
+		try
+		{
+			return result.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new SlickException("Interrupted while loading " + key, e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new SlickException("Failed to load " + key, e.getCause());
+		}
+	}
+	
+	/**
+	 * Read an image file.
+	 *
+	 * @param path Path of the image file
+	 * @return The image
+	 * @throws IOException If the file can't be read
+	 */
+	private static BufferedImage readImage(String path) throws IOException
+	{
+		BufferedImage img = ImageIO.read(new File(path));
+		
+		if (img == null)
+		{
+			throw new IOException("Not an image: " + path);
+		}
+		
+		return img;
+	}
+	
+	/**
+	 * Wrap decoded sound samples in a WAV file.
+	 *
+	 * @param ogg Decoded sound, 16 bit samples in native byte order
+	 * @return Contents of a WAV file
+	 */
+	static byte[] toWav(OggData ogg)
+	{
+		ByteBuffer samples = ogg.data.duplicate().order(ByteOrder.nativeOrder());
+		samples.rewind();
+		
+		int length = samples.remaining();
+		ByteBuffer wav = ByteBuffer.allocate(44 + length).order(ByteOrder.LITTLE_ENDIAN);
+		
+		wav.put(new byte[]{'R', 'I', 'F', 'F'});
+		wav.putInt(36 + length);
+		wav.put(new byte[]{'W', 'A', 'V', 'E', 'f', 'm', 't', ' '});
+		wav.putInt(16);
+		wav.putShort((short)1);
+		wav.putShort((short)ogg.channels);
+		wav.putInt(ogg.rate);
+		wav.putInt(ogg.rate * ogg.channels * 2);
+		wav.putShort((short)(ogg.channels * 2));
+		wav.putShort((short)16);
+		wav.put(new byte[]{'d', 'a', 't', 'a'});
+		wav.putInt(length);
+		
+		// WAV samples are always little endian
+		while (samples.remaining() >= 2)
+		{
+			wav.putShort(samples.getShort());
+		}
+		
+		return wav.array();
+	}
+}
@@ -1,18 +1,50 @@
 package se.gunning.flongout;
 
+import java.util.HashMap;
+
 import org.newdawn.slick.Color;
 import org.newdawn.slick.Graphics;
+import org.newdawn.slick.opengl.TextureImpl;
+import org.newdawn.slick.opengl.renderer.Renderer;
+import org.newdawn.slick.opengl.renderer.SGL;
 
 /**
  * A cool animation to have in the background.
- * 
+ *
+ * The circles pulse and change color once per beat, while slowly circling
+ * around the middle of the screen. Every beat looks the same apart from
+ * that slow turn, so by default one beat is worked out in advance, in a
+ * number of steps, into OpenGL display lists. Drawing a frame is then a
+ * matter of turning the screen and calling the list for the current step.
+ *
  * @author Mikael Forsberg
  * @author Robin Gunning
  * @author Jonathan Yao Håkansson
- * @version 2015-05-19
+ * @version 2015-06-13
  */
 public class BackgroundAnimation
 {
+	/**
+	 * Number of circles.
+	 */
+	static final int CIRCLES = 24;
+	
+	/**
+	 * Number of steps a beat is divided into when drawn from display lists.
+	 */
+	static final int STEPS = 64;
+	
+	/**
+	 * Number of line segments in a circle.
+	 */
+	private static final int SEGMENTS = 50;
+	
+	/**
+	 * Display lists of the beat, by BPM. They never change, so they're shared
+	 * by every animation with the same tempo.
+	 */
+	private static HashMap<Double, Integer> displayLists = new HashMap<Double, Integer>();
+	
 	/**
 	 * Beats per minute.
 	 */
@@ -23,9 +55,19 @@ public class BackgroundAnimation
 	 */
 	private double phase;
 	
+	/**
+	 * Whether to draw from display lists.
+	 */
+	private boolean cached = true;
+	
+	/**
+	 * Color used when drawing without display lists.
+	 */
+	private Color color = new Color(0.0f, 0.0f, 0.0f);
+	
 	/**
 	 * Create a new background animation with a given BPM.
-	 * 
+	 *
 	 * @param beatsPerMinute Beats per minute (BPM)
 	 */
 	public BackgroundAnimation(double beatsPerMinute)
@@ -33,30 +75,67 @@ public class BackgroundAnimation
 		bpm = beatsPerMinute;
 	}
 	
+	/**
+	 * Advance the animation.
+	 *
+	 * @param seconds Time to advance by, in seconds
+	 */
+	public void advance(double seconds)
+	{
+		phase += 2.0 * Math.PI * seconds * bpm/120.0;
+	}
+	
+	/**
+	 * Set how long the animation has been running, so that it keeps in time
+	 * with the music no matter how often frames are drawn.
+	 *
+	 * @param seconds Time since the start of the animation, in seconds
+	 */
+	public void setTime(double seconds)
+	{
+		phase = 2.0 * Math.PI * seconds * bpm/120.0;
+	}
+	
+	/**
+	 * Choose whether to draw the animation from display lists, or work out
+	 * every circle on every frame.
+	 *
+	 * @param cached True to draw from display lists
+	 */
+	public void setCached(boolean cached)
+	{
+		this.cached = cached;
+	}
+	
 	/**
 	 * Render the animation.
-	 * 
+	 *
 	 * @param g Slick2D Graphics
 	 * @param ct Coordinate transformer
 	 */
 	public void render(Graphics g, CoordinateTransformer ct)
 	{
+		g.setLineWidth(3.0f);
+		
+		if (cached)
+		{
+			renderCached(ct);
+			return;
+		}
+		
 		double radius;
 		double slowphase;
-		g.setLineWidth(3.0f);
 		
-		for (int i = 0; i < 24; ++i)
+		for (int i = 0; i < CIRCLES; ++i)
 		{
 			slowphase = phase / 10.0;
-			radius = (double)i / 1.5;
-			
-			radius += 0.5 * Math.abs(Math.sin(phase));
+			radius = getRadius(phase, i);
 			
 			// do some color cycling
-			g.setColor(new Color(
-					(float)Math.abs(Math.sin(phase + (double)i/4.0)/(3*radius/4.0)),
-					(float)Math.abs(Math.sin(phase + 2.0 + (double)i/4.0)/(3*radius/4.0)),
-					(float)Math.abs(Math.sin(phase + 4.0 + (double)i/4.0)/(3*radius/4.0))));
+			color.r = getColor(phase, i, 0);
+			color.g = getColor(phase, i, 1);
+			color.b = getColor(phase, i, 2);
+			g.setColor(color);
 			
 			// draw some circles
 			g.drawOval(
@@ -65,7 +144,124 @@ public class BackgroundAnimation
 					ct.widthToScreen(2 * radius),
 					ct.widthToScreen(2 * radius));
 		}
+	}
+	
+	/**
+	 * Render the animation from display lists, compiling them first if needed.
+	 *
+	 * @param ct Coordinate transformer
+	 */
+	private void renderCached(CoordinateTransformer ct)
+	{
+		SGL gl = Renderer.get();
+		Integer lists = displayLists.get(bpm);
+		
+		if (lists == null)
+		{
+			lists = compile(gl);
+			displayLists.put(bpm, lists);
+		}
+		
+		float scale = ct.widthToScreen(1.0);
+		
+		TextureImpl.bindNone();
+		gl.glPushMatrix();
+		gl.glTranslatef(ct.toScreenX(0.0), ct.toScreenY(0.0), 0.0f);
+		gl.glScalef(scale, -scale, 1.0f);
+		
+		// the slow turn of the circles around the middle
+		gl.glRotatef((float)Math.toDegrees(phase / 10.0), 0.0f, 0.0f, 1.0f);
+		gl.glCallList(lists + getStep(phase));
+		gl.glPopMatrix();
+	}
+	
+	/**
+	 * Compile the display lists of one beat, one list per step, in world
+	 * coordinates and before the slow turn.
+	 *
+	 * @param gl Renderer to compile the lists with
+	 * @return First of the display lists
+	 */
+	private int compile(SGL gl)
+	{
+		int lists = gl.glGenLists(STEPS);
+		
+		for (int step = 0; step < STEPS; ++step)
+		{
+			double p = getStepPhase(step);
+			gl.glNewList(lists + step, SGL.GL_COMPILE);
+			
+			for (int i = 0; i < CIRCLES; ++i)
+			{
+				double radius = getRadius(p, i);
+				
+				gl.glColor4f(getColor(p, i, 0), getColor(p, i, 1), getColor(p, i, 2), 1.0f);
+				gl.glBegin(SGL.GL_LINE_STRIP);
+				
+				for (int k = 0; k <= SEGMENTS; ++k)
+				{
+					double angle = 2.0 * Math.PI * k / SEGMENTS;
+					gl.glVertex2f((float)(radius / 2.0 + radius * Math.cos(angle)), (float)(radius * Math.sin(angle)));
+				}
+				
+				gl.glEnd();
+			}
+			
+			gl.glEndList();
+		}
 		
-		phase += 2.0 * Math.PI * 1.0/60.0 * bpm/120.0;
+		return lists;
+	}
+	
+	/**
+	 * Find the step of the beat closest to a phase.
+	 *
+	 * @param phase Animation phase
+	 * @return Step, from 0 to STEPS - 1
+	 */
+	static int getStep(double phase)
+	{
+		// the beat repeats every half turn of the phase
+		double beat = phase / Math.PI;
+		beat -= Math.floor(beat);
+		
+		return (int)Math.round(beat * STEPS) % STEPS;
+	}
+	
+	/**
+	 * Get the phase at a step of the first beat.
+	 *
+	 * @param step Step, from 0 to STEPS - 1
+	 * @return Animation phase
+	 */
+	static double getStepPhase(int step)
+	{
+		return Math.PI * step / STEPS;
+	}
+	
+	/**
+	 * Get the radius of a circle.
+	 *
+	 * @param phase Animation phase
+	 * @param i Index of the circle
+	 * @return Radius in world coordinates
+	 */
+	static double getRadius(double phase, int i)
+	{
+		return (double)i / 1.5 + 0.5 * Math.abs(Math.sin(phase));
+	}
+	
+	/**
+	 * Get a color component of a circle.
+	 *
+	 * @param phase Animation phase
+	 * @param i Index of the circle
+	 * @param component 0 for red, 1 for green and 2 for blue
+	 * @return The color component, up to 1
+	 */
+	static float getColor(double phase, int i, int component)
+	{
+		// the inner circles are saturated
+		return (float)Math.min(1.0, Math.abs(Math.sin(phase + 2.0 * component + (double)i/4.0)/(3*getRadius(phase, i)/4.0)));
 	}
 }
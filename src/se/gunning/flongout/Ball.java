@@ -13,12 +13,18 @@ public class Ball
 	/**
 	 * Position of the ball.
 	 */
-	private Vec2 position;
+	private double x, y;
 	
 	/**
 	 * Velocity of the ball.
 	 */
-	private Vec2 velocity;
+	private double vx, vy;
+	
+	/**
+	 * Position of the ball at the start of the current tick, used for
+	 * smoothing out motion when rendering between ticks.
+	 */
+	private double previousX, previousY;
 	
 	/**
 	 * Radius of the ball.
@@ -30,6 +36,11 @@ public class Ball
 	 */
 	private int penetrationPower = 1;
 	
+	/**
+	 * Number of values in the state of a ball, see saveState.
+	 */
+	static final int STATE_SIZE = 8;
+	
 	/**
 	 * Create a new ball with a given radius. The initial position
 	 * of the ball will be at (0, 0), and the initial velocity will 
@@ -40,8 +51,6 @@ public class Ball
 	public Ball(double radius)
 	{
 		this.radius = radius;
-		position = new Vec2(0, 0);
-		velocity = new Vec2(0, 0);
 	}
 	
 	/**
@@ -51,9 +60,62 @@ public class Ball
 	 */
 	public Vec2 getPosition()
 	{
-		return position;
+		return new Vec2(x, y);
+	}
+	
+	/**
+	 * Get the horizontal position of the ball.
+	 * 
+	 * @return X coordinate of the ball
+	 */
+	public double getX()
+	{
+		return x;
+	}
+	
+	/**
+	 * Get the vertical position of the ball.
+	 * 
+	 * @return Y coordinate of the ball
+	 */
+	public double getY()
+	{
+		return y;
 	}
     
+	/**
+	 * Remember the current position as the position at the start of the tick.
+	 */
+	public void storePreviousPosition()
+	{
+		previousX = x;
+		previousY = y;
+	}
+	
+	/**
+	 * Get the horizontal position of the ball somewhere between the start of
+	 * the current tick and now.
+	 * 
+	 * @param alpha How far between the start of the tick (0) and now (1)
+	 * @return Interpolated X coordinate of the ball
+	 */
+	public double getInterpolatedX(double alpha)
+	{
+		return previousX + (x - previousX) * alpha;
+	}
+	
+	/**
+	 * Get the vertical position of the ball somewhere between the start of
+	 * the current tick and now.
+	 * 
+	 * @param alpha How far between the start of the tick (0) and now (1)
+	 * @return Interpolated Y coordinate of the ball
+	 */
+	public double getInterpolatedY(double alpha)
+	{
+		return previousY + (y - previousY) * alpha;
+	}
+	
 	/**
 	 * Set the position of the ball.
 	 * 
@@ -61,7 +123,19 @@ public class Ball
 	 */
 	public void setPosition(Vec2 v)
 	{
-		position = v;
+		setPosition(v.x, v.y);
+	}
+	
+	/**
+	 * Set the position of the ball.
+	 * 
+	 * @param x New X coordinate
+	 * @param y New Y coordinate
+	 */
+	public void setPosition(double x, double y)
+	{
+		this.x = x;
+		this.y = y;
 	}
 	
 	/**
@@ -71,7 +145,27 @@ public class Ball
 	 */
 	public Vec2 getVelocity()
 	{
-		return velocity;
+		return new Vec2(vx, vy);
+	}
+	
+	/**
+	 * Get the horizontal velocity of the ball.
+	 * 
+	 * @return Horizontal velocity of the ball
+	 */
+	public double getVelocityX()
+	{
+		return vx;
+	}
+	
+	/**
+	 * Get the vertical velocity of the ball.
+	 * 
+	 * @return Vertical velocity of the ball
+	 */
+	public double getVelocityY()
+	{
+		return vy;
 	}
 	
 	/**
@@ -81,7 +175,19 @@ public class Ball
 	 */
 	public void setVelocity(Vec2 v)
 	{
-		velocity = v;
+		setVelocity(v.x, v.y);
+	}
+	
+	/**
+	 * Set the velocity of the ball.
+	 * 
+	 * @param x New horizontal velocity
+	 * @param y New vertical velocity
+	 */
+	public void setVelocity(double x, double y)
+	{
+		vx = x;
+		vy = y;
 	}
 	
 	/**
@@ -92,7 +198,8 @@ public class Ball
 	 */
 	public void accelerate(double x, double y)
 	{
-		accelerate(new Vec2(x, y));
+		vx += x;
+		vy += y;
 	}
 	
 	/**
@@ -102,7 +209,7 @@ public class Ball
 	 */
 	public void accelerate(Vec2 acc)
 	{
-		velocity = velocity.add(acc);
+		accelerate(acc.x, acc.y);
 	}
 	
 	/**
@@ -113,7 +220,8 @@ public class Ball
 	 */
 	public void move(double x, double y)
 	{
-		move(new Vec2(x, y));
+		this.x += x;
+		this.y += y;
 	}
 	
 	/**
@@ -123,7 +231,7 @@ public class Ball
 	 */
 	public void move(Vec2 v)
 	{
-		position = position.add(v);
+		move(v.x, v.y);
 	}
 	
 	/**
@@ -165,4 +273,40 @@ public class Ball
 	{
 		penetrationPower = n;
 	}
+	
+	/**
+	 * Copy everything that can change about the ball into an array.
+	 * 
+	 * @param state Array to copy into
+	 * @param offset Where in the array to put the STATE_SIZE values
+	 */
+	void saveState(double[] state, int offset)
+	{
+		state[offset] = x;
+		state[offset + 1] = y;
+		state[offset + 2] = vx;
+		state[offset + 3] = vy;
+		state[offset + 4] = previousX;
+		state[offset + 5] = previousY;
+		state[offset + 6] = radius;
+		state[offset + 7] = penetrationPower;
+	}
+	
+	/**
+	 * Put the ball back the way it was when its state was saved.
+	 * 
+	 * @param state Array holding the saved state
+	 * @param offset Where in the array the STATE_SIZE values are
+	 */
+	void loadState(double[] state, int offset)
+	{
+		x = state[offset];
+		y = state[offset + 1];
+		vx = state[offset + 2];
+		vy = state[offset + 3];
+		previousX = state[offset + 4];
+		previousY = state[offset + 5];
+		radius = state[offset + 6];
+		penetrationPower = (int)state[offset + 7];
+	}
 }
@@ -0,0 +1,145 @@
+package se.gunning.flongout;
+
+/**
+ * The most recent positions of a ball, kept for drawing its trail. The points
+ * are stored in a fixed-size ring of coordinates, so adding a point never
+ * allocates anything; once the trail is full the oldest point is overwritten.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-11
+ */
+public class BallTrail
+{
+	/**
+	 * X coordinates of the points, in world coordinates.
+	 */
+	private double[] xs;
+	
+	/**
+	 * Y coordinates of the points, in world coordinates.
+	 */
+	private double[] ys;
+	
+	/**
+	 * Index of the oldest point.
+	 */
+	private int first;
+	
+	/**
+	 * Number of points in the trail.
+	 */
+	private int size;
+	
+	/**
+	 * Create a new, empty trail.
+	 *
+	 * @param capacity Maximum number of points in the trail
+	 * @throws IllegalArgumentException If the capacity is less than two
+	 */
+	public BallTrail(int capacity)
+	{
+		if (capacity < 2)
+		{
+			throw new IllegalArgumentException("A trail needs room for at least two points");
+		}
+		
+		xs = new double[capacity];
+		ys = new double[capacity];
+	}
+	
+	/**
+	 * Add a point to the trail, dropping the oldest point if the trail is full.
+	 *
+	 * @param x X coordinate, in world coordinates
+	 * @param y Y coordinate, in world coordinates
+	 */
+	public void add(double x, double y)
+	{
+		int last;
+		
+		if (size < xs.length)
+		{
+			last = (first + size) % xs.length;
+			++size;
+		}
+		else
+		{
+			last = first;
+			first = (first + 1) % xs.length;
+		}
+		
+		xs[last] = x;
+		ys[last] = y;
+	}
+	
+	/**
+	 * Remove all points from the trail.
+	 */
+	public void clear()
+	{
+		first = 0;
+		size = 0;
+	}
+	
+	/**
+	 * Get the number of points in the trail.
+	 *
+	 * @return Number of points
+	 */
+	public int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * Get the maximum number of points in the trail.
+	 *
+	 * @return Maximum number of points
+	 */
+	public int getCapacity()
+	{
+		return xs.length;
+	}
+	
+	/**
+	 * Get the X coordinate of a point.
+	 *
+	 * @param i Index of the point, 0 being the oldest
+	 * @return X coordinate, in world coordinates
+	 * @throws IndexOutOfBoundsException If there's no such point
+	 */
+	public double getX(int i)
+	{
+		return xs[index(i)];
+	}
+	
+	/**
+	 * Get the Y coordinate of a point.
+	 *
+	 * @param i Index of the point, 0 being the oldest
+	 * @return Y coordinate, in world coordinates
+	 * @throws IndexOutOfBoundsException If there's no such point
+	 */
+	public double getY(int i)
+	{
+		return ys[index(i)];
+	}
+	
+	/**
+	 * Find where a point is stored in the ring.
+	 *
+	 * @param i Index of the point, 0 being the oldest
+	 * @return Index in the coordinate arrays
+	 */
+	private int index(int i)
+	{
+		if (i < 0 || i >= size)
+		{
+			throw new IndexOutOfBoundsException("No point " + i + " in a trail of " + size);
+		}
+		
+		return (first + i) % xs.length;
+	}
+}
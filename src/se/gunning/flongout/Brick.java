@@ -12,6 +12,27 @@ import java.util.Random;
  */
 public class Brick
 {
+    /**
+     * Kinds of bricks.
+     *
+     * @author Mikael Forsberg
+     * @author Robin Gunning
+     * @author Jonathan Yao Håkansson
+     * @version 2015-06-19
+     */
+	public enum Type
+	{
+        /**
+         * Loses hitpoints when hit, and breaks when they run out.
+         */
+		NORMAL,
+		
+        /**
+         * Can't be broken.
+         */
+		SOLID
+	}
+	
     /**
      * Hitpoints remaining.
      */
@@ -23,6 +44,11 @@ public class Brick
      */
 	private Rect rect;
 	
+    /**
+     * Kind of brick.
+     */
+	private Type type = Type.NORMAL;
+	
     /**
      * Create a new brick.
      *
@@ -42,13 +68,49 @@ public class Brick
      * @param r Rectangle occupied by the brick
      */
 	public Brick(Rect r)
+	{
+		this(r, new Random());
+	}
+	
+    /**
+     * Create a new brick, using a given random number generator to pick its
+     * hitpoints.
+     *
+     * @param r Rectangle occupied by the brick
+     * @param rng Random number generator
+     */
+	public Brick(Rect r, Random rng)
 	{
 		rect = r;
-		Random nr = new Random();
-		int rand = 1 + nr.nextInt(3);
+		int rand = 1 + rng.nextInt(3);
 		hp = rand;
 	}
 	
+    /**
+     * Create a new brick with given hitpoints.
+     *
+     * @param r Rectangle occupied by the brick
+     * @param hp Hitpoints
+     */
+	public Brick(Rect r, int hp)
+	{
+		this(r, hp, Type.NORMAL);
+	}
+	
+    /**
+     * Create a new brick of a given kind with given hitpoints.
+     *
+     * @param r Rectangle occupied by the brick
+     * @param hp Hitpoints
+     * @param type Kind of brick
+     */
+	public Brick(Rect r, int hp, Type type)
+	{
+		rect = r;
+		this.hp = hp;
+		this.type = type;
+	}
+	
     /**
      * Add hitpoints.
      *
@@ -89,6 +151,16 @@ public class Brick
 		return hp <= 0;
 	}
 	
+    /**
+     * Get the kind of brick.
+     *
+     * @return Kind of brick
+     */
+	public Type getType()
+	{
+		return type;
+	}
+	
     /**
      * Get the rectangle occupied by the brick.
      *
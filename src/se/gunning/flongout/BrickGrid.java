@@ -1,8 +1,7 @@
 package se.gunning.flongout;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Stack;
+import java.util.Random;
 
 import org.newdawn.slick.Graphics;
 import org.newdawn.slick.Image;
@@ -10,6 +9,10 @@ import org.newdawn.slick.Image;
 /**
  * Represents a grid where each cell can contain a brick.
  * 
+ * Cells are numbered row by row. Which cells hold a brick is kept in a
+ * bitset, so that drawing skips empty stretches of the grid, and the brick
+ * a ball hits is found from where the wall is rather than by searching.
+ * 
  * @author Mikael Forsberg
  * @author Robin Gunning
  * @author Jonathan Yao Håkansson
@@ -31,36 +34,41 @@ public class BrickGrid
 	}
     
     /**
-     * Internal helper class for grid indices.
+     * The bricks of a grid at some point, to be restored later. Taking a
+     * snapshot into an existing one allocates nothing.
      *
      * @author Mikael Forsberg
      * @author Robin Gunning
      * @author Jonathan Yao Håkansson
-     * @version 2015-05-16
+     * @version 2015-06-14
      */
-	private static class Index
+	public static class Snapshot
 	{
         /**
-         * Row of this index.
+         * Grid the snapshot was taken of.
          */
-		public final int row;
-        
+		private BrickGrid grid;
+		
         /**
-         * Column of this index.
+         * Version of the bricks when the snapshot was taken.
          */
-		public final int column;
+		private long version = -1;
 		
         /**
-         * Create a new index.
-         *
-         * @param row Row
-         * @param column Column
+         * Number of layouts loaded into the grid when the snapshot was taken.
          */
-		public Index(int row, int column)
-		{
-			this.row = row;
-			this.column = column;
-		}
+		private int layouts;
+		
+        /**
+         * Hitpoints of the brick in each cell, row by row, 0 for no brick.
+         */
+		private int[] hp;
+		
+        /**
+         * Free cells, row by row numbering, in the order they'll be used.
+         */
+		private int[] free;
+		private int freeCount;
 	}
 	
     /**
@@ -79,20 +87,58 @@ public class BrickGrid
 	private int columns;
 	
     /**
-     * Cell contents.
+     * Cell contents, row by row.
+     */
+	private Brick[] bricks;
+    
+    /**
+     * Kind of brick each cell holds, or held last.
+     */
+	private Brick.Type[] types;
+    
+    /**
+     * Number of layouts loaded into the grid.
+     */
+	private int layouts;
+    
+    /**
+     * Bitset of the cells that hold a brick, 64 cells to a word.
      */
-	private ArrayList<ArrayList<Brick>> bricks;
+	private long[] occupied;
     
     /**
-     * List of free indices.
+     * Free cells, in random order. Bricks are spawned in the last one, and
+     * freed cells are put in at a random place, which keeps the order random
+     * without shuffling all of it.
+     */
+	private int[] free;
+	
+    /**
+     * Number of free cells.
+     */
+	private int freeCount;
+	
+    /**
+     * Version of the bricks, changed whenever a brick is added, hit or
+     * broken. Versions are never reused, so equal versions mean equal bricks.
+     */
+	private long version;
+	
+    /**
+     * Last version handed out.
      */
-	private Stack<Index> freeIndices;
+	private long lastVersion;
 	
     /**
      * Brick break callback. Can be null.
      */
 	private BrickBreakAction brickBreakAction;
 	
+    /**
+     * Random number generator for picking free cells and brick hitpoints.
+     */
+	private Random rng;
+	
     /**
      * Create a new grid.
      *
@@ -101,30 +147,108 @@ public class BrickGrid
      * @param columns Number of columns in the grid
      */
 	public BrickGrid(Rect rect, int rows, int columns)
+	{
+		this(rect, rows, columns, new Random());
+	}
+	
+    /**
+     * Create a new grid using a given random number generator, so that the
+     * same generator state always gives the same bricks in the same cells.
+     *
+     * @param rect Rectangle occupied by the grid as a whole
+     * @param rows Number of rows in the grid
+     * @param columns Number of columns in the grid
+     * @param rng Random number generator
+     */
+	public BrickGrid(Rect rect, int rows, int columns, Random rng)
 	{
 		this.rect = rect;
+		this.rng = rng;
 		this.rows = rows;
 		this.columns = columns;
 		
-        // initialize cell contents and set all indices as free
-		bricks = new ArrayList<ArrayList<Brick>>(rows);
-		freeIndices = new Stack<Index>();
+        // initialize cell contents and set all cells as free
+		allocateCells();
         
+		for (int i = 0; i < rows * columns; ++i)
+		{
+			free[freeCount++] = i;
+		}
+		
+		shuffleFreeCells();
+	}
+	
+    /**
+     * Set up empty cells for the size of the grid.
+     */
+	private void allocateCells()
+	{
+		bricks = new Brick[rows * columns];
+		types = new Brick.Type[rows * columns];
+		occupied = new long[(rows * columns + 63) / 64];
+		free = new int[rows * columns];
+		freeCount = 0;
+	}
+	
+    /**
+     * Shuffle the free cells, the same way as Collections.shuffle so that
+     * grids are filled as they always were.
+     */
+	private void shuffleFreeCells()
+	{
+		for (int i = freeCount; i > 1; --i)
+		{
+			int j = rng.nextInt(i);
+			int tmp = free[i - 1];
+			free[i - 1] = free[j];
+			free[j] = tmp;
+		}
+	}
+	
+    /**
+     * Replace the bricks of the grid with those of a layout, taking its size.
+     * The walls of the old bricks are removed from the physics world at once,
+     * and those of the new ones added all together. The layout stays as it
+     * was made: no random bricks spawn in the cells it leaves empty, nor in
+     * those of its bricks once broken.
+     *
+     * @param layout Layout to load
+     * @param world Physics world to create walls in
+     */
+	public void load(BrickLayout layout, Physics world)
+	{
+		world.clearWallGroup("brickgrid-brick");
+		
+		rows = layout.getRows();
+		columns = layout.getColumns();
+		allocateCells();
+		
+		ArrayList<Rect> walls = new ArrayList<Rect>(rows * columns);
+		
 		for (int i = 0; i < rows; ++i)
 		{
-			ArrayList<Brick> row = new ArrayList<Brick>();
-			
 			for (int j = 0; j < columns; ++j)
 			{
-				freeIndices.add(new Index(i, j));
-				row.add(null);
+				int cell = i * columns + j;
+				int hp = layout.getHp(i, j);
+				
+				types[cell] = layout.getType(i, j);
+				
+				if (hp > 0)
+				{
+					Rect r = getCellRect(i, j);
+					
+					bricks[cell] = new Brick(r, hp, types[cell]);
+					occupied[cell >>> 6] |= 1L << cell;
+					walls.add(r);
+				}
 			}
-			
-			bricks.add(row);
 		}
 		
-        // shuffle to get random indices later
-		Collections.shuffle(freeIndices);
+		world.addWalls("brickgrid-brick", walls);
+		
+		++layouts;
+		version = ++lastVersion;
 	}
 	
     /**
@@ -137,6 +261,27 @@ public class BrickGrid
 		return rect;
 	}
 	
+    /**
+     * Get the rectangle of the brick in a cell, which is also the brick's
+     * wall in the physics world.
+     *
+     * @param row Row of the cell
+     * @param column Column of the cell
+     * @return The brick's rectangle, or null if there's no brick in the cell
+     * @throws IllegalArgumentException If the cell is outside the grid
+     */
+	public Rect getBrickRect(int row, int column)
+	{
+		if (row < 0 || row >= rows || column < 0 || column >= columns)
+		{
+			throw new IllegalArgumentException("No such cell: " + row + ", " + column);
+		}
+		
+		Brick b = bricks[row * columns + column];
+		
+		return (b == null) ? null : b.getRect();
+	}
+	
     /**
      * Set a callback that will be called whenever a brick is broken.
      *
@@ -148,34 +293,193 @@ public class BrickGrid
 	}
 	
     /**
-     * Spawn a brick at a random free index. If there are no free indices
-     * this method will do nothing.
+     * Spawn a brick at a random free cell. If there are no free cells, as
+     * when a layout is loaded, this method will do nothing.
      *
      * @param world Physics world to create walls in
      */
 	public void spawnRandomBrick(Physics world)
 	{
         // no free slots
-		if (freeIndices.size() < 1)
+		if (freeCount < 1)
 		{
 			return;
 		}
 		
-        // grab a random index
-		Index idx = freeIndices.pop();
+        // grab a random cell
+		int cell = free[--freeCount];
 		
-        // construct a rectangle for the selected index
-		Rect r = new Rect(
-				rect.getX() + (double)idx.column * rect.getWidth() / (double)columns,
-				rect.getY() + (double)idx.row * rect.getHeight() / (double)rows,
-				rect.getWidth() / (double)columns,
-				rect.getHeight() / (double) rows);
+        // construct a rectangle for the selected cell
+		Rect r = getCellRect(cell / columns, cell % columns);
 		
         // add wall to physics world
 		world.addWall("brickgrid-brick", r);
 		
         // add brick to cell contents
-		bricks.get(idx.row).set(idx.column, new Brick(r));
+		bricks[cell] = new Brick(r, rng);
+		types[cell] = Brick.Type.NORMAL;
+		occupied[cell >>> 6] |= 1L << cell;
+		version = ++lastVersion;
+	}
+	
+    /**
+     * Make a cell free, putting it at a random place among the free cells.
+     * Swapping it with a random one keeps the free cells in random order.
+     *
+     * @param cell Cell number
+     */
+	private void freeCell(int cell)
+	{
+		int j = rng.nextInt(freeCount + 1);
+		
+		free[freeCount++] = free[j];
+		free[j] = cell;
+	}
+	
+    /**
+     * Get the number of the cell a wall of the grid occupies, going by where
+     * the wall is.
+     *
+     * @param wall Wall rectangle
+     * @return Cell number, or -1 if the wall isn't on a cell of the grid
+     */
+	private int getCell(Rect wall)
+	{
+		long column = Math.round((wall.getX() - rect.getX()) * (double)columns / rect.getWidth());
+		long row = Math.round((wall.getY() - rect.getY()) * (double)rows / rect.getHeight());
+		
+		if (column < 0 || column >= columns || row < 0 || row >= rows)
+		{
+			return -1;
+		}
+		
+		return (int)row * columns + (int)column;
+	}
+	
+    /**
+     * Get the rectangle of a cell.
+     *
+     * @param row Row of the cell
+     * @param column Column of the cell
+     * @return Rectangle occupied by the cell
+     */
+	private Rect getCellRect(int row, int column)
+	{
+		return new Rect(
+				rect.getX() + (double)column * rect.getWidth() / (double)columns,
+				rect.getY() + (double)row * rect.getHeight() / (double)rows,
+				rect.getWidth() / (double)columns,
+				rect.getHeight() / (double) rows);
+	}
+	
+    /**
+     * Take a snapshot of the bricks.
+     *
+     * @return The snapshot
+     */
+	public Snapshot snapshot()
+	{
+		Snapshot s = new Snapshot();
+		snapshot(s);
+		
+		return s;
+	}
+	
+    /**
+     * Take a snapshot of the bricks, reusing an earlier snapshot. Nothing is
+     * copied if the bricks haven't changed since. The random number generator
+     * isn't part of the snapshot.
+     *
+     * @param s Snapshot to overwrite
+     */
+	public void snapshot(Snapshot s)
+	{
+		if (s.grid == this && s.version == version)
+		{
+			return;
+		}
+		
+		if (s.grid != this || s.hp.length != bricks.length)
+		{
+			s.grid = this;
+			s.hp = new int[rows * columns];
+			s.free = new int[rows * columns];
+		}
+		
+		for (int i = 0; i < bricks.length; ++i)
+		{
+			Brick b = bricks[i];
+			s.hp[i] = (b == null) ? 0 : b.getHp();
+		}
+		
+		System.arraycopy(free, 0, s.free, 0, freeCount);
+		s.freeCount = freeCount;
+		s.layouts = layouts;
+		s.version = version;
+	}
+	
+    /**
+     * Put the bricks back the way they were when a snapshot was taken. This
+     * doesn't touch the walls of the bricks in the physics world, so restore
+     * the physics world from a snapshot taken at the same time.
+     *
+     * @param s Snapshot to restore
+     * @throws IllegalArgumentException If the snapshot is of another grid
+     * @throws IllegalStateException If a layout has been loaded since the
+     * 			snapshot was taken
+     */
+	public void restore(Snapshot s)
+	{
+		if (s.grid != this)
+		{
+			throw new IllegalArgumentException("Snapshot is of another grid");
+		}
+		
+		if (s.layouts != layouts)
+		{
+			throw new IllegalStateException("A layout has been loaded since the snapshot");
+		}
+		
+		if (s.version == version)
+		{
+			return;
+		}
+		
+		for (int i = 0; i < bricks.length; ++i)
+		{
+			int hp = s.hp[i];
+			
+			if (hp <= 0)
+			{
+				bricks[i] = null;
+				occupied[i >>> 6] &= ~(1L << i);
+			}
+			else if (bricks[i] == null)
+			{
+				bricks[i] = new Brick(getCellRect(i / columns, i % columns), hp, types[i]);
+				occupied[i >>> 6] |= 1L << i;
+			}
+			else
+			{
+				bricks[i].setHp(hp);
+			}
+		}
+		
+		System.arraycopy(s.free, 0, free, 0, s.freeCount);
+		freeCount = s.freeCount;
+		
+		version = s.version;
+	}
+	
+    /**
+     * Get the version of the bricks, which changes whenever a brick is added,
+     * hit or broken.
+     *
+     * @return The version
+     */
+	public long getVersion()
+	{
+		return version;
 	}
 	
     /**
@@ -201,35 +505,46 @@ public class BrickGrid
 					return;
 				}
 				
-                // scan our cells for the brick that's been hit
-				for (int i = 0; i < rows; ++i)
+                // find the brick that's been hit from where the wall is
+				int cell = getCell(wall);
+				
+				if (cell < 0)
+				{
+					return;
+				}
+				
+				Brick b = bricks[cell];
+				
+				if (b != null && b.getRect().equals(wall))
 				{
-					for (int j = 0; j < columns; ++j)
+                    // found the brick, solid ones just bounce the ball
+					if (b.getType() == Brick.Type.SOLID)
 					{
-						Brick b = bricks.get(i).get(j);
+						return;
+					}
+					
+                    // decrement hp
+					b.setHp(b.getHp() - ball.getPenetrationPower());
+					version = ++lastVersion;
+					
+                    // brick broken?
+					if (b.getHp() <= 0)
+					{
+                        // remove it
+						bricks[cell] = null;
+						occupied[cell >>> 6] &= ~(1L << cell);
+						world.removeWall("brickgrid-brick", wall);
+						
+                        // make the cell available, unless it's part of a layout
+						if (layouts == 0)
+						{
+							freeCell(cell);
+						}
 						
-						if (b != null && b.getRect().equals(wall))
+                        // call the brick-break callback
+						if (brickBreakAction != null)
 						{
-                            // found the brick, decrement hp
-							b.setHp(b.getHp() - ball.getPenetrationPower());
-							
-                            // brick broken?
-							if (b.getHp() <= 0)
-							{
-                                // remove it
-								bricks.get(i).set(j, null);
-								world.removeWall("brickgrid-brick", wall);
-								
-                                // make the index available
-								freeIndices.add(new Index(i, j));
-								Collections.shuffle(freeIndices);
-								
-                                // call the brick-break callback
-								if (brickBreakAction != null)
-								{
-									brickBreakAction.onBrickBroken(grid, wall);
-								}
-							}
+							brickBreakAction.onBrickBroken(grid, wall);
 						}
 					}
 				}
@@ -255,51 +570,78 @@ public class BrickGrid
      */
 	public void debugDraw(Graphics g, CoordinateTransformer ct)
 	{
-		for (int i = 0; i < rows; ++i)
+		for (int cell = nextBrick(0); cell >= 0; cell = nextBrick(cell + 1))
 		{
-			for (int j = 0; j < columns; j++)
-			{
-				if (bricks.get(i).get(j) != null)
-				{
-					bricks.get(i).get(j).getRect().debugDraw(g, ct);
-				}
-			}
+			bricks[cell].getRect().debugDraw(g, ct);
 		}
 	}
 	
 	/**
 	 * Draw the brick graphics.
 	 * 
-	 * @param g Slick2D Graphics to draw on / with
+	 * @param batch Sprite batch to draw with, the images must come from its atlas
 	 * @param ct Coordinate transformer
 	 * @param img Image for bricks with hp == 1
 	 * @param img2 Image for bricks with hp == 2
-	 * @param img3 Image for bricks with hp == 3
+	 * @param img3 Image for bricks with hp &gt;= 3, and solid bricks
 	 */
-	public void brickDraw(Graphics g, CoordinateTransformer ct, Image img, Image img2, Image img3)
+	public void brickDraw(SpriteBatch batch, CoordinateTransformer ct, Image img, Image img2, Image img3)
 	{
-		for (int i = 0; i < rows; ++i)
+		for (int cell = nextBrick(0); cell >= 0; cell = nextBrick(cell + 1))
 		{
-			for (int j = 0; j < columns; j++)
+			Brick b = bricks[cell];
+			Rect r = b.getRect();
+			Image pic = (b.getHp() == 1) ? img : (b.getHp() == 2) ? img2 : img3;
+			
+			// stretched to the cell, which depends on the size of the layout
+			batch.draw(pic, ct.toScreenX(r.getX()), ct.toScreenY(r.getY() + r.getHeight()), ct.widthToScreen(r.getWidth()), ct.heightToScreen(r.getHeight()));
+		}
+	}
+	
+	/**
+	 * Find the first cell holding a brick, starting from a given cell.
+	 * 
+	 * @param from Cell number to start from
+	 * @return Cell number, or -1 if there are no more bricks
+	 */
+	private int nextBrick(int from)
+	{
+		int word = from >>> 6;
+		
+		if (word >= occupied.length)
+		{
+			return -1;
+		}
+		
+		long bits = occupied[word] & (-1L << from);
+		
+		while (bits == 0)
+		{
+			if (++word >= occupied.length)
 			{
-				if (bricks.get(i).get(j) != null)
-				{
-					Rect r = bricks.get(i).get(j).getRect();
-					if (bricks.get(i).get(j).getHp() == 1)
-					{
-						img.draw(ct.toScreenX((float)r.getCenter().x - r.getWidth()/2), ct.toScreenY((float)(r.getCenter().y) + r.getHeight()/2));
-					}
-					else if (bricks.get(i).get(j).getHp() == 2)
-					{
-						img2.draw(ct.toScreenX((float)r.getCenter().x - r.getWidth()/2), ct.toScreenY((float)(r.getCenter().y) + r.getHeight()/2));
-					}
-					else if (bricks.get(i).get(j).getHp() == 3)
-					{
-						img3.draw(ct.toScreenX((float)r.getCenter().x - r.getWidth()/2), ct.toScreenY((float)(r.getCenter().y) + r.getHeight()/2));
-					}
-					
-				}
+				return -1;
 			}
+			
+			bits = occupied[word];
 		}
+		
+		return word * 64 + Long.numberOfTrailingZeros(bits);
+	}
+	
+	/**
+	 * Get the number of bricks in the grid.
+	 * 
+	 * @return Number of bricks
+	 */
+	public int getBrickCount()
+	{
+		int count = 0;
+		
+		for (int i = 0; i < occupied.length; ++i)
+		{
+			count += Long.bitCount(occupied[i]);
+		}
+		
+		return count;
 	}
 }
@@ -0,0 +1,480 @@
+package se.gunning.flongout;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A hand made layout of bricks for a brick grid: its size, and the
+ * hitpoints and kind of the brick in each cell.
+ *
+ * Layouts are written as text, to be edited by hand, or packed into a
+ * binary file. The text starts with the number of rows and columns, and
+ * then has one line per row, from the top row down, with one character per
+ * cell: "." for no brick, "1" to "9" for a brick with that many hitpoints
+ * and "#" for a solid brick. Empty lines and lines starting with ";" are
+ * skipped, so a layout can have comments.
+ *
+ * <pre>
+ * ; two walls with a gap in the middle
+ * 4 2
+ * 3#
+ * ..
+ * ..
+ * #3
+ * </pre>
+ *
+ * The binary form holds the size followed by a byte per cell, row by row
+ * from the bottom up, with the kind of brick in the top two bits and the
+ * hitpoints in the rest.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-19
+ */
+public class BrickLayout
+{
+	/**
+	 * Most rows or columns in a layout.
+	 */
+	public static final int MAX_SIZE = 1024;
+	
+	/**
+	 * Most hitpoints of a brick that can be stored.
+	 */
+	public static final int MAX_HP = 63;
+	
+	/**
+	 * Start of every binary layout file, "FLLV".
+	 */
+	private static final int MAGIC = 0x464C4C56;
+	
+	/**
+	 * Version of the binary file format.
+	 */
+	private static final int VERSION = 1;
+	
+	/**
+	 * Bits of a cell byte holding the hitpoints, and how far up the kind of
+	 * brick is.
+	 */
+	private static final int HP_MASK = 0x3F;
+	private static final int TYPE_SHIFT = 6;
+	
+	/**
+	 * Number of rows.
+	 */
+	private int rows;
+	
+	/**
+	 * Number of columns.
+	 */
+	private int columns;
+	
+	/**
+	 * Hitpoints of the brick in each cell, row by row from the bottom up, 0
+	 * for no brick.
+	 */
+	private int[] hp;
+	
+	/**
+	 * Kind of brick in each cell, row by row from the bottom up.
+	 */
+	private Brick.Type[] types;
+	
+	/**
+	 * Create a new layout without any bricks.
+	 *
+	 * @param rows Number of rows
+	 * @param columns Number of columns
+	 * @throws IllegalArgumentException If the size is less than one or more
+	 * 			than MAX_SIZE
+	 */
+	public BrickLayout(int rows, int columns)
+	{
+		if (rows < 1 || columns < 1 || rows > MAX_SIZE || columns > MAX_SIZE)
+		{
+			throw new IllegalArgumentException("A layout must have between 1 and " + MAX_SIZE + " rows and columns");
+		}
+		
+		this.rows = rows;
+		this.columns = columns;
+		hp = new int[rows * columns];
+		types = new Brick.Type[rows * columns];
+		
+		for (int i = 0; i < types.length; ++i)
+		{
+			types[i] = Brick.Type.NORMAL;
+		}
+	}
+	
+	/**
+	 * Get the number of rows.
+	 *
+	 * @return Number of rows
+	 */
+	public int getRows()
+	{
+		return rows;
+	}
+	
+	/**
+	 * Get the number of columns.
+	 *
+	 * @return Number of columns
+	 */
+	public int getColumns()
+	{
+		return columns;
+	}
+	
+	/**
+	 * Put a brick in a cell, or empty it.
+	 *
+	 * @param row Row of the cell, counting from the bottom
+	 * @param column Column of the cell
+	 * @param hp Hitpoints of the brick, or 0 for no brick
+	 * @param type Kind of brick
+	 * @throws IllegalArgumentException If the cell is outside the layout or
+	 * 			the hitpoints are negative or more than MAX_HP
+	 */
+	public void setBrick(int row, int column, int hp, Brick.Type type)
+	{
+		if (hp < 0 || hp > MAX_HP)
+		{
+			throw new IllegalArgumentException("Hitpoints must be between 0 and " + MAX_HP);
+		}
+		
+		int cell = getCell(row, column);
+		this.hp[cell] = hp;
+		types[cell] = type;
+	}
+	
+	/**
+	 * Get the hitpoints of the brick in a cell.
+	 *
+	 * @param row Row of the cell, counting from the bottom
+	 * @param column Column of the cell
+	 * @return Hitpoints, or 0 if there is no brick
+	 * @throws IllegalArgumentException If the cell is outside the layout
+	 */
+	public int getHp(int row, int column)
+	{
+		return hp[getCell(row, column)];
+	}
+	
+	/**
+	 * Get the kind of brick in a cell.
+	 *
+	 * @param row Row of the cell, counting from the bottom
+	 * @param column Column of the cell
+	 * @return Kind of brick
+	 * @throws IllegalArgumentException If the cell is outside the layout
+	 */
+	public Brick.Type getType(int row, int column)
+	{
+		return types[getCell(row, column)];
+	}
+	
+	/**
+	 * Get the number of a cell, row by row from the bottom up.
+	 *
+	 * @param row Row of the cell
+	 * @param column Column of the cell
+	 * @return Cell number
+	 * @throws IllegalArgumentException If the cell is outside the layout
+	 */
+	private int getCell(int row, int column)
+	{
+		if (row < 0 || row >= rows || column < 0 || column >= columns)
+		{
+			throw new IllegalArgumentException("No cell at row " + row + ", column " + column);
+		}
+		
+		return row * columns + column;
+	}
+	
+	/**
+	 * Read a layout written as text.
+	 *
+	 * @param reader Reader to read from
+	 * @return The layout
+	 * @throws IOException If reading fails or the text isn't a layout
+	 */
+	public static BrickLayout parse(Reader reader) throws IOException
+	{
+		BufferedReader in = new BufferedReader(reader);
+		BrickLayout layout = null;
+		int lineNumber = 0;
+		int row = 0;
+		String line;
+		
+		while ((line = in.readLine()) != null)
+		{
+			++lineNumber;
+			line = line.trim();
+			
+			if (line.isEmpty() || line.startsWith(";"))
+			{
+				continue;
+			}
+			
+			// the first line gives the size
+			if (layout == null)
+			{
+				String[] size = line.split("\\s+");
+				
+				try
+				{
+					if (size.length != 2)
+					{
+						throw new IllegalArgumentException("Expected the number of rows and columns");
+					}
+					
+					layout = new BrickLayout(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+				}
+				catch (IllegalArgumentException e)
+				{
+					throw new IOException("Broken layout on line " + lineNumber + ": " + e.getMessage());
+				}
+				
+				continue;
+			}
+			
+			if (row >= layout.rows)
+			{
+				throw new IOException("Broken layout on line " + lineNumber + ": more than " + layout.rows + " rows");
+			}
+			
+			if (line.length() != layout.columns)
+			{
+				throw new IOException("Broken layout on line " + lineNumber + ": expected " + layout.columns + " cells, got " + line.length());
+			}
+			
+			// rows are written from the top down
+			int cellRow = layout.rows - 1 - row;
+			
+			for (int j = 0; j < layout.columns; ++j)
+			{
+				char c = line.charAt(j);
+				
+				if (c == '#')
+				{
+					layout.setBrick(cellRow, j, 1, Brick.Type.SOLID);
+				}
+				else if (c >= '1' && c <= '9')
+				{
+					layout.setBrick(cellRow, j, c - '0', Brick.Type.NORMAL);
+				}
+				else if (c != '.')
+				{
+					throw new IOException("Broken layout on line " + lineNumber + ": unknown cell '" + c + "'");
+				}
+			}
+			
+			++row;
+		}
+		
+		if (layout == null)
+		{
+			throw new IOException("Broken layout: no size given");
+		}
+		
+		if (row < layout.rows)
+		{
+			throw new IOException("Broken layout: expected " + layout.rows + " rows, got " + row);
+		}
+		
+		return layout;
+	}
+	
+	/**
+	 * Write the layout as text. Bricks with more than nine hitpoints are
+	 * written with nine.
+	 *
+	 * @param out Writer to write to
+	 * @throws IOException If writing fails
+	 */
+	public void writeText(Writer out) throws IOException
+	{
+		StringBuilder line = new StringBuilder(columns);
+		
+		out.write(rows + " " + columns + "\n");
+		
+		for (int i = rows - 1; i >= 0; --i)
+		{
+			line.setLength(0);
+			
+			for (int j = 0; j < columns; ++j)
+			{
+				int cell = i * columns + j;
+				
+				if (hp[cell] == 0)
+				{
+					line.append('.');
+				}
+				else if (types[cell] == Brick.Type.SOLID)
+				{
+					line.append('#');
+				}
+				else
+				{
+					line.append((char)('0' + Math.min(hp[cell], 9)));
+				}
+			}
+			
+			out.write(line.append('\n').toString());
+		}
+		
+		out.flush();
+	}
+	
+	/**
+	 * Write the layout in binary form to a stream.
+	 *
+	 * @param stream Stream to write to
+	 * @throws IOException If writing fails
+	 */
+	public void write(OutputStream stream) throws IOException
+	{
+		DataOutputStream out = new DataOutputStream(stream);
+		byte[] cells = new byte[rows * columns];
+		
+		for (int i = 0; i < cells.length; ++i)
+		{
+			cells[i] = (byte)(types[i].ordinal() << TYPE_SHIFT | hp[i]);
+		}
+		
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		out.writeShort(rows);
+		out.writeShort(columns);
+		out.write(cells);
+		out.flush();
+	}
+	
+	/**
+	 * Read a layout from a stream, in binary form or as text.
+	 *
+	 * @param stream Stream to read from
+	 * @return The layout
+	 * @throws IOException If reading fails or the stream doesn't hold a layout
+	 */
+	public static BrickLayout read(InputStream stream) throws IOException
+	{
+		// look at the start to tell the binary form from text
+		BufferedInputStream buffered = new BufferedInputStream(stream);
+		DataInputStream in = new DataInputStream(buffered);
+		
+		buffered.mark(4);
+		
+		byte[] start = new byte[4];
+		int length = 0;
+		int n;
+		
+		while (length < start.length && (n = buffered.read(start, length, start.length - length)) > 0)
+		{
+			length += n;
+		}
+		
+		if (length < start.length || ((start[0] & 0xFF) << 24 | (start[1] & 0xFF) << 16 | (start[2] & 0xFF) << 8 | (start[3] & 0xFF)) != MAGIC)
+		{
+			buffered.reset();
+			return parse(new InputStreamReader(buffered, StandardCharsets.UTF_8));
+		}
+		
+		int version = in.readUnsignedByte();
+		
+		if (version != VERSION)
+		{
+			throw new IOException("Unsupported layout version " + version);
+		}
+		
+		int rows = in.readUnsignedShort();
+		int columns = in.readUnsignedShort();
+		BrickLayout layout;
+		
+		try
+		{
+			layout = new BrickLayout(rows, columns);
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new IOException("Broken layout: " + e.getMessage());
+		}
+		
+		byte[] cells = new byte[rows * columns];
+		in.readFully(cells);
+		
+		Brick.Type[] types = Brick.Type.values();
+		
+		for (int i = 0; i < cells.length; ++i)
+		{
+			int type = (cells[i] & 0xFF) >>> TYPE_SHIFT;
+			
+			if (type >= types.length)
+			{
+				throw new IOException("Broken layout: unknown brick type " + type);
+			}
+			
+			layout.hp[i] = cells[i] & HP_MASK;
+			layout.types[i] = types[type];
+		}
+		
+		return layout;
+	}
+	
+	/**
+	 * Save the layout to a file, in binary form.
+	 *
+	 * @param file File to save to
+	 * @throws IOException If writing fails
+	 */
+	public void save(File file) throws IOException
+	{
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+		
+		try
+		{
+			write(out);
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+	
+	/**
+	 * Load a layout from a file, in binary form or as text.
+	 *
+	 * @param file File to load from
+	 * @return The layout
+	 * @throws IOException If reading fails or the file doesn't hold a layout
+	 */
+	public static BrickLayout load(File file) throws IOException
+	{
+		InputStream in = new FileInputStream(file);
+		
+		try
+		{
+			return read(in);
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+}
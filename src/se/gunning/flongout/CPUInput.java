@@ -37,6 +37,11 @@ public class CPUInput implements InputMapper
 	 */
 	private boolean initialized;
 	
+	/**
+	 * Clock used for timing stick changes.
+	 */
+	private Clock clock;
+	
 	/**
 	 * Create a new CPU player.
 	 */
@@ -44,6 +49,22 @@ public class CPUInput implements InputMapper
 	{
 		// not ready until we have a paddle and a ball
 		initialized = false;
+		clock = new SystemClock();
+	}
+	
+	/**
+	 * Set the clock used for timing stick changes. This should be the
+	 * clock of the game being played.
+	 * 
+	 * @param clock Clock to use
+	 */
+	public void setClock(Clock clock)
+	{
+		this.clock = clock;
+		
+		// forget timeouts from any other clock
+		nextLeftStickChange = 0;
+		nextRightStickChange = 0;
 	}
 	
 	/**
@@ -86,6 +107,60 @@ public class CPUInput implements InputMapper
 		initialized = false;
 	}
 	
+	/**
+	 * Check whether this CPU has a paddle and a ball to play with.
+	 * 
+	 * @return True if ready to play
+	 */
+	boolean isInitialized()
+	{
+		return initialized;
+	}
+	
+	/**
+	 * Get the paddle controlled by this CPU.
+	 * 
+	 * @return The paddle, or null if not set
+	 */
+	Paddle getPaddle()
+	{
+		return paddle;
+	}
+	
+	/**
+	 * Get the ball tracked by this CPU.
+	 * 
+	 * @return The ball, or null if not set
+	 */
+	Ball getBall()
+	{
+		return ball;
+	}
+	
+	/**
+	 * Get the clock used for timing stick changes.
+	 * 
+	 * @return The clock
+	 */
+	Clock getClock()
+	{
+		return clock;
+	}
+	
+	/**
+	 * Configure a controller as if nothing is being touched.
+	 * 
+	 * @param c Controller to configure
+	 */
+	static void releaseAll(Controller c)
+	{
+		c.leftAnalog.setDirection(new Vec2(0, 0));
+		c.rightAnalog.setDirection(new Vec2(0, 0));
+		c.buttonOne.release();
+		c.buttonTwo.release();
+		c.buttonThree.release();
+	}
+	
 	/**
 	 * Populate a controller with some not-so-intelligent inputs.
 	 */
@@ -94,16 +169,11 @@ public class CPUInput implements InputMapper
 		// if not ready to play, configure the controller as if we're not touching anything
 		if (!initialized)
 		{
-			c.leftAnalog.setDirection(new Vec2(0, 0));
-			c.rightAnalog.setDirection(new Vec2(0, 0));
-			c.buttonOne.release();
-			c.buttonTwo.release();
-			c.buttonThree.release();
-			
+			releaseAll(c);
 			return;
 		}
 		
-		long time = System.currentTimeMillis();
+		long time = clock.getTimeMillis();
 		
 		// time to move the left stick? the left stick moves the paddle.
 		if (nextLeftStickChange < time)
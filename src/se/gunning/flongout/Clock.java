@@ -0,0 +1,20 @@
+package se.gunning.flongout;
+
+/**
+ * A source of time, used so that game logic can run both against the wall clock
+ * and against simulated time.
+ * 
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-02
+ */
+public interface Clock
+{
+	/**
+	 * Get the current time in milliseconds.
+	 * 
+	 * @return Current time in milliseconds
+	 */
+	public long getTimeMillis();
+}
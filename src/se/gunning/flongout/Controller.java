@@ -132,12 +132,18 @@ public class Controller
 		 */
 		private boolean pressed;
 		
+		/**
+		 * Pressed state at the end of the previous frame.
+		 */
+		private boolean wasPressed;
+		
 		/**
 		 * Create a new button. The button will be unpressed initially.
 		 */
 		public Button()
 		{
 			pressed = false;
+			wasPressed = false;
 		}
 		
 		/**
@@ -173,6 +179,36 @@ public class Controller
 		{
 			return pressed;
 		}
+		
+		/**
+		 * Check if the button was pressed this frame, having been up at the
+		 * end of the previous one.
+		 * 
+		 * @return True if the button went down this frame, false otherwise.
+		 */
+		public boolean isJustPressed()
+		{
+			return pressed && !wasPressed;
+		}
+		
+		/**
+		 * Check if the button was released this frame, having been down at
+		 * the end of the previous one.
+		 * 
+		 * @return True if the button went up this frame, false otherwise.
+		 */
+		public boolean isJustReleased()
+		{
+			return !pressed && wasPressed;
+		}
+		
+		/**
+		 * Remember the state of the button at the end of a frame.
+		 */
+		public void endFrame()
+		{
+			wasPressed = pressed;
+		}
 	}
 	
 	/**
@@ -202,4 +238,15 @@ public class Controller
 		buttonTwo = new Button();
 		buttonThree = new Button();
 	}
+	
+	/**
+	 * Remember the state of the buttons at the end of a frame, so that the
+	 * next frame can tell which of them were just pressed or released.
+	 */
+	public void endFrame()
+	{
+		buttonOne.endFrame();
+		buttonTwo.endFrame();
+		buttonThree.endFrame();
+	}
 }
@@ -1,7 +1,6 @@
 package se.gunning.flongout;
 
 import java.awt.Font;
-import java.io.FileInputStream;
 import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -108,11 +107,6 @@ public class ControllerSetupScene implements Scene
 	 */
 	private Main mainGame;
 	
-	/**
-	 * Additional keyboard input to use while in menus. 
-	 */
-	private InputMapper menuKeyboard;
-	
 	/**
 	 * Player entries in the menu.
 	 */
@@ -178,7 +172,6 @@ public class ControllerSetupScene implements Scene
 	public ControllerSetupScene(Main main)
 	{
 		mainGame = main;
-		menuKeyboard = new KeyboardMenuInput();
 		players = new ArrayList<PlayerMenuEntry>();
 		inputMappers = new ArrayList<NamedInputMapper>();
 	}
@@ -240,9 +233,9 @@ public class ControllerSetupScene implements Scene
 		
         try
         {
-    		menuFont = new TrueTypeFont(new Font("monospace", java.awt.Font.PLAIN, 40), true);
-    		helpFont = new TrueTypeFont(new Font("monospace", java.awt.Font.PLAIN, 18), true);
-			hit = new Sound(new FileInputStream("assets/sounds/hit.ogg"), "hit.ogg");
+    		menuFont = mainGame.getAssets().getSystemFont("monospace", Font.PLAIN, 40);
+    		helpFont = mainGame.getAssets().getSystemFont("monospace", Font.PLAIN, 18);
+			hit = mainGame.getAssets().getSound("assets/sounds/hit.ogg");
 		}
         catch (Exception e)
 		{
@@ -275,11 +268,6 @@ public class ControllerSetupScene implements Scene
 	@Override
 	public void update(GameContainer gc, int delta, Controller[] input) throws SlickException
 	{
-		// extend the array of inputs and add the menu keyboard input mapper
-		input = Arrays.copyOf(input, input.length + 1);
-		input[input.length - 1] = new Controller();
-		menuKeyboard.mapInput(gc.getInput(), input[input.length - 1]);
-		
 		// not detecting input, so do normal menu stuff
 		if (!detectingInput)
 		{
@@ -354,7 +342,7 @@ public class ControllerSetupScene implements Scene
 				}
 				
 				// pressed button one?
-				if (input[i].buttonOne.isPressed())
+				if (input[i].buttonOne.isJustPressed())
 				{
 					// pressed button one on a player entry, do input detection / remapping
 					if (selectedMenuItem < players.size())
@@ -381,10 +369,7 @@ public class ControllerSetupScene implements Scene
 							mapperDetectingInput.mapper.beginInputDetection(gc.getInput());
 							outputBeingDetected = inputDetectionStack.pop();
 							detectingInput = true;
-							
-							// sleep a bit to avoid instantly detecting the very same input
-							// that was used to trigger input detection
-							try { Thread.sleep(200); } catch (InterruptedException e) {}
+							return;
 						}
 					}
 					else if (selectedMenuItem == numMenuItems - 1)
@@ -416,9 +401,9 @@ public class ControllerSetupScene implements Scene
 					// done with input detection
 					detectingInput = false;
 					
-					// sleep a bit to let the player release any controls before
-					// showing the menu again to avoid unwanted navigation
-					try { Thread.sleep(200); } catch (InterruptedException e) {}
+					// don't navigate the menu with a stick still held from the
+					// last mapping, wait for all of them to be let go first
+					Arrays.fill(repeatDelay, Long.MAX_VALUE);
 				}
 			}
 		}
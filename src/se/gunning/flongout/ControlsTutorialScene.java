@@ -1,7 +1,5 @@
 package se.gunning.flongout;
 
-import java.io.FileInputStream;
-import java.util.Arrays;
 
 import org.newdawn.slick.GameContainer;
 import org.newdawn.slick.Graphics;
@@ -38,11 +36,6 @@ public class ControlsTutorialScene implements Scene
 	 */
 	private Main mainGame;
 	
-	/**
-	 * Additional keyboard input to use while in menus. 
-	 */
-	private InputMapper menuKeyboard;
-	
 	/**
 	 * Game to launch after having shown the tutorial.
 	 */
@@ -64,7 +57,6 @@ public class ControlsTutorialScene implements Scene
 		// keep a reference to main for pushing/popping scenes
 		mainGame = main;
 		this.game = game;
-		menuKeyboard = new KeyboardMenuInput();
 	}
 	
 	/**
@@ -107,8 +99,7 @@ public class ControlsTutorialScene implements Scene
 		
 		// load assets
 		try {
-			back = new Image(new FileInputStream("assets/images/controls.png"), "controls", false);
-			back = back.getScaledCopy(scalefactor);
+			back = mainGame.getAssets().getImage("assets/images/controls.png", scalefactor);
 		}
 		catch (Exception e)
 		{
@@ -132,17 +123,13 @@ public class ControlsTutorialScene implements Scene
 	 */
 	public void update(GameContainer gc, int delta, Controller[] input) throws SlickException
 	{
-		// extend the array of inputs and add the menu keyboard input mapper
-		input = Arrays.copyOf(input, input.length + 1);
-		input[input.length - 1] = new Controller();
-		menuKeyboard.mapInput(gc.getInput(), input[input.length - 1]);
-		
 		// read all inputs
 		for (int i = 0; i < input.length; ++i)
 		{
-			if (input[i].buttonOne.isPressed() || input[i].buttonTwo.isPressed() || input[i].buttonThree.isPressed())
+			if (input[i].buttonOne.isJustPressed() || input[i].buttonTwo.isJustPressed() || input[i].buttonThree.isJustPressed())
 			{
 				proceedToGame();
+				return;
 			}
 		}
 		
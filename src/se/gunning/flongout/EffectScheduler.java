@@ -0,0 +1,530 @@
+package se.gunning.flongout;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the effects of picked up powerups running for as long as they last,
+ * and takes them away again when they run out.
+ *
+ * Time is counted in ticks of the game. Effects waiting to run out are kept
+ * in a priority queue ordered by the tick they run out on, so a tick with
+ * nothing running out costs nothing however many effects are running, and
+ * each effect running out costs O(log n). Effects whose time is started over
+ * leave their old place in the queue behind, to be skipped when it comes up.
+ *
+ * Powerups of the same group on the same target follow the stacking rule of
+ * the powerup being picked up: they stack, start the running effect's time
+ * over, or replace it.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-19
+ */
+public class EffectScheduler
+{
+	/**
+	 * A running effect of a powerup.
+	 */
+	private static class Effect
+	{
+		private Powerup powerup;
+		private Paddle collector;
+		private Paddle other;
+		private Key key;
+		
+		/**
+		 * Tick the effect runs out on, or UNTIL_ROUND_ENDS.
+		 */
+		private long expiry;
+		
+		/**
+		 * Order the effect's timer was queued in.
+		 */
+		private long order;
+		
+		/**
+		 * Place of the effect in the list of running effects.
+		 */
+		private int index;
+		
+		/**
+		 * Current place of the effect in the queue, or null if it isn't
+		 * queued.
+		 */
+		private Timer timer;
+		
+		private void set(Effect e)
+		{
+			powerup = e.powerup;
+			collector = e.collector;
+			other = e.other;
+			key = e.key;
+			expiry = e.expiry;
+			order = e.order;
+		}
+	}
+	
+	/**
+	 * Place of an effect in the queue. Dropped timers stay in the queue until
+	 * they come up.
+	 */
+	private static class Timer
+	{
+		private Effect effect;
+		private long expiry;
+		
+		/**
+		 * Order the timer was queued in, so that effects running out on the
+		 * same tick are always taken away in the same order.
+		 */
+		private long order;
+	}
+	
+	/**
+	 * Group of effects on a target. Targets are told apart by identity.
+	 */
+	private static class Key
+	{
+		private String group;
+		private Object target;
+		
+		private Key(String group, Object target)
+		{
+			this.group = group;
+			this.target = target;
+		}
+		
+		@Override
+		public boolean equals(Object o)
+		{
+			if (!(o instanceof Key))
+			{
+				return false;
+			}
+			
+			Key k = (Key)o;
+			
+			return group.equals(k.group) && target == k.target;
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return group.hashCode() * 31 + System.identityHashCode(target);
+		}
+	}
+	
+	/**
+	 * Snapshot of the running effects, for rewinding the game.
+	 *
+	 * @author Mikael Forsberg
+	 * @author Robin Gunning
+	 * @author Jonathan Yao Håkansson
+	 * @version 2015-06-19
+	 */
+	public static class Snapshot
+	{
+		/**
+		 * Scheduler the snapshot was taken of.
+		 */
+		private EffectScheduler scheduler;
+		
+		/**
+		 * Version of the effects when the snapshot was taken.
+		 */
+		private long version = -1;
+		
+		/**
+		 * Tick of the scheduler, and the number of timers queued.
+		 */
+		private long tick;
+		private long queued;
+		
+		/**
+		 * Copies of the running effects, of which the first count are used.
+		 */
+		private ArrayList<Effect> effects = new ArrayList<Effect>();
+		private int count;
+	}
+	
+	/**
+	 * Orders timers by the tick they run out on, and then by the order they
+	 * were queued in.
+	 */
+	private static final Comparator<Timer> EXPIRY_ORDER = new Comparator<Timer>()
+	{
+		@Override
+		public int compare(Timer a, Timer b)
+		{
+			if (a.expiry != b.expiry)
+			{
+				return a.expiry < b.expiry ? -1 : 1;
+			}
+			
+			return a.order < b.order ? -1 : (a.order == b.order ? 0 : 1);
+		}
+	};
+	
+	/**
+	 * Running effects, in no particular order.
+	 */
+	private ArrayList<Effect> effects = new ArrayList<Effect>();
+	
+	/**
+	 * Running effects that don't stack, by group and target.
+	 */
+	private HashMap<Key, Effect> effectsByKey = new HashMap<Key, Effect>();
+	
+	/**
+	 * Timers of the effects that run out, soonest first.
+	 */
+	private PriorityQueue<Timer> timers = new PriorityQueue<Timer>(16, EXPIRY_ORDER);
+	
+	/**
+	 * Current tick.
+	 */
+	private long tick;
+	
+	/**
+	 * Number of timers queued so far.
+	 */
+	private long queued;
+	
+	/**
+	 * Version of the running effects, which changes whenever an effect is
+	 * added, taken away or started over. Versions are never reused, so equal
+	 * versions mean equal effects.
+	 */
+	private long version;
+	
+	/**
+	 * Last version handed out.
+	 */
+	private long lastVersion;
+	
+	/**
+	 * Apply the effects of a picked up powerup, following its stacking rule.
+	 * Powerups whose effects are over or never took place are added to a
+	 * list, to be reused.
+	 *
+	 * @param p Powerup picked up
+	 * @param collector Paddle that picked up the powerup
+	 * @param other The other paddle
+	 * @param game The game scene
+	 * @param finished List to add powerups that are done with to
+	 * @return The powerup now in effect, either p or the running powerup
+	 * 			whose time was started over
+	 */
+	public Powerup add(Powerup p, Paddle collector, Paddle other, GameScene game, ArrayList<Powerup> finished)
+	{
+		int duration = p.getDuration();
+		
+		// effects that are over at once are never taken away
+		if (duration == 0)
+		{
+			p.applyStaticEffects(collector, other, game);
+			finished.add(p);
+			
+			return p;
+		}
+		
+		Key key = null;
+		
+		if (p.getStacking() != Powerup.Stacking.STACK)
+		{
+			key = new Key(p.getEffectGroup(), p.getEffectTarget(collector, other));
+			Effect running = effectsByKey.get(key);
+			
+			if (running != null && p.getStacking() == Powerup.Stacking.REFRESH)
+			{
+				schedule(running, duration);
+				finished.add(p);
+				
+				return running.powerup;
+			}
+			
+			if (running != null)
+			{
+				remove(running, game);
+				finished.add(running.powerup);
+			}
+		}
+		
+		Effect e = new Effect();
+		e.powerup = p;
+		e.collector = collector;
+		e.other = other;
+		e.key = key;
+		e.index = effects.size();
+		effects.add(e);
+		
+		if (key != null)
+		{
+			effectsByKey.put(key, e);
+		}
+		
+		p.applyStaticEffects(collector, other, game);
+		schedule(e, duration);
+		
+		return p;
+	}
+	
+	/**
+	 * Move on to the next tick, taking away the effects that run out on it.
+	 *
+	 * @param game The game scene
+	 * @param finished List to add the powerups whose effects ran out to
+	 */
+	public void advance(GameScene game, ArrayList<Powerup> finished)
+	{
+		++tick;
+		
+		while (!timers.isEmpty() && timers.peek().expiry <= tick)
+		{
+			Timer t = timers.poll();
+			
+			// the effect's time was started over, or it was taken away
+			if (t.effect.timer != t)
+			{
+				continue;
+			}
+			
+			remove(t.effect, game);
+			finished.add(t.effect.powerup);
+		}
+	}
+	
+	/**
+	 * Take away all running effects, as when a round ends.
+	 *
+	 * @param game The game scene
+	 * @param finished List to add the powerups whose effects were taken away to
+	 */
+	public void clear(GameScene game, ArrayList<Powerup> finished)
+	{
+		for (int i = 0; i < effects.size(); ++i)
+		{
+			Effect e = effects.get(i);
+			e.powerup.removeStaticEffects(e.collector, e.other, game);
+			finished.add(e.powerup);
+		}
+		
+		effects.clear();
+		effectsByKey.clear();
+		timers.clear();
+		version = ++lastVersion;
+	}
+	
+	/**
+	 * Get the number of running effects.
+	 *
+	 * @return Number of running effects
+	 */
+	public int getEffectCount()
+	{
+		return effects.size();
+	}
+	
+	/**
+	 * Get the number of ticks left of the effects of a powerup.
+	 *
+	 * @param p Powerup
+	 * @return Ticks left, UNTIL_ROUND_ENDS if the effects last the round, or 0
+	 * 			if they aren't running
+	 */
+	public long getTicksLeft(Powerup p)
+	{
+		for (int i = 0; i < effects.size(); ++i)
+		{
+			Effect e = effects.get(i);
+			
+			if (e.powerup == p)
+			{
+				return e.expiry == Powerup.UNTIL_ROUND_ENDS ? Powerup.UNTIL_ROUND_ENDS : e.expiry - tick;
+			}
+		}
+		
+		return 0;
+	}
+	
+	/**
+	 * Get the current tick.
+	 *
+	 * @return Ticks so far
+	 */
+	public long getTick()
+	{
+		return tick;
+	}
+	
+	/**
+	 * (Re)start the time of an effect.
+	 *
+	 * @param e Effect
+	 * @param duration Ticks the effect lasts, or UNTIL_ROUND_ENDS
+	 */
+	private void schedule(Effect e, int duration)
+	{
+		version = ++lastVersion;
+		
+		if (duration < 0)
+		{
+			e.expiry = Powerup.UNTIL_ROUND_ENDS;
+			e.timer = null;
+			return;
+		}
+		
+		e.expiry = tick + duration;
+		queue(e);
+	}
+	
+	/**
+	 * Put an effect in the queue, leaving any earlier place behind.
+	 *
+	 * @param e Effect
+	 */
+	private void queue(Effect e)
+	{
+		e.order = queued++;
+		queueInOrder(e);
+	}
+	
+	/**
+	 * Put an effect in the queue in the order it already has.
+	 *
+	 * @param e Effect
+	 */
+	private void queueInOrder(Effect e)
+	{
+		Timer t = new Timer();
+		t.effect = e;
+		t.expiry = e.expiry;
+		t.order = e.order;
+		e.timer = t;
+		timers.add(t);
+	}
+	
+	/**
+	 * Take away a running effect.
+	 *
+	 * @param e Effect
+	 * @param game The game scene
+	 */
+	private void remove(Effect e, GameScene game)
+	{
+		e.powerup.removeStaticEffects(e.collector, e.other, game);
+		e.timer = null;
+		
+		if (e.key != null)
+		{
+			effectsByKey.remove(e.key);
+		}
+		
+		// move the last effect into the hole
+		Effect last = effects.remove(effects.size() - 1);
+		
+		if (last != e)
+		{
+			last.index = e.index;
+			effects.set(e.index, last);
+		}
+		
+		version = ++lastVersion;
+	}
+	
+	/**
+	 * Take a snapshot of the running effects.
+	 *
+	 * @return The snapshot
+	 */
+	public Snapshot snapshot()
+	{
+		Snapshot s = new Snapshot();
+		snapshot(s);
+		
+		return s;
+	}
+	
+	/**
+	 * Take a snapshot of the running effects, reusing an earlier snapshot.
+	 * The effects are only copied if they've changed since.
+	 *
+	 * @param s Snapshot to overwrite
+	 */
+	public void snapshot(Snapshot s)
+	{
+		s.tick = tick;
+		s.queued = queued;
+		
+		if (s.scheduler == this && s.version == version)
+		{
+			return;
+		}
+		
+		s.scheduler = this;
+		s.version = version;
+		s.count = effects.size();
+		
+		while (s.effects.size() < s.count)
+		{
+			s.effects.add(new Effect());
+		}
+		
+		for (int i = 0; i < s.count; ++i)
+		{
+			s.effects.get(i).set(effects.get(i));
+		}
+	}
+	
+	/**
+	 * Put the running effects back the way they were when a snapshot was
+	 * taken. The effects themselves aren't applied or taken away, that's up
+	 * to whoever restores the things they change.
+	 *
+	 * @param s Snapshot to restore
+	 * @throws IllegalArgumentException If the snapshot is of another scheduler
+	 */
+	public void restore(Snapshot s)
+	{
+		if (s.scheduler != this)
+		{
+			throw new IllegalArgumentException("Snapshot is of another scheduler");
+		}
+		
+		tick = s.tick;
+		queued = s.queued;
+		
+		if (s.version == version)
+		{
+			return;
+		}
+		
+		effects.clear();
+		effectsByKey.clear();
+		timers.clear();
+		
+		for (int i = 0; i < s.count; ++i)
+		{
+			Effect e = new Effect();
+			e.set(s.effects.get(i));
+			e.index = i;
+			effects.add(e);
+			
+			if (e.key != null)
+			{
+				effectsByKey.put(e.key, e);
+			}
+			
+			if (e.expiry != Powerup.UNTIL_ROUND_ENDS)
+			{
+				queueInOrder(e);
+			}
+		}
+		
+		version = s.version;
+	}
+}
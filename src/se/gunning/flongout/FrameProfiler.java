@@ -0,0 +1,552 @@
+package se.gunning.flongout;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.newdawn.slick.Color;
+import org.newdawn.slick.Graphics;
+
+/**
+ * Keeps track of where the time of each frame goes. Timers add up the time
+ * spent in a section of code during a frame, counters add up how many times
+ * something happened during a frame, and at the end of every frame both go
+ * into a window of the most recent frames from which percentiles can be
+ * taken. The time spent collecting garbage and the time between frames are
+ * measured as well.
+ *
+ * Timers and counters are looked up by name once and then used directly, so
+ * that profiling a frame never allocates.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-09
+ */
+public class FrameProfiler
+{
+	/**
+	 * Number of frames to keep, ten seconds at 60 frames per second.
+	 */
+	public static final int WINDOW = 600;
+	
+	/**
+	 * Frames between refreshes of the overlay.
+	 */
+	private static final int OVERLAY_REFRESH = 30;
+	
+	/**
+	 * A timer or counter.
+	 */
+	public static class Metric
+	{
+		/**
+		 * Name of the metric.
+		 */
+		private String name;
+		
+		/**
+		 * True for timers, false for counters.
+		 */
+		private boolean timer;
+		
+		/**
+		 * Value of the current frame, in nanoseconds for timers.
+		 */
+		private long current;
+		
+		/**
+		 * Time the timer was started, or -1 if it isn't running.
+		 */
+		private long startedAt;
+		
+		/**
+		 * Values of the most recent frames.
+		 */
+		private long[] samples;
+		
+		/**
+		 * Create a new metric.
+		 *
+		 * @param name Name of the metric
+		 * @param timer True for a timer, false for a counter
+		 */
+		private Metric(String name, boolean timer)
+		{
+			this.name = name;
+			this.timer = timer;
+			startedAt = -1;
+			samples = new long[WINDOW];
+		}
+		
+		/**
+		 * Start timing a section.
+		 */
+		public void begin()
+		{
+			startedAt = System.nanoTime();
+		}
+		
+		/**
+		 * Stop timing a section, adding the time since begin to the current frame.
+		 */
+		public void end()
+		{
+			if (startedAt >= 0)
+			{
+				current += System.nanoTime() - startedAt;
+				startedAt = -1;
+			}
+		}
+		
+		/**
+		 * Add to the value of the current frame.
+		 *
+		 * @param amount Amount to add, in nanoseconds for timers
+		 */
+		public void add(long amount)
+		{
+			current += amount;
+		}
+		
+		/**
+		 * Get the name of the metric.
+		 *
+		 * @return The name
+		 */
+		public String getName()
+		{
+			return name;
+		}
+		
+		/**
+		 * Check whether this is a timer or a counter.
+		 *
+		 * @return True for timers, false for counters
+		 */
+		public boolean isTimer()
+		{
+			return timer;
+		}
+	}
+	
+	/**
+	 * All metrics by name.
+	 */
+	private LinkedHashMap<String, Metric> metrics;
+	
+	/**
+	 * All metrics in the order they were created, for going through them
+	 * without an iterator.
+	 */
+	private ArrayList<Metric> metricList;
+	
+	/**
+	 * Time between the end of one frame and the end of the next.
+	 */
+	private Metric frame;
+	
+	/**
+	 * Time spent collecting garbage.
+	 */
+	private Metric gcTime;
+	
+	/**
+	 * Number of garbage collections.
+	 */
+	private Metric gcCount;
+	
+	/**
+	 * Number of frames ended so far.
+	 */
+	private long frames;
+	
+	/**
+	 * Time the previous frame ended, or -1 before the first frame.
+	 */
+	private long lastFrameEnd;
+	
+	/**
+	 * Total garbage collection time and count at the end of the previous frame.
+	 */
+	private long lastGcTime;
+	private long lastGcCount;
+	
+	/**
+	 * Scratch space for sorting samples.
+	 */
+	private long[] sorted;
+	
+	/**
+	 * Whether to draw the overlay.
+	 */
+	private boolean overlayVisible;
+	
+	/**
+	 * Lines of text shown in the overlay.
+	 */
+	private ArrayList<String> overlayLines;
+	
+	/**
+	 * File to dump the percentiles to once every window, or null.
+	 */
+	private File dumpFile;
+	
+	/**
+	 * Create a new profiler.
+	 */
+	public FrameProfiler()
+	{
+		metrics = new LinkedHashMap<String, Metric>();
+		metricList = new ArrayList<Metric>();
+		frame = timer("frame");
+		gcTime = timer("gc");
+		gcCount = counter("gc collections");
+		
+		frames = 0;
+		lastFrameEnd = -1;
+		lastGcTime = getTotalGcTime();
+		lastGcCount = getTotalGcCount();
+		
+		sorted = new long[WINDOW];
+		overlayVisible = false;
+		overlayLines = new ArrayList<String>();
+	}
+	
+	/**
+	 * Get a timer, creating it if needed.
+	 *
+	 * @param name Name of the timer
+	 * @return The timer
+	 * @throws IllegalArgumentException If there's a counter by that name
+	 */
+	public Metric timer(String name)
+	{
+		return metric(name, true);
+	}
+	
+	/**
+	 * Get a counter, creating it if needed.
+	 *
+	 * @param name Name of the counter
+	 * @return The counter
+	 * @throws IllegalArgumentException If there's a timer by that name
+	 */
+	public Metric counter(String name)
+	{
+		return metric(name, false);
+	}
+	
+	/**
+	 * Get a metric, creating it if needed.
+	 *
+	 * @param name Name of the metric
+	 * @param timer True for a timer, false for a counter
+	 * @return The metric
+	 */
+	private Metric metric(String name, boolean timer)
+	{
+		Metric m = metrics.get(name);
+		
+		if (m == null)
+		{
+			m = new Metric(name, timer);
+			metrics.put(name, m);
+			metricList.add(m);
+		}
+		else if (m.timer != timer)
+		{
+			throw new IllegalArgumentException("\"" + name + "\" is already a " + (m.timer ? "timer" : "counter"));
+		}
+		
+		return m;
+	}
+	
+	/**
+	 * Get all metrics, in the order they were created.
+	 *
+	 * @return The metrics
+	 */
+	public List<Metric> getMetrics()
+	{
+		return new ArrayList<Metric>(metricList);
+	}
+	
+	/**
+	 * End the current frame, storing the values of all metrics and starting
+	 * over from zero.
+	 */
+	public void endFrame()
+	{
+		long now = System.nanoTime();
+		
+		if (lastFrameEnd >= 0)
+		{
+			frame.add(now - lastFrameEnd);
+		}
+		
+		lastFrameEnd = now;
+		
+		long totalGcTime = getTotalGcTime();
+		long totalGcCount = getTotalGcCount();
+		gcTime.add((totalGcTime - lastGcTime) * 1000000L);
+		gcCount.add(totalGcCount - lastGcCount);
+		lastGcTime = totalGcTime;
+		lastGcCount = totalGcCount;
+		
+		int slot = (int)(frames % WINDOW);
+		
+		for (int i = 0; i < metricList.size(); ++i)
+		{
+			Metric m = metricList.get(i);
+			m.samples[slot] = m.current;
+			m.current = 0;
+		}
+		
+		++frames;
+		
+		if (overlayVisible && frames % OVERLAY_REFRESH == 0)
+		{
+			refreshOverlay();
+		}
+		
+		if (dumpFile != null && frames % WINDOW == 0)
+		{
+			dump();
+		}
+	}
+	
+	/**
+	 * Get the number of frames ended so far.
+	 *
+	 * @return Number of frames
+	 */
+	public long getFrames()
+	{
+		return frames;
+	}
+	
+	/**
+	 * Get a percentile of a metric over the most recent frames.
+	 *
+	 * @param m Metric
+	 * @param percentile Percentile, from 0 to 100
+	 * @return The value at the percentile, in nanoseconds for timers, or 0 if
+	 * 			no frames have ended yet
+	 */
+	public long getPercentile(Metric m, double percentile)
+	{
+		if (percentile < 0.0 || percentile > 100.0)
+		{
+			throw new IllegalArgumentException("Percentile must be between 0 and 100");
+		}
+		
+		int n = (int)Math.min(frames, WINDOW);
+		
+		if (n == 0)
+		{
+			return 0;
+		}
+		
+		System.arraycopy(m.samples, 0, sorted, 0, n);
+		Arrays.sort(sorted, 0, n);
+		
+		// nearest rank
+		int rank = (int)Math.ceil(percentile / 100.0 * n);
+		
+		return sorted[Math.max(0, rank - 1)];
+	}
+	
+	/**
+	 * Show or hide the overlay.
+	 *
+	 * @param visible True to show the overlay
+	 */
+	public void setOverlayVisible(boolean visible)
+	{
+		overlayVisible = visible;
+		
+		if (visible)
+		{
+			refreshOverlay();
+		}
+	}
+	
+	/**
+	 * Check whether the overlay is shown.
+	 *
+	 * @return True if the overlay is shown
+	 */
+	public boolean isOverlayVisible()
+	{
+		return overlayVisible;
+	}
+	
+	/**
+	 * Draw the overlay, if it is shown.
+	 *
+	 * @param g Slick2D Graphics
+	 * @param x Screen X coordinate of the top left corner
+	 * @param y Screen Y coordinate of the top left corner
+	 */
+	public void render(Graphics g, float x, float y)
+	{
+		if (!overlayVisible)
+		{
+			return;
+		}
+		
+		g.setColor(new Color(0.0f, 0.0f, 0.0f, 0.6f));
+		g.fillRect(x, y, 520, 20 * overlayLines.size() + 10);
+		
+		g.setColor(new Color(1.0f, 1.0f, 0.0f));
+		
+		for (int i = 0; i < overlayLines.size(); ++i)
+		{
+			g.drawString(overlayLines.get(i), x + 5, y + 5 + 20 * i);
+		}
+	}
+	
+	/**
+	 * Set a file to dump the percentiles of all metrics to, once every
+	 * window of frames. Rows are appended, so that the file keeps growing
+	 * for as long as the game runs.
+	 *
+	 * @param file File to dump to, or null to stop dumping
+	 */
+	public void setDumpFile(File file)
+	{
+		dumpFile = file;
+	}
+	
+	/**
+	 * Write the percentiles of all metrics as CSV, with a row per metric.
+	 * Timers are in milliseconds.
+	 *
+	 * @param out Writer to write to
+	 * @param header Write the column names first?
+	 * @throws IOException If writing fails
+	 */
+	public void writeCsv(Writer out, boolean header) throws IOException
+	{
+		if (header)
+		{
+			out.write("frame,metric,unit,p50,p95,p99,max\n");
+		}
+		
+		for (Metric m : metricList)
+		{
+			out.write(frames + "," + m.name + "," + (m.timer ? "ms" : "count")
+					+ "," + format(m, getPercentile(m, 50.0))
+					+ "," + format(m, getPercentile(m, 95.0))
+					+ "," + format(m, getPercentile(m, 99.0))
+					+ "," + format(m, getPercentile(m, 100.0)) + "\n");
+		}
+	}
+	
+	/**
+	 * Append the percentiles of all metrics to the dump file.
+	 */
+	private void dump()
+	{
+		boolean header = !dumpFile.exists() || dumpFile.length() == 0;
+		
+		try
+		{
+			Writer out = new FileWriter(dumpFile, true);
+			
+			try
+			{
+				writeCsv(out, header);
+			}
+			finally
+			{
+				out.close();
+			}
+		}
+		catch (IOException e)
+		{
+			Logger.getLogger(FrameProfiler.class.getName()).log(Level.WARNING, "Could not dump profile", e);
+			dumpFile = null;
+		}
+	}
+	
+	/**
+	 * Recompute the lines of text shown in the overlay.
+	 */
+	private void refreshOverlay()
+	{
+		overlayLines.clear();
+		overlayLines.add(String.format("%-20s %8s %8s %8s %8s", "", "p50", "p95", "p99", "max"));
+		
+		for (Metric m : metricList)
+		{
+			overlayLines.add(String.format("%-20s %8s %8s %8s %8s", m.name,
+					format(m, getPercentile(m, 50.0)),
+					format(m, getPercentile(m, 95.0)),
+					format(m, getPercentile(m, 99.0)),
+					format(m, getPercentile(m, 100.0))));
+		}
+	}
+	
+	/**
+	 * Format a value of a metric, timers in milliseconds.
+	 *
+	 * @param m Metric
+	 * @param value Value
+	 * @return The formatted value
+	 */
+	private static String format(Metric m, long value)
+	{
+		if (m.timer)
+		{
+			return String.format(Locale.ROOT, "%.3f", value / 1e6);
+		}
+		
+		return Long.toString(value);
+	}
+	
+	/**
+	 * Get the total time spent collecting garbage since the JVM started.
+	 *
+	 * @return Time in milliseconds
+	 */
+	private static long getTotalGcTime()
+	{
+		long total = 0;
+		
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+		{
+			total += Math.max(0, gc.getCollectionTime());
+		}
+		
+		return total;
+	}
+	
+	/**
+	 * Get the total number of garbage collections since the JVM started.
+	 *
+	 * @return Number of collections
+	 */
+	private static long getTotalGcCount()
+	{
+		long total = 0;
+		
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+		{
+			total += Math.max(0, gc.getCollectionCount());
+		}
+		
+		return total;
+	}
+}
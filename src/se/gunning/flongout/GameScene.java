@@ -1,13 +1,12 @@
 package se.gunning.flongout;
 
-import java.awt.Font;
-import java.io.FileInputStream;
-import java.io.InputStream;
-import java.util.Arrays;
-import java.util.LinkedList;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Random;
 import java.util.Iterator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.newdawn.slick.Color;
 import org.newdawn.slick.GameContainer;
@@ -16,7 +15,6 @@ import org.newdawn.slick.Image;
 import org.newdawn.slick.SlickException;
 import org.newdawn.slick.Sound;
 import org.newdawn.slick.TrueTypeFont;
-import org.newdawn.slick.util.ResourceLoader;
 
 /**
  * The main game scene.
@@ -28,6 +26,101 @@ import org.newdawn.slick.util.ResourceLoader;
  */
 public class GameScene implements Scene
 {
+	/**
+	 * Length of a game tick in milliseconds. The game always advances in
+	 * steps of this size, no matter how fast or slow frames are drawn.
+	 */
+	public static final double TICK_MILLIS = 1000.0 / 60.0;
+	
+	/**
+	 * Most ticks to run for a single frame. If the game falls further behind
+	 * than this, say after a long hiccup, the rest of the time is dropped
+	 * rather than trying to catch up with it all at once.
+	 */
+	public static final int MAX_TICKS_PER_FRAME = 5;
+	
+	/**
+	 * Number of points in a ball's trail unless told otherwise, one point
+	 * being added per tick.
+	 */
+	public static final int DEFAULT_TRAIL_LENGTH = 10;
+	
+	/**
+	 * Image files of the ball, powerups, paddles and bricks, which are all
+	 * drawn from one atlas.
+	 */
+	public static final String[] SPRITES = new String[]{
+		"assets/images/ball.png", "assets/images/pup.png", "assets/images/pdown.png", "assets/images/pneutral.png",
+		"assets/images/paddle.png", "assets/images/brick1.png", "assets/images/brick2.png", "assets/images/brick3.png"};
+	
+	/**
+	 * The state of a game at the end of some tick, to go back to later. Takes
+	 * in everything a tick reads or changes, but not what's only drawn, such
+	 * as the ball trails and the background animation. Taking a snapshot into
+	 * an existing one allocates little more than what has changed.
+	 * 
+	 * @author Mikael Forsberg
+	 * @author Robin Gunning
+	 * @author Jonathan Yao Håkansson
+	 * @version 2015-06-17
+	 */
+	public static class Snapshot
+	{
+		/**
+		 * Game the snapshot was taken of.
+		 */
+		private GameScene game;
+		
+		/**
+		 * Tick of the game clock.
+		 */
+		private long ticks;
+		
+		/**
+		 * Physics world and bricks.
+		 */
+		private Physics.Snapshot world = new Physics.Snapshot();
+		private BrickGrid.Snapshot bricks = new BrickGrid.Snapshot();
+		
+		/**
+		 * State of the random number generator.
+		 */
+		private long rng;
+		
+		/**
+		 * Scores and statistics.
+		 */
+		private int scoreP1;
+		private int scoreP2;
+		private MatchStatistics statistics = new MatchStatistics();
+		
+		/**
+		 * Round start countdown and powerup text countdown, with the states of
+		 * their stopwatches.
+		 */
+		private boolean isCountdown;
+		private Counter countDown;
+		private int countDownCount;
+		private Stopwatch countDownWatch;
+		private boolean isCountDownText;
+		private Counter countDownText;
+		private int countDownTextCount;
+		private Stopwatch countDownTextWatch;
+		private long[] watches = new long[2 * Stopwatch.STATE_SIZE];
+		private String pupText;
+		
+		/**
+		 * Powerups in flight, with their positions, and the running effects of
+		 * picked up powerups.
+		 */
+		private ArrayList<Powerup> powerups = new ArrayList<Powerup>();
+		private ArrayList<Vec2> powerupPositions = new ArrayList<Vec2>();
+		private EffectScheduler.Snapshot effects = new EffectScheduler.Snapshot();
+		
+		private Paddle lastPaddleToHit;
+		private long lastBrickSpawned;
+	}
+	
 	/**
 	 * Scene initialization status.
 	 */
@@ -49,10 +142,21 @@ public class GameScene implements Scene
 	Physics.CollisionAction collisionAction;
 	
 	/**
-	 * The ball.
+	 * The ball. In multi-ball mode this is the first of the balls, which
+	 * is the one the CPU players follow.
 	 */
 	Ball ball;
 	
+	/**
+	 * All balls, starting with the ball.
+	 */
+	ArrayList<Ball> balls;
+	
+	/**
+	 * Starting points of the balls, by ball index.
+	 */
+	ArrayList<Vec2> spawnPoints;
+	
 	/**
 	 * The left paddle.
 	 */
@@ -84,6 +188,11 @@ public class GameScene implements Scene
 	 */
 	Physics.CollisionAction brickAction;
 	
+	/**
+	 * All collision actions, in the order they are given to the physics simulation.
+	 */
+	Physics.CollisionAction[] collisionActions;
+	
 	/**
 	 * Time of last brick spawn.
 	 */
@@ -95,25 +204,15 @@ public class GameScene implements Scene
 	String pupText = "";
 	
 	/**
-	 * Ball graphics.
+	 * Ball graphics, drawn at the size of each ball.
 	 */
 	Image ballpic;
 	
 	/**
-	 * Left paddle graphics.
+	 * Paddle graphics, drawn at the size of each paddle.
 	 */
 	Image paddlepic;
 	
-	/**
-	 * Right paddle graphics.
-	 */
-	Image paddlepic2;
-	
-	/**
-	 * Temporary store for scaled paddle graphics.
-	 */
-	Image paddlepic_scaled;
-	
 	/**
 	 * Powerup (good) graphics.
 	 */
@@ -145,14 +244,14 @@ public class GameScene implements Scene
 	Image brickpic3;
 	
 	/**
-	 * Cache storage for left paddle graphic.
+	 * Atlas holding the ball, paddle, brick and powerup graphics.
 	 */
-	Image originalpaddle;
+	TextureAtlas atlas;
 	
 	/**
-	 * Cache storage for right paddle graphic.
+	 * Batch for drawing everything in the atlas in one go.
 	 */
-	Image originalpaddle2;
+	SpriteBatch batch;
 	
 	/**
 	 * Sound for paddle-to-ball collision.
@@ -180,9 +279,25 @@ public class GameScene implements Scene
 	BackgroundAnimation bganim;
 	
 	/**
-	 * List of visited points for drawing the ball's tail.
+	 * Wall-clock time the background animation has been running, which keeps
+	 * it in time with the music whatever the frame rate.
+	 */
+	Stopwatch bganimTime;
+	
+	/**
+	 * Recently visited points of the balls, by ball index.
+	 */
+	ArrayList<BallTrail> trails;
+	
+	/**
+	 * Number of points in each ball's trail.
+	 */
+	int trailLength;
+	
+	/**
+	 * Renderer for the ball trails.
 	 */
-	LinkedList<Vec2> ballPoints;
+	TrailRenderer trailRenderer;
 	
 	/**
 	 * List of in-flight (not yet picked-up) powerups.
@@ -190,9 +305,14 @@ public class GameScene implements Scene
 	ArrayList<Powerup> powerups;
 	
 	/**
-	 * List of active (picked-up) powerups.
+	 * Running effects of picked up powerups.
+	 */
+	EffectScheduler effects;
+	
+	/**
+	 * Powerups whose effects are over, to be handed back to the factory.
 	 */
-	ArrayList<Powerup> activePowerups;
+	private ArrayList<Powerup> finishedPowerups = new ArrayList<Powerup>();
 	
 	/**
 	 * Factory for spawning random powerups.
@@ -209,6 +329,11 @@ public class GameScene implements Scene
 	 */
 	Counter scoreP2;
 	
+	/**
+	 * Statistics of the match, for tuning the game.
+	 */
+	MatchStatistics statistics;
+	
 	/**
 	 * Font for score displays.
 	 */
@@ -261,11 +386,6 @@ public class GameScene implements Scene
 	
 	boolean backanim = true;
 	
-	/**
-	 * Escape key input mapper used for leaving the game.
-	 */
-	InputMapper escapeKeyMapper;
-	
 	/**
 	 *  Are we paused (in the in-game menu) ?
 	 */
@@ -276,6 +396,113 @@ public class GameScene implements Scene
 	 */
 	GameEndingMechanic gameEnder;
 	
+	/**
+	 * Clock used for all timekeeping within the game.
+	 */
+	Clock clock;
+	
+	/**
+	 * The clock, if it's a simulation clock that follows the ticks of the
+	 * game, or null if it's a wall clock. Only games on a simulation clock can
+	 * be rewound.
+	 */
+	private SimulationClock simulationClock;
+	
+	/**
+	 * Time in milliseconds that has passed but not yet been ticked away.
+	 */
+	double tickAccumulator;
+	
+	/**
+	 * How far between the previous tick and the next one we are rendering,
+	 * from 0 to 1.
+	 */
+	double renderAlpha = 1.0;
+	
+	/**
+	 * Scratch vector for distance queries, so that they won't allocate.
+	 */
+	private MutableVec2 scratch = new MutableVec2();
+	
+	/**
+	 * Seed the random number generator was created with.
+	 */
+	private long seed;
+	
+	/**
+	 * Random number generator for everything random within the game, so that
+	 * the same seed and the same inputs always give the same game.
+	 */
+	private RestorableRandom rng;
+	
+	/**
+	 * Recorder for the inputs of the game, or null if not recording.
+	 */
+	private ReplayRecorder recorder;
+	
+	/**
+	 * Keep quiet? Set while ticks that have already been heard are played again.
+	 */
+	private boolean muted;
+	
+	/**
+	 * File to save the recording to, or null to not save it.
+	 */
+	private File replayFile;
+	
+	/**
+	 * Brick layout file to reload whenever it changes, or null if none.
+	 */
+	private File layoutFile;
+	
+	/**
+	 * Modification time of the layout file when last loaded, and the wall
+	 * clock time to next look at it.
+	 */
+	private long layoutModified;
+	private long nextLayoutCheck;
+	
+	/**
+	 * Time between looks at the layout file, in milliseconds.
+	 */
+	private static final long LAYOUT_CHECK_MILLIS = 500;
+	
+	/**
+	 * Has a snapshot been taken of the game? Snapshots hold on to powerups,
+	 * so they can't be handed back to the factory to be reused after that.
+	 */
+	private boolean snapshotTaken;
+	
+	/**
+	 * Profiler for the time spent in the different parts of a frame.
+	 */
+	private FrameProfiler profiler;
+	
+	/**
+	 * Timers for ticking the game, and the physics and powerups within a tick.
+	 */
+	private FrameProfiler.Metric tickTimer;
+	private FrameProfiler.Metric physicsTimer;
+	private FrameProfiler.Metric powerupTimer;
+	
+	/**
+	 * Timers for the sections of rendering.
+	 */
+	private FrameProfiler.Metric backgroundTimer;
+	private FrameProfiler.Metric ballTimer;
+	private FrameProfiler.Metric paddleTimer;
+	private FrameProfiler.Metric brickTimer;
+	private FrameProfiler.Metric powerupDrawTimer;
+	private FrameProfiler.Metric textTimer;
+	
+	/**
+	 * Counters for ticks, physics steps, ball sweeps and contacts.
+	 */
+	private FrameProfiler.Metric tickCounter;
+	private FrameProfiler.Metric stepCounter;
+	private FrameProfiler.Metric sweepCounter;
+	private FrameProfiler.Metric contactCounter;
+	
 	/**
 	 * Create a new gameplay scene in endless mode.
 	 * @param main Main game / scene controller instance
@@ -295,23 +522,80 @@ public class GameScene implements Scene
 	 */
 	public GameScene(Main main, boolean backanim, GameEndingMechanic ender)
 	{
+		this(main, backanim, ender, new SystemClock());
+	}
+	
+	/**
+	 * Create a new gameplay scene using a given clock for timekeeping. The main
+	 * game may be null, in which case the scene can be run headless by calling
+	 * initHeadless and then tick.
+	 * 
+	 * @param main Main game / scene controller instance, or null
+	 * @param backanim Enable the background animation?
+	 * @param ender Game ending mechanic
+	 * @param clock Clock to use for timekeeping
+	 */
+	public GameScene(Main main, boolean backanim, GameEndingMechanic ender, Clock clock)
+	{
+		this(main, backanim, ender, clock, 1);
+	}
+	
+	/**
+	 * Create a new gameplay scene with a given number of balls. With more than
+	 * one ball, a ball that reaches a goal scores and comes back into play
+	 * by itself rather than ending the round.
+	 * 
+	 * @param main Main game / scene controller instance, or null
+	 * @param backanim Enable the background animation?
+	 * @param ender Game ending mechanic
+	 * @param clock Clock to use for timekeeping
+	 * @param ballCount Number of balls, at least one
+	 */
+	public GameScene(Main main, boolean backanim, GameEndingMechanic ender, Clock clock, int ballCount)
+	{
+		this(main, backanim, ender, clock, ballCount, new Random().nextLong());
+	}
+	
+	/**
+	 * Create a new gameplay scene with a given number of balls, seeding the
+	 * random number generator with a given seed. Given the same seed and the
+	 * same inputs on every tick, the game plays out the same every time.
+	 * 
+	 * @param main Main game / scene controller instance, or null
+	 * @param backanim Enable the background animation?
+	 * @param ender Game ending mechanic
+	 * @param clock Clock to use for timekeeping
+	 * @param ballCount Number of balls, at least one
+	 * @param seed Seed for the random number generator
+	 */
+	public GameScene(Main main, boolean backanim, GameEndingMechanic ender, Clock clock, int ballCount, long seed)
+	{
+		if (ballCount < 1)
+		{
+			throw new IllegalArgumentException("Need at least one ball");
+		}
+		
+		this.clock = clock;
+		simulationClock = (clock instanceof SimulationClock) ? (SimulationClock)clock : null;
+		this.seed = seed;
+		setProfiler((main != null) ? main.getProfiler() : new FrameProfiler());
+		rng = new RestorableRandom(seed);
 		gameEnder = ender;
 		ender.reset();
 		
-		// TODO: add an escape-key-only inputmapper that hits button three, use in gamescene for exiting
 		mainGame = main;
 		
 		isPaused = false;
 		
-		escapeKeyMapper = (InputMapper) new EscapeKeyInput(); 
-		
 		this.backanim = backanim;
 		bganim = new BackgroundAnimation(162);
+		bganimTime = new Stopwatch();
 		
-		powerupFactory = new PowerupFactory();
+		powerupFactory = new PowerupFactory(rng);
 		
 		scoreP1 = new Counter();
 		scoreP2 = new Counter();
+		statistics = new MatchStatistics();
 		
 		world = new Physics();
 		world.setGravity(-20.0);
@@ -328,8 +612,15 @@ public class GameScene implements Scene
 		// bottom
 		world.addWall("static", -9.0, -9.5, 18.0, 5.0);
 		
-		ball = new Ball(0.15);
-		ballPoints = new LinkedList<Vec2>();
+		balls = new ArrayList<Ball>();
+		
+		for (int i = 0; i < ballCount; ++i)
+		{
+			balls.add(new Ball(0.15));
+		}
+		
+		ball = balls.get(0);
+		setTrailLength(DEFAULT_TRAIL_LENGTH);
 		
 		paddleOne = new Paddle(1.0, Math.PI);
 		paddleOne.setName("Player One");
@@ -338,6 +629,7 @@ public class GameScene implements Scene
 		paddleOne.setVelocity(new Vec2(1, 0));
 		paddleOne.setDirection(new Vec2(1, 0));
 		paddleOne.setAngularVelocity(0);
+		paddleOne.storePreviousPosition();
 		
 		paddleTwo = new Paddle(1.0, 0.0);
 		paddleTwo.setName("Player Two");
@@ -346,8 +638,9 @@ public class GameScene implements Scene
 		paddleTwo.setVelocity(new Vec2(0, 0));
 		paddleTwo.setDirection(new Vec2(1, 0));
 		paddleTwo.setAngularVelocity(0);
+		paddleTwo.storePreviousPosition();
 		
-		bricks = new BrickGrid(new Rect(-0.5, -4.5, 1.0, 4.5), 8, 2);
+		bricks = new BrickGrid(new Rect(-0.5, -4.5, 1.0, 4.5), 8, 2, rng);
 		brickAction = bricks.getCollisionAction();
 	
 		for (int i = 0; i < 16; ++i)
@@ -355,15 +648,14 @@ public class GameScene implements Scene
 			bricks.spawnRandomBrick(world);
 		}
 		
-		lastBrickSpawned = System.currentTimeMillis();
+		lastBrickSpawned = clock.getTimeMillis();
 		
 		brickBreakAction = new BrickGrid.BrickBreakAction()
 		{
 			@Override
 			public void onBrickBroken(BrickGrid grid, Rect brick)
 			{
-				Random rng = new Random();
-				breaking.play();
+				playSound(breaking);
 				
 				if (rng.nextDouble() > 0 && lastPaddleToHit != null)
 				{
@@ -375,39 +667,53 @@ public class GameScene implements Scene
 					{
 						powerups.add(powerupFactory.createRandomPowerup(brick.getCenter(), Powerup.DropDirection.RIGHT));
 					}
+					
+					statistics.recordDrop();
 				}
 			}
 		};
 		
 		bricks.setBrickBreakAction(brickBreakAction);
 		
-		world.addBall(ball);
+		spawnPoints = createSpawnPoints(ballCount);
+		
+		for (Ball b : balls)
+		{
+			world.addBall(b);
+		}
+		
+		// the balls don't affect each other, so with several of them the
+		// physics can step them all at once
+		world.setMultiBall(ballCount > 1);
+		
 		world.addPaddle(paddleOne);
 		world.addPaddle(paddleTwo);
 		
 		powerups = new ArrayList<Powerup>();
-		activePowerups = new ArrayList<Powerup>();
+		effects = new EffectScheduler();
 		
 		collisionAction = new Physics.CollisionAction()
 		{
 			@Override
 			public void onPaddleHit(Ball ball, Paddle paddle, Physics world)
 			{
-				if (!hit.playing())
+				if (hit != null && !hit.playing() && !muted)
 				{
 					hit.play();
 				}
 				lastPaddleToHit = paddle;
+				statistics.recordHit(paddle == paddleOne ? 0 : 1);
 			}
 			
 			@Override
 			public void onCollision(Ball ball, Paddle paddle, Physics world)
 			{
-				if (!hit.playing())
+				if (hit != null && !hit.playing() && !muted)
 				{
 					hit.play();
 				}
 				lastPaddleToHit = paddle;
+				statistics.recordHit(paddle == paddleOne ? 0 : 1);
 			}
 			
 			@Override
@@ -416,19 +722,23 @@ public class GameScene implements Scene
 				if (group.equals("left"))
 				{
 					scoreP2.incrementByOne();
-					beginRound();
+					statistics.recordPoint(1);
+					endBall(ball);
 				}
 				else if (group.equals("right"))
 				{
 					scoreP1.incrementByOne();
-					beginRound();
+					statistics.recordPoint(0);
+					endBall(ball);
 				}
 				
 			}
 		};
 		
+		collisionActions = new Physics.CollisionAction[]{brickAction, collisionAction};
+		
 		countDown = new Counter();
-		countDownWatch = new Stopwatch();
+		countDownWatch = new Stopwatch(clock);
 	}
 	
 	/**
@@ -442,35 +752,34 @@ public class GameScene implements Scene
 		// initialize the round start countdown
 		countDown = new Counter();
 		countDown.setCount(3);
-		countDownWatch = new Stopwatch();
+		countDownWatch = new Stopwatch(clock);
 		countDownWatch.start();
 		isCountdown = true;
-		cdown.play();
+		playSound(cdown);
 		
-		// reset the ball
-		ball.setPosition(new Vec2(0.0, 3.0));
-		ball.setVelocity(new Vec2(0.0, 0.0));
-		
-		// reset paddle graphics
-		paddlepic = originalpaddle;
-		paddlepic2 = originalpaddle2;
+		// reset the balls
+		holdBalls();
 		
 		// remove active powerup effects
-		for (Powerup p : activePowerups)
-		{
-			p.removeStaticEffects(paddleOne, paddleTwo, this);
-		}
+		effects.clear(this, finishedPowerups);
 		
-		// clear all powerups
+		// clear all powerups, handing them back to be reused
+		finishedPowerups.addAll(powerups);
 		powerups.clear();
-		activePowerups.clear();
+		recycleFinishedPowerups();
 		
-		// clear ball's tail
-		ballPoints.clear();
+		// clear the balls' trails
+		for (int i = 0; i < trails.size(); ++i)
+		{
+			trails.get(i).clear();
+		}
 		
-		rescaleGraphics();
+		// setup cpu paddles (when running headless, whoever runs the game sets them up)
+		if (mainGame == null)
+		{
+			return;
+		}
 		
-		// setup cpu paddles
 		if (mainGame.getPlayerInput(0) instanceof CPUInput)
 		{
 			setupCpuPaddle((CPUInput)mainGame.getPlayerInput(0), 0);
@@ -485,32 +794,6 @@ public class GameScene implements Scene
 		//hit.stop();
 	}
 	
-	/**
-	 * (Re)scale graphics for objects that can change size. 
-	 */
-	public void rescaleGraphics()
-	{
-		// scale the ball graphic
-		if (Math.floor(coords.widthToScreen(ball.getRadius())) != Math.floor(ballpic.getWidth()/2))
-		{
-			ballpic = ballpic.getScaledCopy((int)coords.widthToScreen(ball.getRadius()*2), (int)coords.widthToScreen(ball.getRadius()*2));
-		}
-		
-		// scale the left paddle graphic
-		if (Math.floor(coords.widthToScreen(paddleOne.getButtRadius()+paddleOne.getLength()+paddleOne.getTipRadius())) != Math.floor(paddlepic.getWidth()))
-		{
-			paddlepic = paddlepic.getScaledCopy((int) coords.widthToScreen(paddleOne.getWidth()), (int)(coords.heightToScreen(paddleOne.getHeight())));
-			paddlepic.setCenterOfRotation((float)0.139130435*paddlepic.getWidth(), (float)0.503355705*paddlepic.getHeight());
-		}
-		
-		// scale the right paddle graphic
-		if (Math.floor(coords.widthToScreen(paddleTwo.getButtRadius()+paddleTwo.getLength()+paddleTwo.getTipRadius())) != Math.floor(paddlepic2.getWidth()))
-		{
-			paddlepic2 = paddlepic2.getScaledCopy((int) coords.widthToScreen(paddleTwo.getWidth()), (int)(coords.heightToScreen(paddleTwo.getHeight())));
-			paddlepic2.setCenterOfRotation((float)0.139130435*paddlepic2.getWidth(), (float)0.503355705*paddlepic2.getHeight());
-		}
-	}
-	
 	/**
 	 * Render the game.
 	 * 
@@ -528,64 +811,74 @@ public class GameScene implements Scene
 		if (backanim)
 		{
 			// draw the background animation
+			backgroundTimer.begin();
+			bganim.setTime(bganimTime.getSum() / 1000.0);
 			bganim.render(g, coords);
+			backgroundTimer.end();
 		}
-			
-		// draw the ball's tail
-		Vec2 lastPt = null;
 		
-		if (ballPoints.size() > 10)
+		ballTimer.begin();
+		
+		// draw the balls' trails
+		for (int i = 0; i < trails.size(); ++i)
 		{
-			ballPoints = new LinkedList<Vec2>(ballPoints.subList(ballPoints.size() - 10, ballPoints.size()));
+			trailRenderer.render(g, trails.get(i), coords);
 		}
 		
-		g.setLineWidth(2.0f);
-		g.setColor(new Color(1.0f, 1.0f, 1.0f));
+		// the balls, paddles, bricks and powerups all come from the atlas,
+		// so they are drawn as a single batch
+		batch.begin();
 		
-		for (Vec2 pt : ballPoints)
+		// draw the balls
+		for (int i = 0; i < balls.size(); ++i)
 		{
-			pt = coords.toScreen(pt);
-			
-			if (lastPt != null)
-			{
-				g.drawLine((float)pt.x, (float)pt.y, (float)lastPt.x, (float)lastPt.y); 
-			}
-			
-			lastPt = pt;
+			Ball b = balls.get(i);
+			double x = b.getInterpolatedX(renderAlpha);
+			double y = b.getInterpolatedY(renderAlpha);
+			float size = coords.widthToScreen(b.getRadius() * 2);
+			batch.draw(ballpic, coords.toScreenX(x - b.getRadius()), coords.toScreenY(y + b.getRadius()), size, size);
 		}
 		
-		// draw the ball
-		ballpic.draw(coords.toScreenX(ball.getPosition().x - ball.getRadius()), coords.toScreenY(ball.getPosition().y + ball.getRadius()));
+		ballTimer.end();
 		
 		// draw the paddles
-		paddlepic.setRotation((float)(paddleOne.getAngle()*-57.2957795));
-		paddlepic2.setRotation((float)(paddleTwo.getAngle()*-57.2957795));
-		paddlepic.draw(coords.toScreenX(paddleOne.getPosition().x - paddleOne.getButtRadius()), coords.toScreenY(paddleOne.getPosition().y + paddleOne.getButtRadius()));
-		paddlepic2.draw(coords.toScreenX(paddleTwo.getPosition().x - paddleTwo.getButtRadius()), coords.toScreenY(paddleTwo.getPosition().y + paddleTwo.getButtRadius()));
+		paddleTimer.begin();
+		drawPaddle(paddleOne);
+		drawPaddle(paddleTwo);
+		
+		paddleTimer.end();
 		
 		// draw the bricks
-		bricks.brickDraw(g, coords, brickpic1, brickpic2, brickpic3);
+		brickTimer.begin();
+		bricks.brickDraw(batch, coords, brickpic1, brickpic2, brickpic3);
+		brickTimer.end();
 		
 		// draw in-flight powerups
+		powerupDrawTimer.begin();
+		
 		for (Powerup p : powerups)
 		{
 			switch (p.getType())
 			{
 			case GOOD:
-				pup.draw(coords.toScreenX(p.getPosition().x - ball.getRadius()), coords.toScreenY(p.getPosition().y + ball.getRadius()));
+				batch.draw(pup, coords.toScreenX(p.getPosition().x - ball.getRadius()), coords.toScreenY(p.getPosition().y + ball.getRadius()));
 				break;
 			case BAD:
-				pdown.draw(coords.toScreenX(p.getPosition().x - ball.getRadius()), coords.toScreenY(p.getPosition().y + ball.getRadius()));
+				batch.draw(pdown, coords.toScreenX(p.getPosition().x - ball.getRadius()), coords.toScreenY(p.getPosition().y + ball.getRadius()));
 				break;
 			case NEUTRAL:
-				pneutral.draw(coords.toScreenX(p.getPosition().x - ball.getRadius()), coords.toScreenY(p.getPosition().y + ball.getRadius()));
+				batch.draw(pneutral, coords.toScreenX(p.getPosition().x - ball.getRadius()), coords.toScreenY(p.getPosition().y + ball.getRadius()));
 				break;
 			default:
 				break;
 			}
 		}
 		
+		batch.end();
+		powerupDrawTimer.end();
+		
 		// draw score display
+		textTimer.begin();
 		g.setFont(scoreFont);
 		g.setColor(new Color(1.0f, 1.0f, 1.0f));
 		g.drawString(scoreP1.toString(), coords.toScreenX(-7.0), coords.toScreenY(4.0));
@@ -629,6 +922,27 @@ public class GameScene implements Scene
 				g.drawString("It's a Draw!", coords.toScreenX(-1.0), coords.toScreenY(4.0));
 			}
 		}
+		
+		textTimer.end();
+	}
+	
+	/**
+	 * Add a paddle to the sprite batch, drawn from the paddle picture at the
+	 * paddle's current size, so that paddles changing size never need a
+	 * scaled copy of the picture.
+	 *
+	 * @param paddle Paddle to draw
+	 */
+	private void drawPaddle(Paddle paddle)
+	{
+		float width = coords.widthToScreen(paddle.getWidth());
+		float height = coords.heightToScreen(paddle.getHeight());
+		
+		batch.draw(paddlepic,
+				coords.toScreenX(paddle.getInterpolatedX(renderAlpha) - paddle.getButtRadius()),
+				coords.toScreenY(paddle.getInterpolatedY(renderAlpha) + paddle.getButtRadius()),
+				width, height, 0.139130435f * width, 0.503355705f * height,
+				(float)(paddle.getInterpolatedAngle(renderAlpha) * -57.2957795));
 	}
 	
 	public boolean needsInit()
@@ -652,58 +966,37 @@ public class GameScene implements Scene
 		
 		try
 		{
-			//Loads fonts
-            InputStream inputStream = ResourceLoader.getResourceAsStream("assets/data-latin.ttf");
-            Font awtFont = Font.createFont(Font.TRUETYPE_FONT, inputStream);
-            awtFont = awtFont.deriveFont(80f); // set font size
-            countDownFont = new TrueTypeFont(awtFont, antiAlias);
-            
-            inputStream = ResourceLoader.getResourceAsStream("assets/data-latin.ttf");
-            Font awtFont2 = Font.createFont(Font.TRUETYPE_FONT, inputStream);
-            awtFont2 = awtFont2.deriveFont(40f); // set font size
-            scoreFont = new TrueTypeFont(awtFont2, antiAlias);
-            
-            //Loads picture for the ball
-            ballpic = new Image(new FileInputStream("assets/images/ball.png"), "ball", false);
-            ballpic = ballpic.getScaledCopy(scalefactor);
+			//Loads fonts, shared with earlier games
+			AssetManager assets = mainGame.getAssets();
+            countDownFont = assets.getFont("assets/data-latin.ttf", 80f, antiAlias);
+            scoreFont = assets.getFont("assets/data-latin.ttf", 40f, antiAlias);
             
-            //Loads picture for the powerup
-            pup = new Image(new FileInputStream("assets/images/pup.png"), "pup", false);
-            pup = pup.getScaledCopy(scalefactor);
+            //The ball, powerup, paddle and brick pictures are packed into one texture
+            atlas = assets.getAtlas(SPRITES);
+            batch = new SpriteBatch(atlas);
+            trailRenderer = new TrailRenderer(Color.white, 2.0f);
             
-            //Loads picture for the powerdown
-            pdown = new Image(new FileInputStream("assets/images/pdown.png"), "pdown", false);
-            pdown = pdown.getScaledCopy(scalefactor);
+            //Picture for the ball, drawn straight from the atlas at whatever size the ball has
+            ballpic = atlas.getImage("assets/images/ball.png");
             
-            //Loads picture for the neutral powerup
-            pneutral = new Image(new FileInputStream("assets/images/pneutral.png"), "pneutral", false);
-            pneutral = pneutral.getScaledCopy(scalefactor);
+            //Pictures for the powerups
+            pup = atlas.getImage("assets/images/pup.png").getScaledCopy(scalefactor);
+            pdown = atlas.getImage("assets/images/pdown.png").getScaledCopy(scalefactor);
+            pneutral = atlas.getImage("assets/images/pneutral.png").getScaledCopy(scalefactor);
             
-            //Loads and prepares pictures for the paddles
-            paddlepic = new Image(new FileInputStream("assets/images/paddle.png"), "paddle", false);
-            paddlepic2 = new Image(new FileInputStream("assets/images/paddle.png"), "paddle", false);
+            //Picture for the paddles, likewise
+            paddlepic = atlas.getImage("assets/images/paddle.png");
             
-    		paddlepic = paddlepic.getScaledCopy(scalefactor);
-    		paddlepic2 = paddlepic2.getScaledCopy(scalefactor);		
-    		paddlepic.setCenterOfRotation((float)0.139130435*paddlepic.getWidth(), (float)0.503355705*paddlepic.getHeight());
-    		paddlepic2.setCenterOfRotation((float)0.139130435*paddlepic.getWidth(), (float)0.503355705*paddlepic.getHeight());
-    		originalpaddle = paddlepic;
-    		originalpaddle2 = paddlepic2;
-            
-            //Loads picture for the bricks
-            brickpic1 = new Image(new FileInputStream("assets/images/brick1.png"), "brick1", false);
-            brickpic2 = new Image(new FileInputStream("assets/images/brick2.png"), "brick2", false);
-            brickpic3 = new Image(new FileInputStream("assets/images/brick3.png"), "brick3", false);
-            
-            brickpic1 = brickpic1.getScaledCopy(scalefactor);
-            brickpic2 = brickpic2.getScaledCopy(scalefactor);
-            brickpic3 = brickpic3.getScaledCopy(scalefactor);
+            //Pictures for the bricks
+            brickpic1 = atlas.getImage("assets/images/brick1.png").getScaledCopy(scalefactor);
+            brickpic2 = atlas.getImage("assets/images/brick2.png").getScaledCopy(scalefactor);
+            brickpic3 = atlas.getImage("assets/images/brick3.png").getScaledCopy(scalefactor);
             
             //Loads sounds
-            hit = new Sound(new FileInputStream("assets/sounds/hit.ogg"), "hit.ogg");
-            cdown = new Sound(new FileInputStream("assets/sounds/cdown.ogg"), "cdown.ogg");
-            bgmusic = new Sound(new FileInputStream("assets/sounds/bullcactus.ogg"), "bullcactus.ogg");
-            breaking = new Sound(new FileInputStream("assets/sounds/break.ogg"), "break.ogg");
+            hit = assets.getSound("assets/sounds/hit.ogg");
+            cdown = assets.getSound("assets/sounds/cdown.ogg");
+            bgmusic = assets.getSound("assets/sounds/bullcactus.ogg");
+            breaking = assets.getSound("assets/sounds/break.ogg");
         }
 		catch (Exception e)
 		{
@@ -716,6 +1009,17 @@ public class GameScene implements Scene
 		beginRound();
 	}
 	
+	/**
+	 * Initialize the game without loading any graphics or sounds. Use this
+	 * instead of init when running the game without a display.
+	 */
+	public void initHeadless()
+	{
+		initialized = true;
+		
+		beginRound();
+	}
+	
 	/**
 	 * Update the state of the game.
 	 * 
@@ -725,82 +1029,65 @@ public class GameScene implements Scene
 	 */
 	public void update(GameContainer gc, int delta, Controller[] input) throws SlickException
 	{
-		gameEnder.update(this);
-		
 		// returning from pause?
 		if (isPaused)
 		{
 			isPaused = false;
+			tickAccumulator = 0.0;
 			beginRound();
 			return;
 		}
 		
-		// extend the array of inputs and add the escape key input mapper
-		input = Arrays.copyOf(input, input.length + 1);
-		input[input.length - 1] = new Controller();
-		escapeKeyMapper.mapInput(gc.getInput(), input[input.length - 1]);
-		
-		// start/repeat the background music
+		// start/repeat the background music, with the background animation
+		// starting over on the first beat
 		if (!bgmusic.playing())
 		{
 			bgmusic.play();
+			bganimTime.reset();
+			bganimTime.start();
 		}
 		
-		// if ball comes to a halt (probably on the floor), start a new round
-		if (!isCountdown && ball.getVelocity().length() < 0.1)
-		{
-			beginRound();
-			return;
-		}
+		// pick up changes to the layout file between ticks
+		reloadLayout();
 		
-		// run the powerup description text countdown
-		if (isCountDownText)
-		{
-			countDownText.setCount(2 - (int)countDownTextWatch.getSeconds());
-			if (countDownText.isZero())
-			{
-				isCountDownText = false;
-			}
-		}
+		// run as many whole ticks as the time that has passed allows, and
+		// keep the remainder for the next frame
+		tickAccumulator += delta;
 		
-		// run the round start countdown
-		if (isCountdown)
+		long now = System.nanoTime();
+		int ticks = 0;
+		
+		while (tickAccumulator >= TICK_MILLIS && ticks < MAX_TICKS_PER_FRAME)
 		{
-			// keep the ball still during the countdown
-			ball.setPosition(new Vec2(0.0, 3.0));
-			ball.setVelocity(new Vec2(0.0, 0.0));
+			// give the tick the input of the players as it was when the tick
+			// ended, which is as long ago as the time left over after it
+			mainGame.mapPlayerInput(now - (long)((tickAccumulator - TICK_MILLIS) * 1e6));
 			
-			countDown.setCount(3 - (int)countDownWatch.getSeconds());
+			tick(input);
+			tickAccumulator -= TICK_MILLIS;
 			
-			// start the game
-			if (countDown.isZero())
+			// a simulation clock follows the ticks rather than the wall clock
+			if (simulationClock != null)
 			{
-				isCountdown = false;
-				
-				// shoot the ball to the left or right
-				Random rng = new Random();
-				
-				double xvel = 6 + rng.nextInt(6);
-				double yvel = 4 + rng.nextInt(4);
-				
-				if (rng.nextDouble() > 0.5)
-				{
-					ball.setVelocity(new Vec2(-xvel, yvel));
-				}
-				else
-				{
-					ball.setVelocity(new Vec2(xvel, yvel));
-				}
+				simulationClock.tick();
 			}
+
+			++ticks;
 		}
 		
-		Paddle[] paddles = new Paddle[]{paddleOne, paddleTwo};
+		if (tickAccumulator >= TICK_MILLIS)
+		{
+			tickAccumulator = 0.0;
+		}
+		
+		renderAlpha = tickAccumulator / TICK_MILLIS;
 		
-		// read input
+		// leave the game, on a fresh press so that the button that resumed
+		// it from the pause menu doesn't pause it again. the players' input
+		// is as of the last tick, the menu keyboard's as of this frame
 		for (int i = 0; i < input.length; ++i)
 		{
-			// leave the game
-			if (input[i].buttonThree.isPressed())
+			if (input[i].buttonThree.isJustPressed())
 			{
 				bgmusic.stop();
 				cdown.stop();
@@ -814,55 +1101,146 @@ public class GameScene implements Scene
 					}
 				}
 				
+				saveReplay();
+				
 				mainGame.pushScene(new IngameMenuScene(mainGame));
 				isPaused = true;
 				return;
 			}
-			
-			if (gameEnder.isGameOver())
-			{
-				continue;
-			}
-			
-			// control the paddles with the first two given controllers
-			if (i < 2)
-			{
-				// paddle movement
-				paddles[i].setVelocity(input[i].leftAnalog.getDirection().scale(14.0));
-				
-				// paddle rotation
-				if (input[i].rightAnalog.getMagnitude() > 0.25)
-				{
-					paddles[i].rotateTowardsAngle(input[i].rightAnalog.getAngle(), 30.0);
-				}
-				else
-				{
-					paddles[i].rotateTowardsAngle(paddles[i].getRestingAngle(), 30.0);
-				}
-				
-				// rotation button shortcuts
-				if (input[i].buttonOne.isPressed())
-				{
-					if (paddles[i].getRestingAngle() == Math.PI)
-					{
-						paddles[i].rotateTowardsAngle(Math.PI / 5.0, 30.0);
-					}
-					else if (paddles[i].getRestingAngle() == 0.0)
-					{
-						paddles[i].rotateTowardsAngle(4.0 * Math.PI / 5.0, 30.0);
-					}
-					
-				}
-				else if (input[i].buttonTwo.isPressed())
-				{
-					if (paddles[i].getRestingAngle() == Math.PI)
-					{
-						paddles[i].rotateTowardsAngle(-Math.PI / 5.0, 30.0);
-					}
-					else if (paddles[i].getRestingAngle() == 0.0)
-					{
-						paddles[i].rotateTowardsAngle(-4.0 * Math.PI / 5.0, 30.0);
-					}
+		}
+	}
+	
+	/**
+	 * Advance the game by one tick. The first two given controllers control the
+	 * paddles. Nothing in here touches Slick2D, so this can be used for running
+	 * the game without a display.
+	 * 
+	 * @param input Controllers to read input from
+	 */
+	public void tick(Controller[] input)
+	{
+		tickTimer.begin();
+		tickCounter.add(1);
+		
+		runTick(input);
+		
+		tickTimer.end();
+	}
+	
+	/**
+	 * Advance the game by one tick, without timing it.
+	 * 
+	 * @param input Controllers to read input from
+	 */
+	private void runTick(Controller[] input)
+	{
+		if (recorder != null)
+		{
+			recorder.record(input);
+		}
+		
+		// remember where everything was, for drawing in between ticks
+		for (int i = 0; i < balls.size(); ++i)
+		{
+			balls.get(i).storePreviousPosition();
+		}
+		
+		paddleOne.storePreviousPosition();
+		paddleTwo.storePreviousPosition();
+		
+		gameEnder.update(this);
+		
+		// if ball comes to a halt (probably on the floor), start a new round
+		if (!isCountdown && !isMultiBall() && ball.getVelocity().length() < 0.1)
+		{
+			beginRound();
+			return;
+		}
+		
+		// with several balls, just get that ball going again
+		if (!isCountdown && isMultiBall())
+		{
+			for (int i = 0; i < balls.size(); ++i)
+			{
+				Ball b = balls.get(i);
+				
+				if (b.getVelocityX() * b.getVelocityX() + b.getVelocityY() * b.getVelocityY() < 0.01)
+				{
+					launchBall(b, rng);
+				}
+			}
+		}
+		
+		// run the powerup description text countdown
+		if (isCountDownText)
+		{
+			countDownText.setCount(2 - (int)countDownTextWatch.getSeconds());
+			if (countDownText.isZero())
+			{
+				isCountDownText = false;
+			}
+		}
+		
+		// run the round start countdown
+		if (isCountdown)
+		{
+			// keep the balls still during the countdown
+			holdBalls();
+			
+			countDown.setCount(3 - (int)countDownWatch.getSeconds());
+			
+			// start the game
+			if (countDown.isZero())
+			{
+				isCountdown = false;
+				
+				for (Ball b : balls)
+				{
+					launchBall(b, rng);
+				}
+			}
+		}
+		
+		Paddle[] paddles = new Paddle[]{paddleOne, paddleTwo};
+		
+		// control the paddles with the first two given controllers
+		for (int i = 0; i < input.length && i < 2 && !gameEnder.isGameOver(); ++i)
+		{
+			// paddle movement
+			paddles[i].setVelocity(input[i].leftAnalog.getDirection().scale(14.0));
+			
+			// paddle rotation
+			if (input[i].rightAnalog.getMagnitude() > 0.25)
+			{
+				paddles[i].rotateTowardsAngle(input[i].rightAnalog.getAngle(), 30.0);
+			}
+			else
+			{
+				paddles[i].rotateTowardsAngle(paddles[i].getRestingAngle(), 30.0);
+			}
+			
+			// rotation button shortcuts
+			if (input[i].buttonOne.isPressed())
+			{
+				if (paddles[i].getRestingAngle() == Math.PI)
+				{
+					paddles[i].rotateTowardsAngle(Math.PI / 5.0, 30.0);
+				}
+				else if (paddles[i].getRestingAngle() == 0.0)
+				{
+					paddles[i].rotateTowardsAngle(4.0 * Math.PI / 5.0, 30.0);
+				}
+				
+			}
+			else if (input[i].buttonTwo.isPressed())
+			{
+				if (paddles[i].getRestingAngle() == Math.PI)
+				{
+					paddles[i].rotateTowardsAngle(-Math.PI / 5.0, 30.0);
+				}
+				else if (paddles[i].getRestingAngle() == 0.0)
+				{
+					paddles[i].rotateTowardsAngle(-4.0 * Math.PI / 5.0, 30.0);
 				}
 			}
 		}
@@ -870,25 +1248,37 @@ public class GameScene implements Scene
 		if (!gameEnder.isGameOver())
 		{
 			// run physics
+			physicsTimer.begin();
+			world.resetCounters();
+			
 			for (int j = 0; j < 10; ++j)
 			{
-				world.step(1.0/1000.0, new Physics.CollisionAction[]{brickAction, collisionAction});
+				world.step(1.0/1000.0, collisionActions);
 			}
+			
+			stepCounter.add(10);
+			sweepCounter.add(world.getSweepCount());
+			contactCounter.add(world.getContactCount());
+			physicsTimer.end();
 		}
 		
 		if (!isCountdown)
 		{
-			// add ball position to tail
-			ballPoints.add(ball.getPosition());
+			// add the ball positions to their trails
+			for (int i = 0; i < balls.size(); ++i)
+			{
+				trails.get(i).add(balls.get(i).getX(), balls.get(i).getY());
+			}
 			
 			// time to spawn a new brick?
-			if (System.currentTimeMillis() > lastBrickSpawned + 5000 && bricks.getRect().shortestVectorToPoint(ball.getPosition()).length() > ball.getRadius())
+			if (clock.getTimeMillis() > lastBrickSpawned + 5000 && ballsClearOf(bricks.getRect()))
 			{
 				bricks.spawnRandomBrick(world);
-				lastBrickSpawned = System.currentTimeMillis();
+				lastBrickSpawned = clock.getTimeMillis();
 			}
 			
 			// move and handle powerups (they're not handled by physics at all)
+			powerupTimer.begin();
 			Iterator<Powerup> it = powerups.iterator();
 			
 			while (it.hasNext())
@@ -896,28 +1286,61 @@ public class GameScene implements Scene
 				Powerup p = it.next();
 				p.move();
 				
-				if (paddleOne.getShortestVectorToPoint(p.getPosition()).length() < p.getPickupRadius())
+				Vec2 pos = p.getPosition();
+				double pickup = p.getPickupRadius() * p.getPickupRadius();
+				
+				if (paddleOne.getSquaredDistanceToPoint(pos.x, pos.y, scratch) < pickup)
 				{
-					activePowerups.add(p);
 					it.remove();
 					p.becomePickedUpBy(paddleOne);
-					p.applyStaticEffects(paddleOne, paddleTwo, this);
+					statistics.recordPickup(0);
 					
-					pupText = p.getText();
+					pupText = effects.add(p, paddleOne, paddleTwo, this, finishedPowerups).getText();
 					displayPupText();
 				}
-				else if (paddleTwo.getShortestVectorToPoint(p.getPosition()).length() < p.getPickupRadius())
+				else if (paddleTwo.getSquaredDistanceToPoint(pos.x, pos.y, scratch) < pickup)
 				{
-					activePowerups.add(p);
 					it.remove();
 					p.becomePickedUpBy(paddleTwo);
-					p.applyStaticEffects(paddleTwo, paddleOne, this);
+					statistics.recordPickup(1);
 					
-					pupText = p.getText();
+					pupText = effects.add(p, paddleTwo, paddleOne, this, finishedPowerups).getText();
 					displayPupText();
 				}
 			}
+			
+			// take away the effects that have run out
+			effects.advance(this, finishedPowerups);
+			recycleFinishedPowerups();
+			powerupTimer.end();
+		}
+	}
+	
+	/**
+	 * Hand the powerups that are done with back to the factory to be reused,
+	 * unless a snapshot may still hold on to them.
+	 */
+	private void recycleFinishedPowerups()
+	{
+		if (!snapshotTaken)
+		{
+			for (int i = 0; i < finishedPowerups.size(); ++i)
+			{
+				powerupFactory.recycle(finishedPowerups.get(i));
+			}
 		}
+		
+		finishedPowerups.clear();
+	}
+	
+	/**
+	 * Get the factory the powerups dropped by broken bricks come from.
+	 * 
+	 * @return The powerup factory
+	 */
+	public PowerupFactory getPowerupFactory()
+	{
+		return powerupFactory;
 	}
 	
 	/**
@@ -940,6 +1363,409 @@ public class GameScene implements Scene
 		return ball;
 	}
 	
+	/**
+	 * Get all balls, starting with the ball.
+	 * 
+	 * @return The balls
+	 */
+	public ArrayList<Ball> getBalls()
+	{
+		return balls;
+	}
+	
+	/**
+	 * Check whether the game has more than one ball.
+	 * 
+	 * @return True if there is more than one ball
+	 */
+	public boolean isMultiBall()
+	{
+		return balls.size() > 1;
+	}
+	
+	/**
+	 * Get the clock used for timekeeping within the game.
+	 * 
+	 * @return The clock
+	 */
+	public Clock getClock()
+	{
+		return clock;
+	}
+	
+	/**
+	 * Take a snapshot of the game.
+	 * 
+	 * @return The snapshot
+	 * @throws IllegalStateException If the game isn't on a simulation clock
+	 */
+	public Snapshot snapshot()
+	{
+		Snapshot s = new Snapshot();
+		snapshot(s);
+		
+		return s;
+	}
+	
+	/**
+	 * Take a snapshot of the game, reusing an earlier snapshot. Only games on
+	 * a simulation clock can be rewound, since the clock goes back too.
+	 * 
+	 * @param s Snapshot to overwrite
+	 * @throws IllegalStateException If the game isn't on a simulation clock
+	 */
+	public void snapshot(Snapshot s)
+	{
+		checkRewindable();
+		
+		snapshotTaken = true;
+		s.game = this;
+		s.ticks = simulationClock.getTicks();
+		world.snapshot(s.world);
+		bricks.snapshot(s.bricks);
+		s.rng = rng.getState();
+		
+		s.scoreP1 = scoreP1.getCount();
+		s.scoreP2 = scoreP2.getCount();
+		s.statistics.set(statistics);
+		
+		s.isCountdown = isCountdown;
+		s.countDown = countDown;
+		s.countDownCount = countDown.getCount();
+		s.countDownWatch = countDownWatch;
+		countDownWatch.saveState(s.watches, 0);
+		
+		s.isCountDownText = isCountDownText;
+		s.countDownText = countDownText;
+		s.countDownTextWatch = countDownTextWatch;
+		
+		if (countDownText != null)
+		{
+			s.countDownTextCount = countDownText.getCount();
+			countDownTextWatch.saveState(s.watches, Stopwatch.STATE_SIZE);
+		}
+		
+		s.pupText = pupText;
+		
+		s.powerups.clear();
+		s.powerupPositions.clear();
+		
+		for (int i = 0; i < powerups.size(); ++i)
+		{
+			s.powerups.add(powerups.get(i));
+			s.powerupPositions.add(powerups.get(i).getPosition());
+		}
+		
+		effects.snapshot(s.effects);
+		
+		s.lastPaddleToHit = lastPaddleToHit;
+		s.lastBrickSpawned = lastBrickSpawned;
+	}
+	
+	/**
+	 * Make sure the game can be rewound.
+	 * 
+	 * @throws IllegalStateException If the game isn't on a simulation clock
+	 */
+	private void checkRewindable()
+	{
+		if (simulationClock == null)
+		{
+			throw new IllegalStateException("Only games on a simulation clock can be rewound");
+		}
+	}
+	
+	/**
+	 * Put the game back the way it was when a snapshot was taken, clock and
+	 * all.
+	 * 
+	 * @param s Snapshot to restore
+	 * @throws IllegalArgumentException If the snapshot is of another game
+	 * @throws IllegalStateException If the game isn't on a simulation clock,
+	 * 			or is being recorded, since the recording can't be rewound
+	 */
+	public void restore(Snapshot s)
+	{
+		if (s.game != this)
+		{
+			throw new IllegalArgumentException("Snapshot is of another game");
+		}
+		
+		checkRewindable();
+		
+		if (recorder != null)
+		{
+			throw new IllegalStateException("Can't rewind a game that is being recorded");
+		}
+		
+		simulationClock.setTicks(s.ticks);
+		world.restore(s.world);
+		bricks.restore(s.bricks);
+		rng.setState(s.rng);
+		
+		scoreP1.setCount(s.scoreP1);
+		scoreP2.setCount(s.scoreP2);
+		statistics.set(s.statistics);
+		
+		isCountdown = s.isCountdown;
+		countDown = s.countDown;
+		countDown.setCount(s.countDownCount);
+		countDownWatch = s.countDownWatch;
+		countDownWatch.loadState(s.watches, 0);
+		
+		isCountDownText = s.isCountDownText;
+		countDownText = s.countDownText;
+		countDownTextWatch = s.countDownTextWatch;
+		
+		if (countDownText != null)
+		{
+			countDownText.setCount(s.countDownTextCount);
+			countDownTextWatch.loadState(s.watches, Stopwatch.STATE_SIZE);
+		}
+		
+		pupText = s.pupText;
+		
+		powerups.clear();
+		
+		for (int i = 0; i < s.powerups.size(); ++i)
+		{
+			Powerup p = s.powerups.get(i);
+			p.setPosition(s.powerupPositions.get(i));
+			powerups.add(p);
+		}
+		
+		effects.restore(s.effects);
+		
+		lastPaddleToHit = s.lastPaddleToHit;
+		lastBrickSpawned = s.lastBrickSpawned;
+	}
+	
+	/**
+	 * Mute or unmute the sounds of the game.
+	 * 
+	 * @param muted True to keep quiet
+	 */
+	public void setMuted(boolean muted)
+	{
+		this.muted = muted;
+	}
+	
+	/**
+	 * Get the seed the random number generator of the game was created with.
+	 * 
+	 * @return The seed
+	 */
+	public long getSeed()
+	{
+		return seed;
+	}
+	
+	/**
+	 * Get the number of balls in play.
+	 * 
+	 * @return Number of balls
+	 */
+	public int getBallCount()
+	{
+		return balls.size();
+	}
+	
+	/**
+	 * Get the game ending mechanic.
+	 * 
+	 * @return The game ending mechanic
+	 */
+	public GameEndingMechanic getGameEndingMechanic()
+	{
+		return gameEnder;
+	}
+	
+	/**
+	 * Set the number of points in each ball's trail. Any trails so far are
+	 * cleared.
+	 * 
+	 * @param length Number of points, at least two
+	 * @throws IllegalArgumentException If the length is less than two
+	 */
+	public void setTrailLength(int length)
+	{
+		if (length < 2)
+		{
+			throw new IllegalArgumentException("A trail needs at least two points");
+		}
+		
+		trailLength = length;
+		trails = new ArrayList<BallTrail>();
+		
+		for (int i = 0; i < balls.size(); ++i)
+		{
+			trails.add(new BallTrail(length));
+		}
+	}
+	
+	/**
+	 * Get the number of points in each ball's trail.
+	 * 
+	 * @return Number of points
+	 */
+	public int getTrailLength()
+	{
+		return trailLength;
+	}
+	
+	/**
+	 * Replace the bricks with those of a layout. A game replays the same only
+	 * with the same layout set at the same time.
+	 * 
+	 * @param layout Layout to use
+	 */
+	public void setLayout(BrickLayout layout)
+	{
+		bricks.load(layout, world);
+	}
+	
+	/**
+	 * Load the bricks from a layout file. If it can't be read, the bricks
+	 * are left as they are.
+	 * 
+	 * @param file Layout file, as text or in binary form
+	 * @param reload Load the file again whenever it changes during play?
+	 * 			Don't while recording, the recording doesn't hold the layout
+	 */
+	public void loadLayout(File file, boolean reload)
+	{
+		layoutFile = reload ? file : null;
+		layoutModified = file.lastModified();
+		
+		try
+		{
+			setLayout(BrickLayout.load(file));
+		}
+		catch (IOException e)
+		{
+			Logger.getLogger(GameScene.class.getName()).log(Level.WARNING, "Could not load brick layout", e);
+		}
+	}
+	
+	/**
+	 * Load the layout file again if it has changed since it was last loaded.
+	 * A broken file, which may just be half saved, is skipped until it
+	 * changes again.
+	 */
+	private void reloadLayout()
+	{
+		if (layoutFile == null || System.currentTimeMillis() < nextLayoutCheck)
+		{
+			return;
+		}
+		
+		nextLayoutCheck = System.currentTimeMillis() + LAYOUT_CHECK_MILLIS;
+		long modified = layoutFile.lastModified();
+		
+		if (modified != layoutModified)
+		{
+			loadLayout(layoutFile, true);
+		}
+	}
+	
+	/**
+	 * Set a recorder for the inputs of the game. It will record the inputs of
+	 * every tick from here on.
+	 * 
+	 * @param recorder Recorder to use, or null to stop recording
+	 */
+	public void setRecorder(ReplayRecorder recorder)
+	{
+		this.recorder = recorder;
+	}
+	
+	/**
+	 * Get the recorder for the inputs of the game.
+	 * 
+	 * @return The recorder, or null if not recording
+	 */
+	public ReplayRecorder getRecorder()
+	{
+		return recorder;
+	}
+	
+	/**
+	 * Record the game from the start, and save the recording to a file
+	 * whenever the game is paused.
+	 * 
+	 * @param file File to save the recording to
+	 */
+	public void recordTo(File file)
+	{
+		recorder = new ReplayRecorder(this);
+		replayFile = file;
+	}
+	
+	/**
+	 * Get the profiler for the time spent in the different parts of a frame.
+	 * 
+	 * @return The profiler
+	 */
+	public FrameProfiler getProfiler()
+	{
+		return profiler;
+	}
+	
+	/**
+	 * Set the profiler and look up the timers and counters of the game.
+	 * 
+	 * @param profiler Profiler to use
+	 */
+	private void setProfiler(FrameProfiler profiler)
+	{
+		this.profiler = profiler;
+		
+		tickTimer = profiler.timer("tick");
+		physicsTimer = profiler.timer("physics");
+		powerupTimer = profiler.timer("powerups");
+		backgroundTimer = profiler.timer("render background");
+		ballTimer = profiler.timer("render balls");
+		paddleTimer = profiler.timer("render paddles");
+		brickTimer = profiler.timer("render bricks");
+		powerupDrawTimer = profiler.timer("render powerups");
+		textTimer = profiler.timer("render text");
+		
+		tickCounter = profiler.counter("ticks");
+		stepCounter = profiler.counter("physics steps");
+		sweepCounter = profiler.counter("physics sweeps");
+		contactCounter = profiler.counter("physics contacts");
+	}
+	
+	/**
+	 * Save what has been recorded so far, if recording to a file.
+	 */
+	private void saveReplay()
+	{
+		if (recorder == null || replayFile == null)
+		{
+			return;
+		}
+		
+		try
+		{
+			recorder.getReplay().save(replayFile);
+		}
+		catch (IOException e)
+		{
+			Logger.getLogger(GameScene.class.getName()).log(Level.WARNING, "Could not save replay", e);
+		}
+	}
+	
+	/**
+	 * Check whether the game is over.
+	 * 
+	 * @return True if the game is over, false otherwise
+	 */
+	public boolean isGameOver()
+	{
+		return gameEnder.isGameOver();
+	}
+	
 	/**
 	 * Destroy the scene.
 	 */
@@ -956,8 +1782,14 @@ public class GameScene implements Scene
 	 */
 	public void setupCpuPaddle(CPUInput in, int paddle)
 	{
+		in.setClock(clock);
 		in.setBall(ball);
 		
+		if (in instanceof PredictiveCPUInput)
+		{
+			((PredictiveCPUInput)in).setWorld(world);
+		}
+		
 		if (paddle == 0)
 		{
 			in.setPaddle(paddleOne);
@@ -968,6 +1800,117 @@ public class GameScene implements Scene
 		}
 	}
 	
+	/**
+	 * Deal with a ball that has reached a goal. With a single ball the round
+	 * is over, with several balls just that ball goes back into play.
+	 * 
+	 * @param b Ball that reached a goal
+	 */
+	private void endBall(Ball b)
+	{
+		if (!isMultiBall())
+		{
+			beginRound();
+			return;
+		}
+		
+		b.setPosition(spawnPoints.get(0));
+		b.storePreviousPosition();
+		trails.get(balls.indexOf(b)).clear();
+		launchBall(b, rng);
+	}
+	
+	/**
+	 * Put all balls at their starting points and keep them still.
+	 */
+	private void holdBalls()
+	{
+		for (int i = 0; i < balls.size(); ++i)
+		{
+			balls.get(i).setPosition(spawnPoints.get(i));
+			balls.get(i).setVelocity(0.0, 0.0);
+			balls.get(i).storePreviousPosition();
+		}
+	}
+	
+	/**
+	 * Shoot a ball to the left or right.
+	 * 
+	 * @param b Ball to shoot
+	 * @param rng Random number generator
+	 */
+	private void launchBall(Ball b, Random rng)
+	{
+		double xvel = 6 + rng.nextInt(6);
+		double yvel = 4 + rng.nextInt(4);
+		
+		if (rng.nextDouble() > 0.5)
+		{
+			b.setVelocity(-xvel, yvel);
+		}
+		else
+		{
+			b.setVelocity(xvel, yvel);
+		}
+	}
+	
+	/**
+	 * Check that no ball is touching a given rectangle.
+	 * 
+	 * @param r Rectangle to check
+	 * @return True if no ball touches the rectangle
+	 */
+	private boolean ballsClearOf(Rect r)
+	{
+		for (int i = 0; i < balls.size(); ++i)
+		{
+			Ball b = balls.get(i);
+			
+			if (r.squaredDistanceToPoint(b.getX(), b.getY(), scratch) <= b.getRadius() * b.getRadius())
+			{
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Create starting points for the balls. The first ball starts above the
+	 * bricks and the rest are spread out in a grid around it, keeping clear
+	 * of the bricks.
+	 * 
+	 * @param count Number of balls
+	 * @return Starting point of each ball
+	 */
+	private ArrayList<Vec2> createSpawnPoints(int count)
+	{
+		ArrayList<Vec2> points = new ArrayList<Vec2>();
+		points.add(new Vec2(0.0, 3.0));
+		
+		ArrayList<Vec2> grid = new ArrayList<Vec2>();
+		Rect clear = new Rect(bricks.getRect().getX() - 0.2, bricks.getRect().getY() - 0.2, bricks.getRect().getWidth() + 0.4, bricks.getRect().getHeight() + 0.4);
+		
+		for (double y = 4.2; y > -4.2; y -= 0.32)
+		{
+			for (double x = -4.16; x < 4.2; x += 0.32)
+			{
+				if (!clear.containsPoint(x, y))
+				{
+					grid.add(new Vec2(x, y));
+				}
+			}
+		}
+		
+		// if there are more balls than room, they'll have to share
+		for (int i = 1; i < count; ++i)
+		{
+			points.add(grid.get((i - 1) % grid.size()));
+		}
+		
+		return points;
+	}
+	
 	/**
 	 * Begin showing a powerup description.
 	 */
@@ -977,10 +1920,33 @@ public class GameScene implements Scene
 		countDownText = new Counter();
 		countDownText.setCount(2);
 	
-		countDownTextWatch = new Stopwatch();
+		countDownTextWatch = new Stopwatch(clock);
 		countDownTextWatch.start();
 	}
 	
+	/**
+	 * Play a sound, unless sounds haven't been loaded (such as when running headless).
+	 * 
+	 * @param sound Sound to play, can be null
+	 */
+	private void playSound(Sound sound)
+	{
+		if (sound != null && !muted)
+		{
+			sound.play();
+		}
+	}
+	
+	/**
+	 * Get the statistics of the match so far.
+	 * 
+	 * @return The statistics
+	 */
+	public MatchStatistics getStatistics()
+	{
+		return statistics;
+	}
+	
 	/**
 	 * Get the current score.
 	 * 
@@ -185,11 +185,12 @@ public class GamepadInput implements InputMapper
     	 * Create a new input detection entry.
     	 * 
     	 * @param mapping The mapping that determines which input to look at. 
+    	 * @param initialValue Value of the input when detection begins
     	 */
-    	public InputDetectionEntry(Mapping mapping)
+    	public InputDetectionEntry(Mapping mapping, double initialValue)
     	{
     		map = mapping;
-    		acc = new DifferenceAccumulator(0.0);
+    		acc = new DifferenceAccumulator(initialValue);
     	}
     	
     	/**
@@ -318,17 +319,21 @@ public class GamepadInput implements InputMapper
     	
     	int i = 0;
     	
+    	// start from where the inputs are now, so that the button still held
+    	// down from choosing to remap isn't taken for the new input
     	for (; i < numaxis; ++i)
     	{
     		// for each axis, listen for 1) positive and 2) negative inputs
-    		inputDetectionSet.add(new InputDetectionEntry(new Mapping(Mapping.InputType.AXIS_PLUS, i, Output.NONE)));
-    		inputDetectionSet.add(new InputDetectionEntry(new Mapping(Mapping.InputType.AXIS_MINUS, i, Output.NONE)));
+    		double value = input.getAxisValue(controllerId, i);
+    		inputDetectionSet.add(new InputDetectionEntry(new Mapping(Mapping.InputType.AXIS_PLUS, i, Output.NONE), Math.max(value, 0.0)));
+    		inputDetectionSet.add(new InputDetectionEntry(new Mapping(Mapping.InputType.AXIS_MINUS, i, Output.NONE), Math.min(value, 0.0)));
     	}
     	
     	for (; i < numaxis + numbuttons; ++i)
     	{
     		// listen to each button
-    		inputDetectionSet.add(new InputDetectionEntry(new Mapping(Mapping.InputType.BUTTON, i - numaxis, Output.NONE)));
+    		boolean pressed = input.isButtonPressed(i - numaxis, controllerId);
+    		inputDetectionSet.add(new InputDetectionEntry(new Mapping(Mapping.InputType.BUTTON, i - numaxis, Output.NONE), pressed ? 1.0 : 0.0));
     	}
     }
     
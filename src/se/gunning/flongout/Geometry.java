@@ -0,0 +1,231 @@
+package se.gunning.flongout;
+
+/**
+ * Closed-form distance and time of impact queries on the shapes of the
+ * game, for code that runs often enough that it must neither allocate nor
+ * take more square roots than it has to. Distances are returned squared,
+ * along with the vector they are the length of, so that callers comparing
+ * against a radius never need a square root at all.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-07
+ */
+public final class Geometry
+{
+	/**
+	 * Not to be instantiated.
+	 */
+	private Geometry()
+	{
+	}
+	
+	/**
+	 * Find the shortest vector from the edge of a rectangle to a point. For
+	 * a point outside the rectangle this is the vector from the closest point
+	 * of the rectangle, found by clamping. For a point inside it is the vector
+	 * from the closest side, which points inwards.
+	 *
+	 * @param px X coordinate of the point
+	 * @param py Y coordinate of the point
+	 * @param x X coordinate of the bottom left corner of the rectangle
+	 * @param y Y coordinate of the bottom left corner of the rectangle
+	 * @param width Width of the rectangle
+	 * @param height Height of the rectangle
+	 * @param out Vector to store the result in
+	 * @return The squared length of the resulting vector
+	 */
+	public static double pointToRectSquared(double px, double py, double x, double y, double width, double height, MutableVec2 out)
+	{
+		double vx = px - Math.min(Math.max(px, x), x + width);
+		double vy = py - Math.min(Math.max(py, y), y + height);
+		
+		if (vx != 0.0 || vy != 0.0)
+		{
+			out.set(vx, vy);
+			return vx * vx + vy * vy;
+		}
+		
+		// inside, so go by the closest of the left, right, top and bottom
+		// sides, in that order with ties going to the later side
+		double left = px - x;
+		double right = px - (x + width);
+		double top = py - (y + height);
+		double bottom = py - y;
+		
+		out.set(left, 0.0);
+		double best = left * left;
+		
+		if (right * right <= best)
+		{
+			out.set(right, 0.0);
+			best = right * right;
+		}
+		
+		if (top * top <= best)
+		{
+			out.set(0.0, top);
+			best = top * top;
+		}
+		
+		if (bottom * bottom <= best)
+		{
+			out.set(0.0, bottom);
+			best = bottom * bottom;
+		}
+		
+		return best;
+	}
+	
+	/**
+	 * Find the shortest vector from the edge of a paddle shaped capsule to a
+	 * point. The capsule is made up of a butt circle and a smaller or larger
+	 * tip circle, joined by straight top and bottom edges between the tops
+	 * and bottoms of the circles. The edges only count for points alongside
+	 * them, otherwise the closest circle decides.
+	 *
+	 * @param px X coordinate of the point
+	 * @param py Y coordinate of the point
+	 * @param x X coordinate of the center of the butt circle
+	 * @param y Y coordinate of the center of the butt circle
+	 * @param dx First component of the direction from butt to tip
+	 * @param dy Second component of the direction from butt to tip
+	 * @param length Distance from the center of the butt to the center of the tip
+	 * @param buttRadius Radius of the butt circle
+	 * @param tipRadius Radius of the tip circle
+	 * @param out Vector to store the result in
+	 * @return The squared length of the resulting vector
+	 */
+	public static double pointToCapsuleSquared(double px, double py, double x, double y, double dx, double dy,
+			double length, double buttRadius, double tipRadius, MutableVec2 out)
+	{
+		// unit heading, and the normal pointing to the "top" side
+		double len = Math.sqrt(dx * dx + dy * dy);
+		double ux = (len > 0.0) ? dx / len : 1.0;
+		double uy = (len > 0.0) ? dy / len : 0.0;
+		double nx = -uy;
+		double ny = ux;
+		
+		double tipx = x + dx * length;
+		double tipy = y + dy * length;
+		
+		double ex = tipx - x;
+		double ey = tipy - y;
+		double taper = tipRadius - buttRadius;
+		
+		// top edge, bottom edge, tip and butt, with ties going to the later one
+		double best = Double.POSITIVE_INFINITY;
+		
+		for (int side = 1; side >= -1; side -= 2)
+		{
+			double edgex = ex + side * nx * taper;
+			double edgey = ey + side * ny * taper;
+			
+			double cx = px - (x + side * nx * buttRadius + edgex / 2.0);
+			double cy = py - (y + side * ny * buttRadius + edgey / 2.0);
+			double coeff = (cx * edgex + cy * edgey) / (edgex * edgex + edgey * edgey);
+			
+			// only if the point is alongside the edge
+			if (Math.abs(coeff) < 0.5)
+			{
+				double vx = cx - edgex * coeff;
+				double vy = cy - edgey * coeff;
+				double d = vx * vx + vy * vy;
+				
+				if (d <= best)
+				{
+					out.set(vx, vy);
+					best = d;
+				}
+			}
+		}
+		
+		best = pointToCircleEdgeSquared(px, py, tipx, tipy, tipRadius, best, out);
+		best = pointToCircleEdgeSquared(px, py, x, y, buttRadius, best, out);
+		
+		return best;
+	}
+	
+	/**
+	 * Consider the vector from the edge of a circle to a point as a candidate
+	 * for the shortest vector, keeping it if it is no longer than the current
+	 * best.
+	 *
+	 * @param px X coordinate of the point
+	 * @param py Y coordinate of the point
+	 * @param cx X coordinate of the center of the circle
+	 * @param cy Y coordinate of the center of the circle
+	 * @param radius Radius of the circle
+	 * @param best Squared length of the current best
+	 * @param out Current best
+	 * @return Squared length of the new best
+	 */
+	private static double pointToCircleEdgeSquared(double px, double py, double cx, double cy, double radius, double best, MutableVec2 out)
+	{
+		double fx = px - cx;
+		double fy = py - cy;
+		double len = Math.sqrt(fx * fx + fy * fy);
+		
+		if (len > 0.0)
+		{
+			double d = (len - radius) * (len - radius);
+			
+			if (d <= best)
+			{
+				out.set(fx - fx / len * radius, fy - fy / len * radius);
+				return d;
+			}
+		}
+		else if (radius * radius <= best)
+		{
+			// right in the middle, any direction will do
+			out.set(fx - radius, fy);
+			return radius * radius;
+		}
+		
+		return best;
+	}
+	
+	/**
+	 * Find when a point moving in a straight line first comes within a
+	 * given distance of another point. A point that is already within the
+	 * distance is not considered to come within it again.
+	 *
+	 * @param px X coordinate of the moving point at the start
+	 * @param py Y coordinate of the moving point at the start
+	 * @param mx Horizontal distance the point moves
+	 * @param my Vertical distance the point moves
+	 * @param cx X coordinate of the other point
+	 * @param cy Y coordinate of the other point
+	 * @param radius Distance to consider
+	 * @return Fraction of the move, from 0 to 1, at which the point comes
+	 * 			within the distance, or positive infinity if it doesn't
+	 */
+	public static double sweepPointToCircle(double px, double py, double mx, double my, double cx, double cy, double radius)
+	{
+		double fx = px - cx;
+		double fy = py - cy;
+		
+		double a = mx * mx + my * my;
+		double b = fx * mx + fy * my;
+		double c = fx * fx + fy * fy - radius * radius;
+		
+		// already inside, or not moving towards the circle
+		if (c < 0.0 || b >= 0.0 || a == 0.0)
+		{
+			return Double.POSITIVE_INFINITY;
+		}
+		
+		double discriminant = b * b - a * c;
+		
+		if (discriminant < 0.0)
+		{
+			return Double.POSITIVE_INFINITY;
+		}
+		
+		double t = (-b - Math.sqrt(discriminant)) / a;
+		
+		return (t <= 1.0) ? t : Double.POSITIVE_INFINITY;
+	}
+}
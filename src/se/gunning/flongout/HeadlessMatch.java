@@ -0,0 +1,293 @@
+package se.gunning.flongout;
+
+import java.util.Random;
+
+/**
+ * Runs a match without a display, as fast as the CPU allows. Uses the same
+ * GameScene logic (physics, bricks, powerups and game ending mechanics) as
+ * the real game, but never touches Slick2D or LWJGL.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-02
+ */
+public class HeadlessMatch
+{
+	/**
+	 * Simulated milliseconds per tick, matching the fixed tick of the real game.
+	 */
+	public static final double MILLIS_PER_TICK = GameScene.TICK_MILLIS;
+	
+	/**
+	 * The game being played.
+	 */
+	private GameScene game;
+	
+	/**
+	 * Clock used by the game, advanced once per tick.
+	 */
+	private SimulationClock clock;
+	
+	/**
+	 * Input mappers for the two players.
+	 */
+	private InputMapper[] players;
+	
+	/**
+	 * Controllers populated by the input mappers.
+	 */
+	private Controller[] controllers;
+	
+	/**
+	 * Create a new headless match.
+	 *
+	 * @param ender Game ending mechanic. Should not be endless, or the match will only end by the tick limit.
+	 * @param playerOne Input mapper for the left paddle
+	 * @param playerTwo Input mapper for the right paddle
+	 */
+	public HeadlessMatch(GameEndingMechanic ender, InputMapper playerOne, InputMapper playerTwo)
+	{
+		this(ender, playerOne, playerTwo, 1);
+	}
+	
+	/**
+	 * Create a new headless match with a given number of balls.
+	 *
+	 * @param ender Game ending mechanic. Should not be endless, or the match will only end by the tick limit.
+	 * @param playerOne Input mapper for the left paddle
+	 * @param playerTwo Input mapper for the right paddle
+	 * @param ballCount Number of balls
+	 */
+	public HeadlessMatch(GameEndingMechanic ender, InputMapper playerOne, InputMapper playerTwo, int ballCount)
+	{
+		this(ender, playerOne, playerTwo, ballCount, new Random().nextLong());
+	}
+	
+	/**
+	 * Create a new headless match with a given number of balls, seeding the
+	 * game with a given seed. Given the same seed and the same inputs, every
+	 * match plays out the same.
+	 *
+	 * @param ender Game ending mechanic. Should not be endless, or the match will only end by the tick limit.
+	 * @param playerOne Input mapper for the left paddle
+	 * @param playerTwo Input mapper for the right paddle
+	 * @param ballCount Number of balls
+	 * @param seed Seed for the random number generator of the game
+	 */
+	public HeadlessMatch(GameEndingMechanic ender, InputMapper playerOne, InputMapper playerTwo, int ballCount, long seed)
+	{
+		clock = new SimulationClock(MILLIS_PER_TICK);
+		game = new GameScene(null, false, ender, clock, ballCount, seed);
+		
+		players = new InputMapper[]{playerOne, playerTwo};
+		controllers = new Controller[]{new Controller(), new Controller()};
+		
+		// nobody else is going to hand the cpu players their paddles
+		for (int i = 0; i < players.length; ++i)
+		{
+			if (players[i] instanceof CPUInput)
+			{
+				game.setupCpuPaddle((CPUInput)players[i], i);
+			}
+		}
+		
+		game.initHeadless();
+	}
+	
+	/**
+	 * Run a single tick of the match.
+	 *
+	 * @return True if the match is still going, false if it is over
+	 */
+	public boolean tick()
+	{
+		if (game.isGameOver())
+		{
+			return false;
+		}
+		
+		// input mappers that need a Slick2D Input won't work here, but the cpu doesn't
+		for (int i = 0; i < players.length; ++i)
+		{
+			players[i].mapInput(null, controllers[i]);
+		}
+		
+		game.tick(controllers);
+		clock.tick();
+		
+		return !game.isGameOver();
+	}
+	
+	/**
+	 * Run the match until it is over or until a given number of ticks have passed.
+	 *
+	 * @param maxTicks Maximum number of ticks to run
+	 * @return True if the match ended, false if the tick limit was reached
+	 */
+	public boolean run(long maxTicks)
+	{
+		while (clock.getTicks() < maxTicks)
+		{
+			if (!tick())
+			{
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Get the winner of the match.
+	 *
+	 * @return 0 if player one is ahead, 1 if player two is ahead, -1 on a draw
+	 */
+	public int getWinner()
+	{
+		if (game.getPlayerScore(0) > game.getPlayerScore(1))
+		{
+			return 0;
+		}
+		else if (game.getPlayerScore(1) > game.getPlayerScore(0))
+		{
+			return 1;
+		}
+		else
+		{
+			return -1;
+		}
+	}
+	
+	/**
+	 * Get the number of ticks run so far.
+	 *
+	 * @return Number of ticks
+	 */
+	public long getTicks()
+	{
+		return clock.getTicks();
+	}
+	
+	/**
+	 * Get the game being played.
+	 *
+	 * @return The game
+	 */
+	public GameScene getGame()
+	{
+		return game;
+	}
+	
+	/**
+	 * Create a CPU player by name.
+	 *
+	 * @param name "simple", "easy", "normal" or "hard"
+	 * @return The CPU player
+	 * @throws IllegalArgumentException If there's no CPU player by that name
+	 */
+	public static CPUInput createCpu(String name)
+	{
+		return createCpu(name, new Random().nextLong());
+	}
+	
+	/**
+	 * Create a CPU player by name, seeding any random number generator it
+	 * has with a given seed.
+	 *
+	 * @param name "simple", "easy", "normal" or "hard"
+	 * @param seed Seed for the random number generator of the player
+	 * @return The CPU player
+	 * @throws IllegalArgumentException If there's no CPU player by that name
+	 */
+	public static CPUInput createCpu(String name, long seed)
+	{
+		if (name.equals("simple"))
+		{
+			return new CPUInput();
+		}
+		
+		return new PredictiveCPUInput(PredictiveCPUInput.Difficulty.valueOf(name.toUpperCase()), new Random(seed));
+	}
+	
+	/**
+	 * Run a number of CPU versus CPU matches and print a summary. Each CPU
+	 * player is "simple", for the original CPU, or a difficulty of the
+	 * predictive CPU: "easy", "normal" or "hard".
+	 * Usage: HeadlessMatch [matches] [score limit] [balls] [left cpu] [right cpu]
+	 *
+	 * @param args Command line arguments
+	 */
+	public static void main(String[] args)
+	{
+		int matches = 100;
+		int scoreLimit = 10;
+		int ballCount = 1;
+		
+		if (args.length > 0)
+		{
+			matches = Integer.parseInt(args[0]);
+		}
+		
+		if (args.length > 1)
+		{
+			scoreLimit = Integer.parseInt(args[1]);
+		}
+		
+		if (args.length > 2)
+		{
+			ballCount = Integer.parseInt(args[2]);
+		}
+		
+		String[] cpus = new String[]{"simple", "simple"};
+		
+		for (int i = 0; i < 2 && i + 3 < args.length; ++i)
+		{
+			cpus[i] = args[i + 3];
+		}
+		
+		// give up on a match after ten minutes of game time
+		long maxTicks = (long)(10 * 60 * 1000 / MILLIS_PER_TICK);
+		
+		int[] wins = new int[2];
+		int draws = 0;
+		int unfinished = 0;
+		long totalTicks = 0;
+		
+		long started = System.nanoTime();
+		
+		for (int i = 0; i < matches; ++i)
+		{
+			HeadlessMatch match = new HeadlessMatch(new ScoreLimitedGame(scoreLimit), createCpu(cpus[0]), createCpu(cpus[1]), ballCount);
+			
+			if (!match.run(maxTicks))
+			{
+				++unfinished;
+			}
+			
+			int winner = match.getWinner();
+			
+			if (winner < 0)
+			{
+				++draws;
+			}
+			else
+			{
+				++wins[winner];
+			}
+			
+			totalTicks += match.getTicks();
+		}
+		
+		double seconds = (System.nanoTime() - started) / 1e9;
+		
+		System.out.println("Matches:        " + matches + " (first to " + scoreLimit + ", " + ballCount + " balls)");
+		System.out.println("Player One:     " + wins[0] + " (" + cpus[0] + ")");
+		System.out.println("Player Two:     " + wins[1] + " (" + cpus[1] + ")");
+		System.out.println("Draws:          " + draws);
+		System.out.println("Unfinished:     " + unfinished);
+		System.out.println("Ticks:          " + totalTicks);
+		System.out.println("Wall time:      " + String.format("%.2f s", seconds));
+		System.out.println("Matches/minute: " + String.format("%.1f", matches / seconds * 60.0));
+	}
+}
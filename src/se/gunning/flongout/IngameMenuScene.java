@@ -1,8 +1,6 @@
 package se.gunning.flongout;
 
 import java.awt.Font;
-import java.io.FileInputStream;
-import java.util.Arrays;
 import java.util.Stack;
 
 import org.newdawn.slick.Color;
@@ -58,8 +56,8 @@ public class IngameMenuScene implements Scene
 	private int selectedMenuItem = 0;
 	
 	/**
-	 * Repeat delay used to prevent processing buttons that are being held
-	 * down too fast. The capacity needs to be atleast as big as the number
+	 * Repeat delay used to prevent navigating too fast while the stick is
+	 * being held. The capacity needs to be atleast as big as the number
 	 * of available inputs.
 	 */
 	private long[] repeatDelay = new long[16];
@@ -69,11 +67,6 @@ public class IngameMenuScene implements Scene
 	 */
 	private Main mainGame;
 	
-	/**
-	 * Additional keyboard input to use while in menus. 
-	 */
-	private InputMapper menuKeyboard;
-	
 	/**
 	 * Phase for color cycling the "PAUSE" text.
 	 */
@@ -88,7 +81,6 @@ public class IngameMenuScene implements Scene
 	{
 		// keep a reference to main for pushing/popping scenes
 		mainGame = main;
-		menuKeyboard = new KeyboardMenuInput();
 		
 		menuItems = new String[]{"Resume", "Quit"};
 		
@@ -175,9 +167,9 @@ public class IngameMenuScene implements Scene
 		
 		// load assets
 		try {
-			pauseFont = new TrueTypeFont(new Font("monospace", java.awt.Font.BOLD, 40), true);
-			menuFont = new TrueTypeFont(new Font("monospace", java.awt.Font.PLAIN, 40), true);
-			hit = new Sound(new FileInputStream("assets/sounds/hit.ogg"), "hit.ogg");
+			pauseFont = mainGame.getAssets().getSystemFont("monospace", Font.BOLD, 40);
+			menuFont = mainGame.getAssets().getSystemFont("monospace", Font.PLAIN, 40);
+			hit = mainGame.getAssets().getSound("assets/sounds/hit.ogg");
 		}
 		catch (Exception e)
 		{
@@ -199,11 +191,6 @@ public class IngameMenuScene implements Scene
 	 */
 	public void update(GameContainer gc, int delta, Controller[] input) throws SlickException
 	{
-		// extend the array of inputs and add the menu keyboard input mapper
-		input = Arrays.copyOf(input, input.length + 1);
-		input[input.length - 1] = new Controller();
-		menuKeyboard.mapInput(gc.getInput(), input[input.length - 1]);
-		
 		// read all inputs
 		for (int i = 0; i < input.length; ++i)
 		{
@@ -235,14 +222,15 @@ public class IngameMenuScene implements Scene
 				// don't read from this input for 250ms
 				repeatDelay[i] = System.currentTimeMillis() + 250;
 			}
-			else if (!input[i].buttonOne.isPressed() && input[i].leftAnalog.getMagnitude() < 0.25)
+			else if (input[i].leftAnalog.getMagnitude() < 0.25)
 			{
 				// reset the repeat delay for this input because it's not being held
 				repeatDelay[i] = 0;
 			}
 			
-			// read button press and launch other scenes
-			if (input[i].buttonOne.isPressed() && repeatDelay[i] < System.currentTimeMillis())
+			// read button press and launch other scenes. only a fresh press
+			// counts, so that holding the button doesn't repeat it
+			if (input[i].buttonOne.isJustPressed())
 			{
 				switch (menuItems[selectedMenuItem])
 				{
@@ -260,7 +248,8 @@ public class IngameMenuScene implements Scene
 					break;
 				}
 				
-				repeatDelay[i] = System.currentTimeMillis() + 250;
+				// one press per frame, the scene may have been switched
+				return;
 			}
 		}
 	}
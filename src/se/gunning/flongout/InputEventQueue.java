@@ -0,0 +1,164 @@
+package se.gunning.flongout;
+
+/**
+ * A queue of presses and releases of keys or buttons, each with the time it
+ * happened. The events are kept in plain arrays used as a ring, so adding
+ * and removing events allocates nothing.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-18
+ */
+public class InputEventQueue
+{
+	/**
+	 * Times of the events, in nanoseconds.
+	 */
+	private long[] times;
+	
+	/**
+	 * Key or button codes of the events.
+	 */
+	private int[] codes;
+	
+	/**
+	 * Whether each event is a press or a release.
+	 */
+	private boolean[] presses;
+	
+	/**
+	 * Index of the first event.
+	 */
+	private int first;
+	
+	/**
+	 * Number of events in the queue.
+	 */
+	private int size;
+	
+	/**
+	 * Create a new, empty queue.
+	 *
+	 * @param capacity Most events the queue can hold
+	 * @throws IllegalArgumentException If the capacity isn't positive
+	 */
+	public InputEventQueue(int capacity)
+	{
+		if (capacity < 1)
+		{
+			throw new IllegalArgumentException("Capacity must be positive");
+		}
+		
+		times = new long[capacity];
+		codes = new int[capacity];
+		presses = new boolean[capacity];
+	}
+	
+	/**
+	 * Add an event to the end of the queue.
+	 *
+	 * @param code Key or button code
+	 * @param press True for a press, false for a release
+	 * @param nanos Time of the event, in nanoseconds
+	 * @throws IllegalStateException If the queue is full
+	 */
+	public void add(int code, boolean press, long nanos)
+	{
+		if (isFull())
+		{
+			throw new IllegalStateException("Input event queue is full");
+		}
+		
+		int i = (first + size) % times.length;
+		times[i] = nanos;
+		codes[i] = code;
+		presses[i] = press;
+		++size;
+	}
+	
+	/**
+	 * Remove the first event from the queue.
+	 *
+	 * @throws IllegalStateException If the queue is empty
+	 */
+	public void remove()
+	{
+		if (isEmpty())
+		{
+			throw new IllegalStateException("Input event queue is empty");
+		}
+		
+		first = (first + 1) % times.length;
+		--size;
+	}
+	
+	/**
+	 * Get the time of the first event.
+	 *
+	 * @return Time in nanoseconds
+	 */
+	public long getTime()
+	{
+		return times[first];
+	}
+	
+	/**
+	 * Get the key or button code of the first event.
+	 *
+	 * @return Key or button code
+	 */
+	public int getCode()
+	{
+		return codes[first];
+	}
+	
+	/**
+	 * Check whether the first event is a press or a release.
+	 *
+	 * @return True for a press, false for a release
+	 */
+	public boolean isPress()
+	{
+		return presses[first];
+	}
+	
+	/**
+	 * Remove every event.
+	 */
+	public void clear()
+	{
+		first = 0;
+		size = 0;
+	}
+	
+	/**
+	 * Get the number of events in the queue.
+	 *
+	 * @return Number of events
+	 */
+	public int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * Check whether the queue is empty.
+	 *
+	 * @return True if there are no events
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+	
+	/**
+	 * Check whether the queue is full.
+	 *
+	 * @return True if no more events fit
+	 */
+	public boolean isFull()
+	{
+		return size == times.length;
+	}
+}
@@ -1,20 +1,33 @@
 package se.gunning.flongout;
 
-import java.util.HashMap;
-
+import org.lwjgl.input.Keyboard;
 import org.newdawn.slick.Input;
 import org.newdawn.slick.KeyListener;
 
 /**
- * Keyboard-only input mapper.
+ * Keyboard-only input mapper. Rather than checking which keys are down once
+ * per frame, it listens for every press and release along with the time it
+ * happened, so a key tapped between two frames still counts and every tick
+ * sees the keys as they were at its own time.
  * 
  * @author Mikael Forsberg
  * @author Robin Gunning
  * @author Jonathan Yao Håkansson
- * @version 2015-05-19
+ * @version 2015-06-18
  */
-public class KeyboardInput implements InputMapper, KeyListener
+public class KeyboardInput implements TimedInputMapper, KeyListener
 {
+	/**
+	 * Number of key codes.
+	 */
+	private static final int KEY_CODES = 256;
+	
+	/**
+	 * Most key events kept waiting for a tick. Beyond that the oldest are
+	 * taken in right away, losing only their timing.
+	 */
+	private static final int MAX_EVENTS = 64;
+	
 	/**
 	 * Are we currently running input detection?
 	 */
@@ -26,100 +39,232 @@ public class KeyboardInput implements InputMapper, KeyListener
 	private int detectedKey;
 	
 	/**
-	 * Our Input-Output keymap.
+	 * Our Input-Output keymap, by key code. Unmapped keys are null.
 	 */
-	private HashMap<Integer, Output> keyMap;
+	private Output[] keyMap;
+	
+	/**
+	 * Which keys are down, as of the events taken in so far.
+	 */
+	private boolean[] keyDown;
+	
+	/**
+	 * Which keys have been pressed since the controller was last populated.
+	 */
+	private boolean[] keyTapped;
+	
+	/**
+	 * Which outputs are active, by ordinal. Reused for every mapping.
+	 */
+	private boolean[] active;
+	
+	/**
+	 * Key events not yet taken in.
+	 */
+	private InputEventQueue events;
+	
+	/**
+	 * Input we're listening to, or null if not listening yet.
+	 */
+	private Input listening;
+	
+	/**
+	 * Difference between System.nanoTime and the LWJGL key event clock, or
+	 * Long.MAX_VALUE if not yet known.
+	 */
+	private long clockOffset = Long.MAX_VALUE;
 	
 	/**
 	 * Create a new keyboard-only input mapper.
 	 */
 	public KeyboardInput()
 	{
-		// set up a default configuration
-		keyMap = new HashMap<Integer, Output>();
+		keyMap = new Output[KEY_CODES];
+		keyDown = new boolean[KEY_CODES];
+		keyTapped = new boolean[KEY_CODES];
+		active = new boolean[Output.values().length];
+		events = new InputEventQueue(MAX_EVENTS);
 		
-		keyMap.put(17, Output.LEFTANALOG_Y_PLUS); // W
-		keyMap.put(30, Output.LEFTANALOG_X_MINUS); // A
-		keyMap.put(31, Output.LEFTANALOG_Y_MINUS); // S
-		keyMap.put(32, Output.LEFTANALOG_X_PLUS); // D
+		// set up a default configuration
+		keyMap[17] = Output.LEFTANALOG_Y_PLUS; // W
+		keyMap[30] = Output.LEFTANALOG_X_MINUS; // A
+		keyMap[31] = Output.LEFTANALOG_Y_MINUS; // S
+		keyMap[32] = Output.LEFTANALOG_X_PLUS; // D
 		
-		keyMap.put(200, Output.RIGHTANALOG_Y_PLUS); // Uparrow
-		keyMap.put(203, Output.RIGHTANALOG_X_MINUS); // Leftarrow
-		keyMap.put(208, Output.RIGHTANALOG_Y_MINUS); // Downarrow
-		keyMap.put(205, Output.RIGHTANALOG_X_PLUS); // Rightarrow
+		keyMap[200] = Output.RIGHTANALOG_Y_PLUS; // Uparrow
+		keyMap[203] = Output.RIGHTANALOG_X_MINUS; // Leftarrow
+		keyMap[208] = Output.RIGHTANALOG_Y_MINUS; // Downarrow
+		keyMap[205] = Output.RIGHTANALOG_X_PLUS; // Rightarrow
 		
-		keyMap.put(35, Output.BUTTON1); // H
-		keyMap.put(36, Output.BUTTON2); // J
-		keyMap.put(37, Output.BUTTON3); // K
+		keyMap[35] = Output.BUTTON1; // H
+		keyMap[36] = Output.BUTTON2; // J
+		keyMap[37] = Output.BUTTON3; // K
 	}
 	
 	/**
-	 * Populate a controller.
+	 * Populate a controller with every key event so far.
 	 * 
 	 * @param in Slick2D Input
 	 * @param c Controller to populate
 	 */
 	public void mapInput(Input in, Controller c)
 	{
-		Vec2 leftAnalog = new Vec2(0, 0);
-		Vec2 rightAnalog = new Vec2(0, 0);
-		
-		Vec2 xplus = new Vec2(1.0, 0.0);
-		Vec2 xminus = new Vec2(-1.0, 0.0);
-		Vec2 yplus = new Vec2(0.0, 1.0);
-		Vec2 yminus = new Vec2(0.0, -1.0);
+		listenTo(in);
+		mapInputUntil(Long.MAX_VALUE, c);
+	}
+	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public void mapInputUntil(long nanos, Controller c)
+	{
+		while (!events.isEmpty() && events.getTime() <= nanos)
+		{
+			takeEvent();
+		}
 		
-		c.buttonOne.release();
-		c.buttonTwo.release();
-		c.buttonThree.release();
+		for (int i = 0; i < active.length; ++i)
+		{
+			active[i] = false;
+		}
 		
-		for (Integer key : keyMap.keySet())
+		for (int key = 0; key < KEY_CODES; ++key)
 		{
-			if (in.isKeyDown(key))
+			if (keyMap[key] != null && (keyDown[key] || keyTapped[key]))
 			{
-				switch (keyMap.get(key))
-				{
-				case LEFTANALOG_Y_PLUS:
-					leftAnalog = leftAnalog.add(yplus);
-					break;
-				case LEFTANALOG_Y_MINUS:
-					leftAnalog = leftAnalog.add(yminus);
-					break;
-				case LEFTANALOG_X_PLUS:
-					leftAnalog = leftAnalog.add(xplus);
-					break;
-				case LEFTANALOG_X_MINUS:
-					leftAnalog = leftAnalog.add(xminus);
-					break;
-				case RIGHTANALOG_Y_PLUS:
-					rightAnalog = rightAnalog.add(yplus);
-					break;
-				case RIGHTANALOG_Y_MINUS:
-					rightAnalog = rightAnalog.add(yminus);
-					break;
-				case RIGHTANALOG_X_PLUS:
-					rightAnalog = rightAnalog.add(xplus);
-					break;
-				case RIGHTANALOG_X_MINUS:
-					rightAnalog = rightAnalog.add(xminus);
-					break;
-				case BUTTON1:
-					c.buttonOne.press();
-					break;
-				case BUTTON2:
-					c.buttonTwo.press();
-					break;
-				case BUTTON3:
-					c.buttonThree.press();
-					break;
-				default:
-					break;
-				}
+				active[keyMap[key].ordinal()] = true;
 			}
+			
+			keyTapped[key] = false;
+		}
+		
+		c.buttonOne.setPressed(active[Output.BUTTON1.ordinal()]);
+		c.buttonTwo.setPressed(active[Output.BUTTON2.ordinal()]);
+		c.buttonThree.setPressed(active[Output.BUTTON3.ordinal()]);
+		
+		setDirection(c.leftAnalog, Output.LEFTANALOG_X_PLUS, Output.LEFTANALOG_X_MINUS, Output.LEFTANALOG_Y_PLUS, Output.LEFTANALOG_Y_MINUS);
+		setDirection(c.rightAnalog, Output.RIGHTANALOG_X_PLUS, Output.RIGHTANALOG_X_MINUS, Output.RIGHTANALOG_Y_PLUS, Output.RIGHTANALOG_Y_MINUS);
+	}
+	
+	/**
+	 * Point a stick in the direction of the active outputs, at full length.
+	 * 
+	 * @param stick Stick to point
+	 * @param xPlus Output pointing right
+	 * @param xMinus Output pointing left
+	 * @param yPlus Output pointing up
+	 * @param yMinus Output pointing down
+	 */
+	private void setDirection(Controller.AnalogStick stick, Output xPlus, Output xMinus, Output yPlus, Output yMinus)
+	{
+		double x = (active[xPlus.ordinal()] ? 1.0 : 0.0) - (active[xMinus.ordinal()] ? 1.0 : 0.0);
+		double y = (active[yPlus.ordinal()] ? 1.0 : 0.0) - (active[yMinus.ordinal()] ? 1.0 : 0.0);
+		double len = Math.sqrt(x * x + y * y);
+		
+		if (len != 0.0)
+		{
+			stick.setDirection(x / len, y / len);
+		}
+		else
+		{
+			stick.setDirection(0.0, 0.0);
+		}
+	}
+	
+	/**
+	 * Take in the first key event in the queue.
+	 */
+	private void takeEvent()
+	{
+		int key = events.getCode();
+		
+		if (events.isPress())
+		{
+			keyDown[key] = true;
+			keyTapped[key] = true;
+		}
+		else
+		{
+			keyDown[key] = false;
+		}
+		
+		events.remove();
+	}
+	
+	/**
+	 * Record a key event.
+	 * 
+	 * @param key Key code
+	 * @param press True for a press, false for a release
+	 * @param nanos Time of the event, on the System.nanoTime clock
+	 */
+	void addEvent(int key, boolean press, long nanos)
+	{
+		if (key < 0 || key >= KEY_CODES)
+		{
+			return;
+		}
+		
+		if (events.isFull())
+		{
+			takeEvent();
+		}
+		
+		events.add(key, press, nanos);
+	}
+	
+	/**
+	 * Start listening to the key events of an input, unless already
+	 * listening to it.
+	 * 
+	 * @param in Slick2D Input
+	 */
+	@Override
+	public void listenTo(Input in)
+	{
+		if (in == null || in == listening)
+		{
+			return;
+		}
+		
+		if (listening != null)
+		{
+			listening.removeKeyListener(this);
 		}
 		
-		c.leftAnalog.setDirection(leftAnalog.normalize());
-		c.rightAnalog.setDirection(rightAnalog.normalize());
+		in.addKeyListener(this);
+		listening = in;
+		
+		// the listener only hears of keys pressed from now on
+		for (int key = 0; key < KEY_CODES; ++key)
+		{
+			keyDown[key] = keyMap[key] != null && in.isKeyDown(key);
+		}
+	}
+	
+	/**
+	 * Get the time of the key event being handled. LWJGL stamps every key
+	 * event with the time it happened, but on a clock of its own. The least
+	 * difference seen between that clock and System.nanoTime is taken as the
+	 * difference between the clocks, which makes it off by no more than the
+	 * quickest an event has been handled.
+	 * 
+	 * @return Time of the event, on the System.nanoTime clock
+	 */
+	private long getEventTime()
+	{
+		long now = System.nanoTime();
+		
+		if (!Keyboard.isCreated() || Keyboard.getEventNanoseconds() == 0)
+		{
+			return now;
+		}
+		
+		long stamp = Keyboard.getEventNanoseconds();
+		clockOffset = Math.min(clockOffset, now - stamp);
+		
+		return Math.min(now, stamp + clockOffset);
 	}
 	
 	/**
@@ -140,7 +285,7 @@ public class KeyboardInput implements InputMapper, KeyListener
 	public void beginInputDetection(Input input)
 	{
 		// we'll catch the input acting as a Slick2D KeyListener
-		input.addKeyListener(this);
+		listenTo(input);
 		detectingInput = true;
 		detectedKey = -1;
 	}
@@ -162,9 +307,6 @@ public class KeyboardInput implements InputMapper, KeyListener
 		// detected a key already?
 		if (detectedKey != -1)
 		{
-			// stop listening
-			input.removeKeyListener(this);
-			
 			// return with confidence
 			return true;
 		}
@@ -175,7 +317,8 @@ public class KeyboardInput implements InputMapper, KeyListener
 	}
 	
 	/**
-	 * Listen to keypresses for input detection.
+	 * Listen to keypresses, for input detection and for populating the
+	 * controller.
 	 * 
 	 * @param key Key code
 	 * @param c Character typed
@@ -183,7 +326,12 @@ public class KeyboardInput implements InputMapper, KeyListener
 	@Override
 	public void keyPressed(int key, char c)
 	{
-		detectedKey = key;
+		if (detectingInput)
+		{
+			detectedKey = key;
+		}
+		
+		addEvent(key, true, getEventTime());
 	}
 	
 	/**
@@ -196,10 +344,20 @@ public class KeyboardInput implements InputMapper, KeyListener
 	public void mapDetectedInput(Output output) throws IllegalStateException
 	{
 		// get rid of the current mapping for the given output
-		keyMap.values().remove(output);
+		for (int key = 0; key < KEY_CODES; ++key)
+		{
+			if (keyMap[key] == output)
+			{
+				keyMap[key] = null;
+				break;
+			}
+		}
 		
 		// insert the new one
-		keyMap.put(detectedKey, output);
+		if (detectedKey >= 0 && detectedKey < KEY_CODES)
+		{
+			keyMap[detectedKey] = output;
+		}
 		
 		detectingInput = false;
 	}
@@ -240,5 +398,6 @@ public class KeyboardInput implements InputMapper, KeyListener
 	@Override
 	public void keyReleased(int key, char c)
 	{
+		addEvent(key, false, getEventTime());
 	}
 }
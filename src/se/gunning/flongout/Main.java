@@ -1,8 +1,13 @@
 package se.gunning.flongout;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.LinkedHashMap;
+import java.util.Properties;
 import java.util.Stack;
 
 import org.newdawn.slick.AppGameContainer;
@@ -10,6 +15,7 @@ import org.newdawn.slick.BasicGame;
 import org.newdawn.slick.Color;
 import org.newdawn.slick.GameContainer;
 import org.newdawn.slick.Graphics;
+import org.newdawn.slick.Input;
 import org.newdawn.slick.SlickException;
 
 /**
@@ -22,16 +28,44 @@ import org.newdawn.slick.SlickException;
  */
 public class Main extends BasicGame
 {
-	// program entry point
+	// program entry point. "--record file" records every game to the file,
+	// "--profile file" appends frame time percentiles to the file every ten seconds,
+	// "--layout file" plays with the bricks of a layout file, reloaded when it changes,
+	// "--powerups file" sets the weights of the powerups from a properties file
 	public static void main(String[] args)
 	{
 		try
 		{
+			Main main = new Main("Flongout!");
+			
+			for (int i = 0; i + 1 < args.length; i += 2)
+			{
+				if (args[i].equals("--record"))
+				{
+					main.setReplayFile(new File(args[i + 1]));
+				}
+				else if (args[i].equals("--profile"))
+				{
+					main.getProfiler().setDumpFile(new File(args[i + 1]));
+				}
+				else if (args[i].equals("--trail"))
+				{
+					main.setTrailLength(Integer.parseInt(args[i + 1]));
+				}
+				else if (args[i].equals("--layout"))
+				{
+					main.setLayoutFile(new File(args[i + 1]));
+				}
+				else if (args[i].equals("--powerups"))
+				{
+					main.loadPowerupWeights(new File(args[i + 1]));
+				}
+			}
+			
 			AppGameContainer appgc;
-			appgc = new AppGameContainer(new Main("Flongout!"));
+			appgc = new AppGameContainer(main);
 			appgc.setDisplayMode(1024, 768, true);
 			appgc.setVSync(true);
-			appgc.setTargetFrameRate(60);
 			appgc.start();
 		}
 		catch (SlickException ex)
@@ -46,10 +80,29 @@ public class Main extends BasicGame
 	public Stack<Scene> sceneStack;
 	
 	/**
-	 * Controllers to pass to scenes.
+	 * Controllers of the two players.
 	 */
 	Controller[] controllers;
 	
+	/**
+	 * Controllers to pass to scenes: those of the two players, and last the
+	 * keyboard used in the menus. They are kept from frame to frame, and from
+	 * scene to scene, so that a button held down through a scene switch
+	 * isn't taken as pressed again by the next scene.
+	 */
+	private Controller[] sceneInput;
+	
+	/**
+	 * Keyboard input used in the menus, and to leave the game.
+	 */
+	private InputMapper menuKeyboard;
+	
+	/**
+	 * Scene waiting for its assets to be decoded before it can be
+	 * initialized and switched to, or null if none.
+	 */
+	private Scene pendingScene;
+	
 	/**
 	 * Slick2D game container.
 	 */
@@ -76,6 +129,43 @@ public class Main extends BasicGame
 	 */
 	private CoordinateTransformer coords;
 	
+	/**
+	 * File to record games to, or null to not record them.
+	 */
+	private File replayFile;
+	
+	/**
+	 * Brick layout file for new games, or null for random bricks.
+	 */
+	private File layoutFile;
+	
+	/**
+	 * Weights of the powerups in new games, or null for the defaults.
+	 */
+	private Properties powerupWeights;
+	
+	/**
+	 * Number of points in each ball's trail.
+	 */
+	private int trailLength = GameScene.DEFAULT_TRAIL_LENGTH;
+	
+	/**
+	 * Images, sounds and fonts shared by all scenes.
+	 */
+	private AssetManager assets;
+	
+	/**
+	 * Profiler for the time spent in the different parts of a frame.
+	 */
+	private FrameProfiler profiler;
+	
+	/**
+	 * Timers for input mapping, updating and rendering.
+	 */
+	private FrameProfiler.Metric inputTimer;
+	private FrameProfiler.Metric updateTimer;
+	private FrameProfiler.Metric renderTimer;
+	
 	/**
 	 * Let's go!
 	 * 
@@ -88,8 +178,31 @@ public class Main extends BasicGame
 		// initialize the scene stack
 		sceneStack = new Stack<Scene>();
 		
-		// initialize two controllers
+		// initialize two controllers, and one for the menu keyboard
 		controllers = new Controller[]{new Controller(), new Controller()};
+		sceneInput = new Controller[]{controllers[0], controllers[1], new Controller()};
+		menuKeyboard = new KeyboardMenuInput();
+		
+		profiler = new FrameProfiler();
+		inputTimer = profiler.timer("input");
+		updateTimer = profiler.timer("update");
+		renderTimer = profiler.timer("render");
+		
+		// start decoding every asset while the window is being opened
+		assets = new AssetManager();
+		assets.preloadImage("assets/images/back.png");
+		assets.preloadImage("assets/images/controls.png");
+		assets.preloadFont("assets/data-latin.ttf");
+		
+		for (String path : GameScene.SPRITES)
+		{
+			assets.preloadAtlasImage(path);
+		}
+		
+		for (String name : new String[]{"hit", "cdown", "bullcactus", "break"})
+		{
+			assets.preloadSound("assets/sounds/" + name + ".ogg");
+		}
 	}
 	
 	/**
@@ -138,13 +251,154 @@ public class Main extends BasicGame
 	}
 	
 	/**
-	 * Push a scene onto the scene stack, switching to it immediately.
+	 * Set a file to record games to. Each new game overwrites the recording
+	 * of the previous one.
+	 * 
+	 * @param file File to record to, or null to not record games
+	 */
+	public void setReplayFile(File file)
+	{
+		replayFile = file;
+	}
+	
+	/**
+	 * Get the file games are recorded to.
+	 * 
+	 * @return File to record to, or null if games aren't recorded
+	 */
+	public File getReplayFile()
+	{
+		return replayFile;
+	}
+	
+	/**
+	 * Set the brick layout file for new games.
+	 * 
+	 * @param file Layout file, or null for random bricks
+	 */
+	public void setLayoutFile(File file)
+	{
+		layoutFile = file;
+	}
+	
+	/**
+	 * Get the brick layout file for new games.
+	 * 
+	 * @return Layout file, or null for random bricks
+	 */
+	public File getLayoutFile()
+	{
+		return layoutFile;
+	}
+	
+	/**
+	 * Load the weights of the powerups in new games from a properties file,
+	 * as taken by PowerupFactory.configure. If it can't be read, the powerups
+	 * keep their default weights.
+	 * 
+	 * @param file Properties file
+	 * @throws IllegalArgumentException If the file has bad weights or names
+	 */
+	public void loadPowerupWeights(File file)
+	{
+		Properties weights = new Properties();
+		
+		try
+		{
+			InputStream in = new FileInputStream(file);
+			
+			try
+			{
+				weights.load(in);
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch (IOException e)
+		{
+			Logger.getLogger(Main.class.getName()).log(Level.WARNING, "Could not load powerup weights", e);
+			return;
+		}
+		
+		// find any mistakes now rather than when a game starts
+		new PowerupFactory().configure(weights);
+		powerupWeights = weights;
+	}
+	
+	/**
+	 * Get the weights of the powerups in new games.
+	 * 
+	 * @return Weights by powerup name, or null for the defaults
+	 */
+	public Properties getPowerupWeights()
+	{
+		return powerupWeights;
+	}
+	
+	/**
+	 * Set the number of points in each ball's trail for new games.
+	 * 
+	 * @param length Number of points, at least two
+	 * @throws IllegalArgumentException If the length is less than two
+	 */
+	public void setTrailLength(int length)
+	{
+		if (length < 2)
+		{
+			throw new IllegalArgumentException("A trail needs at least two points");
+		}
+		
+		trailLength = length;
+	}
+	
+	/**
+	 * Get the number of points in each ball's trail for new games.
+	 * 
+	 * @return Number of points
+	 */
+	public int getTrailLength()
+	{
+		return trailLength;
+	}
+	
+	/**
+	 * Get the images, sounds and fonts shared by all scenes.
+	 * 
+	 * @return The asset manager
+	 */
+	public AssetManager getAssets()
+	{
+		return assets;
+	}
+	
+	/**
+	 * Get the profiler for the time spent in the different parts of a frame.
+	 * 
+	 * @return The profiler
+	 */
+	public FrameProfiler getProfiler()
+	{
+		return profiler;
+	}
+	
+	/**
+	 * Push a scene onto the scene stack, switching to it as soon as it can be
+	 * initialized. A scene that needs initializing waits for the assets being
+	 * decoded in the background, while the current scene goes on being drawn.
 	 * 
 	 * @param scene Scene to switch to
 	 * @throws SlickException when the planets align
 	 */
 	public void pushScene(Scene scene) throws SlickException
 	{
+		if (scene.needsInit() && !assets.isDecoded())
+		{
+			pendingScene = scene;
+			return;
+		}
+		
 		// initialize the scene if needed
 		if (scene.needsInit())
 		{
@@ -152,9 +406,6 @@ public class Main extends BasicGame
 		}
 		
 		sceneStack.push(scene);
-		
-		// sleep for a bit to avoid re-reading the input that (probably) caused a scene switch
-		try { Thread.sleep(200); } catch (InterruptedException e) { }
 	}
 	
 	/**
@@ -169,9 +420,32 @@ public class Main extends BasicGame
 		{
 			scene.destroy();
 		}
+	}
+	
+	/**
+	 * Populate the controllers of the players with their input as it was at a
+	 * given time. Input mappers that can't tell when their input changed
+	 * give their input as it is now.
+	 * 
+	 * @param nanos Time, on the System.nanoTime clock
+	 */
+	public void mapPlayerInput(long nanos)
+	{
+		inputTimer.begin();
+		
+		for (int i = 0; i < 2; ++i)
+		{
+			if (playerInput[i] instanceof TimedInputMapper)
+			{
+				((TimedInputMapper)playerInput[i]).mapInputUntil(nanos, controllers[i]);
+			}
+			else
+			{
+				playerInput[i].mapInput(gameContainer.getInput(), controllers[i]);
+			}
+		}
 		
-		// sleep for a bit to avoid re-reading the input that (probably) caused a scene switch
-		try { Thread.sleep(200); } catch (InterruptedException e) { }
+		inputTimer.end();
 	}
 	
 	/**
@@ -184,12 +458,22 @@ public class Main extends BasicGame
 	@Override
 	public void render(GameContainer gc, Graphics g) throws SlickException
 	{
-		sceneStack.peek().render(gc, g);
+		renderTimer.begin();
+		
+		// nothing to draw before the first scene has been switched to
+		if (!sceneStack.isEmpty())
+		{
+			sceneStack.peek().render(gc, g);
+		}
 		
 		// draw widescreen black bars (if any)
 		g.setColor(new Color(0.0f, 0.0f, 0.0f));
 		g.fillRect(0, 0, gc.getWidth(), coords.getOffsetY());
 		g.fillRect(0, gc.getHeight() - coords.getOffsetY(), gc.getWidth(), coords.getOffsetY());
+		renderTimer.end();
+		
+		profiler.render(g, 10, 10 + coords.getOffsetY());
+		profiler.endFrame();
 	}
 	
 	/**
@@ -219,10 +503,9 @@ public class Main extends BasicGame
 			availableInputs.put("Gamepad " + (i + 1), new GamepadInput(i));
 		}
 		
-		// TODO: CPUInput doesn't work too well for left player
 		// add two cpu players
-		availableInputs.put("CPU 1", new CPUInput());
-		availableInputs.put("CPU 2", new CPUInput());
+		availableInputs.put("CPU 1", new PredictiveCPUInput(PredictiveCPUInput.Difficulty.NORMAL));
+		availableInputs.put("CPU 2", new PredictiveCPUInput(PredictiveCPUInput.Difficulty.NORMAL));
 		
 		// initialize the controller setup screen scene
 		controllerSetup = new ControllerSetupScene(this);
@@ -230,6 +513,11 @@ public class Main extends BasicGame
 		for (String inputName : availableInputs.keySet())
 		{
 			controllerSetup.addInputMapper(inputName, availableInputs.get(inputName));
+			
+			if (availableInputs.get(inputName) instanceof TimedInputMapper)
+			{
+				((TimedInputMapper)availableInputs.get(inputName)).listenTo(gc.getInput());
+			}
 		}
 		
 		playerInput = new InputMapper[]{availableInputs.get("Keyboard 1"), availableInputs.get("CPU 1")};
@@ -250,11 +538,44 @@ public class Main extends BasicGame
 	@Override
 	public void update(GameContainer gc, int delta) throws SlickException
 	{
-		// get input from mappers onto controllers
-		playerInput[0].mapInput(gc.getInput(), controllers[0]);
-		playerInput[1].mapInput(gc.getInput(), controllers[1]);
+		// toggle the profiler overlay
+		if (gc.getInput().isKeyPressed(Input.KEY_F3))
+		{
+			profiler.setOverlayVisible(!profiler.isOverlayVisible());
+		}
+		
+		// switch to a waiting scene once it can be initialized, and leave
+		// the current one alone until then
+		if (pendingScene != null)
+		{
+			if (!assets.isDecoded())
+			{
+				return;
+			}
+			
+			Scene scene = pendingScene;
+			pendingScene = null;
+			pushScene(scene);
+		}
+		
+		// get input from mappers onto controllers. the game does that itself,
+		// once per tick, with the input as it was at the time of the tick
+		if (!(sceneStack.peek() instanceof GameScene))
+		{
+			mapPlayerInput(Long.MAX_VALUE);
+		}
+		
+		menuKeyboard.mapInput(gc.getInput(), sceneInput[2]);
 		
 		// update the scene
-		sceneStack.peek().update(gc, delta, controllers);
+		updateTimer.begin();
+		sceneStack.peek().update(gc, delta, sceneInput);
+		updateTimer.end();
+		
+		// remember which buttons are down, to tell new presses next frame
+		for (int i = 0; i < sceneInput.length; ++i)
+		{
+			sceneInput[i].endFrame();
+		}
 	}
 }
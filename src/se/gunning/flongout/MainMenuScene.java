@@ -1,8 +1,6 @@
 package se.gunning.flongout;
 
 import java.awt.Font;
-import java.io.FileInputStream;
-import java.util.Arrays;
 
 import org.lwjgl.openal.AL;
 import org.newdawn.slick.Color;
@@ -59,8 +57,8 @@ public class MainMenuScene implements Scene
 	private int selectedMenuItem = 0;
 	
 	/**
-	 * Repeat delay used to prevent processing buttons that are being held
-	 * down too fast. The capacity needs to be atleast as big as the number
+	 * Repeat delay used to prevent navigating too fast while the stick is
+	 * being held. The capacity needs to be atleast as big as the number
 	 * of available inputs.
 	 */
 	private long[] repeatDelay = new long[16];
@@ -70,11 +68,6 @@ public class MainMenuScene implements Scene
 	 */
 	private Main mainGame;
 	
-	/**
-	 * Additional keyboard input to use while in menus. 
-	 */
-	private InputMapper menuKeyboard;
-	
 	/**
 	 * Launch the game with the background animation enabled?
 	 */
@@ -95,6 +88,16 @@ public class MainMenuScene implements Scene
 	 */
 	private int selectedGameEnder;
 	
+	/**
+	 * Available numbers of balls.
+	 */
+	private int[] ballCounts;
+	
+	/**
+	 * Currently selected number of balls.
+	 */
+	private int selectedBallCount;
+	
 	/**
 	 * Create a new main menu scene.
 	 * 
@@ -105,7 +108,6 @@ public class MainMenuScene implements Scene
 		// keep a reference to main for pushing/popping scenes
 		mainGame = main;
 		backgroundAnimationEnabled = true;
-		menuKeyboard = new KeyboardMenuInput();
 		
 		gameEnders = new GameEndingMechanic[]
 				{ new EndlessGame(),
@@ -122,6 +124,9 @@ public class MainMenuScene implements Scene
 				  "First to 50"};
 		
 		selectedGameEnder = 0;
+		
+		ballCounts = new int[]{1, 10, 50, 200, 500};
+		selectedBallCount = 0;
 	}
 	
 	/**
@@ -136,7 +141,7 @@ public class MainMenuScene implements Scene
 	{
 		// draw the background image
 		back.draw(coords.toScreenX(-8.0), coords.toScreenY(4.5));
-		menuItems = new String[]{"Start Game", "Mode: " + gameEnderNames[selectedGameEnder], "Background: " + (backgroundAnimationEnabled ? "On" : "Off"), "Controller Setup", "Quit"};
+		menuItems = new String[]{"Start Game", "Mode: " + gameEnderNames[selectedGameEnder], "Balls: " + ballCounts[selectedBallCount], "Background: " + (backgroundAnimationEnabled ? "On" : "Off"), "Controller Setup", "Quit"};
 		
 		// draw the menu items
 		for (int i = 0; i < menuItems.length; ++i)
@@ -182,11 +187,10 @@ public class MainMenuScene implements Scene
 		
 		// load assets
 		try {
-			menuFont = new TrueTypeFont(new Font("monospace", java.awt.Font.PLAIN, 40), true);
-			hit = new Sound(new FileInputStream("assets/sounds/hit.ogg"), "hit.ogg");
+			menuFont = mainGame.getAssets().getSystemFont("monospace", Font.PLAIN, 40);
+			hit = mainGame.getAssets().getSound("assets/sounds/hit.ogg");
 			
-			back = new Image(new FileInputStream("assets/images/back.png"), "back", false);
-			back = back.getScaledCopy(scalefactor);
+			back = mainGame.getAssets().getImage("assets/images/back.png", scalefactor);
 		}
 		catch (Exception e)
 		{
@@ -208,11 +212,6 @@ public class MainMenuScene implements Scene
 	 */
 	public void update(GameContainer gc, int delta, Controller[] input) throws SlickException
 	{
-		// extend the array of inputs and add the menu keyboard input mapper
-		input = Arrays.copyOf(input, input.length + 1);
-		input[input.length - 1] = new Controller();
-		menuKeyboard.mapInput(gc.getInput(), input[input.length - 1]);
-		
 		// read all inputs
 		for (int i = 0; i < input.length; ++i)
 		{
@@ -244,19 +243,41 @@ public class MainMenuScene implements Scene
 				// don't read from this input for 250ms
 				repeatDelay[i] = System.currentTimeMillis() + 250;
 			}
-			else if (!input[i].buttonOne.isPressed() && input[i].leftAnalog.getMagnitude() < 0.25)
+			else if (input[i].leftAnalog.getMagnitude() < 0.25)
 			{
 				// reset the repeat delay for this input because it's not being held
 				repeatDelay[i] = 0;
 			}
 			
-			// read button press and launch other scenes
-			if (input[i].buttonOne.isPressed() && repeatDelay[i] < System.currentTimeMillis())
+			// read button press and launch other scenes. only a fresh press
+			// counts, so that holding the button doesn't repeat it
+			if (input[i].buttonOne.isJustPressed())
 			{
 				switch (menuItems[selectedMenuItem])
 				{
 				case "Start Game":
-					mainGame.pushScene(new ControlsTutorialScene(mainGame, new GameScene(mainGame, backgroundAnimationEnabled, gameEnders[selectedGameEnder])));
+					// the game runs on a clock that follows its ticks, so that it can be replayed
+					GameScene game = new GameScene(mainGame, backgroundAnimationEnabled, gameEnders[selectedGameEnder], new SimulationClock(GameScene.TICK_MILLIS), ballCounts[selectedBallCount]);
+					
+					game.setTrailLength(mainGame.getTrailLength());
+					
+					if (mainGame.getReplayFile() != null)
+					{
+						game.recordTo(mainGame.getReplayFile());
+					}
+					
+					if (mainGame.getPowerupWeights() != null)
+					{
+						game.getPowerupFactory().configure(mainGame.getPowerupWeights());
+					}
+					
+					// reload the layout as it's edited, unless recording
+					if (mainGame.getLayoutFile() != null)
+					{
+						game.loadLayout(mainGame.getLayoutFile(), mainGame.getReplayFile() == null);
+					}
+					
+					mainGame.pushScene(new ControlsTutorialScene(mainGame, game));
 					break;
 				
 				case "Mode: Endless":
@@ -270,6 +291,17 @@ public class MainMenuScene implements Scene
 					selectedGameEnder = 0;
 					break;
 				
+				case "Balls: 1":
+				case "Balls: 10":
+				case "Balls: 50":
+				case "Balls: 200":
+					++selectedBallCount;
+					break;
+				
+				case "Balls: 500":
+					selectedBallCount = 0;
+					break;
+				
 				case "Controller Setup":
 					mainGame.pushScene(mainGame.getControllerSetupScene());
 					break;
@@ -287,7 +319,8 @@ public class MainMenuScene implements Scene
 					break;
 				}
 				
-				repeatDelay[i] = System.currentTimeMillis() + 250;
+				// one press per frame, the scene may have been switched
+				return;
 			}
 		}
 	}
@@ -0,0 +1,189 @@
+package se.gunning.flongout;
+
+/**
+ * Statistics of a single match: the points scored, how long the rallies
+ * were, and how many powerups were dropped and picked up. A rally is counted
+ * in returns, that is the number of times the ball went from one paddle to
+ * the other, from one point to the next.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-16
+ */
+public class MatchStatistics
+{
+	/**
+	 * Points scored by each player.
+	 */
+	private int[] points;
+	
+	/**
+	 * Powerups picked up by each player.
+	 */
+	private int[] pickups;
+	
+	/**
+	 * Powerups dropped from broken bricks.
+	 */
+	private int drops;
+	
+	/**
+	 * Returns in all finished rallies.
+	 */
+	private int returns;
+	
+	/**
+	 * Returns in the longest finished rally.
+	 */
+	private int longestRally;
+	
+	/**
+	 * Returns in the rally being played.
+	 */
+	private int rally;
+	
+	/**
+	 * Player that last hit the ball, or -1 if nobody has this rally.
+	 */
+	private int lastHitter;
+	
+	/**
+	 * Create new, empty statistics.
+	 */
+	public MatchStatistics()
+	{
+		points = new int[2];
+		pickups = new int[2];
+		lastHitter = -1;
+	}
+	
+	/**
+	 * Make these statistics a copy of others.
+	 *
+	 * @param other Statistics to copy
+	 */
+	public void set(MatchStatistics other)
+	{
+		points[0] = other.points[0];
+		points[1] = other.points[1];
+		pickups[0] = other.pickups[0];
+		pickups[1] = other.pickups[1];
+		drops = other.drops;
+		returns = other.returns;
+		longestRally = other.longestRally;
+		rally = other.rally;
+		lastHitter = other.lastHitter;
+	}
+	
+	/**
+	 * Record a paddle touching the ball. Only counts as a return if the
+	 * other paddle touched it last.
+	 *
+	 * @param player Index of the player whose paddle touched the ball
+	 */
+	public void recordHit(int player)
+	{
+		if (lastHitter >= 0 && lastHitter != player)
+		{
+			++rally;
+		}
+		
+		lastHitter = player;
+	}
+	
+	/**
+	 * Record a point, which ends the rally.
+	 *
+	 * @param player Index of the player who scored
+	 */
+	public void recordPoint(int player)
+	{
+		++points[player];
+		returns += rally;
+		longestRally = Math.max(longestRally, rally);
+		
+		rally = 0;
+		lastHitter = -1;
+	}
+	
+	/**
+	 * Record a powerup dropping from a broken brick.
+	 */
+	public void recordDrop()
+	{
+		++drops;
+	}
+	
+	/**
+	 * Record a player picking up a powerup.
+	 *
+	 * @param player Index of the player
+	 */
+	public void recordPickup(int player)
+	{
+		++pickups[player];
+	}
+	
+	/**
+	 * Get the number of points scored by a player.
+	 *
+	 * @param player Index of the player
+	 * @return Number of points
+	 */
+	public int getPoints(int player)
+	{
+		return points[player];
+	}
+	
+	/**
+	 * Get the number of finished rallies, which is the number of points.
+	 *
+	 * @return Number of rallies
+	 */
+	public int getRallies()
+	{
+		return points[0] + points[1];
+	}
+	
+	/**
+	 * Get the total number of returns in the finished rallies.
+	 *
+	 * @return Number of returns
+	 */
+	public int getReturns()
+	{
+		return returns;
+	}
+	
+	/**
+	 * Get the number of returns in the longest finished rally.
+	 *
+	 * @return Number of returns
+	 */
+	public int getLongestRally()
+	{
+		return longestRally;
+	}
+	
+	/**
+	 * Get the number of powerups dropped from broken bricks.
+	 *
+	 * @return Number of powerups
+	 */
+	public int getDrops()
+	{
+		return drops;
+	}
+	
+	/**
+	 * Get the number of powerups picked up by a player.
+	 *
+	 * @param player Index of the player
+	 * @return Number of powerups
+	 */
+	public int getPickups(int player)
+	{
+		return pickups[player];
+	}
+}
@@ -0,0 +1,127 @@
+package se.gunning.flongout;
+
+/**
+ * A mutable two-dimensional vector, for use as scratch space and output
+ * parameter in code that must not allocate, such as the physics step.
+ * Everything else should stick to the immutable Vec2.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-03
+ */
+public class MutableVec2
+{
+	/**
+	 * First vector component.
+	 */
+	public double x;
+	
+	/**
+	 * Second vector component.
+	 */
+	public double y;
+	
+	/**
+	 * Create a new zero vector.
+	 */
+	public MutableVec2()
+	{
+		this(0.0, 0.0);
+	}
+	
+	/**
+	 * Create a new vector.
+	 *
+	 * @param x First vector component
+	 * @param y Second vector component
+	 */
+	public MutableVec2(double x, double y)
+	{
+		this.x = x;
+		this.y = y;
+	}
+	
+	/**
+	 * Set both components of the vector.
+	 *
+	 * @param x First vector component
+	 * @param y Second vector component
+	 * @return This vector
+	 */
+	public MutableVec2 set(double x, double y)
+	{
+		this.x = x;
+		this.y = y;
+		return this;
+	}
+	
+	/**
+	 * Add to both components of the vector.
+	 *
+	 * @param x Amount to add to the first component
+	 * @param y Amount to add to the second component
+	 * @return This vector
+	 */
+	public MutableVec2 add(double x, double y)
+	{
+		this.x += x;
+		this.y += y;
+		return this;
+	}
+	
+	/**
+	 * Scale (multiply) the vector by a scalar multiple.
+	 *
+	 * @param scalar Factor to scale/multiply by
+	 * @return This vector
+	 */
+	public MutableVec2 scale(double scalar)
+	{
+		x *= scalar;
+		y *= scalar;
+		return this;
+	}
+	
+	/**
+	 * Get the length / Euclidean norm of this vector.
+	 *
+	 * @return The length / Euclidean norm of this vector.
+	 */
+	public double length()
+	{
+		return Math.sqrt(x * x + y * y);
+	}
+	
+	/**
+	 * Get the squared length of this vector.
+	 *
+	 * @return The squared length of this vector
+	 */
+	public double lengthSquared()
+	{
+		return x * x + y * y;
+	}
+	
+	/**
+	 * Create an immutable copy of this vector.
+	 *
+	 * @return Immutable copy of this vector
+	 */
+	public Vec2 toVec2()
+	{
+		return new Vec2(x, y);
+	}
+	
+	/**
+	 * Get a string representation of the vector. The representation takes the
+	 * form of "(x, y)".
+	 *
+	 * @return String representation of the vector
+	 */
+	@Override
+	public String toString()
+	{
+		return "(" + x + ", " + y + ")";
+	}
+}
@@ -2,8 +2,6 @@ package se.gunning.flongout;
 
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.util.ArrayList;
-import java.util.Collections;
 
 import org.newdawn.slick.Color;
 import org.newdawn.slick.Graphics;
@@ -23,17 +21,23 @@ public class Paddle
 	/**
 	 * Position of the paddle.
 	 */
-	private Vec2 position;
+	private double x, y;
 	
 	/**
 	 * Velocity (translation) of the paddle.
 	 */
-	private Vec2 velocity;
+	private double vx, vy;
 	
 	/**
 	 * Direction (heading) of the paddle.
 	 */
-	private Vec2 direction;
+	private double dx, dy;
+	
+	/**
+	 * Position and direction of the paddle at the start of the current tick,
+	 * used for smoothing out motion when rendering between ticks.
+	 */
+	private double previousX, previousY, previousDx, previousDy;
 	
 	/**
 	 * Angular velocity of the paddle.
@@ -75,6 +79,11 @@ public class Paddle
 	 */
 	private String name;
 	
+	/**
+	 * Number of values in the state of a paddle, see saveState.
+	 */
+	static final int STATE_SIZE = 16;
+	
 	// TODO: is this in use anymore?
 	/**
 	 * Graphic for the paddle.
@@ -148,7 +157,27 @@ public class Paddle
 	 */
 	public Vec2 getVelocity()
 	{
-		return velocity;
+		return new Vec2(vx, vy);
+	}
+	
+	/**
+	 * Get the horizontal velocity (of translation) of the paddle.
+	 * 
+	 * @return Horizontal velocity of the paddle
+	 */
+	public double getVelocityX()
+	{
+		return vx;
+	}
+	
+	/**
+	 * Get the vertical velocity (of translation) of the paddle.
+	 * 
+	 * @return Vertical velocity of the paddle
+	 */
+	public double getVelocityY()
+	{
+		return vy;
 	}
 	
 	/**
@@ -158,7 +187,19 @@ public class Paddle
 	 */
 	public void setVelocity(Vec2 v)
 	{
-		velocity = v;
+		setVelocity(v.x, v.y);
+	}
+	
+	/**
+	 * Set the velocity (of translation) of the paddle.
+	 * 
+	 * @param x New horizontal velocity
+	 * @param y New vertical velocity
+	 */
+	public void setVelocity(double x, double y)
+	{
+		vx = x;
+		vy = y;
 	}
 	
 	/**
@@ -168,7 +209,19 @@ public class Paddle
 	 */
 	public void setPosition(Vec2 v)
 	{
-		position = v;
+		setPosition(v.x, v.y);
+	}
+	
+	/**
+	 * Set the position of the butt of the paddle.
+	 * 
+	 * @param x X coordinate to set
+	 * @param y Y coordinate to set
+	 */
+	public void setPosition(double x, double y)
+	{
+		this.x = x;
+		this.y = y;
 	}
 	
 	/**
@@ -178,7 +231,27 @@ public class Paddle
 	 */
 	public Vec2 getPosition()
 	{
-		return position;
+		return new Vec2(x, y);
+	}
+	
+	/**
+	 * Get the X coordinate of the butt of the paddle.
+	 * 
+	 * @return X coordinate of the butt of the paddle
+	 */
+	public double getX()
+	{
+		return x;
+	}
+	
+	/**
+	 * Get the Y coordinate of the butt of the paddle.
+	 * 
+	 * @return Y coordinate of the butt of the paddle
+	 */
+	public double getY()
+	{
+		return y;
 	}
 	
 	/**
@@ -188,7 +261,8 @@ public class Paddle
 	 */
 	public void setDirection(Vec2 v)
 	{
-		direction = v;
+		dx = v.x;
+		dy = v.y;
 	}
 	
 	/**
@@ -198,7 +272,27 @@ public class Paddle
 	 */
 	public Vec2 getDirection()
 	{
-		return direction;
+		return new Vec2(dx, dy);
+	}
+	
+	/**
+	 * Get the first component of the direction (heading) of the paddle.
+	 * 
+	 * @return First component of the direction vector
+	 */
+	public double getDirectionX()
+	{
+		return dx;
+	}
+	
+	/**
+	 * Get the second component of the direction (heading) of the paddle.
+	 * 
+	 * @return Second component of the direction vector
+	 */
+	public double getDirectionY()
+	{
+		return dy;
 	}
 	
 	/**
@@ -208,7 +302,8 @@ public class Paddle
 	 */
 	public void setAngle(double radians)
 	{
-		direction = new Vec2(Math.cos(radians), Math.sin(radians));
+		dx = Math.cos(radians);
+		dy = Math.sin(radians);
 //		// TODO: this doesn't look right, why is there a conditional here at all?
 //		if (Math.abs(radians) < 1e-10)
 //		{
@@ -227,7 +322,56 @@ public class Paddle
 	 */
 	public double getAngle()
 	{
-		return Math.atan2(direction.y, direction.x);
+		return Math.atan2(dy, dx);
+	}
+	
+	/**
+	 * Remember the current position and direction as those at the start of
+	 * the tick.
+	 */
+	public void storePreviousPosition()
+	{
+		previousX = x;
+		previousY = y;
+		previousDx = dx;
+		previousDy = dy;
+	}
+	
+	/**
+	 * Get the X coordinate of the butt of the paddle somewhere between the
+	 * start of the current tick and now.
+	 * 
+	 * @param alpha How far between the start of the tick (0) and now (1)
+	 * @return Interpolated X coordinate
+	 */
+	public double getInterpolatedX(double alpha)
+	{
+		return previousX + (x - previousX) * alpha;
+	}
+	
+	/**
+	 * Get the Y coordinate of the butt of the paddle somewhere between the
+	 * start of the current tick and now.
+	 * 
+	 * @param alpha How far between the start of the tick (0) and now (1)
+	 * @return Interpolated Y coordinate
+	 */
+	public double getInterpolatedY(double alpha)
+	{
+		return previousY + (y - previousY) * alpha;
+	}
+	
+	/**
+	 * Get the angle of the paddle somewhere between the start of the current
+	 * tick and now. Blends the directions rather than the angles, so there is
+	 * no jump when the angle wraps around.
+	 * 
+	 * @param alpha How far between the start of the tick (0) and now (1)
+	 * @return Interpolated angle
+	 */
+	public double getInterpolatedAngle(double alpha)
+	{
+		return Math.atan2(previousDy + (dy - previousDy) * alpha, previousDx + (dx - previousDx) * alpha);
 	}
 	
 	/**
@@ -278,7 +422,7 @@ public class Paddle
 	 */
 	public Vec2 getTipPosition()
 	{
-		return position.add(direction.scale(length));
+		return new Vec2(x + dx * length, y + dy * length);
 	}
 	
 	/**
@@ -290,45 +434,145 @@ public class Paddle
 	 */
 	public Vec2 getShortestVectorToPoint(Vec2 pt)
 	{
-		ArrayList<Vec2> vectors = new ArrayList<Vec2>();
+		MutableVec2 out = new MutableVec2();
+		getShortestVectorToPoint(pt.x, pt.y, out);
 		
-		Vec2 tip = getTipPosition();
+		return out.toVec2();
+	}
+	
+	/**
+	 * Get the shortest vector from the edge of the paddle to a given point
+	 * without allocating anything.
+	 * 
+	 * @param px X coordinate of the point to consider
+	 * @param py Y coordinate of the point to consider
+	 * @param out Vector to store the result in
+	 * @return The length of the resulting vector
+	 */
+	public double getShortestVectorToPoint(double px, double py, MutableVec2 out)
+	{
+		return Math.sqrt(getSquaredDistanceToPoint(px, py, out));
+	}
+	
+	/**
+	 * Get the shortest vector from the edge of the paddle to a given point
+	 * without allocating anything, and get its squared length. Cheaper than
+	 * getShortestVectorToPoint when only comparing against a distance.
+	 * 
+	 * @param px X coordinate of the point to consider
+	 * @param py Y coordinate of the point to consider
+	 * @param out Vector to store the result in
+	 * @return The squared length of the resulting vector
+	 */
+	public double getSquaredDistanceToPoint(double px, double py, MutableVec2 out)
+	{
+		return Geometry.pointToCapsuleSquared(px, py, x, y, dx, dy, length, buttRadius, tipRadius, out);
+	}
+	
+	/**
+	 * Find when a circle moving in a straight line first touches the
+	 * paddle, as it stands right now. The circle is treated as a point
+	 * moving towards the paddle grown by the radius of the circle, which is
+	 * made up of the grown butt and tip circles and the four-sided shape
+	 * between the grown top and bottom edges. A circle that already
+	 * overlaps the paddle is not considered to touch it again, so check for
+	 * that separately.
+	 * 
+	 * @param px X coordinate of the center of the circle at the start
+	 * @param py Y coordinate of the center of the circle at the start
+	 * @param mx Horizontal distance the circle moves
+	 * @param my Vertical distance the circle moves
+	 * @param radius Radius of the circle
+	 * @return Fraction of the move, from 0 to 1, at which the circle first
+	 * 			touches the paddle, or positive infinity if it doesn't
+	 */
+	public double sweepCircle(double px, double py, double mx, double my, double radius)
+	{
+		double best = Geometry.sweepPointToCircle(px, py, mx, my, x, y, buttRadius + radius);
+		
+		double tipx = x + dx * length;
+		double tipy = y + dy * length;
 		
-		Vec2 tiptop = new Vec2(tip.x + Math.cos(getAngle() + Math.PI / 2.0) * tipRadius, tip.y + Math.sin(getAngle() + Math.PI / 2.0) * tipRadius);
-		Vec2 tipbottom =new Vec2(tip.x + Math.cos(getAngle() - Math.PI / 2.0) * tipRadius, tip.y + Math.sin(getAngle() - Math.PI / 2.0) * tipRadius);
+		best = Math.min(best, Geometry.sweepPointToCircle(px, py, mx, my, tipx, tipy, tipRadius + radius));
 		
-		Vec2 butttop = new Vec2(position.x + Math.cos(getAngle() + Math.PI / 2.0) * buttRadius, position.y + Math.sin(getAngle() + Math.PI / 2.0) * buttRadius);
-		Vec2 buttbottom =new Vec2(position.x + Math.cos(getAngle() - Math.PI / 2.0) * buttRadius, position.y + Math.sin(getAngle() - Math.PI / 2.0) * buttRadius);
+		// the edges run between the butt and tip circles, see getShortestVectorToPoint
+		double len = Math.sqrt(dx * dx + dy * dy);
+		double ux = (len > 0.0) ? dx / len : 1.0;
+		double uy = (len > 0.0) ? dy / len : 0.0;
+		double nx = -uy;
+		double ny = ux;
 		
-		Vec2 topedge = new Vec2(tiptop.x - butttop.x, tiptop.y - butttop.y);
-		Vec2 bottomedge = new Vec2(tipbottom.x - buttbottom.x, tipbottom.y - buttbottom.y);
+		// outward normals of the top and bottom edges
+		double topx = (tipx + nx * tipRadius) - (x + nx * buttRadius);
+		double topy = (tipy + ny * tipRadius) - (y + ny * buttRadius);
+		double toplen = Math.sqrt(topx * topx + topy * topy);
+		double topnx = -topy / toplen;
+		double topny = topx / toplen;
 		
-		Vec2 topcenter = new Vec2(butttop.x + topedge.x / 2.0, butttop.y + topedge.y / 2.0);
-		Vec2 projtop = new Vec2(pt.x - topcenter.x, pt.y - topcenter.y).projectOnto(topedge);
+		double bottomx = (tipx - nx * tipRadius) - (x - nx * buttRadius);
+		double bottomy = (tipy - ny * tipRadius) - (y - ny * buttRadius);
+		double bottomlen = Math.sqrt(bottomx * bottomx + bottomy * bottomy);
+		double bottomnx = bottomy / bottomlen;
+		double bottomny = -bottomx / bottomlen;
 		
-		Vec2 bottomcenter = new Vec2(buttbottom.x + bottomedge.x / 2.0, buttbottom.y + bottomedge.y / 2.0);
-		Vec2 projbottom = new Vec2(pt.x - bottomcenter.x, pt.y - bottomcenter.y).projectOnto(bottomedge);
+		// corners of the grown shape, going counterclockwise
+		double x0 = x - nx * buttRadius + bottomnx * radius;
+		double y0 = y - ny * buttRadius + bottomny * radius;
+		double x1 = tipx - nx * tipRadius + bottomnx * radius;
+		double y1 = tipy - ny * tipRadius + bottomny * radius;
+		double x2 = tipx + nx * tipRadius + topnx * radius;
+		double y2 = tipy + ny * tipRadius + topny * radius;
+		double x3 = x + nx * buttRadius + topnx * radius;
+		double y3 = y + ny * buttRadius + topny * radius;
 		
-		if (projtop.length() < topedge.length() / 2.0)
+		double enter = Double.NEGATIVE_INFINITY;
+		double exit = Double.POSITIVE_INFINITY;
+		
+		for (int i = 0; i < 4 && enter <= exit; ++i)
 		{
-			vectors.add(new Vec2(pt.x - topcenter.x, pt.y - topcenter.y).subtract(projtop));
+			double ax, ay, bx, by;
+			
+			switch (i)
+			{
+			case 0: ax = x0; ay = y0; bx = x1; by = y1; break;
+			case 1: ax = x1; ay = y1; bx = x2; by = y2; break;
+			case 2: ax = x2; ay = y2; bx = x3; by = y3; break;
+			default: ax = x3; ay = y3; bx = x0; by = y0; break;
+			}
+			
+			// outward normal of the side, not normalized
+			double sx = by - ay;
+			double sy = ax - bx;
+			
+			// how far inside the side the start is, and how fast it moves out
+			double inside = sx * (ax - px) + sy * (ay - py);
+			double out = sx * mx + sy * my;
+			
+			if (out == 0.0)
+			{
+				if (inside < 0.0)
+				{
+					// outside and moving alongside
+					exit = Double.NEGATIVE_INFINITY;
+				}
+			}
+			else if (out < 0.0)
+			{
+				enter = Math.max(enter, inside / out);
+			}
+			else
+			{
+				exit = Math.min(exit, inside / out);
+			}
 		}
 		
-		if (projbottom.length() < bottomedge.length() / 2.0)
+		// only counts when entering from the outside, within the move
+		if (enter <= exit && enter >= 0.0 && enter <= 1.0)
 		{
-			vectors.add(new Vec2(pt.x - bottomcenter.x, pt.y - bottomcenter.y).subtract(projbottom));
+			best = Math.min(best, enter);
 		}
 		
-		Vec2 from_tip = new Vec2(pt.x - tip.x, pt.y - tip.y);
-		from_tip = new Vec2(pt.x - (tip.x + Math.cos(from_tip.getAngle()) * tipRadius), pt.y - (tip.y + Math.sin(from_tip.getAngle()) * tipRadius));
-		
-		Vec2 from_butt = new Vec2(pt.x - position.x, pt.y - position.y);
-		from_butt = new Vec2(pt.x - (position.x + Math.cos(from_butt.getAngle()) * buttRadius), pt.y - (position.y + Math.sin(from_butt.getAngle()) * buttRadius));
-		
-		vectors.add(from_tip);
-		vectors.add(from_butt);
-		
-		return Collections.min(vectors); 
+		return best;
 	}
 	
 	/**
@@ -341,13 +585,15 @@ public class Paddle
 	public void debugDraw(Graphics g, CoordinateTransformer ct)
 	{
 		g.setLineWidth(4.0f);
+		Vec2 position = getPosition();
+		
 		g.setColor(new Color(1.0f, 1.0f, 0.0f));
 		g.drawOval((float)ct.toScreenX(position.x), (float)ct.toScreenY(position.y), 2.0f, 2.0f);
 		
 		g.setColor(new Color(1.0f, 0.0f, 0.0f));
 		g.drawOval((float)ct.toScreenX(position.x - buttRadius), (float)ct.toScreenY(position.y + buttRadius), (float)ct.widthToScreen(2.0*buttRadius), (float)ct.widthToScreen(2.0*buttRadius));
 		
-		Vec2 tip = position.add(direction.scale(length));
+		Vec2 tip = getTipPosition();
 		
 		g.setColor(new Color(0.0f, 1.0f, 0.0f));
 		g.drawOval((float)ct.toScreenX(tip.x - tipRadius), (float)ct.toScreenY(tip.y + tipRadius), (float)ct.widthToScreen(2*tipRadius), (float)ct.widthToScreen(2*tipRadius));
@@ -381,7 +627,7 @@ public class Paddle
 	 */
 	public Vec2 getTopLeftCorner()
 	{
-		return new Vec2(position.x - getWidth() / 2.0f, position.y + getHeight() / 2.0f);
+		return new Vec2(x - getWidth() / 2.0f, y + getHeight() / 2.0f);
 	}
 	
 	// TODO: is this in use anymore?
@@ -439,7 +685,16 @@ public class Paddle
 	 */
 	public void move(double x, double y)
 	{
-		move(new Vec2(x, y));
+		this.x += x;
+		this.y += y;
+		
+		// don't go outside of alloted area, the closest point inside is just
+		// the position clamped to the area
+		if (!area.containsPoint(this.x, this.y))
+		{
+			this.x = Math.min(Math.max(this.x, area.getX()), area.getX() + area.getWidth());
+			this.y = Math.min(Math.max(this.y, area.getY()), area.getY() + area.getHeight());
+		}
 	}
 	
 	/**
@@ -449,13 +704,7 @@ public class Paddle
 	 */
 	public void move(Vec2 v)
 	{
-		position = new Vec2(position.x + v.x, position.y + v.y);
-		
-		// don't go outside of alloted area
-		if (!area.containsPoint(position))
-		{
-			move(area.shortestVectorToPoint(position).scale(-1.0));
-		}
+		move(v.x, v.y);
 	}
 	
 	/**
@@ -515,4 +764,60 @@ public class Paddle
 	{
 		return name;
 	}
+	
+	/**
+	 * Copy everything about the paddle that changes during a game into an
+	 * array. The resting angle and name are set up once and left out.
+	 * 
+	 * @param state Array to copy into
+	 * @param offset Where in the array to put the STATE_SIZE values
+	 */
+	void saveState(double[] state, int offset)
+	{
+		state[offset] = x;
+		state[offset + 1] = y;
+		state[offset + 2] = vx;
+		state[offset + 3] = vy;
+		state[offset + 4] = dx;
+		state[offset + 5] = dy;
+		state[offset + 6] = previousX;
+		state[offset + 7] = previousY;
+		state[offset + 8] = previousDx;
+		state[offset + 9] = previousDy;
+		state[offset + 10] = angularVelocity;
+		state[offset + 11] = scale;
+		state[offset + 12] = area.getX();
+		state[offset + 13] = area.getY();
+		state[offset + 14] = area.getWidth();
+		state[offset + 15] = area.getHeight();
+	}
+	
+	/**
+	 * Put the paddle back the way it was when its state was saved.
+	 * 
+	 * @param state Array holding the saved state
+	 * @param offset Where in the array the STATE_SIZE values are
+	 */
+	void loadState(double[] state, int offset)
+	{
+		x = state[offset];
+		y = state[offset + 1];
+		vx = state[offset + 2];
+		vy = state[offset + 3];
+		dx = state[offset + 4];
+		dy = state[offset + 5];
+		previousX = state[offset + 6];
+		previousY = state[offset + 7];
+		previousDx = state[offset + 8];
+		previousDy = state[offset + 9];
+		angularVelocity = state[offset + 10];
+		setScale(state[offset + 11]);
+		
+		// the area hardly ever changes, so keep it unless it has
+		if (area.getX() != state[offset + 12] || area.getY() != state[offset + 13]
+				|| area.getWidth() != state[offset + 14] || area.getHeight() != state[offset + 15])
+		{
+			area = new Rect(state[offset + 12], state[offset + 13], state[offset + 14], state[offset + 15]);
+		}
+	}
 }
@@ -1,7 +1,9 @@
 package se.gunning.flongout;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Simulates a small world with some physics-based interactions between certain objects.
@@ -35,6 +37,126 @@ public class Physics
 		public void onPaddleHit(Ball ball, Paddle paddle, Physics world);
 	}
 	
+	/**
+	 * A wall along with its group.
+	 */
+	private static class Wall
+	{
+		public Rect rect;
+		public String group;
+		
+		/**
+		 * Order in which the wall was added, used to examine nearby walls in
+		 * the same order regardless of where they are in the grid.
+		 */
+		public long order;
+		
+		/**
+		 * Index of the wall in the list of walls of the world.
+		 */
+		public int index;
+		
+		public Wall(Rect rect, String group, long order)
+		{
+			this.rect = rect;
+			this.group = group;
+			this.order = order;
+		}
+	}
+	
+	/**
+	 * A collision recorded while stepping balls in multi-ball mode, to be
+	 * passed on to the collision actions once all balls are done.
+	 */
+	private static class CollisionEvent
+	{
+		public int type;
+		public Rect wall;
+		public String group;
+		public Paddle paddle;
+	}
+	
+	/**
+	 * Collisions recorded for a single ball during a step. Events are
+	 * reused from step to step.
+	 */
+	private static class EventBuffer
+	{
+		public Ball ball;
+		public ArrayList<CollisionEvent> events = new ArrayList<CollisionEvent>();
+		public int count;
+		
+		/**
+		 * Record a new event.
+		 * 
+		 * @param type Type of event
+		 * @return The event, to fill in
+		 */
+		public CollisionEvent add(int type)
+		{
+			if (count == events.size())
+			{
+				events.add(new CollisionEvent());
+			}
+			
+			CollisionEvent e = events.get(count++);
+			e.type = type;
+			e.wall = null;
+			e.group = null;
+			e.paddle = null;
+			
+			return e;
+		}
+	}
+	
+	/**
+	 * Scratch space for stepping balls, one per worker so that workers
+	 * don't trip over each other.
+	 */
+	private static class StepContext
+	{
+		public MutableVec2 contact = new MutableVec2();
+		public ArrayList<Wall> nearbyWalls = new ArrayList<Wall>();
+		
+		/**
+		 * Sweeps and contacts since the counters were last reset.
+		 */
+		public long sweeps;
+		public long contacts;
+	}
+	
+	/**
+	 * Steps a range of balls in multi-ball mode.
+	 */
+	private class BallRangeTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		
+		public int from, to;
+		public double time;
+		public StepContext context = new StepContext();
+		
+		@Override
+		protected void compute()
+		{
+			stepBalls(from, to, time, context);
+		}
+	}
+	
+	/**
+	 * Steps all balls in multi-ball mode by forking one task per range.
+	 */
+	private class AllBallsTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected void compute()
+		{
+			invokeAll(ballTasks);
+		}
+	}
+	
 	private static class WallToRemove
 	{
 		public Rect wall;
@@ -47,28 +169,163 @@ public class Physics
 		}
 	}
 	
+	/**
+	 * The state of a world at some point, to be restored later. Balls and
+	 * paddles are copied into flat arrays, while the walls, which rarely
+	 * change, are only copied when they've changed since the snapshot was
+	 * last taken. Taking a snapshot into an existing one allocates nothing
+	 * unless balls or paddles have been added since.
+	 */
+	public static class Snapshot
+	{
+		/**
+		 * World the snapshot was taken of.
+		 */
+		private Physics world;
+		
+		/**
+		 * Ball and paddle states, one after the other.
+		 */
+		private double[] balls = new double[0];
+		private double[] paddles = new double[0];
+		
+		private double gravity;
+		private double maxBallSpeed;
+		
+		/**
+		 * Version of the walls, and the walls themselves.
+		 */
+		private long wallsVersion = -1;
+		private ArrayList<Wall> walls = new ArrayList<Wall>();
+		private long wallsAdded;
+		
+		/**
+		 * Walls waiting to be removed.
+		 */
+		private ArrayList<WallToRemove> wallsToRemove = new ArrayList<WallToRemove>();
+	}
+	
 	/**
 	 * Walls
 	 */
-	private ArrayList<Rect> walls;
+	private ArrayList<Wall> walls;
+	
+	/**
+	 * Version of the walls, changed whenever a wall is added or removed.
+	 * Versions are never reused, so equal versions mean equal walls.
+	 */
+	private long wallsVersion;
+	
+	/**
+	 * Last wall version handed out
+	 */
+	private long lastWallsVersion;
+	
+	/**
+	 * Walls by location, to quickly find the walls near a ball
+	 */
+	private SpatialGrid<Wall> wallGrid;
+	
+	/**
+	 * Number of walls added so far, used to order walls
+	 */
+	private long wallsAdded;
+	
+	/**
+	 * Default area covered by the wall grid
+	 */
+	private static final Rect DEFAULT_BOUNDS = new Rect(-16.0, -12.0, 32.0, 24.0);
+	
+	/**
+	 * Default side length of the wall grid cells
+	 */
+	private static final double DEFAULT_CELL_SIZE = 0.5;
 	
 	private ArrayList<WallToRemove> wallsToRemove;
 	
 	/**
-	 * Wall groups
+	 * Walls by their rectangles, compared by identity, so that the walls
+	 * handed to collision actions are found again without searching
+	 */
+	private IdentityHashMap<Rect, Wall> wallsByRect;
+	
+	/**
+	 * Most contacts to resolve for a single ball in a single step. A ball
+	 * wedged in somewhere tight enough to reach this just stops moving for
+	 * the rest of the step.
+	 */
+	private static final int MAX_CONTACTS = 8;
+	
+	/**
+	 * Default maximum ball speed
+	 */
+	private static final double DEFAULT_MAX_BALL_SPEED = 25.0;
+	
+	/**
+	 * Share of its speed a ball keeps when bouncing off a wall
+	 */
+	static final double WALL_RESTITUTION = 0.95;
+	
+	/**
+	 * Event type for a ball moving into a wall.
+	 */
+	private static final int WALL_COLLISION = 0;
+	
+	/**
+	 * Event type for a ball moving into a paddle.
+	 */
+	private static final int PADDLE_COLLISION = 1;
+	
+	/**
+	 * Event type for a paddle hitting a ball.
+	 */
+	private static final int PADDLE_HIT = 2;
+	
+	/**
+	 * Number of balls below which multi-ball mode doesn't bother with threads.
+	 */
+	private static final int PARALLEL_THRESHOLD = 32;
+	
+	/**
+	 * Thread pool shared by all simulations in multi-ball mode.
+	 */
+	private static ForkJoinPool pool;
+	
+	/**
+	 * Is the simulation in multi-ball mode?
+	 */
+	private boolean multiBall;
+	
+	/**
+	 * Recorded collisions for each ball, in multi-ball mode.
 	 */
-	private HashMap<String, ArrayList<Rect>> wallGroups;
+	private ArrayList<EventBuffer> eventBuffers;
 	
 	/**
-	 * Maximum divisor for timestep halving
+	 * Tasks for stepping ranges of balls, in multi-ball mode, one per thread.
 	 */
-	private static final double MAX_DIVISOR = 256;
+	private BallRangeTask[] ballTasks;
+	
+	/**
+	 * Number of threads to use in multi-ball mode.
+	 */
+	private int threads;
+	
+	/**
+	 * Task for stepping all balls, in multi-ball mode.
+	 */
+	private AllBallsTask allBallsTask;
 	
 	/**
 	 * Acceleration of gravity
 	 */
 	private double gravity;
 	
+	/**
+	 * Maximum ball speed
+	 */
+	private double maxBallSpeed;
+	
 	/**
 	 * Balls
 	 */
@@ -80,17 +337,51 @@ public class Physics
 	private ArrayList<Paddle> paddles;
 	
 	/**
-	 * Create a new physics world / simulation.
+	 * Action array for the single-action step, kept to avoid allocating
+	 */
+	private CollisionAction[] singleAction;
+	
+	/**
+	 * Scratch space for the step, so that it won't allocate
+	 */
+	private StepContext context;
+	
+	/**
+	 * Create a new physics world / simulation, with walls expected to lie
+	 * roughly within (-16, -12) to (16, 12).
 	 */
 	public Physics()
 	{
-		wallGroups = new HashMap<String, ArrayList<Rect>>();
-		walls = new ArrayList<Rect>();
+		this(DEFAULT_BOUNDS, DEFAULT_CELL_SIZE);
+	}
+	
+	/**
+	 * Create a new physics world / simulation. Walls are indexed by location
+	 * for quick lookup, and while walls (and balls) may lie anywhere, lookups
+	 * are only fast within the given area.
+	 * 
+	 * @param bounds Area where walls are expected to lie
+	 * @param cellSize Side length of the grid cells used to index walls, which
+	 * 			should be around the size of a ball or small wall
+	 */
+	public Physics(Rect bounds, double cellSize)
+	{
+		wallsByRect = new IdentityHashMap<Rect, Wall>();
+		walls = new ArrayList<Wall>();
+		wallGrid = new SpatialGrid<Wall>(bounds, cellSize);
 		wallsToRemove = new ArrayList<WallToRemove>();
 		balls = new ArrayList<Ball>();
 		paddles = new ArrayList<Paddle>();
 		
+		singleAction = new CollisionAction[1];
+		context = new StepContext();
+		
+		multiBall = false;
+		eventBuffers = new ArrayList<EventBuffer>();
+		threads = Runtime.getRuntime().availableProcessors();
+		
 		gravity = 0.0;
+		maxBallSpeed = DEFAULT_MAX_BALL_SPEED;
 	}
 	
 	/**
@@ -173,6 +464,32 @@ public class Physics
 		return gravity;
 	}
 	
+	/**
+	 * Set the maximum ball speed. Balls going faster are slowed down to this
+	 * speed at the end of each step.
+	 * 
+	 * @param speed New maximum ball speed
+	 */
+	public void setMaxBallSpeed(double speed)
+	{
+		if (speed <= 0.0)
+		{
+			throw new IllegalArgumentException("Maximum ball speed must be positive");
+		}
+		
+		maxBallSpeed = speed;
+	}
+	
+	/**
+	 * Get the maximum ball speed.
+	 * 
+	 * @return Maximum ball speed
+	 */
+	public double getMaxBallSpeed()
+	{
+		return maxBallSpeed;
+	}
+	
 	/**
 	 * Add a wall.
 	 * 
@@ -195,13 +512,37 @@ public class Physics
 	 */
 	public void addWall(String group, Rect wall)
 	{
-		if (!wallGroups.containsKey(group))
+		Wall w = new Wall(wall, group, wallsAdded++);
+		w.index = walls.size();
+		walls.add(w);
+		wallsByRect.put(wall, w);
+		wallGrid.insert(w, wall);
+		wallsVersion = ++lastWallsVersion;
+	}
+	
+	/**
+	 * Add many walls to the same group at once, making room for all of them
+	 * up front.
+	 *
+	 * @param group Group identifier
+	 * @param newWalls Rectangles to set as walls
+	 */
+	public void addWalls(String group, ArrayList<Rect> newWalls)
+	{
+		walls.ensureCapacity(walls.size() + newWalls.size());
+		
+		for (int i = 0; i < newWalls.size(); ++i)
 		{
-			wallGroups.put(group, new ArrayList<Rect>());
+			Rect wall = newWalls.get(i);
+			Wall w = new Wall(wall, group, wallsAdded++);
+			
+			w.index = walls.size();
+			walls.add(w);
+			wallsByRect.put(wall, w);
+			wallGrid.insert(w, wall);
 		}
 		
-		wallGroups.get(group).add(wall);
-		walls.add(wall);
+		wallsVersion = ++lastWallsVersion;
 	}
 	
 	public void removeWall(String group, Rect wall)
@@ -216,279 +557,872 @@ public class Physics
 	 */
 	public void clearWallGroup(String group)
 	{
-		for (Rect wall : wallGroups.get(group))
+		// backwards, since removing a wall moves the last one into its place
+		for (int i = walls.size() - 1; i >= 0; --i)
 		{
-			walls.remove(wall);
+			if (walls.get(i).group.equals(group))
+			{
+				removeFromWalls(walls.get(i));
+			}
 		}
-		
-		wallGroups.get(group).clear();
 	}
 	
 	public String getGroupForWall(Rect wall)
 	{
-		for (String group : wallGroups.keySet())
-		{
-			if (wallGroups.get(group).contains(wall))
-			{
-				return group;
-			}
-		}
+		Wall w = findWall(wall);
 		
-		return null;
+		return (w == null) ? null : w.group;
 	}
 	
 	/**
-	 * Run one iteration of the simulation with a given time step.
-	 * Run one iteration of the simulation with a given time step and
-	 * no collision action.
+	 * Get the number of walls in the simulation.
 	 * 
-	 * @param time Time step
+	 * @return Number of walls
 	 */
-	public void step(double time)
+	public int getWallCount()
 	{
-		for (Ball b : balls)
-		{
-			step(b, time, 1, null);
-		}
+		return walls.size();
 	}
 	
 	/**
-	 * Run one iteration of the simulation with a given time step and
-	 * a single collision action.
+	 * Take a snapshot of the world.
 	 * 
-	 * @param b Ball
-	 * @param time Time step
-	 * @param action collision actions to apply to any collisions
+	 * @return The snapshot
 	 */
-	public void step(double time, CollisionAction action)
+	public Snapshot snapshot()
 	{
-		for (Ball b : balls)
-		{
-			step(b, time, 1, new CollisionAction[]{action});
-		}
+		Snapshot s = new Snapshot();
+		snapshot(s);
+		
+		return s;
 	}
 	
 	/**
-	 * Run one iteration of the simulation with a given time step and
-	 * a set of collision actions.
+	 * Take a snapshot of the world, reusing an earlier snapshot. Cheap enough
+	 * to do every tick.
 	 * 
-	 * @param time Time step
-	 * @param actions Set of collision actions to apply to any collisions
+	 * @param s Snapshot to overwrite
 	 */
-	public void step(double time, CollisionAction[] actions)
+	public void snapshot(Snapshot s)
 	{
-		for (Ball b : balls)
+		s.world = this;
+		
+		if (s.balls.length != balls.size() * Ball.STATE_SIZE)
+		{
+			s.balls = new double[balls.size() * Ball.STATE_SIZE];
+		}
+		
+		for (int i = 0; i < balls.size(); ++i)
+		{
+			balls.get(i).saveState(s.balls, i * Ball.STATE_SIZE);
+		}
+		
+		if (s.paddles.length != paddles.size() * Paddle.STATE_SIZE)
+		{
+			s.paddles = new double[paddles.size() * Paddle.STATE_SIZE];
+		}
+		
+		for (int i = 0; i < paddles.size(); ++i)
+		{
+			paddles.get(i).saveState(s.paddles, i * Paddle.STATE_SIZE);
+		}
+		
+		s.gravity = gravity;
+		s.maxBallSpeed = maxBallSpeed;
+		
+		// the walls themselves never change, so holding on to them will do
+		if (s.wallsVersion != wallsVersion)
+		{
+			s.walls.clear();
+			
+			for (int i = 0; i < walls.size(); ++i)
+			{
+				s.walls.add(walls.get(i));
+			}
+			
+			s.wallsVersion = wallsVersion;
+			s.wallsAdded = wallsAdded;
+		}
+		
+		s.wallsToRemove.clear();
+		
+		for (int i = 0; i < wallsToRemove.size(); ++i)
 		{
-			step(b, time, 1, actions);
+			s.wallsToRemove.add(wallsToRemove.get(i));
 		}
 	}
 	
 	/**
-	 * Run one iteration of the simulation with a given time step along
-	 * with a divisor for the time step.
+	 * Put the world back the way it was when a snapshot was taken. The same
+	 * balls and paddles must still be in the world.
 	 * 
-	 * @param b Ball
-	 * @param time Time step
-	 * @param divisor Time step divisor
-	 * @param actions Set of collision actions to apply
+	 * @param s Snapshot to restore
+	 * @throws IllegalArgumentException If the snapshot is of another world
+	 * @throws IllegalStateException If balls or paddles have been added or
+	 * 			removed since the snapshot was taken
 	 */
-	private void step(Ball b, double time, double divisor, CollisionAction[] actions)
+	public void restore(Snapshot s)
 	{
-		if (divisor > MAX_DIVISOR)
+		if (s.world != this)
 		{
-			// TODO: squeeze ball or something
-			
-			b.setPosition(new Vec2(0, 0));
-			return;
+			throw new IllegalArgumentException("Snapshot is of another world");
 		}
 		
-		time /= divisor;
+		if (s.balls.length != balls.size() * Ball.STATE_SIZE || s.paddles.length != paddles.size() * Paddle.STATE_SIZE)
+		{
+			throw new IllegalStateException("Balls or paddles have been added or removed since the snapshot");
+		}
 		
-		Vec2 vel = b.getVelocity();
+		for (int i = 0; i < balls.size(); ++i)
+		{
+			balls.get(i).loadState(s.balls, i * Ball.STATE_SIZE);
+		}
 		
-		b.move(vel.x * time, vel.y * time);
+		for (int i = 0; i < paddles.size(); ++i)
+		{
+			paddles.get(i).loadState(s.paddles, i * Paddle.STATE_SIZE);
+		}
 		
-		int num_collision = 0;
+		gravity = s.gravity;
+		maxBallSpeed = s.maxBallSpeed;
 		
-		for (Rect w : walls)
+		if (s.wallsVersion != wallsVersion)
 		{
-			if (w.distanceToPoint(b.getPosition()) < b.getRadius())
+			for (int i = 0; i < walls.size(); ++i)
+			{
+				wallGrid.remove(walls.get(i), walls.get(i).rect);
+			}
+			
+			walls.clear();
+			wallsByRect.clear();
+			
+			for (int i = 0; i < s.walls.size(); ++i)
 			{
-				++num_collision;
+				Wall w = s.walls.get(i);
+				
+				w.index = i;
+				walls.add(w);
+				wallsByRect.put(w.rect, w);
+				wallGrid.insert(w, w.rect);
 			}
+			
+			wallsAdded = s.wallsAdded;
+			wallsVersion = s.wallsVersion;
 		}
 		
-		for (Paddle p : paddles)
+		wallsToRemove.clear();
+		
+		for (int i = 0; i < s.wallsToRemove.size(); ++i)
 		{
-			if (p.getShortestVectorToPoint(b.getPosition()).length() < b.getRadius())
-			{
-				++num_collision;
-			}
+			wallsToRemove.add(s.wallsToRemove.get(i));
 		}
+	}
+	
+	/**
+	 * Find the wall of a given rectangle. The rectangle of a wall, as handed
+	 * to the collision actions, is found at once, while an equal copy of it
+	 * has to be searched for.
+	 * 
+	 * @param wall Rectangle to look for
+	 * @return The wall, or null if not found
+	 */
+	private Wall findWall(Rect wall)
+	{
+		Wall w = wallsByRect.get(wall);
 		
-		if (num_collision > 1)
+		if (w != null)
 		{
-			// cut the time step in half in the hopes of only needing to handle one collision at a time
-			b.move(vel.x * -time, vel.y * -time);
-			step(b, time, divisor * 2.0, actions);
-			step(b, time, divisor * 2.0, actions);
-			return;
+			return w;
 		}
-		else if (num_collision == 1)
+		
+		for (int i = 0; i < walls.size(); ++i)
 		{
-			for (Rect w : walls)
+			if (walls.get(i).rect.equals(wall))
 			{
-				Vec2 v = w.shortestVectorToPoint(b.getPosition());
-				
-				if (v.length() < b.getRadius())
-				{
-					// total distance of over-travel
-					double d = (b.getRadius() - v.length());
-					
-					// project ball velocity vector onto collision vector
-					// to get magnitude of component in collision direction
-					Vec2 proj = vel.projectOnto(v);
-					
-					// time taken to do the over-travel
-					double dt = d / proj.length();
-					
-					// rewind the move
-					b.move(vel.x * -time, vel.y * -time);
-					
-					// move to the moment of impact
-					b.move(vel.x * (time - dt), vel.y * (time - dt));
-					
-					// bounce
-					double floor_angle = v.rotate(-Math.PI/2.0).getAngle();
-					b.setVelocity(b.getVelocity().setAngle(floor_angle + (floor_angle - b.getVelocity().getAngle())));
-					b.setVelocity(b.getVelocity().scale(0.95));
-					
-//					b.setVelocity(new Vec2(vel.x * ((Math.abs(v.x) > 1e-10 ? -1.0 : 1.0)), vel.y * ((Math.abs(v.y) > 1e-10 ? -1.0 : 1.0))));
-					
-					// move to fill remaining amount of requested time
-					b.move(b.getVelocity().scale(dt));
+				return walls.get(i);
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Remove a wall from the list of walls and the wall grid. The last wall
+	 * in the list takes its place, the order of the list doesn't matter
+	 * since nearby walls are sorted by when they were added.
+	 * 
+	 * @param w Wall to remove
+	 */
+	private void removeFromWalls(Wall w)
+	{
+		Wall last = walls.remove(walls.size() - 1);
+		
+		if (last != w)
+		{
+			walls.set(w.index, last);
+			last.index = w.index;
+		}
+		
+		wallsByRect.remove(w.rect);
+		wallGrid.remove(w, w.rect);
+		wallsVersion = ++lastWallsVersion;
+	}
+	
+	/**
+	 * Collect the walls that may touch a given region into a given list, in
+	 * the order they were added.
+	 * 
+	 * @param minX Left edge of the region
+	 * @param minY Bottom edge of the region
+	 * @param maxX Right edge of the region
+	 * @param maxY Top edge of the region
+	 * @param nearbyWalls List to put the walls in
+	 */
+	private void findNearbyWalls(double minX, double minY, double maxX, double maxY, ArrayList<Wall> nearbyWalls)
+	{
+		wallGrid.query(minX, minY, maxX, maxY, nearbyWalls);
+		
+		// insertion sort, since there are only ever a handful
+		for (int i = 1; i < nearbyWalls.size(); ++i)
+		{
+			Wall w = nearbyWalls.get(i);
+			int j = i - 1;
+			
+			while (j >= 0 && nearbyWalls.get(j).order > w.order)
+			{
+				nearbyWalls.set(j + 1, nearbyWalls.get(j));
+				--j;
+			}
+			
+			nearbyWalls.set(j + 1, w);
+		}
+	}
+	
+	/**
+	 * Run one iteration of the simulation with a given time step.
+	 * Run one iteration of the simulation with a given time step and
+	 * no collision action.
+	 * 
+	 * @param time Time step
+	 */
+	public void step(double time)
+	{
+		step(time, (CollisionAction[])null);
+	}
+	
+	/**
+	 * Run one iteration of the simulation with a given time step and
+	 * a single collision action.
+	 * 
+	 * @param b Ball
+	 * @param time Time step
+	 * @param action collision actions to apply to any collisions
+	 */
+	public void step(double time, CollisionAction action)
+	{
+		singleAction[0] = action;
+		step(time, singleAction);
+	}
+	
+	/**
+	 * Run one iteration of the simulation with a given time step and
+	 * a set of collision actions.
+	 * 
+	 * @param time Time step
+	 * @param actions Set of collision actions to apply to any collisions
+	 */
+	public void step(double time, CollisionAction[] actions)
+	{
+		if (multiBall)
+		{
+			stepMultiBall(time, actions);
+			return;
+		}
+		
+		for (int i = 0; i < balls.size(); ++i)
+		{
+			step(balls.get(i), time, actions);
+		}
+	}
+	
+	/**
+	 * Turn multi-ball mode on or off. In multi-ball mode the paddles move
+	 * once per step rather than once per ball, paddles don't get pushed
+	 * around by the balls, and the balls are stepped concurrently when
+	 * there are enough of them. Collision actions are called after all balls
+	 * have been stepped, ball by ball in the order the balls were added, so
+	 * the outcome doesn't depend on how the work was split up.
+	 * 
+	 * @param enabled True to turn multi-ball mode on
+	 */
+	public void setMultiBall(boolean enabled)
+	{
+		multiBall = enabled;
+	}
+	
+	/**
+	 * Check whether the simulation is in multi-ball mode.
+	 * 
+	 * @return True if in multi-ball mode
+	 */
+	public boolean isMultiBall()
+	{
+		return multiBall;
+	}
+	
+	/**
+	 * Get the number of sweeps done since the counters were last reset. A
+	 * ball is swept once per step, and once more after every contact.
+	 * 
+	 * @return Number of sweeps
+	 */
+	public long getSweepCount()
+	{
+		long sweeps = context.sweeps;
+		
+		if (ballTasks != null)
+		{
+			for (int i = 0; i < ballTasks.length; ++i)
+			{
+				sweeps += ballTasks[i].context.sweeps;
+			}
+		}
+		
+		return sweeps;
+	}
+	
+	/**
+	 * Get the number of contacts between balls and walls or paddles since
+	 * the counters were last reset.
+	 * 
+	 * @return Number of contacts
+	 */
+	public long getContactCount()
+	{
+		long contacts = context.contacts;
+		
+		if (ballTasks != null)
+		{
+			for (int i = 0; i < ballTasks.length; ++i)
+			{
+				contacts += ballTasks[i].context.contacts;
+			}
+		}
+		
+		return contacts;
+	}
+	
+	/**
+	 * Reset the sweep and contact counters.
+	 */
+	public void resetCounters()
+	{
+		context.sweeps = 0;
+		context.contacts = 0;
+		
+		if (ballTasks != null)
+		{
+			for (int i = 0; i < ballTasks.length; ++i)
+			{
+				ballTasks[i].context.sweeps = 0;
+				ballTasks[i].context.contacts = 0;
+			}
+		}
+	}
+	
+	/**
+	 * Set the number of threads to split the balls between in multi-ball
+	 * mode. Defaults to the number of available processors.
+	 * 
+	 * @param threads Number of threads, 1 to not use threads at all
+	 */
+	public void setThreads(int threads)
+	{
+		if (threads < 1)
+		{
+			throw new IllegalArgumentException("Need at least one thread");
+		}
+		
+		this.threads = threads;
+		ballTasks = null;
+	}
+	
+	/**
+	 * Get the thread pool used for multi-ball mode, creating it if needed.
+	 * 
+	 * @return The thread pool
+	 */
+	private static synchronized ForkJoinPool getPool()
+	{
+		if (pool == null)
+		{
+			pool = new ForkJoinPool();
+		}
+		
+		return pool;
+	}
+	
+	/**
+	 * Run one iteration of the simulation in multi-ball mode.
+	 * 
+	 * @param time Time step
+	 * @param actions Set of collision actions to apply, may be null
+	 */
+	private void stepMultiBall(double time, CollisionAction[] actions)
+	{
+		int n = balls.size();
+		
+		while (eventBuffers.size() < n)
+		{
+			eventBuffers.add(new EventBuffer());
+		}
+		
+		for (int i = 0; i < n; ++i)
+		{
+			eventBuffers.get(i).ball = balls.get(i);
+			eventBuffers.get(i).count = 0;
+		}
+		
+		// the paddles move first, on their own, so that the balls only
+		// need to read them
+		for (int i = 0; i < paddles.size(); ++i)
+		{
+			stepPaddle(paddles.get(i), time, n);
+		}
+		
+		if (ballTasks == null)
+		{
+			ballTasks = new BallRangeTask[threads];
+			
+			for (int i = 0; i < ballTasks.length; ++i)
+			{
+				ballTasks[i] = new BallRangeTask();
+			}
+			
+			allBallsTask = new AllBallsTask();
+		}
+		
+		if (n < PARALLEL_THRESHOLD || ballTasks.length < 2)
+		{
+			stepBalls(0, n, time, ballTasks[0].context);
+		}
+		else
+		{
+			// split the balls into even ranges, leaving any extra tasks empty
+			for (int i = 0; i < ballTasks.length; ++i)
+			{
+				ballTasks[i].reinitialize();
+				ballTasks[i].from = (int)((long)n * i / ballTasks.length);
+				ballTasks[i].to = (int)((long)n * (i + 1) / ballTasks.length);
+				ballTasks[i].time = time;
+			}
+			
+			allBallsTask.reinitialize();
+			getPool().invoke(allBallsTask);
+		}
+		
+		// pass on the collisions
+		if (actions != null && actions.length > 0)
+		{
+			for (int i = 0; i < n; ++i)
+			{
+				EventBuffer buffer = eventBuffers.get(i);
+				
+				for (int j = 0; j < buffer.count; ++j)
+				{
+					CollisionEvent e = buffer.events.get(j);
 					
-					if (actions != null && actions.length > 0)
+					for (int k = 0; k < actions.length; ++k)
 					{
-						for (int i = 0; i < actions.length; ++i)
+						switch (e.type)
 						{
-							actions[i].onCollision(b, w, getGroupForWall(w), this);
+						case WALL_COLLISION:
+							actions[k].onCollision(buffer.ball, e.wall, e.group, this);
+							break;
+						case PADDLE_COLLISION:
+							actions[k].onCollision(buffer.ball, e.paddle, this);
+							break;
+						case PADDLE_HIT:
+							actions[k].onPaddleHit(buffer.ball, e.paddle, this);
+							break;
+						default:
+							break;
 						}
 					}
 				}
 			}
+		}
+		
+		removeWalls();
+	}
+	
+	/**
+	 * Rotate and move a paddle in multi-ball mode, hitting any balls in the
+	 * way of the rotation.
+	 * 
+	 * @param p Paddle
+	 * @param time Time step
+	 * @param n Number of balls
+	 */
+	private void stepPaddle(Paddle p, double time, int n)
+	{
+		p.setAngle(p.getAngle() + p.getAngularVelocity() * time);
+		
+		boolean hitAny = false;
+		
+		for (int i = 0; i < n; ++i)
+		{
+			Ball b = balls.get(i);
+			double radius = b.getRadius();
+			double d = p.getSquaredDistanceToPoint(b.getX(), b.getY(), context.contact);
 			
-			for (Paddle p : paddles)
+			if (d < radius * radius)
 			{
-				Vec2 v = p.getShortestVectorToPoint(b.getPosition());
+				hitBall(p, b, context.contact.x, context.contact.y, Math.sqrt(d));
+				eventBuffers.get(i).add(PADDLE_HIT).paddle = p;
+				hitAny = true;
+			}
+		}
+		
+		// not sure whether to rewind this or not
+		if (hitAny)
+		{
+			p.setAngle(p.getAngle() - p.getAngularVelocity() * time);
+		}
+		
+		p.move(p.getVelocityX() * time, p.getVelocityY() * time);
+	}
+	
+	/**
+	 * Step a range of balls in multi-ball mode.
+	 * 
+	 * @param from Index of first ball
+	 * @param to Index after last ball
+	 * @param time Time step
+	 * @param context Scratch space
+	 */
+	private void stepBalls(int from, int to, double time, StepContext context)
+	{
+		for (int i = from; i < to; ++i)
+		{
+			EventBuffer buffer = eventBuffers.get(i);
+			
+			moveBall(buffer.ball, time, context, buffer, null);
+			
+			buffer.ball.accelerate(0.0, gravity * time);
+			limitSpeed(buffer.ball);
+		}
+	}
+	
+	/**
+	 * Run one iteration of the simulation for a single ball, and then move
+	 * the paddles. Works on the primitive coordinates of the balls and
+	 * paddles and never allocates, apart from whatever the collision
+	 * actions do.
+	 * 
+	 * @param b Ball
+	 * @param time Time step
+	 * @param actions Set of collision actions to apply
+	 */
+	private void step(Ball b, double time, CollisionAction[] actions)
+	{
+		double radius = b.getRadius();
+		MutableVec2 contact = context.contact;
+		
+		moveBall(b, time, context, null, actions);
+		
+		// try moving paddles
+		for (int i = 0; i < paddles.size(); ++i)
+		{
+			Paddle p = paddles.get(i);
+			
+			p.setAngle(p.getAngle() + p.getAngularVelocity() * time);
+			
+			double posx = b.getX();
+			double posy = b.getY();
+			double d = p.getSquaredDistanceToPoint(posx, posy, contact);
+			
+			if (d < radius * radius)
+			{
+				p.move(contact.x * -0.1, contact.y * -0.1);
+				
+				hitBall(p, b, contact.x, contact.y, Math.sqrt(d));
+				
+				// not sure whether to rewind this or not
+				p.setAngle(p.getAngle() - p.getAngularVelocity() * time);
 				
-				if (v.length() < b.getRadius())
+				if (actions != null && actions.length > 0)
 				{
-					p.move(v.scale(-0.1));
-					
-					// TODO: (?) proper bounce
-					
-					// rewind the move
-					b.move(vel.x * -time, vel.y * -time);
-					
-					// don't figure exact impact point, bounce right here instead 
-					double floor_angle = v.rotate(-Math.PI/2.0).getAngle();
-					b.setVelocity(b.getVelocity().setAngle(floor_angle + (floor_angle - b.getVelocity().getAngle())));
-					b.setVelocity(b.getVelocity().scale(0.75));
-					
-					vel = b.getVelocity();
-					
-					b.move(vel.x * time, vel.y * time);
-					
-					if (actions != null && actions.length > 0)
+					for (int j = 0; j < actions.length; ++j)
 					{
-						for (int i = 0; i < actions.length; ++i)
-						{
-							actions[i].onCollision(b, p, this);
-						}
+						actions[j].onPaddleHit(b, p, this);
 					}
 				}
 			}
+			
+			// try to move (translate) the paddle
+			p.move(p.getVelocityX() * time, p.getVelocityY() * time);
+			
+			if (p.getSquaredDistanceToPoint(posx, posy, contact) < radius * radius)
+			{
+				p.move(contact.x * -0.1, contact.y * -0.1);
+				p.move(p.getVelocityX() * -time, p.getVelocityY() * -time);
+			}
 		}
-		else
+		
+		b.accelerate(0.0, gravity * time);
+		limitSpeed(b);
+		removeWalls();
+	}
+	
+	/**
+	 * Move a ball for a given time, bouncing off of the walls and paddles in
+	 * its way. Finds the exact moment the ball first touches something along
+	 * its path, moves it there, bounces it and carries on for the rest of the
+	 * time, so contacts are handled one at a time in the order they happen
+	 * and the ball can't pass through anything however fast it goes.
+	 * 
+	 * In multi-ball mode collisions are recorded in the event buffer and the
+	 * paddles are left alone, otherwise the collision actions are called
+	 * right away and the paddles get nudged by the ball.
+	 * 
+	 * @param b Ball
+	 * @param time Time step
+	 * @param context Scratch space
+	 * @param buffer Event buffer of the ball in multi-ball mode, otherwise null
+	 * @param actions Set of collision actions to apply, when not in multi-ball mode
+	 */
+	private void moveBall(Ball b, double time, StepContext context, EventBuffer buffer, CollisionAction[] actions)
+	{
+		MutableVec2 contact = context.contact;
+		ArrayList<Wall> nearby = context.nearbyWalls;
+		double radius = b.getRadius();
+		double remaining = time;
+		
+		for (int contacts = 0; contacts < MAX_CONTACTS && remaining > 0.0; ++contacts)
 		{
-			// try moving paddles
-			for (Paddle p : paddles)
+			++context.sweeps;
+			
+			double x = b.getX();
+			double y = b.getY();
+			double mx = b.getVelocityX() * remaining;
+			double my = b.getVelocityY() * remaining;
+			
+			// anything the ball could touch along the way
+			findNearbyWalls(Math.min(x, x + mx) - radius, Math.min(y, y + my) - radius,
+					Math.max(x, x + mx) + radius, Math.max(y, y + my) + radius, nearby);
+			
+			// find the first thing touched, going by the order walls were
+			// added and then paddles when there's a tie
+			double first = Double.POSITIVE_INFINITY;
+			Wall hitWall = null;
+			Paddle hitPaddle = null;
+			
+			for (int i = 0; i < nearby.size(); ++i)
+			{
+				Rect r = nearby.get(i).rect;
+				double t;
+				
+				if (r.squaredDistanceToPoint(x, y, contact) < radius * radius)
+				{
+					// already overlapping, which only counts when moving further in
+					double approach = contact.x * mx + contact.y * my;
+					t = ((r.containsPoint(x, y) ? -approach : approach) < 0.0) ? 0.0 : Double.POSITIVE_INFINITY;
+				}
+				else
+				{
+					t = r.sweepCircle(x, y, mx, my, radius);
+				}
+				
+				if (t < first)
+				{
+					first = t;
+					hitWall = nearby.get(i);
+				}
+			}
+			
+			for (int i = 0; i < paddles.size(); ++i)
 			{
-				p.setAngle(p.getAngle() + p.getAngularVelocity() * time);
+				Paddle p = paddles.get(i);
+				double t;
 				
-				Vec2 pos = b.getPosition();
-				Vec2 v = p.getShortestVectorToPoint(pos);
+				if (p.getSquaredDistanceToPoint(x, y, contact) < radius * radius)
+				{
+					t = (contact.x * mx + contact.y * my < 0.0) ? 0.0 : Double.POSITIVE_INFINITY;
+				}
+				else
+				{
+					t = p.sweepCircle(x, y, mx, my, radius);
+				}
 				
-				if (v.length() < b.getRadius())
+				if (t < first)
 				{
-					p.move(v.scale(-0.1));
-					
-					// move ball away from paddle
-					double d = b.getRadius() - v.length();
-					Vec2 vv = v.normalize().scale(2.0 * d);
-					// TODO: what if the ball collides with a wall here?
-					b.move(vv.x, vv.y);
-					
-					// bounce the ball
-					double floor_angle = v.rotate(-Math.PI/2.0).getAngle();
-					b.setVelocity(b.getVelocity().setAngle(floor_angle + (floor_angle - b.getVelocity().getAngle())));
-					
-					// accelerate the ball
-					Vec2 vpaddle = p.getTipPosition().subtract(p.getPosition());
-					Vec2 bproj = b.getPosition().subtract(p.getPosition()).projectOnto(vpaddle);
-					double hitoffset = bproj.length() / vpaddle.length();
-					
-					// hit further out than center of paddle tip, add less energy
-					if (hitoffset > 1.0)
-					{
-						hitoffset = 2.0 - hitoffset;
-					}
-					
-					b.accelerate(v.normalize().scale(2.0 * Math.abs(p.getAngularVelocity()) * hitoffset));
-					
-					// not sure whether to rewind this or not
-					p.setAngle(p.getAngle() - p.getAngularVelocity() * time);
-					
-					if (actions != null && actions.length > 0)
+					first = t;
+					hitWall = null;
+					hitPaddle = p;
+				}
+			}
+			
+			if (hitWall == null && hitPaddle == null)
+			{
+				b.move(mx, my);
+				break;
+			}
+			
+			++context.contacts;
+			
+			// move to the moment of impact
+			b.move(mx * first, my * first);
+			remaining -= remaining * first;
+			
+			if (hitWall != null)
+			{
+				double len = hitWall.rect.shortestVectorToPoint(b.getX(), b.getY(), contact);
+				
+				// bounce
+				reflect(b, contact.x, contact.y, len);
+				b.setVelocity(b.getVelocityX() * WALL_RESTITUTION, b.getVelocityY() * WALL_RESTITUTION);
+				
+				if (buffer != null)
+				{
+					CollisionEvent e = buffer.add(WALL_COLLISION);
+					e.wall = hitWall.rect;
+					e.group = hitWall.group;
+				}
+				else if (actions != null)
+				{
+					for (int j = 0; j < actions.length; ++j)
 					{
-						for (int i = 0; i < actions.length; ++i)
-						{
-							actions[i].onPaddleHit(b, p, this);
-						}
+						actions[j].onCollision(b, hitWall.rect, hitWall.group, this);
 					}
 				}
+			}
+			else
+			{
+				double len = hitPaddle.getShortestVectorToPoint(b.getX(), b.getY(), contact);
+				
+				if (buffer == null)
+				{
+					hitPaddle.move(contact.x * -0.1, contact.y * -0.1);
+				}
 				
-				// try to move (translate) the paddle
-				p.move(p.getVelocity().scale(time));
-				v = p.getShortestVectorToPoint(pos);
+				// TODO: (?) proper bounce
+				reflect(b, contact.x, contact.y, len);
+				b.setVelocity(b.getVelocityX() * 0.75, b.getVelocityY() * 0.75);
 				
-				if (v.length() < b.getRadius())
+				if (buffer != null)
 				{
-					p.move(v.scale(-0.1));
-					p.move(p.getVelocity().scale(-time));
+					buffer.add(PADDLE_COLLISION).paddle = hitPaddle;
+				}
+				else if (actions != null)
+				{
+					for (int j = 0; j < actions.length; ++j)
+					{
+						actions[j].onCollision(b, hitPaddle, this);
+					}
 				}
 			}
 		}
+	}
+	
+	/**
+	 * Hit a ball with a rotating paddle: move the ball out of the paddle,
+	 * bounce it and give it some extra speed from the rotation.
+	 * 
+	 * @param p Paddle
+	 * @param b Ball
+	 * @param cx First component of vector from paddle to ball
+	 * @param cy Second component of vector from paddle to ball
+	 * @param len Distance from paddle to ball
+	 */
+	private static void hitBall(Paddle p, Ball b, double cx, double cy, double len)
+	{
+		// collision normal
+		double nx = (len > 0.0) ? cx / len : 0.0;
+		double ny = (len > 0.0) ? cy / len : 0.0;
 		
-		b.accelerate(0.0, gravity * time);
+		// move ball away from paddle
+		double d = b.getRadius() - len;
+		// TODO: what if the ball collides with a wall here?
+		b.move(nx * 2.0 * d, ny * 2.0 * d);
+		
+		// bounce the ball
+		reflect(b, cx, cy, len);
 		
-		// maintain ball max velocity (is this a bad idea?)
-		if (b.getVelocity().length() > 25.0)
+		// accelerate the ball, relative to where along the paddle it was hit
+		double padx = p.getDirectionX() * p.getLength();
+		double pady = p.getDirectionY() * p.getLength();
+		double hitoffset = Math.abs((b.getX() - p.getX()) * padx + (b.getY() - p.getY()) * pady) / (padx * padx + pady * pady);
+		
+		// hit further out than center of paddle tip, add less energy
+		if (hitoffset > 1.0)
 		{
-			b.setVelocity(b.getVelocity().normalize().scale(25.0));
+			hitoffset = 2.0 - hitoffset;
 		}
 		
-		for (WallToRemove wall : wallsToRemove)
+		double boost = 2.0 * Math.abs(p.getAngularVelocity()) * hitoffset;
+		b.accelerate(nx * boost, ny * boost);
+	}
+	
+	/**
+	 * Maintain ball max velocity (is this a bad idea?)
+	 * 
+	 * @param b Ball
+	 */
+	private void limitSpeed(Ball b)
+	{
+		double speed = Math.sqrt(b.getVelocityX() * b.getVelocityX() + b.getVelocityY() * b.getVelocityY());
+		
+		if (speed > maxBallSpeed)
+		{
+			b.setVelocity(b.getVelocityX() / speed * maxBallSpeed, b.getVelocityY() / speed * maxBallSpeed);
+		}
+	}
+	
+	/**
+	 * Remove the walls that have been marked for removal.
+	 */
+	private void removeWalls()
+	{
+		for (int i = 0; i < wallsToRemove.size(); ++i)
 		{
-			if (wallGroups.get(wall.group) != null)
+			Wall w = findWall(wallsToRemove.get(i).wall);
+			
+			if (w != null)
 			{
-				wallGroups.get(wall.group).remove(wall.wall);
+				removeFromWalls(w);
 			}
-			
-			walls.remove(wall.wall);
 		}
 		
 		wallsToRemove.clear();
 	}
+	
+	/**
+	 * Bounce a ball off of a surface, given the vector from the surface to
+	 * the ball. Mirrors the velocity in the surface, which keeps the speed.
+	 * 
+	 * @param b Ball to bounce
+	 * @param cx First component of vector from surface to ball
+	 * @param cy Second component of vector from surface to ball
+	 * @param len Length of the vector from surface to ball
+	 */
+	private static void reflect(Ball b, double cx, double cy, double len)
+	{
+		double nx, ny;
+		
+		if (len > 0.0)
+		{
+			nx = cx / len;
+			ny = cy / len;
+		}
+		else
+		{
+			// no direction to go by, treat it as a floor
+			nx = 0.0;
+			ny = 1.0;
+		}
+		
+		double vdotn = b.getVelocityX() * nx + b.getVelocityY() * ny;
+		b.setVelocity(b.getVelocityX() - 2.0 * vdotn * nx, b.getVelocityY() - 2.0 * vdotn * ny);
+	}
 }
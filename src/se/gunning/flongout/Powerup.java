@@ -39,6 +39,43 @@ public abstract class Powerup
 		GOOD, BAD, NEUTRAL
 	};
 	
+	/**
+	 * What picking up a powerup does when an effect of the same group on the
+	 * same target is already running.
+	 *  
+	 * @author Mikael Forsberg
+	 * @author Robin Gunning
+	 * @author Jonathan Yao Håkansson
+	 * @version 2015-06-19
+	 */
+	public enum Stacking
+	{
+		/**
+		 * Run alongside the other effect, each running out on its own.
+		 */
+		STACK,
+		
+		/**
+		 * Leave the other effect in place, but start its time over.
+		 */
+		REFRESH,
+		
+		/**
+		 * Take away the other effect and put this one in its place.
+		 */
+		REPLACE
+	};
+	
+	/**
+	 * Duration of an effect that lasts until the round ends.
+	 */
+	public static final int UNTIL_ROUND_ENDS = -1;
+	
+	/**
+	 * Usual duration of an effect, ten seconds worth of ticks.
+	 */
+	public static final int DEFAULT_DURATION = (int)Math.round(10000 / GameScene.TICK_MILLIS);
+	
 	/**
 	 * Position of the powerup.
 	 */
@@ -72,10 +109,22 @@ public abstract class Powerup
 	 * @param dir Drop direction
 	 */
 	public Powerup(Vec2 pos, DropDirection dir)
+	{
+		color = new Color(0.0f, 1.0f, 0.0f);
+		reset(pos, dir);
+	}
+	
+	/**
+	 * Make the powerup good as new, to be dropped again.
+	 * 
+	 * @param pos Initial position
+	 * @param dir Drop direction
+	 */
+	void reset(Vec2 pos, DropDirection dir)
 	{
 		position = pos;
 		dropDirection = dir;
-		color = new Color(0.0f, 1.0f, 0.0f);
+		owner = null;
 		
 		// set an appropriate velocity
 		if (dropDirection == DropDirection.LEFT)
@@ -106,6 +155,16 @@ public abstract class Powerup
 		return position;
 	}
 	
+	/**
+	 * Move the powerup to a given position.
+	 * 
+	 * @param pos New position
+	 */
+	void setPosition(Vec2 pos)
+	{
+		position = pos;
+	}
+	
 	/**
 	 * Get the radius that defines the pickup circle for
 	 * this powerup.
@@ -145,6 +204,53 @@ public abstract class Powerup
 	 */
 	public abstract void removeStaticEffects(Paddle collector, Paddle other, GameScene game);
 	
+	/**
+	 * Get how long the effects of the powerup last, in ticks. Effects of
+	 * powerups lasting 0 ticks are over as soon as they're applied and are
+	 * never removed.
+	 * 
+	 * @return Duration in ticks, or UNTIL_ROUND_ENDS
+	 */
+	public int getDuration()
+	{
+		return DEFAULT_DURATION;
+	}
+	
+	/**
+	 * Get the group of effects this powerup belongs to. Powerups of the same
+	 * group on the same target change the same thing, so only one of them
+	 * should be in effect at a time, unless they stack.
+	 * 
+	 * @return Name of the group, the class of the powerup by default
+	 */
+	public String getEffectGroup()
+	{
+		return getClass().getName();
+	}
+	
+	/**
+	 * Get what the effects of the powerup apply to, before they're applied.
+	 * 
+	 * @param collector Paddle that picked up the powerup
+	 * @param other The other paddle
+	 * @return The paddle affected, or null if the effects apply to the whole game
+	 */
+	public Object getEffectTarget(Paddle collector, Paddle other)
+	{
+		return null;
+	}
+	
+	/**
+	 * Get what picking up the powerup does while another effect of the same
+	 * group on the same target is running.
+	 * 
+	 * @return Stacking rule, REFRESH by default
+	 */
+	public Stacking getStacking()
+	{
+		return Stacking.REFRESH;
+	}
+	
 	/**
 	 * Get the powerup type of this powerup.
 	 * 
@@ -1,7 +1,12 @@
 package se.gunning.flongout;
 
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Stack;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Random;
 
 import se.gunning.flongout.powerups.FasterBall;
 import se.gunning.flongout.powerups.LargerBallPowerup;
@@ -15,43 +20,501 @@ import se.gunning.flongout.powerups.SelfSmallerPaddlePowerup;
 
 /**
  * Factory for generating randomly chosen powerups.
- *  
+ *
+ * Each kind of powerup is registered with a weight, and is picked with a
+ * chance in proportion to it. Picking takes constant time however many kinds
+ * there are, using the alias method: the weights are laid out in a table of
+ * equally likely columns, each holding at most two kinds, so a pick is one
+ * column and one coin toss. Powerups that are done with can be handed back
+ * to be reused, rather than making new ones on every broken brick.
+ *
  * @author Mikael Forsberg
  * @author Robin Gunning
  * @author Jonathan Yao Håkansson
- * @version 2015-05-19
+ * @version 2015-06-19
  */
 public class PowerupFactory
 {
+	/**
+	 * Makes new powerups of one kind.
+	 *
+	 * @author Mikael Forsberg
+	 * @author Robin Gunning
+	 * @author Jonathan Yao Håkansson
+	 * @version 2015-06-19
+	 */
+	public interface PowerupSupplier
+	{
+		/**
+		 * Make a new powerup.
+		 *
+		 * @param pos Initial position
+		 * @param dir Drop direction
+		 * @return The powerup
+		 */
+		public Powerup create(Vec2 pos, Powerup.DropDirection dir);
+	}
+	
+	/**
+	 * A registered kind of powerup.
+	 */
+	private static class Entry
+	{
+		public String name;
+		public double weight;
+		public PowerupSupplier supplier;
+		
+		/**
+		 * Class of the powerups made, known once the first one has been.
+		 */
+		public Class<?> type;
+		
+		/**
+		 * Powerups handed back, to be reused.
+		 */
+		public ArrayList<Powerup> pool = new ArrayList<Powerup>();
+	}
+	
+	/**
+	 * Makes powerups of a class through its (Vec2, DropDirection) constructor.
+	 */
+	private static class ConstructorSupplier implements PowerupSupplier
+	{
+		private Constructor<? extends Powerup> constructor;
+		
+		public ConstructorSupplier(Constructor<? extends Powerup> constructor)
+		{
+			this.constructor = constructor;
+		}
+		
+		@Override
+		public Powerup create(Vec2 pos, Powerup.DropDirection dir)
+		{
+			try
+			{
+				return constructor.newInstance(pos, dir);
+			}
+			catch (InstantiationException e)
+			{
+				throw new IllegalStateException("Could not make a " + constructor.getDeclaringClass().getName(), e);
+			}
+			catch (IllegalAccessException e)
+			{
+				throw new IllegalStateException("Could not make a " + constructor.getDeclaringClass().getName(), e);
+			}
+			catch (InvocationTargetException e)
+			{
+				throw new IllegalStateException("Could not make a " + constructor.getDeclaringClass().getName(), e.getCause());
+			}
+		}
+	}
+	
+	/**
+	 * Random number generator for picking powerups.
+	 */
+	private Random rng;
+	
+	/**
+	 * Registered kinds of powerups, in the order they were registered.
+	 */
+	private ArrayList<Entry> entries;
+	
+	/**
+	 * Registered kinds of powerups by name.
+	 */
+	private HashMap<String, Entry> entriesByName;
+	
+	/**
+	 * Registered kinds of powerups by the class of the powerups they make.
+	 */
+	private HashMap<Class<?>, Entry> entriesByClass;
+	
+	/**
+	 * Alias table: the chance of each column picking its own kind, and the
+	 * kind it picks otherwise. Rebuilt when the weights change.
+	 */
+	private double[] chance;
+	private int[] alias;
+	
+	/**
+	 * Have the weights changed since the alias table was built?
+	 */
+	private boolean tableDirty;
+	
 	/**
 	 * Create a new powerup factory.
 	 */
 	public PowerupFactory()
 	{
+		this(new Random());
+	}
+	
+	/**
+	 * Create a new powerup factory using a given random number generator,
+	 * with all of the game's powerups registered, equally likely.
+	 *
+	 * @param rng Random number generator
+	 */
+	public PowerupFactory(Random rng)
+	{
+		this.rng = rng;
+		
+		entries = new ArrayList<Entry>();
+		entriesByName = new HashMap<String, Entry>();
+		entriesByClass = new HashMap<Class<?>, Entry>();
+		
+		register("opponent-smaller-paddle", 1.0, OpponentSmallerPaddlePowerup.class);
+		register("self-smaller-paddle", 1.0, SelfSmallerPaddlePowerup.class);
+		register("zero-gravity", 1.0, ZeroGravityPowerup.class);
+		register("self-bigger-paddle", 1.0, SelfBiggerPaddlePowerup.class);
+		register("larger-ball", 1.0, LargerBallPowerup.class);
+		register("smaller-ball", 1.0, SmallerBallPowerup.class);
+		register("powerful-ball", 1.0, PowerfulBallPowerup.class);
+		register("self-bigger-area", 1.0, SelfBiggerAreaPowerup.class);
+		register("faster-ball", 1.0, FasterBall.class);
 	}
 	
 	/**
-	 * Get a new random powerup.
-	 * 
+	 * Register a kind of powerup.
+	 *
+	 * @param name Name of the kind of powerup
+	 * @param weight Weight, 0 to never pick it
+	 * @param supplier Supplier of new powerups of the kind
+	 * @throws IllegalArgumentException If the name is taken or the weight is
+	 * 			negative or not a number
+	 */
+	public void register(String name, double weight, PowerupSupplier supplier)
+	{
+		if (entriesByName.containsKey(name))
+		{
+			throw new IllegalArgumentException("A powerup named " + name + " is already registered");
+		}
+		
+		checkWeight(weight);
+		
+		Entry e = new Entry();
+		e.name = name;
+		e.weight = weight;
+		e.supplier = supplier;
+		
+		entries.add(e);
+		entriesByName.put(name, e);
+		tableDirty = true;
+	}
+	
+	/**
+	 * Register a kind of powerup made by a class with a public constructor
+	 * taking the initial position and drop direction.
+	 *
+	 * @param name Name of the kind of powerup
+	 * @param weight Weight, 0 to never pick it
+	 * @param type Class of the powerups
+	 * @throws IllegalArgumentException If the name is taken, the weight is
+	 * 			negative or not a number, or the class has no such constructor
+	 */
+	public void register(String name, double weight, Class<? extends Powerup> type)
+	{
+		try
+		{
+			register(name, weight, new ConstructorSupplier(type.getConstructor(Vec2.class, Powerup.DropDirection.class)));
+		}
+		catch (NoSuchMethodException e)
+		{
+			throw new IllegalArgumentException(type.getName() + " has no constructor taking a position and a drop direction");
+		}
+	}
+	
+	/**
+	 * Set the weight of a registered kind of powerup.
+	 *
+	 * @param name Name of the kind of powerup
+	 * @param weight Weight, 0 to never pick it
+	 * @throws IllegalArgumentException If there is no such kind, or the
+	 * 			weight is negative or not a number
+	 */
+	public void setWeight(String name, double weight)
+	{
+		Entry e = entriesByName.get(name);
+		
+		if (e == null)
+		{
+			throw new IllegalArgumentException("No powerup named " + name);
+		}
+		
+		checkWeight(weight);
+		
+		e.weight = weight;
+		tableDirty = true;
+	}
+	
+	/**
+	 * Get the weight of a registered kind of powerup.
+	 *
+	 * @param name Name of the kind of powerup
+	 * @return Weight
+	 * @throws IllegalArgumentException If there is no such kind
+	 */
+	public double getWeight(String name)
+	{
+		Entry e = entriesByName.get(name);
+		
+		if (e == null)
+		{
+			throw new IllegalArgumentException("No powerup named " + name);
+		}
+		
+		return e.weight;
+	}
+	
+	/**
+	 * Get the names of the registered kinds of powerups, in the order they
+	 * were registered.
+	 *
+	 * @return Names of the kinds of powerups
+	 */
+	public ArrayList<String> getNames()
+	{
+		ArrayList<String> names = new ArrayList<String>(entries.size());
+		
+		for (int i = 0; i < entries.size(); ++i)
+		{
+			names.add(entries.get(i).name);
+		}
+		
+		return names;
+	}
+	
+	/**
+	 * Set weights from configuration, with a property per kind of powerup
+	 * giving its weight. A property named after a kind that isn't registered
+	 * is taken as the name of a powerup class, which is registered under
+	 * that name.
+	 *
+	 * @param config Weights by name
+	 * @throws IllegalArgumentException If a weight isn't a number zero or
+	 * 			above, or a name is neither a registered kind nor a powerup class
+	 */
+	public void configure(Properties config)
+	{
+		// in order of name, so that new kinds are registered the same way
+		// every time and the same seed picks the same powerups
+		ArrayList<String> names = new ArrayList<String>(config.stringPropertyNames());
+		Collections.sort(names);
+		
+		for (String name : names)
+		{
+			double weight;
+			
+			try
+			{
+				weight = Double.parseDouble(config.getProperty(name).trim());
+			}
+			catch (NumberFormatException e)
+			{
+				throw new IllegalArgumentException("Bad weight for powerup " + name + ": " + config.getProperty(name));
+			}
+			
+			if (entriesByName.containsKey(name))
+			{
+				setWeight(name, weight);
+			}
+			else
+			{
+				register(name, weight, findPowerupClass(name));
+			}
+		}
+	}
+	
+	/**
+	 * Find a powerup class by name.
+	 *
+	 * @param name Fully qualified class name
+	 * @return The class
+	 * @throws IllegalArgumentException If there's no such class, or it isn't
+	 * 			a powerup
+	 */
+	private static Class<? extends Powerup> findPowerupClass(String name)
+	{
+		try
+		{
+			return Class.forName(name).asSubclass(Powerup.class);
+		}
+		catch (ClassNotFoundException e)
+		{
+			throw new IllegalArgumentException("No powerup named " + name);
+		}
+		catch (ClassCastException e)
+		{
+			throw new IllegalArgumentException(name + " is not a powerup");
+		}
+	}
+	
+	/**
+	 * Check that a weight is a number zero or above.
+	 *
+	 * @param weight Weight
+	 * @throws IllegalArgumentException If it isn't
+	 */
+	private static void checkWeight(double weight)
+	{
+		if (!(weight >= 0.0) || Double.isInfinite(weight))
+		{
+			throw new IllegalArgumentException("A weight must be a number zero or above");
+		}
+	}
+	
+	/**
+	 * Get a new random powerup, reusing one handed back if there is one of
+	 * the kind picked.
+	 *
 	 * @param pos Initial position
 	 * @param dir Drop direction
 	 * @return The created powerup
+	 * @throws IllegalStateException If no kind of powerup has any weight
 	 */
 	public Powerup createRandomPowerup(Vec2 pos, Powerup.DropDirection dir)
 	{
-		Stack<Powerup> powerups = new Stack<Powerup>();
+		if (tableDirty)
+		{
+			buildTable();
+		}
+		
+		// one equally likely column, then a coin toss between its two kinds
+		int column = rng.nextInt(chance.length);
+		Entry e = entries.get(rng.nextDouble() < chance[column] ? column : alias[column]);
+		
+		if (!e.pool.isEmpty())
+		{
+			Powerup p = e.pool.remove(e.pool.size() - 1);
+			p.reset(pos, dir);
+			
+			return p;
+		}
+		
+		Powerup p = e.supplier.create(pos, dir);
+		
+		if (e.type == null)
+		{
+			e.type = p.getClass();
+			entriesByClass.put(e.type, e);
+		}
+		
+		return p;
+	}
+	
+	/**
+	 * Hand back a powerup that is done with, to be reused. It must not be
+	 * used again, except when handed out anew.
+	 *
+	 * @param p Powerup made by this factory
+	 */
+	public void recycle(Powerup p)
+	{
+		Entry e = entriesByClass.get(p.getClass());
+		
+		if (e != null)
+		{
+			e.pool.add(p);
+		}
+	}
+	
+	/**
+	 * Get the number of powerups handed back and not yet reused.
+	 *
+	 * @return Number of powerups
+	 */
+	public int getPooledCount()
+	{
+		int count = 0;
+		
+		for (int i = 0; i < entries.size(); ++i)
+		{
+			count += entries.get(i).pool.size();
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Build the alias table from the weights, with Vose's method: columns
+	 * with less than their share are topped up by columns with more, which
+	 * become their aliases.
+	 *
+	 * @throws IllegalStateException If no kind of powerup has any weight
+	 */
+	private void buildTable()
+	{
+		int n = entries.size();
+		double total = 0.0;
+		
+		for (int i = 0; i < n; ++i)
+		{
+			total += entries.get(i).weight;
+		}
+		
+		if (total <= 0.0)
+		{
+			throw new IllegalStateException("No powerup has any weight");
+		}
+		
+		chance = new double[n];
+		alias = new int[n];
+		
+		// the share of each column, scaled so that a full column is 1
+		double[] share = new double[n];
+		int[] small = new int[n];
+		int[] large = new int[n];
+		int smallCount = 0;
+		int largeCount = 0;
+		
+		for (int i = 0; i < n; ++i)
+		{
+			share[i] = entries.get(i).weight * n / total;
+			
+			if (share[i] < 1.0)
+			{
+				small[smallCount++] = i;
+			}
+			else
+			{
+				large[largeCount++] = i;
+			}
+		}
+		
+		while (smallCount > 0 && largeCount > 0)
+		{
+			int s = small[--smallCount];
+			int l = large[--largeCount];
+			
+			chance[s] = share[s];
+			alias[s] = l;
+			share[l] = (share[l] + share[s]) - 1.0;
+			
+			if (share[l] < 1.0)
+			{
+				small[smallCount++] = l;
+			}
+			else
+			{
+				large[largeCount++] = l;
+			}
+		}
+		
+		// what's left is full, give or take rounding
+		while (largeCount > 0)
+		{
+			int l = large[--largeCount];
+			chance[l] = 1.0;
+			alias[l] = l;
+		}
 		
-		powerups.add(new OpponentSmallerPaddlePowerup(pos, dir));
-		powerups.add(new SelfSmallerPaddlePowerup(pos, dir));
-		powerups.add(new ZeroGravityPowerup(pos, dir));
-		powerups.add(new SelfBiggerPaddlePowerup(pos, dir));
-		powerups.add(new LargerBallPowerup(pos, dir));
-		powerups.add(new SmallerBallPowerup(pos, dir));
-		powerups.add(new PowerfulBallPowerup(pos, dir));
-		powerups.add(new SelfBiggerAreaPowerup(pos, dir));
-		powerups.add(new FasterBall(pos,dir));
-		Collections.shuffle(powerups);
+		while (smallCount > 0)
+		{
+			int s = small[--smallCount];
+			chance[s] = 1.0;
+			alias[s] = s;
+		}
 		
-		return powerups.pop();
+		tableDirty = false;
 	}
 }
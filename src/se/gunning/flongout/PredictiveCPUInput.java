@@ -0,0 +1,383 @@
+package se.gunning.flongout;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.newdawn.slick.Input;
+
+/**
+ * A CPU player that looks ahead. Every frame it picks the ball that will
+ * reach its paddle first, follows that ball forward in time to find where it
+ * will cross the paddle, and moves the paddle there so that a quick spin
+ * will hit the ball with the middle of the paddle. The spin starts just
+ * before the ball arrives.
+ *
+ * How good the player is depends on its difficulty: how long it takes to
+ * react to where the ball is going, how far it misses by, and how far ahead
+ * it can see.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-15
+ */
+public class PredictiveCPUInput extends CPUInput
+{
+	/**
+	 * Difficulty levels.
+	 *
+	 * @author Mikael Forsberg
+	 * @author Robin Gunning
+	 * @author Jonathan Yao Håkansson
+	 * @version 2015-06-15
+	 */
+	public enum Difficulty
+	{
+		EASY(300, 0.5, 150),
+		NORMAL(150, 0.2, 400),
+		HARD(50, 0.1, 1000);
+		
+		/**
+		 * Time between changes of where the paddle is headed, in milliseconds.
+		 */
+		private long reactionMillis;
+		
+		/**
+		 * Largest distance to miss where the ball is going by.
+		 */
+		private double aimError;
+		
+		/**
+		 * Most prediction steps per frame.
+		 */
+		private int lookahead;
+		
+		private Difficulty(long reactionMillis, double aimError, int lookahead)
+		{
+			this.reactionMillis = reactionMillis;
+			this.aimError = aimError;
+			this.lookahead = lookahead;
+		}
+	}
+	
+	/**
+	 * Y coordinates of the floor and ceiling of the arena built by GameScene.
+	 */
+	private static final double FLOOR = -4.5;
+	private static final double CEILING = 4.5;
+	
+	/**
+	 * Time step of the prediction, in seconds.
+	 */
+	private static final double TIME_STEP = 1.0 / 250.0;
+	
+	/**
+	 * How long before the ball arrives to start spinning the paddle, in
+	 * seconds of game time.
+	 */
+	private static final double SWING_LEAD = 0.04;
+	
+	/**
+	 * How long before the ball arrives to decide whether to misjudge it, in
+	 * seconds of game time.
+	 */
+	private static final double JUDGE_TIME = 0.5;
+	
+	/**
+	 * Chance of misjudging a ball coming in altogether. Players at every
+	 * level slip now and then, otherwise two good players never lose a rally
+	 * and the match never ends.
+	 */
+	private static final double SLIP_CHANCE = 0.03;
+	
+	/**
+	 * Difficulty level.
+	 */
+	private Difficulty difficulty;
+	
+	/**
+	 * World of the balls to track. Can be null, in which case only the ball
+	 * given to setBall is tracked.
+	 */
+	private Physics world;
+	
+	/**
+	 * Ball trajectory predictor.
+	 */
+	private TrajectoryPredictor predictor;
+	
+	/**
+	 * Random number generator for missing.
+	 */
+	private Random rng;
+	
+	/**
+	 * Time to next change where the paddle is headed.
+	 */
+	private long nextPlan;
+	
+	/**
+	 * Where the paddle is headed.
+	 */
+	private double targetY;
+	
+	/**
+	 * Where the paddle started.
+	 */
+	private double homeX;
+	
+	/**
+	 * Whether to spin the paddle up or down to hit the ball.
+	 */
+	private boolean swingUp;
+	
+	/**
+	 * How far off where the ball coming in is going the player thinks it is,
+	 * picked once for each ball that comes in. Usually none.
+	 */
+	private double slip;
+	
+	/**
+	 * Has the player made up its mind about the ball coming in?
+	 */
+	private boolean judged;
+	
+	/**
+	 * Create a new predictive CPU player.
+	 *
+	 * @param difficulty Difficulty level
+	 */
+	public PredictiveCPUInput(Difficulty difficulty)
+	{
+		this(difficulty, new Random());
+	}
+	
+	/**
+	 * Create a new predictive CPU player, using a given random number
+	 * generator to decide how far to miss by.
+	 *
+	 * @param difficulty Difficulty level
+	 * @param rng Random number generator
+	 */
+	public PredictiveCPUInput(Difficulty difficulty, Random rng)
+	{
+		this.difficulty = difficulty;
+		this.rng = rng;
+		
+		// gravity and speed limit of GameScene, until given a world
+		predictor = new TrajectoryPredictor(FLOOR, CEILING, TIME_STEP);
+		predictor.setGravity(-20.0);
+		predictor.setMaxSpeed(25.0);
+	}
+	
+	/**
+	 * Set the world of the balls to track. With a world all its balls are
+	 * tracked, and powerups changing the gravity are taken into account.
+	 *
+	 * @param world World to track, or null to track just the one ball
+	 */
+	public void setWorld(Physics world)
+	{
+		this.world = world;
+	}
+	
+	/**
+	 * Set the difficulty level.
+	 *
+	 * @param difficulty Difficulty level
+	 */
+	public void setDifficulty(Difficulty difficulty)
+	{
+		this.difficulty = difficulty;
+		nextPlan = 0;
+	}
+	
+	/**
+	 * Get the difficulty level.
+	 *
+	 * @return Difficulty level
+	 */
+	public Difficulty getDifficulty()
+	{
+		return difficulty;
+	}
+	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public void setClock(Clock clock)
+	{
+		super.setClock(clock);
+		nextPlan = 0;
+	}
+	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public void setPaddle(Paddle p)
+	{
+		super.setPaddle(p);
+		homeX = p.getX();
+	}
+	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public void reset()
+	{
+		super.reset();
+		world = null;
+		nextPlan = 0;
+		judged = false;
+		slip = 0.0;
+	}
+	
+	/**
+	 * Populate a controller with inputs that put the paddle where the ball
+	 * is going and spin it when the ball gets there.
+	 */
+	@Override
+	public void mapInput(Input in, Controller c)
+	{
+		if (!isInitialized())
+		{
+			releaseAll(c);
+			return;
+		}
+		
+		Paddle paddle = getPaddle();
+		long time = getClock().getTimeMillis();
+		
+		if (world != null)
+		{
+			predictor.setWorld(world);
+		}
+		
+		Ball b = findIncomingBall(paddle.getX());
+		boolean incoming = b != null && predictor.predict(b, paddle.getX(), difficulty.lookahead);
+		
+		// misjudge the ball coming in? decided once it's close, since balls
+		// further off often bounce off a brick and never get here
+		if (!incoming)
+		{
+			judged = false;
+			slip = 0.0;
+		}
+		else if (!judged && predictor.getInterceptTime() < JUDGE_TIME)
+		{
+			judged = true;
+			
+			if (rng.nextDouble() < SLIP_CHANCE)
+			{
+				// far enough off to miss it with the whole paddle
+				slip = (rng.nextBoolean() ? 1.0 : -1.0) * 2.0 * paddle.getLength();
+				nextPlan = time;
+			}
+		}
+		
+		// time to change where the paddle is headed?
+		if (nextPlan <= time)
+		{
+			// how far to miss by until the next change of plans
+			double miss = (2.0 * rng.nextDouble() - 1.0) * difficulty.aimError;
+			
+			if (incoming)
+			{
+				// hit the ball with the middle of the paddle, from the side
+				// of the ball nearest the middle of the arena
+				swingUp = predictor.getInterceptY() >= (FLOOR + CEILING) / 2.0;
+				targetY = predictor.getInterceptY() + slip + miss + (swingUp ? -0.5 : 0.5) * paddle.getLength();
+			}
+			else
+			{
+				targetY = (FLOOR + CEILING) / 2.0;
+			}
+			
+			nextPlan = time + difficulty.reactionMillis;
+		}
+		
+		// head there at full speed, slowing down when close, and get back
+		// to where the paddle started if the ball has pushed it away
+		double ex = homeX - paddle.getX();
+		double ey = targetY - paddle.getY();
+		double dist = Math.sqrt(ex * ex + ey * ey);
+		
+		if (dist < 0.02)
+		{
+			c.leftAnalog.setDirection(0.0, 0.0);
+		}
+		else
+		{
+			double speed = Math.min(1.0, dist * 5.0);
+			c.leftAnalog.setDirection(ex / dist * speed, ey / dist * speed);
+		}
+		
+		c.rightAnalog.setDirection(0.0, 0.0);
+		
+		// spin just before the ball gets here
+		if (incoming && predictor.getInterceptTime() < SWING_LEAD)
+		{
+			c.buttonOne.setPressed(swingUp);
+			c.buttonTwo.setPressed(!swingUp);
+		}
+		else
+		{
+			c.buttonOne.release();
+			c.buttonTwo.release();
+		}
+		
+		c.buttonThree.release();
+	}
+	
+	/**
+	 * Find the ball that will reach a vertical line first, going by how fast
+	 * the balls are moving towards it.
+	 *
+	 * @param lineX X coordinate of the line
+	 * @return The ball, or null if no ball is moving towards the line
+	 */
+	private Ball findIncomingBall(double lineX)
+	{
+		if (world == null)
+		{
+			return isIncoming(getBall(), lineX) ? getBall() : null;
+		}
+		
+		ArrayList<Ball> balls = world.getBalls();
+		Ball first = null;
+		double soonest = Double.POSITIVE_INFINITY;
+		
+		for (int i = 0; i < balls.size(); ++i)
+		{
+			Ball b = balls.get(i);
+			
+			if (isIncoming(b, lineX))
+			{
+				double eta = (lineX - b.getX()) / b.getVelocityX();
+				
+				if (eta < soonest)
+				{
+					soonest = eta;
+					first = b;
+				}
+			}
+		}
+		
+		return first;
+	}
+	
+	/**
+	 * Check whether a ball is moving towards a vertical line.
+	 *
+	 * @param b Ball
+	 * @param lineX X coordinate of the line
+	 * @return True if the ball is moving towards the line
+	 */
+	private static boolean isIncoming(Ball b, double lineX)
+	{
+		return (lineX - b.getX()) * b.getVelocityX() > 0.0;
+	}
+}
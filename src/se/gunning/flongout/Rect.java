@@ -1,8 +1,5 @@
 package se.gunning.flongout;
 
-import java.util.ArrayList;
-import java.util.Collections;
-
 import org.newdawn.slick.Color;
 import org.newdawn.slick.Graphics;
 
@@ -126,7 +123,19 @@ public class Rect
 	 */
 	public boolean containsPoint(Vec2 pt)
 	{
-		if (pt.x < x || pt.y < y || pt.x > x + width || pt.y > y + height)
+		return containsPoint(pt.x, pt.y);
+	}
+	
+	/**
+	 * Compute whether or not a given point is inside the rectangle.
+	 * 
+	 * @param px X coordinate of the point to test
+	 * @param py Y coordinate of the point to test
+	 * @return true if the point lies inside the rectangle, false otherwise.
+	 */
+	public boolean containsPoint(double px, double py)
+	{
+		if (px < x || py < y || px > x + width || py > y + height)
 		{
 			return false;
 		}
@@ -159,56 +168,114 @@ public class Rect
 	 */
 	public Vec2 shortestVectorToPoint(Vec2 pt)
 	{
-		Vec2 hsides = new Vec2(width, 0.0);
-		Vec2 vsides = new Vec2(0.0, height);
-		
-		double x_on_hsides = x + new Vec2(pt.x - x, pt.y - y).projectOnto(hsides).x;
-		double y_on_vsides = y + new Vec2(pt.x - x, pt.y - y).projectOnto(vsides).y;
+		MutableVec2 out = new MutableVec2();
+		shortestVectorToPoint(pt.x, pt.y, out);
 		
-		Vec2 from_left;
-		Vec2 from_right;
-		Vec2 from_top;
-		Vec2 from_bottom;
+		return out.toVec2();
+	}
+	
+	/**
+	 * Compute the shortest vector from the rectangle to a given point without
+	 * allocating anything.
+	 * 
+	 * @param px X coordinate of the point to test
+	 * @param py Y coordinate of the point to test
+	 * @param out Vector to store the result in
+	 * @return The length of the resulting vector
+	 */
+	public double shortestVectorToPoint(double px, double py, MutableVec2 out)
+	{
+		return Math.sqrt(squaredDistanceToPoint(px, py, out));
+	}
+	
+	/**
+	 * Compute the shortest vector from the rectangle to a given point without
+	 * allocating anything, and get its squared length. Cheaper than
+	 * shortestVectorToPoint when only comparing against a distance.
+	 * 
+	 * @param px X coordinate of the point to test
+	 * @param py Y coordinate of the point to test
+	 * @param out Vector to store the result in
+	 * @return The squared length of the resulting vector
+	 */
+	public double squaredDistanceToPoint(double px, double py, MutableVec2 out)
+	{
+		return Geometry.pointToRectSquared(px, py, x, y, width, height, out);
+	}
+	
+	/**
+	 * Find when a circle moving in a straight line first touches the
+	 * rectangle. The circle is treated as a point moving towards the
+	 * rectangle grown by the radius of the circle, with rounded corners.
+	 * A circle that already overlaps the rectangle is not considered to
+	 * touch it again, so check for that separately.
+	 * 
+	 * @param px X coordinate of the center of the circle at the start
+	 * @param py Y coordinate of the center of the circle at the start
+	 * @param mx Horizontal distance the circle moves
+	 * @param my Vertical distance the circle moves
+	 * @param radius Radius of the circle
+	 * @return Fraction of the move, from 0 to 1, at which the circle first
+	 * 			touches the rectangle, or positive infinity if it doesn't
+	 */
+	public double sweepCircle(double px, double py, double mx, double my, double radius)
+	{
+		double enter = Double.NEGATIVE_INFINITY;
+		double exit = Double.POSITIVE_INFINITY;
 		
-		if (y_on_vsides < y)
+		// slab between the grown left and right sides
+		if (mx == 0.0)
 		{
-			from_left = new Vec2(pt.x - x, pt.y - y);
-			from_right = new Vec2(pt.x - (x + width), pt.y - y);
-		}
-		else if (y_on_vsides > (y + height))
-		{
-			from_left = new Vec2(pt.x - x, pt.y - (y + height));
-			from_right = new Vec2(pt.x - (x + width), pt.y - (y + height));
+			if (px < x - radius || px > x + width + radius)
+			{
+				return Double.POSITIVE_INFINITY;
+			}
 		}
 		else
 		{
-			from_left = new Vec2(pt.x - x, pt.y - y_on_vsides);
-			from_right = new Vec2(pt.x - (x + width), pt.y - y_on_vsides);
+			double t1 = (x - radius - px) / mx;
+			double t2 = (x + width + radius - px) / mx;
+			enter = Math.max(enter, Math.min(t1, t2));
+			exit = Math.min(exit, Math.max(t1, t2));
 		}
 		
-		if (x_on_hsides < x)
+		// slab between the grown bottom and top sides
+		if (my == 0.0)
 		{
-			from_top = new Vec2(pt.x - x, pt.y - (y + height));
-			from_bottom = new Vec2(pt.x - x, pt.y - y);
+			if (py < y - radius || py > y + height + radius)
+			{
+				return Double.POSITIVE_INFINITY;
+			}
 		}
-		else if (x_on_hsides > (x + width))
+		else
 		{
-			from_top = new Vec2(pt.x - (x + width), pt.y - (y + height));
-			from_bottom = new Vec2(pt.x - (x + width), pt.y - y);
+			double t1 = (y - radius - py) / my;
+			double t2 = (y + height + radius - py) / my;
+			enter = Math.max(enter, Math.min(t1, t2));
+			exit = Math.min(exit, Math.max(t1, t2));
 		}
-		else
+		
+		if (enter > exit || exit < 0.0 || enter > 1.0)
+		{
+			return Double.POSITIVE_INFINITY;
+		}
+		
+		// where the grown rectangle is entered, or the start if already inside
+		double t = Math.max(enter, 0.0);
+		double hx = px + mx * t;
+		double hy = py + my * t;
+		
+		if ((hx >= x && hx <= x + width) || (hy >= y && hy <= y + height))
 		{
-			from_top = new Vec2(pt.x - x_on_hsides, pt.y - (y + height));
-			from_bottom = new Vec2(pt.x - x_on_hsides, pt.y - y);
+			// along one of the sides, unless already overlapping
+			return (enter < 0.0) ? Double.POSITIVE_INFINITY : enter;
 		}
 		
-		ArrayList<Vec2> vectors = new ArrayList<Vec2>();
-		vectors.add(from_left);
-		vectors.add(from_right);
-		vectors.add(from_top);
-		vectors.add(from_bottom);
+		// in a corner, which is rounded
+		double cx = Math.min(Math.max(hx, x), x + width);
+		double cy = Math.min(Math.max(hy, y), y + height);
 		
-		return Collections.min(vectors);
+		return Geometry.sweepPointToCircle(px, py, mx, my, cx, cy, radius);
 	}
 	
 	/**
@@ -0,0 +1,393 @@
+package se.gunning.flongout;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A recorded match. The game runs on a fixed tick and takes all of its
+ * randomness from a single seeded generator, so the seed, the settings the
+ * game was started with and the controller states of both players for every
+ * tick are all it takes to play the match again exactly as it went.
+ *
+ * The controller states are stored as one byte per player and tick holding
+ * the button bits and a flag telling whether the sticks have moved since the
+ * previous tick. Only if they have do the four stick components follow, as
+ * 16 bit fixed point numbers. A player who isn't touching the sticks costs a
+ * single byte per tick.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-08
+ */
+public class Replay
+{
+	/**
+	 * Number of players recorded per tick.
+	 */
+	public static final int PLAYERS = 2;
+	
+	/**
+	 * Game mode of a replayed endless game.
+	 */
+	public static final int MODE_ENDLESS = 0;
+	
+	/**
+	 * Game mode of a replayed timed game, with the time in seconds as parameter.
+	 */
+	public static final int MODE_TIMED = 1;
+	
+	/**
+	 * Game mode of a replayed score limited game, with the score limit as parameter.
+	 */
+	public static final int MODE_SCORE_LIMITED = 2;
+	
+	/**
+	 * Bits of the per-tick player byte.
+	 */
+	public static final int BUTTON_ONE = 1;
+	public static final int BUTTON_TWO = 2;
+	public static final int BUTTON_THREE = 4;
+	static final int STICKS_CHANGED = 8;
+	
+	/**
+	 * Largest stick component that can be stored. Anything beyond is clamped.
+	 */
+	static final double STICK_LIMIT = 2.0;
+	
+	/**
+	 * Fixed point steps per unit of stick movement.
+	 */
+	static final double STICK_SCALE = Short.MAX_VALUE / STICK_LIMIT;
+	
+	/**
+	 * Start of every replay file, "FLRP".
+	 */
+	private static final int MAGIC = 0x464C5250;
+	
+	/**
+	 * Version of the file format.
+	 */
+	private static final int VERSION = 1;
+	
+	/**
+	 * Seed for the random number generator of the game.
+	 */
+	private long seed;
+	
+	/**
+	 * Number of balls in play.
+	 */
+	private int ballCount;
+	
+	/**
+	 * Game ending mechanic, one of the MODE_ constants.
+	 */
+	private int mode;
+	
+	/**
+	 * Time or score limit of the game ending mechanic.
+	 */
+	private int modeParameter;
+	
+	/**
+	 * Number of recorded ticks.
+	 */
+	private long ticks;
+	
+	/**
+	 * Encoded controller states.
+	 */
+	private byte[] inputs;
+	
+	/**
+	 * Create a new replay.
+	 *
+	 * @param seed Seed for the random number generator of the game
+	 * @param ballCount Number of balls in play
+	 * @param mode Game ending mechanic, one of the MODE_ constants
+	 * @param modeParameter Time or score limit of the game ending mechanic
+	 * @param ticks Number of recorded ticks
+	 * @param inputs Encoded controller states
+	 */
+	public Replay(long seed, int ballCount, int mode, int modeParameter, long ticks, byte[] inputs)
+	{
+		if (ballCount < 1)
+		{
+			throw new IllegalArgumentException("Need at least one ball");
+		}
+		
+		if (mode < MODE_ENDLESS || mode > MODE_SCORE_LIMITED)
+		{
+			throw new IllegalArgumentException("Unknown game mode " + mode);
+		}
+		
+		this.seed = seed;
+		this.ballCount = ballCount;
+		this.mode = mode;
+		this.modeParameter = modeParameter;
+		this.ticks = ticks;
+		this.inputs = inputs;
+	}
+	
+	/**
+	 * Get the seed for the random number generator of the game.
+	 *
+	 * @return The seed
+	 */
+	public long getSeed()
+	{
+		return seed;
+	}
+	
+	/**
+	 * Get the number of balls in play.
+	 *
+	 * @return Number of balls
+	 */
+	public int getBallCount()
+	{
+		return ballCount;
+	}
+	
+	/**
+	 * Get the game ending mechanic the game was played with.
+	 *
+	 * @return One of the MODE_ constants
+	 */
+	public int getMode()
+	{
+		return mode;
+	}
+	
+	/**
+	 * Get the time or score limit of the game ending mechanic.
+	 *
+	 * @return Time in seconds or score limit, or 0 for endless games
+	 */
+	public int getModeParameter()
+	{
+		return modeParameter;
+	}
+	
+	/**
+	 * Get the number of recorded ticks.
+	 *
+	 * @return Number of ticks
+	 */
+	public long getTicks()
+	{
+		return ticks;
+	}
+	
+	/**
+	 * Get the encoded controller states.
+	 *
+	 * @return The encoded controller states
+	 */
+	byte[] getInputs()
+	{
+		return inputs;
+	}
+	
+	/**
+	 * Create a fresh game ending mechanic like the one the game was played with.
+	 *
+	 * @return The game ending mechanic
+	 */
+	public GameEndingMechanic createGameEnder()
+	{
+		switch (mode)
+		{
+		case MODE_TIMED:
+			return new TimedGame(modeParameter);
+		
+		case MODE_SCORE_LIMITED:
+			return new ScoreLimitedGame(modeParameter);
+		
+		default:
+			return new EndlessGame();
+		}
+	}
+	
+	/**
+	 * Find the replay game mode of a game ending mechanic.
+	 *
+	 * @param ender Game ending mechanic
+	 * @return One of the MODE_ constants
+	 */
+	public static int getMode(GameEndingMechanic ender)
+	{
+		if (ender instanceof EndlessGame)
+		{
+			return MODE_ENDLESS;
+		}
+		else if (ender instanceof TimedGame)
+		{
+			return MODE_TIMED;
+		}
+		else if (ender instanceof ScoreLimitedGame)
+		{
+			return MODE_SCORE_LIMITED;
+		}
+		
+		throw new IllegalArgumentException("Can't record games ending by " + ender.getClass().getSimpleName());
+	}
+	
+	/**
+	 * Find the replay game mode parameter of a game ending mechanic.
+	 *
+	 * @param ender Game ending mechanic
+	 * @return Time in seconds or score limit, or 0 for endless games
+	 */
+	public static int getModeParameter(GameEndingMechanic ender)
+	{
+		switch (getMode(ender))
+		{
+		case MODE_TIMED:
+			return ((TimedGame)ender).getSeconds();
+		
+		case MODE_SCORE_LIMITED:
+			return ((ScoreLimitedGame)ender).getScoreLimit();
+		
+		default:
+			return 0;
+		}
+	}
+	
+	/**
+	 * Turn a stick component into the fixed point number it is stored as.
+	 *
+	 * @param value Stick component
+	 * @return Fixed point stick component
+	 */
+	public static short quantize(double value)
+	{
+		double clamped = Math.max(-STICK_LIMIT, Math.min(STICK_LIMIT, value));
+		
+		return (short)Math.round(clamped * STICK_SCALE);
+	}
+	
+	/**
+	 * Turn a stored fixed point number back into a stick component.
+	 *
+	 * @param value Fixed point stick component
+	 * @return Stick component
+	 */
+	public static double dequantize(short value)
+	{
+		return value / STICK_SCALE;
+	}
+	
+	/**
+	 * Write the replay to a stream.
+	 *
+	 * @param stream Stream to write to
+	 * @throws IOException If writing fails
+	 */
+	public void write(OutputStream stream) throws IOException
+	{
+		DataOutputStream out = new DataOutputStream(stream);
+		
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		out.writeLong(seed);
+		out.writeInt(ballCount);
+		out.writeByte(mode);
+		out.writeInt(modeParameter);
+		out.writeLong(ticks);
+		out.writeInt(inputs.length);
+		out.write(inputs);
+		out.flush();
+	}
+	
+	/**
+	 * Read a replay from a stream.
+	 *
+	 * @param stream Stream to read from
+	 * @return The replay
+	 * @throws IOException If reading fails or the stream doesn't hold a replay
+	 */
+	public static Replay read(InputStream stream) throws IOException
+	{
+		DataInputStream in = new DataInputStream(stream);
+		
+		if (in.readInt() != MAGIC)
+		{
+			throw new IOException("Not a replay");
+		}
+		
+		int version = in.readUnsignedByte();
+		
+		if (version != VERSION)
+		{
+			throw new IOException("Unsupported replay version " + version);
+		}
+		
+		long seed = in.readLong();
+		int ballCount = in.readInt();
+		int mode = in.readUnsignedByte();
+		int modeParameter = in.readInt();
+		long ticks = in.readLong();
+		byte[] inputs = new byte[in.readInt()];
+		in.readFully(inputs);
+		
+		try
+		{
+			return new Replay(seed, ballCount, mode, modeParameter, ticks, inputs);
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new IOException("Broken replay: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Save the replay to a file.
+	 *
+	 * @param file File to save to
+	 * @throws IOException If writing fails
+	 */
+	public void save(File file) throws IOException
+	{
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+		
+		try
+		{
+			write(out);
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+	
+	/**
+	 * Load a replay from a file.
+	 *
+	 * @param file File to load from
+	 * @return The replay
+	 * @throws IOException If reading fails or the file doesn't hold a replay
+	 */
+	public static Replay load(File file) throws IOException
+	{
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		
+		try
+		{
+			return read(in);
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+}
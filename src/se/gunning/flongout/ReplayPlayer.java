@@ -0,0 +1,229 @@
+package se.gunning.flongout;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Plays back a replay without a display, as fast as the CPU allows. The
+ * replayed game is set up just like the recorded one and fed the recorded
+ * controller states, tick by tick, so it plays out exactly the same.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-08
+ */
+public class ReplayPlayer
+{
+	/**
+	 * The replay being played.
+	 */
+	private Replay replay;
+	
+	/**
+	 * The game being replayed.
+	 */
+	private GameScene game;
+	
+	/**
+	 * Clock used by the game, advanced once per tick.
+	 */
+	private SimulationClock clock;
+	
+	/**
+	 * Controllers fed to the game.
+	 */
+	private Controller[] controllers;
+	
+	/**
+	 * Encoded controller states.
+	 */
+	private byte[] inputs;
+	
+	/**
+	 * Position of the next tick in the encoded controller states.
+	 */
+	private int position;
+	
+	/**
+	 * Stick components of each player on the current tick.
+	 */
+	private short[][] sticks;
+	
+	/**
+	 * Create a new player for a replay.
+	 *
+	 * @param replay Replay to play
+	 */
+	public ReplayPlayer(Replay replay)
+	{
+		this.replay = replay;
+		
+		clock = new SimulationClock(GameScene.TICK_MILLIS);
+		game = new GameScene(null, false, replay.createGameEnder(), clock, replay.getBallCount(), replay.getSeed());
+		game.initHeadless();
+		
+		controllers = new Controller[Replay.PLAYERS];
+		
+		for (int i = 0; i < controllers.length; ++i)
+		{
+			controllers[i] = new Controller();
+		}
+		
+		inputs = replay.getInputs();
+		position = 0;
+		sticks = new short[Replay.PLAYERS][4];
+	}
+	
+	/**
+	 * Play a single recorded tick.
+	 *
+	 * @return True if there are more ticks to play, false if the replay is over
+	 */
+	public boolean tick()
+	{
+		if (isFinished())
+		{
+			return false;
+		}
+		
+		for (int i = 0; i < Replay.PLAYERS; ++i)
+		{
+			int bits = nextByte();
+			
+			if ((bits & Replay.STICKS_CHANGED) != 0)
+			{
+				for (int j = 0; j < 4; ++j)
+				{
+					sticks[i][j] = (short)((nextByte() << 8) | nextByte());
+				}
+			}
+			
+			Controller c = controllers[i];
+			c.leftAnalog.setDirection(Replay.dequantize(sticks[i][0]), Replay.dequantize(sticks[i][1]));
+			c.rightAnalog.setDirection(Replay.dequantize(sticks[i][2]), Replay.dequantize(sticks[i][3]));
+			c.buttonOne.setPressed((bits & Replay.BUTTON_ONE) != 0);
+			c.buttonTwo.setPressed((bits & Replay.BUTTON_TWO) != 0);
+			c.buttonThree.setPressed((bits & Replay.BUTTON_THREE) != 0);
+		}
+		
+		game.tick(controllers);
+		clock.tick();
+		
+		return !isFinished();
+	}
+	
+	/**
+	 * Play recorded ticks until a given tick has been reached, or the replay
+	 * is over. Handy for skipping ahead to the interesting parts of a match.
+	 *
+	 * @param tick Tick to stop at
+	 * @return True if there are more ticks to play, false if the replay is over
+	 */
+	public boolean skipTo(long tick)
+	{
+		while (clock.getTicks() < tick)
+		{
+			if (!tick())
+			{
+				return false;
+			}
+		}
+		
+		return !isFinished();
+	}
+	
+	/**
+	 * Play the rest of the replay.
+	 */
+	public void run()
+	{
+		while (tick())
+		{
+		}
+	}
+	
+	/**
+	 * Check whether all recorded ticks have been played.
+	 *
+	 * @return True if the replay is over
+	 */
+	public boolean isFinished()
+	{
+		return clock.getTicks() >= replay.getTicks();
+	}
+	
+	/**
+	 * Get the number of ticks played so far.
+	 *
+	 * @return Number of ticks
+	 */
+	public long getTicks()
+	{
+		return clock.getTicks();
+	}
+	
+	/**
+	 * Get the game being replayed.
+	 *
+	 * @return The game
+	 */
+	public GameScene getGame()
+	{
+		return game;
+	}
+	
+	/**
+	 * Read the next byte of the encoded controller states.
+	 *
+	 * @return The byte, from 0 to 255
+	 */
+	private int nextByte()
+	{
+		if (position >= inputs.length)
+		{
+			throw new IllegalStateException("Replay ends in the middle of tick " + clock.getTicks());
+		}
+		
+		return inputs[position++] & 0xFF;
+	}
+	
+	/**
+	 * Play a replay file and print how the match went. A match played with a
+	 * brick layout must be played back with the same layout.
+	 * Usage: ReplayPlayer file [layout]
+	 *
+	 * @param args Command line arguments
+	 * @throws IOException If the replay can't be read
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length < 1)
+		{
+			System.out.println("Usage: ReplayPlayer file [layout]");
+			return;
+		}
+		
+		Replay replay = Replay.load(new File(args[0]));
+		ReplayPlayer player = new ReplayPlayer(replay);
+		
+		if (args.length > 1)
+		{
+			player.getGame().setLayout(BrickLayout.load(new File(args[1])));
+		}
+		
+		long started = System.nanoTime();
+		player.run();
+		double seconds = (System.nanoTime() - started) / 1e9;
+		
+		double gameSeconds = player.getTicks() * GameScene.TICK_MILLIS / 1000.0;
+		
+		System.out.println("Seed:       " + replay.getSeed());
+		System.out.println("Balls:      " + replay.getBallCount());
+		System.out.println("Ticks:      " + player.getTicks());
+		System.out.println("Score:      " + player.getGame().getPlayerScore(0) + " - " + player.getGame().getPlayerScore(1));
+		System.out.println("Game over:  " + (player.getGame().isGameOver() ? "yes" : "no"));
+		System.out.println("Game time:  " + String.format("%.2f s", gameSeconds));
+		System.out.println("Wall time:  " + String.format("%.2f s", seconds));
+	}
+}
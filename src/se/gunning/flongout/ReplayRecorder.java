@@ -0,0 +1,172 @@
+package se.gunning.flongout;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Records the controller states of both players, tick by tick, into a replay.
+ * Stick positions are stored with a little less precision than the game
+ * works with, so the recorder rounds them off in the controllers as well.
+ * That way the recorded game sees exactly what a replayed game will.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-08
+ */
+public class ReplayRecorder
+{
+	/**
+	 * Seed for the random number generator of the game.
+	 */
+	private long seed;
+	
+	/**
+	 * Number of balls in play.
+	 */
+	private int ballCount;
+	
+	/**
+	 * Game ending mechanic, one of the Replay.MODE_ constants.
+	 */
+	private int mode;
+	
+	/**
+	 * Time or score limit of the game ending mechanic.
+	 */
+	private int modeParameter;
+	
+	/**
+	 * Number of recorded ticks.
+	 */
+	private long ticks;
+	
+	/**
+	 * Encoded controller states.
+	 */
+	private ByteArrayOutputStream inputs;
+	
+	/**
+	 * Stick components of each player on the previous tick.
+	 */
+	private short[][] previousSticks;
+	
+	/**
+	 * Stick components of the current tick.
+	 */
+	private short[] sticks;
+	
+	/**
+	 * Create a new recorder for a game.
+	 *
+	 * @param game Game to record
+	 */
+	public ReplayRecorder(GameScene game)
+	{
+		this(game.getSeed(), game.getBallCount(), game.getGameEndingMechanic());
+	}
+	
+	/**
+	 * Create a new recorder.
+	 *
+	 * @param seed Seed for the random number generator of the game
+	 * @param ballCount Number of balls in play
+	 * @param ender Game ending mechanic
+	 */
+	public ReplayRecorder(long seed, int ballCount, GameEndingMechanic ender)
+	{
+		this.seed = seed;
+		this.ballCount = ballCount;
+		mode = Replay.getMode(ender);
+		modeParameter = Replay.getModeParameter(ender);
+		
+		ticks = 0;
+		inputs = new ByteArrayOutputStream();
+		previousSticks = new short[Replay.PLAYERS][4];
+		sticks = new short[4];
+	}
+	
+	/**
+	 * Record the controller states of a tick. The first two controllers are
+	 * those of the players, any missing ones are recorded as untouched.
+	 *
+	 * @param input Controllers the game is about to read
+	 */
+	public void record(Controller[] input)
+	{
+		for (int i = 0; i < Replay.PLAYERS; ++i)
+		{
+			Controller c = (i < input.length) ? input[i] : null;
+			int bits = 0;
+			
+			if (c != null)
+			{
+				sticks[0] = Replay.quantize(c.leftAnalog.getDirection().x);
+				sticks[1] = Replay.quantize(c.leftAnalog.getDirection().y);
+				sticks[2] = Replay.quantize(c.rightAnalog.getDirection().x);
+				sticks[3] = Replay.quantize(c.rightAnalog.getDirection().y);
+				
+				// round the sticks off the way they are stored
+				c.leftAnalog.setDirection(Replay.dequantize(sticks[0]), Replay.dequantize(sticks[1]));
+				c.rightAnalog.setDirection(Replay.dequantize(sticks[2]), Replay.dequantize(sticks[3]));
+				
+				bits |= c.buttonOne.isPressed() ? Replay.BUTTON_ONE : 0;
+				bits |= c.buttonTwo.isPressed() ? Replay.BUTTON_TWO : 0;
+				bits |= c.buttonThree.isPressed() ? Replay.BUTTON_THREE : 0;
+			}
+			else
+			{
+				sticks[0] = sticks[1] = sticks[2] = sticks[3] = 0;
+			}
+			
+			boolean changed = false;
+			
+			for (int j = 0; j < 4; ++j)
+			{
+				if (sticks[j] != previousSticks[i][j])
+				{
+					changed = true;
+					previousSticks[i][j] = sticks[j];
+				}
+			}
+			
+			if (changed)
+			{
+				bits |= Replay.STICKS_CHANGED;
+			}
+			
+			inputs.write(bits);
+			
+			if (changed)
+			{
+				for (int j = 0; j < 4; ++j)
+				{
+					inputs.write(sticks[j] >> 8);
+					inputs.write(sticks[j]);
+				}
+			}
+		}
+		
+		++ticks;
+	}
+	
+	/**
+	 * Get the number of ticks recorded so far.
+	 *
+	 * @return Number of ticks
+	 */
+	public long getTicks()
+	{
+		return ticks;
+	}
+	
+	/**
+	 * Get a replay of everything recorded so far. Recording may go on
+	 * afterwards without affecting the returned replay.
+	 *
+	 * @return The replay
+	 */
+	public Replay getReplay()
+	{
+		return new Replay(seed, ballCount, mode, modeParameter, ticks, inputs.toByteArray());
+	}
+}
@@ -0,0 +1,87 @@
+package se.gunning.flongout;
+
+import java.util.Random;
+
+/**
+ * A random number generator whose state can be read and put back, so that a
+ * game can be rewound and played again from any point. It gives exactly the
+ * same numbers as a java.util.Random with the same seed, which keeps old
+ * replays playing back the same.
+ *
+ * The one thing left out of the state is the second Gaussian that
+ * nextGaussian keeps for its next call; the game doesn't use nextGaussian.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-17
+ */
+public class RestorableRandom extends Random
+{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Constants of the linear congruential generator, the same as those of
+	 * java.util.Random.
+	 */
+	private static final long MULTIPLIER = 0x5DEECE66DL;
+	private static final long ADDEND = 0xBL;
+	private static final long MASK = (1L << 48) - 1;
+
+	/**
+	 * State of the generator. Set by setSeed, which the superclass constructor
+	 * calls, so it must not be given an initial value here.
+	 */
+	private long state;
+
+	/**
+	 * Create a new random number generator.
+	 *
+	 * @param seed Seed
+	 */
+	public RestorableRandom(long seed)
+	{
+		super(seed);
+	}
+
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public synchronized void setSeed(long seed)
+	{
+		super.setSeed(seed);
+		state = (seed ^ MULTIPLIER) & MASK;
+	}
+
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	protected int next(int bits)
+	{
+		state = (state * MULTIPLIER + ADDEND) & MASK;
+
+		return (int)(state >>> (48 - bits));
+	}
+
+	/**
+	 * Get the state of the generator.
+	 *
+	 * @return The state
+	 */
+	public long getState()
+	{
+		return state;
+	}
+
+	/**
+	 * Put the generator back in a state read with getState.
+	 *
+	 * @param state The state
+	 */
+	public void setState(long state)
+	{
+		this.state = state & MASK;
+	}
+}
@@ -31,12 +31,23 @@ public class ScoreLimitedGame implements GameEndingMechanic
 		scoreLimit = limit;
 	}
 	
+	/**
+	 * Get the number of points needed to win the game.
+	 * 
+	 * @return The score limit
+	 */
+	public int getScoreLimit()
+	{
+		return scoreLimit;
+	}
+	
 	/**
 	 * @{inheritDoc}
 	 */
 	@Override
 	public void reset()
 	{
+		gameOver = false;
 	}
 	
 	/**
@@ -45,10 +56,8 @@ public class ScoreLimitedGame implements GameEndingMechanic
 	@Override
 	public void update(GameScene game)
 	{
-		if (game.getPlayerScore(0) >= scoreLimit || game.getPlayerScore(1) >= scoreLimit)
-		{
-			gameOver = true;
-		}
+		// worked out anew every tick, so that rewinding a game takes it back
+		gameOver = game.getPlayerScore(0) >= scoreLimit || game.getPlayerScore(1) >= scoreLimit;
 	}
 	
 	/**
@@ -0,0 +1,71 @@
+package se.gunning.flongout;
+
+/**
+ * A clock that only advances when told to, one tick at a time. Used for
+ * running the game faster (or slower) than real time.
+ * 
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-02
+ */
+public class SimulationClock implements Clock
+{
+	/**
+	 * Number of milliseconds that pass with each tick.
+	 */
+	private double millisPerTick;
+	
+	/**
+	 * Number of ticks so far.
+	 */
+	private long ticks;
+	
+	/**
+	 * Create a new simulation clock, starting at zero.
+	 * 
+	 * @param millisPerTick Number of milliseconds that pass with each tick
+	 */
+	public SimulationClock(double millisPerTick)
+	{
+		this.millisPerTick = millisPerTick;
+		ticks = 0;
+	}
+	
+	/**
+	 * Advance the clock by one tick.
+	 */
+	public void tick()
+	{
+		++ticks;
+	}
+	
+	/**
+	 * Get the number of ticks so far.
+	 * 
+	 * @return Number of ticks
+	 */
+	public long getTicks()
+	{
+		return ticks;
+	}
+	
+	/**
+	 * Set the number of ticks so far.
+	 * 
+	 * @param ticks Number of ticks
+	 */
+	public void setTicks(long ticks)
+	{
+		this.ticks = ticks;
+	}
+	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public long getTimeMillis()
+	{
+		return (long)(ticks * millisPerTick);
+	}
+}
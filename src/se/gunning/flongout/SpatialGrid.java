@@ -0,0 +1,289 @@
+package se.gunning.flongout;
+
+import java.util.ArrayList;
+
+/**
+ * A uniform grid of cells over a rectangular area, used to quickly find
+ * items whose bounding rectangles are near a given region. Each item is
+ * stored in every cell its rectangle overlaps. Items partly or entirely
+ * outside the area are stored in the nearest cells along the edge, and
+ * queries are clamped the same way, so nothing is ever missed.
+ *
+ * Queries don't modify the grid, so any number of threads may query it
+ * at once as long as nobody is inserting or removing.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-04
+ *
+ * @param <T> Type of the items in the grid
+ */
+public class SpatialGrid<T>
+{
+	/**
+	 * An item in the grid along with the range of cells it occupies.
+	 */
+	private static class Entry<T>
+	{
+		public T item;
+		public int minColumn, minRow, maxColumn, maxRow;
+		
+		public Entry(T item, int minColumn, int minRow, int maxColumn, int maxRow)
+		{
+			this.item = item;
+			this.minColumn = minColumn;
+			this.minRow = minRow;
+			this.maxColumn = maxColumn;
+			this.maxRow = maxRow;
+		}
+	}
+	
+	/**
+	 * Area covered by the grid.
+	 */
+	private Rect bounds;
+	
+	/**
+	 * Side length of each cell.
+	 */
+	private double cellSize;
+	
+	/**
+	 * Number of columns and rows.
+	 */
+	private int columns, rows;
+	
+	/**
+	 * Cell contents, row by row. Cells are created when first needed.
+	 */
+	private ArrayList<ArrayList<Entry<T>>> cells;
+	
+	/**
+	 * Number of items in the grid.
+	 */
+	private int size;
+	
+	/**
+	 * Create a new, empty grid.
+	 *
+	 * @param bounds Area to cover
+	 * @param cellSize Side length of each cell
+	 */
+	public SpatialGrid(Rect bounds, double cellSize)
+	{
+		if (cellSize <= 0.0)
+		{
+			throw new IllegalArgumentException("Cell size must be positive");
+		}
+		
+		this.bounds = new Rect(bounds);
+		this.cellSize = cellSize;
+		
+		columns = Math.max(1, (int)Math.ceil(bounds.getWidth() / cellSize));
+		rows = Math.max(1, (int)Math.ceil(bounds.getHeight() / cellSize));
+		
+		cells = new ArrayList<ArrayList<Entry<T>>>(columns * rows);
+		
+		for (int i = 0; i < columns * rows; ++i)
+		{
+			cells.add(null);
+		}
+	}
+	
+	/**
+	 * Get the area covered by the grid.
+	 *
+	 * @return Area covered by the grid
+	 */
+	public Rect getBounds()
+	{
+		return new Rect(bounds);
+	}
+	
+	/**
+	 * Get the side length of each cell.
+	 *
+	 * @return Side length of each cell
+	 */
+	public double getCellSize()
+	{
+		return cellSize;
+	}
+	
+	/**
+	 * Get the number of items in the grid.
+	 *
+	 * @return Number of items
+	 */
+	public int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * Add an item to the grid.
+	 *
+	 * @param item Item to add
+	 * @param box Bounding rectangle of the item
+	 */
+	public void insert(T item, Rect box)
+	{
+		Entry<T> e = new Entry<T>(item,
+				column(box.getX()), row(box.getY()),
+				column(box.getX() + box.getWidth()), row(box.getY() + box.getHeight()));
+		
+		for (int r = e.minRow; r <= e.maxRow; ++r)
+		{
+			for (int c = e.minColumn; c <= e.maxColumn; ++c)
+			{
+				ArrayList<Entry<T>> cell = cells.get(r * columns + c);
+				
+				if (cell == null)
+				{
+					cell = new ArrayList<Entry<T>>();
+					cells.set(r * columns + c, cell);
+				}
+				
+				cell.add(e);
+			}
+		}
+		
+		++size;
+	}
+	
+	/**
+	 * Remove an item from the grid. The item is matched by identity, and
+	 * must be given the same bounding rectangle as when it was inserted.
+	 *
+	 * @param item Item to remove
+	 * @param box Bounding rectangle of the item
+	 * @return True if the item was found and removed, false otherwise
+	 */
+	public boolean remove(T item, Rect box)
+	{
+		boolean found = false;
+		
+		int minColumn = column(box.getX());
+		int maxColumn = column(box.getX() + box.getWidth());
+		int minRow = row(box.getY());
+		int maxRow = row(box.getY() + box.getHeight());
+		
+		for (int r = minRow; r <= maxRow; ++r)
+		{
+			for (int c = minColumn; c <= maxColumn; ++c)
+			{
+				ArrayList<Entry<T>> cell = cells.get(r * columns + c);
+				
+				if (cell == null)
+				{
+					continue;
+				}
+				
+				for (int i = 0; i < cell.size(); ++i)
+				{
+					if (cell.get(i).item == item)
+					{
+						cell.remove(i);
+						found = true;
+						break;
+					}
+				}
+			}
+		}
+		
+		if (found)
+		{
+			--size;
+		}
+		
+		return found;
+	}
+	
+	/**
+	 * Remove all items from the grid.
+	 */
+	public void clear()
+	{
+		for (int i = 0; i < cells.size(); ++i)
+		{
+			if (cells.get(i) != null)
+			{
+				cells.get(i).clear();
+			}
+		}
+		
+		size = 0;
+	}
+	
+	/**
+	 * Find all items whose cells overlap a given region. The result may
+	 * contain items that don't actually touch the region, but never misses
+	 * one that does, and contains each item only once. Doesn't allocate as
+	 * long as the result list has room.
+	 *
+	 * @param minX Left edge of the region
+	 * @param minY Bottom edge of the region
+	 * @param maxX Right edge of the region
+	 * @param maxY Top edge of the region
+	 * @param result List to put the items in, cleared first
+	 */
+	public void query(double minX, double minY, double maxX, double maxY, ArrayList<T> result)
+	{
+		result.clear();
+		
+		int minColumn = column(minX);
+		int maxColumn = column(maxX);
+		int minRow = row(minY);
+		int maxRow = row(maxY);
+		
+		for (int r = minRow; r <= maxRow; ++r)
+		{
+			for (int c = minColumn; c <= maxColumn; ++c)
+			{
+				ArrayList<Entry<T>> cell = cells.get(r * columns + c);
+				
+				if (cell == null)
+				{
+					continue;
+				}
+				
+				for (int i = 0; i < cell.size(); ++i)
+				{
+					Entry<T> e = cell.get(i);
+					
+					// an item spanning several cells is only reported from
+					// the first of its cells that lies within the query
+					if (c == Math.max(e.minColumn, minColumn) && r == Math.max(e.minRow, minRow))
+					{
+						result.add(e.item);
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Get the column containing a given X coordinate, clamped to the grid.
+	 *
+	 * @param x X coordinate
+	 * @return Column index
+	 */
+	private int column(double x)
+	{
+		int c = (int)Math.floor((x - bounds.getX()) / cellSize);
+		return Math.min(Math.max(c, 0), columns - 1);
+	}
+	
+	/**
+	 * Get the row containing a given Y coordinate, clamped to the grid.
+	 *
+	 * @param y Y coordinate
+	 * @return Row index
+	 */
+	private int row(double y)
+	{
+		int r = (int)Math.floor((y - bounds.getY()) / cellSize);
+		return Math.min(Math.max(r, 0), rows - 1);
+	}
+}
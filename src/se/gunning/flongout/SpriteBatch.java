@@ -0,0 +1,217 @@
+package se.gunning.flongout;
+
+import org.newdawn.slick.Image;
+import org.newdawn.slick.opengl.renderer.Renderer;
+import org.newdawn.slick.opengl.renderer.SGL;
+
+/**
+ * Draws any number of images from a texture atlas as one batch of textured
+ * quads, binding the texture once rather than once per image. Everything
+ * drawn between begin and end goes into the same batch, in order, so later
+ * sprites are drawn on top of earlier ones. Nothing else may be drawn until
+ * the batch has been ended.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-10
+ */
+public class SpriteBatch
+{
+	/**
+	 * Atlas to draw from.
+	 */
+	private TextureAtlas atlas;
+	
+	/**
+	 * Renderer to submit the quads to.
+	 */
+	private SGL gl;
+	
+	/**
+	 * Whether a batch is being drawn.
+	 */
+	private boolean drawing;
+	
+	/**
+	 * Number of sprites in the current or last batch.
+	 */
+	private int count;
+	
+	/**
+	 * Create a new sprite batch.
+	 *
+	 * @param atlas Built atlas to draw from
+	 */
+	public SpriteBatch(TextureAtlas atlas)
+	{
+		if (atlas.getImage() == null)
+		{
+			throw new IllegalArgumentException("The atlas hasn't been built");
+		}
+		
+		this.atlas = atlas;
+		gl = Renderer.get();
+	}
+	
+	/**
+	 * Start a batch, binding the atlas texture.
+	 *
+	 * @throws IllegalStateException If a batch has already been started
+	 */
+	public void begin()
+	{
+		if (drawing)
+		{
+			throw new IllegalStateException("The batch has already been started");
+		}
+		
+		drawing = true;
+		count = 0;
+		atlas.getImage().startUse();
+	}
+	
+	/**
+	 * Add an image to the batch at its own size and rotation.
+	 *
+	 * @param img Image from the atlas
+	 * @param x Screen X coordinate of the top left corner, before rotating
+	 * @param y Screen Y coordinate of the top left corner, before rotating
+	 */
+	public void draw(Image img, float x, float y)
+	{
+		draw(img, x, y, img.getWidth(), img.getHeight(), img.getCenterOfRotationX(), img.getCenterOfRotationY(), img.getRotation());
+	}
+	
+	/**
+	 * Add an image to the batch.
+	 *
+	 * @param img Image from the atlas
+	 * @param x Screen X coordinate of the top left corner
+	 * @param y Screen Y coordinate of the top left corner
+	 * @param width Width on screen
+	 * @param height Height on screen
+	 */
+	public void draw(Image img, float x, float y, float width, float height)
+	{
+		checkImage(img);
+		
+		float u0 = img.getTextureOffsetX();
+		float v0 = img.getTextureOffsetY();
+		float u1 = u0 + img.getTextureWidth();
+		float v1 = v0 + img.getTextureHeight();
+		
+		gl.glTexCoord2f(u0, v0);
+		gl.glVertex2f(x, y);
+		gl.glTexCoord2f(u0, v1);
+		gl.glVertex2f(x, y + height);
+		gl.glTexCoord2f(u1, v1);
+		gl.glVertex2f(x + width, y + height);
+		gl.glTexCoord2f(u1, v0);
+		gl.glVertex2f(x + width, y);
+		
+		++count;
+	}
+	
+	/**
+	 * Add a rotated image to the batch.
+	 *
+	 * @param img Image from the atlas
+	 * @param x Screen X coordinate of the top left corner, before rotating
+	 * @param y Screen Y coordinate of the top left corner, before rotating
+	 * @param width Width on screen
+	 * @param height Height on screen
+	 * @param originX Center of rotation, relative to the top left corner
+	 * @param originY Center of rotation, relative to the top left corner
+	 * @param degrees Clockwise rotation on screen, in degrees
+	 */
+	public void draw(Image img, float x, float y, float width, float height, float originX, float originY, float degrees)
+	{
+		if (degrees == 0.0f)
+		{
+			draw(img, x, y, width, height);
+			return;
+		}
+		
+		checkImage(img);
+		
+		float u0 = img.getTextureOffsetX();
+		float v0 = img.getTextureOffsetY();
+		float u1 = u0 + img.getTextureWidth();
+		float v1 = v0 + img.getTextureHeight();
+		
+		double radians = Math.toRadians(degrees);
+		float cos = (float)Math.cos(radians);
+		float sin = (float)Math.sin(radians);
+		
+		float cx = x + originX;
+		float cy = y + originY;
+		
+		// corners relative to the center of rotation
+		float left = -originX;
+		float top = -originY;
+		float right = width - originX;
+		float bottom = height - originY;
+		
+		gl.glTexCoord2f(u0, v0);
+		gl.glVertex2f(cx + left * cos - top * sin, cy + left * sin + top * cos);
+		gl.glTexCoord2f(u0, v1);
+		gl.glVertex2f(cx + left * cos - bottom * sin, cy + left * sin + bottom * cos);
+		gl.glTexCoord2f(u1, v1);
+		gl.glVertex2f(cx + right * cos - bottom * sin, cy + right * sin + bottom * cos);
+		gl.glTexCoord2f(u1, v0);
+		gl.glVertex2f(cx + right * cos - top * sin, cy + right * sin + top * cos);
+		
+		++count;
+	}
+	
+	/**
+	 * Finish the batch and submit it.
+	 *
+	 * @throws IllegalStateException If no batch has been started
+	 */
+	public void end()
+	{
+		checkDrawing();
+		
+		atlas.getImage().endUse();
+		drawing = false;
+	}
+	
+	/**
+	 * Get the number of sprites in the current batch, or the last one if
+	 * none is being drawn.
+	 *
+	 * @return Number of sprites
+	 */
+	public int getSpriteCount()
+	{
+		return count;
+	}
+	
+	/**
+	 * Make sure an image can go in the current batch.
+	 *
+	 * @param img Image to check
+	 */
+	private void checkImage(Image img)
+	{
+		checkDrawing();
+		
+		if (img.getTexture() != atlas.getImage().getTexture())
+		{
+			throw new IllegalArgumentException("Image isn't from the atlas");
+		}
+	}
+	
+	/**
+	 * Make sure a batch has been started.
+	 */
+	private void checkDrawing()
+	{
+		if (!drawing)
+		{
+			throw new IllegalStateException("The batch hasn't been started");
+		}
+	}
+}
@@ -21,10 +21,36 @@ public class Stopwatch
 	private long started = 0;
 	
 	/**
-	 * Create a new stopwatch.
+	 * Is the stopwatch running?
+	 */
+	private boolean running = false;
+	
+	/**
+	 * Clock to read the time from.
+	 */
+	private Clock clock;
+	
+	/**
+	 * Number of values in the state of a stopwatch, see saveState.
+	 */
+	static final int STATE_SIZE = 3;
+	
+	/**
+	 * Create a new stopwatch that reads the system clock.
 	 */
 	public Stopwatch()
 	{
+		this(new SystemClock());
+	}
+	
+	/**
+	 * Create a new stopwatch that reads a given clock.
+	 * 
+	 * @param clock Clock to read the time from
+	 */
+	public Stopwatch(Clock clock)
+	{
+		this.clock = clock;
 	}
 	
 	/**
@@ -33,9 +59,10 @@ public class Stopwatch
 	 */
 	public void start()
 	{
-		if (started == 0)
+		if (!running)
 		{
-			started = System.currentTimeMillis();
+			started = clock.getTimeMillis();
+			running = true;
 		}
 	}
 	
@@ -45,10 +72,11 @@ public class Stopwatch
 	 */
 	public void stop()
 	{
-		if (started != 0)
+		if (running)
 		{
-			sum += System.currentTimeMillis() - started;
+			sum += clock.getTimeMillis() - started;
 			started = 0;
+			running = false;
 		}
 	}
 	
@@ -59,9 +87,9 @@ public class Stopwatch
 	 */
 	public long getSum()
 	{
-		if (started != 0)
+		if (running)
 		{
-			return sum + System.currentTimeMillis() - started;
+			return sum + clock.getTimeMillis() - started;
 		}
 		else
 		{
@@ -86,5 +114,32 @@ public class Stopwatch
 	{
 		sum = 0;
 		started = 0;
+		running = false;
+	}
+	
+	/**
+	 * Copy the state of the stopwatch into an array.
+	 * 
+	 * @param state Array to copy into
+	 * @param offset Where in the array to put the STATE_SIZE values
+	 */
+	void saveState(long[] state, int offset)
+	{
+		state[offset] = sum;
+		state[offset + 1] = started;
+		state[offset + 2] = running ? 1 : 0;
+	}
+	
+	/**
+	 * Put the stopwatch back the way it was when its state was saved.
+	 * 
+	 * @param state Array holding the saved state
+	 * @param offset Where in the array the STATE_SIZE values are
+	 */
+	void loadState(long[] state, int offset)
+	{
+		sum = state[offset];
+		started = state[offset + 1];
+		running = state[offset + 2] != 0;
 	}
 }
@@ -0,0 +1,21 @@
+package se.gunning.flongout;
+
+/**
+ * A clock that reads the system (wall) clock.
+ * 
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-02
+ */
+public class SystemClock implements Clock
+{
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public long getTimeMillis()
+	{
+		return System.currentTimeMillis();
+	}
+}
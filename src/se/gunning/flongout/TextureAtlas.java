@@ -0,0 +1,298 @@
+package se.gunning.flongout;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+import javax.imageio.ImageIO;
+
+import org.newdawn.slick.Image;
+import org.newdawn.slick.ImageBuffer;
+
+/**
+ * A number of small images packed into a single texture, so that they can all
+ * be drawn in one go by a SpriteBatch without switching textures. Images are
+ * added by name, after which the atlas is built once and the images are found
+ * again by name as sub-images sharing the texture. Scaled copies of those
+ * share it as well.
+ *
+ * Every image gets a one pixel border repeating its edge pixels, so that
+ * filtering never bleeds a neighbouring image into its edges.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-10
+ */
+public class TextureAtlas
+{
+	/**
+	 * Width of the border around every image, in pixels.
+	 */
+	static final int PADDING = 1;
+	
+	/**
+	 * Where the images go in the atlas.
+	 */
+	static class Layout
+	{
+		/**
+		 * Size of the atlas, in pixels.
+		 */
+		int width, height;
+		
+		/**
+		 * Top left corners of the images, not counting the border.
+		 */
+		int[] x, y;
+	}
+	
+	/**
+	 * Images waiting for the atlas to be built, by name.
+	 */
+	private LinkedHashMap<String, BufferedImage> images;
+	
+	/**
+	 * Parts of the built atlas, by name.
+	 */
+	private HashMap<String, Image> parts;
+	
+	/**
+	 * The built atlas, or null if not built yet.
+	 */
+	private Image image;
+	
+	/**
+	 * Create a new, empty atlas.
+	 */
+	public TextureAtlas()
+	{
+		images = new LinkedHashMap<String, BufferedImage>();
+		parts = new HashMap<String, Image>();
+	}
+	
+	/**
+	 * Add an image to the atlas.
+	 *
+	 * @param name Name to find the image by
+	 * @param img The image
+	 * @throws IllegalStateException If the atlas has already been built
+	 */
+	public void add(String name, BufferedImage img)
+	{
+		if (image != null)
+		{
+			throw new IllegalStateException("The atlas has already been built");
+		}
+		
+		images.put(name, img);
+	}
+	
+	/**
+	 * Add an image file to the atlas.
+	 *
+	 * @param name Name to find the image by
+	 * @param file The image file
+	 * @throws IOException If the file can't be read
+	 * @throws IllegalStateException If the atlas has already been built
+	 */
+	public void add(String name, File file) throws IOException
+	{
+		BufferedImage img = ImageIO.read(file);
+		
+		if (img == null)
+		{
+			throw new IOException("Not an image: " + file);
+		}
+		
+		add(name, img);
+	}
+	
+	/**
+	 * Pack the added images into a texture. Needs an OpenGL context.
+	 *
+	 * @throws IllegalStateException If the atlas has already been built
+	 */
+	public void build()
+	{
+		if (image != null)
+		{
+			throw new IllegalStateException("The atlas has already been built");
+		}
+		
+		BufferedImage[] list = images.values().toArray(new BufferedImage[images.size()]);
+		String[] names = images.keySet().toArray(new String[images.size()]);
+		
+		int[] widths = new int[list.length];
+		int[] heights = new int[list.length];
+		
+		for (int i = 0; i < list.length; ++i)
+		{
+			widths[i] = list[i].getWidth();
+			heights[i] = list[i].getHeight();
+		}
+		
+		Layout layout = layout(widths, heights);
+		ImageBuffer buffer = new ImageBuffer(layout.width, layout.height);
+		
+		for (int i = 0; i < list.length; ++i)
+		{
+			copy(list[i], buffer, layout.x[i], layout.y[i]);
+		}
+		
+		image = buffer.getImage(Image.FILTER_LINEAR);
+		
+		for (int i = 0; i < list.length; ++i)
+		{
+			parts.put(names[i], image.getSubImage(layout.x[i], layout.y[i], widths[i], heights[i]));
+		}
+		
+		images.clear();
+	}
+	
+	/**
+	 * Get a named image from the atlas.
+	 *
+	 * @param name Name of the image
+	 * @return The image, sharing the texture of the atlas
+	 * @throws IllegalArgumentException If there's no image by that name
+	 * @throws IllegalStateException If the atlas hasn't been built
+	 */
+	public Image getImage(String name)
+	{
+		if (image == null)
+		{
+			throw new IllegalStateException("The atlas hasn't been built");
+		}
+		
+		Image part = parts.get(name);
+		
+		if (part == null)
+		{
+			throw new IllegalArgumentException("No image named " + name);
+		}
+		
+		return part;
+	}
+	
+	/**
+	 * Get the texture holding all the images.
+	 *
+	 * @return The texture, or null if the atlas hasn't been built
+	 */
+	public Image getImage()
+	{
+		return image;
+	}
+	
+	/**
+	 * Copy an image into the atlas buffer along with its border.
+	 *
+	 * @param img Image to copy
+	 * @param buffer Atlas buffer
+	 * @param x X coordinate of the top left corner of the image in the atlas
+	 * @param y Y coordinate of the top left corner of the image in the atlas
+	 */
+	private static void copy(BufferedImage img, ImageBuffer buffer, int x, int y)
+	{
+		int w = img.getWidth();
+		int h = img.getHeight();
+		
+		for (int j = -PADDING; j < h + PADDING; ++j)
+		{
+			for (int i = -PADDING; i < w + PADDING; ++i)
+			{
+				// the border repeats the nearest edge pixel
+				int argb = img.getRGB(Math.min(Math.max(i, 0), w - 1), Math.min(Math.max(j, 0), h - 1));
+				buffer.setRGBA(x + i, y + j, (argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF, (argb >>> 24));
+			}
+		}
+	}
+	
+	/**
+	 * Find places for a number of images in a square-ish atlas with power of
+	 * two sides. Images are put on shelves from the tallest to the shortest,
+	 * each shelf as tall as its first image.
+	 *
+	 * @param widths Widths of the images
+	 * @param heights Heights of the images
+	 * @return Where the images go
+	 */
+	static Layout layout(int[] widths, final int[] heights)
+	{
+		int n = widths.length;
+		long area = 0;
+		int widest = 1;
+		
+		for (int i = 0; i < n; ++i)
+		{
+			area += (long)(widths[i] + 2 * PADDING) * (heights[i] + 2 * PADDING);
+			widest = Math.max(widest, widths[i] + 2 * PADDING);
+		}
+		
+		Integer[] order = new Integer[n];
+		
+		for (int i = 0; i < n; ++i)
+		{
+			order[i] = i;
+		}
+		
+		Arrays.sort(order, new Comparator<Integer>()
+		{
+			@Override
+			public int compare(Integer a, Integer b)
+			{
+				return Integer.compare(heights[b], heights[a]);
+			}
+		});
+		
+		Layout layout = new Layout();
+		layout.x = new int[n];
+		layout.y = new int[n];
+		layout.width = nextPowerOfTwo(Math.max(widest, (int)Math.ceil(Math.sqrt(area))));
+		
+		int shelfX = 0;
+		int shelfY = 0;
+		int shelfHeight = 0;
+		
+		for (int k = 0; k < n; ++k)
+		{
+			int i = order[k];
+			int w = widths[i] + 2 * PADDING;
+			int h = heights[i] + 2 * PADDING;
+			
+			// start a new shelf when this one is full
+			if (shelfX + w > layout.width)
+			{
+				shelfY += shelfHeight;
+				shelfX = 0;
+				shelfHeight = 0;
+			}
+			
+			layout.x[i] = shelfX + PADDING;
+			layout.y[i] = shelfY + PADDING;
+			
+			shelfX += w;
+			shelfHeight = Math.max(shelfHeight, h);
+		}
+		
+		layout.height = nextPowerOfTwo(Math.max(1, shelfY + shelfHeight));
+		
+		return layout;
+	}
+	
+	/**
+	 * Find the smallest power of two that is at least a given number.
+	 *
+	 * @param n The number, at least 1
+	 * @return The power of two
+	 */
+	static int nextPowerOfTwo(int n)
+	{
+		return (n <= 1) ? 1 : Integer.highestOneBit(n - 1) << 1;
+	}
+}
@@ -17,7 +17,8 @@ public class TimedGame implements GameEndingMechanic
 	private int seconds;
 	
 	/**
-	 * Timer used for timekeeping.
+	 * Timer used for timekeeping. Created on the first update, since it
+	 * needs to read the clock of the game being played.
 	 */
 	private Stopwatch timer;
 	
@@ -28,8 +29,17 @@ public class TimedGame implements GameEndingMechanic
 	public TimedGame(int seconds)
 	{
 		this.seconds = seconds;
-		timer = new Stopwatch();
-		timer.start();
+		timer = null;
+	}
+	
+	/**
+	 * Get the time allotted for the game.
+	 * 
+	 * @return Time in seconds
+	 */
+	public int getSeconds()
+	{
+		return seconds;
 	}
 	
 	/**
@@ -38,8 +48,7 @@ public class TimedGame implements GameEndingMechanic
 	@Override
 	public void reset()
 	{
-		timer.reset();
-		timer.start();
+		timer = null;
 	}
 	
 	/**
@@ -48,6 +57,26 @@ public class TimedGame implements GameEndingMechanic
 	@Override
 	public void update(GameScene game)
 	{
+		if (timer == null)
+		{
+			timer = new Stopwatch(game.getClock());
+			timer.start();
+		}
+	}
+	
+	/**
+	 * Get the number of whole seconds that have passed since the game started.
+	 * 
+	 * @return Seconds passed
+	 */
+	private int getSecondsPassed()
+	{
+		if (timer == null)
+		{
+			return 0;
+		}
+		
+		return (int)timer.getSeconds();
 	}
 	
 	/**
@@ -56,7 +85,7 @@ public class TimedGame implements GameEndingMechanic
 	@Override
 	public void render(Graphics g, CoordinateTransformer ct)
 	{
-		g.drawString("Time: " + new Integer(seconds - (int)timer.getSeconds()).toString(), ct.toScreenX(0.0), ct.toScreenY(4.0));
+		g.drawString("Time: " + new Integer(seconds - getSecondsPassed()).toString(), ct.toScreenX(0.0), ct.toScreenY(4.0));
 	}
 	
 	/**
@@ -65,6 +94,6 @@ public class TimedGame implements GameEndingMechanic
 	@Override
 	public boolean isGameOver()
 	{
-		return (int)timer.getSeconds() >= seconds;
+		return getSecondsPassed() >= seconds;
 	}
 }
@@ -0,0 +1,37 @@
+package se.gunning.flongout;
+
+import org.newdawn.slick.Input;
+
+/**
+ * An input mapper that knows when its input changed, down to a fraction of a
+ * frame. It can populate a controller with the input as it was at any time
+ * since it was last asked, so that every tick of a frame gets the input of
+ * its own point in time rather than all of them getting the input at the
+ * start of the frame.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-18
+ */
+public interface TimedInputMapper extends InputMapper
+{
+	/**
+	 * Start listening for changes of input. Must be called before
+	 * mapInputUntil can know of any.
+	 *
+	 * @param input Slick2D Input to listen to
+	 */
+	public void listenTo(Input input);
+	
+	/**
+	 * Populate a controller with the input as it was at a given time. Changes
+	 * after that time are kept for later. A button that was pressed and
+	 * released again since the last call counts as pressed, so that short
+	 * taps aren't lost.
+	 *
+	 * @param nanos Time, on the System.nanoTime clock
+	 * @param c Controller to populate
+	 */
+	public void mapInputUntil(long nanos, Controller c);
+}
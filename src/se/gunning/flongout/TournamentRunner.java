@@ -0,0 +1,488 @@
+package se.gunning.flongout;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Plays a large number of CPU versus CPU matches without a display, several
+ * at a time on a pool of threads, and sums up how they went: who won, how
+ * long the rallies were, how often powerups were picked up and how much CPU
+ * time a match took.
+ *
+ * Every match gets a seed of its own, worked out from the seed of the
+ * tournament and the number of the match, and nothing is shared between
+ * matches. The results are therefore the same for the same seed no matter
+ * how many threads play the matches, apart from the CPU times.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-16
+ */
+public class TournamentRunner
+{
+	/**
+	 * The outcome of a single match.
+	 *
+	 * @author Mikael Forsberg
+	 * @author Robin Gunning
+	 * @author Jonathan Yao Håkansson
+	 * @version 2015-06-16
+	 */
+	public static class Result
+	{
+		/**
+		 * Seed the match was played with.
+		 */
+		public long seed;
+		
+		/**
+		 * Did the match end before the tick limit?
+		 */
+		public boolean finished;
+		
+		/**
+		 * 0 if player one won, 1 if player two won, -1 on a draw. For matches
+		 * that didn't finish, the player ahead at the tick limit.
+		 */
+		public int winner;
+		
+		/**
+		 * Number of ticks played.
+		 */
+		public long ticks;
+		
+		/**
+		 * Statistics of the match.
+		 */
+		public MatchStatistics statistics;
+		
+		/**
+		 * CPU time taken by the match, in nanoseconds, or -1 if not known.
+		 */
+		public long cpuNanos;
+	}
+	
+	/**
+	 * Number of matches to play.
+	 */
+	private int matches;
+	
+	/**
+	 * Seed of the tournament.
+	 */
+	private long seed;
+	
+	/**
+	 * Number of threads to play the matches on.
+	 */
+	private int threads;
+	
+	/**
+	 * Number of balls in play.
+	 */
+	private int ballCount;
+	
+	/**
+	 * Points to win a match, or 0 for timed matches.
+	 */
+	private int scoreLimit;
+	
+	/**
+	 * Length of a timed match, in seconds.
+	 */
+	private int seconds;
+	
+	/**
+	 * Names of the CPU players, as taken by HeadlessMatch.createCpu.
+	 */
+	private String[] players;
+	
+	/**
+	 * Most ticks to play before giving up on a match.
+	 */
+	private long maxTicks;
+	
+	/**
+	 * Create a new tournament of single ball, first to ten matches between two
+	 * normal CPU players, using one thread per processor.
+	 *
+	 * @param matches Number of matches to play
+	 * @param seed Seed of the tournament
+	 * @throws IllegalArgumentException If the number of matches is negative
+	 */
+	public TournamentRunner(int matches, long seed)
+	{
+		if (matches < 0)
+		{
+			throw new IllegalArgumentException("Can't play a negative number of matches");
+		}
+		
+		this.matches = matches;
+		this.seed = seed;
+		threads = Runtime.getRuntime().availableProcessors();
+		ballCount = 1;
+		scoreLimit = 10;
+		players = new String[]{"normal", "normal"};
+		
+		// give up on a match after ten minutes of game time
+		maxTicks = (long)(10 * 60 * 1000 / HeadlessMatch.MILLIS_PER_TICK);
+	}
+	
+	/**
+	 * Set the number of threads to play the matches on.
+	 *
+	 * @param threads Number of threads, at least one
+	 * @throws IllegalArgumentException If there are no threads
+	 */
+	public void setThreads(int threads)
+	{
+		if (threads < 1)
+		{
+			throw new IllegalArgumentException("Need at least one thread");
+		}
+		
+		this.threads = threads;
+	}
+	
+	/**
+	 * Set the number of balls in play.
+	 *
+	 * @param ballCount Number of balls, at least one
+	 * @throws IllegalArgumentException If there are no balls
+	 */
+	public void setBallCount(int ballCount)
+	{
+		if (ballCount < 1)
+		{
+			throw new IllegalArgumentException("Need at least one ball");
+		}
+		
+		this.ballCount = ballCount;
+	}
+	
+	/**
+	 * Play matches to a number of points.
+	 *
+	 * @param points Points to win a match
+	 */
+	public void setScoreLimit(int points)
+	{
+		scoreLimit = points;
+	}
+	
+	/**
+	 * Play timed matches.
+	 *
+	 * @param seconds Length of a match, in seconds
+	 */
+	public void setTimeLimit(int seconds)
+	{
+		scoreLimit = 0;
+		this.seconds = seconds;
+	}
+	
+	/**
+	 * Set the CPU players.
+	 *
+	 * @param left Name of the left player, as taken by HeadlessMatch.createCpu
+	 * @param right Name of the right player
+	 */
+	public void setPlayers(String left, String right)
+	{
+		// fail now rather than in every match
+		HeadlessMatch.createCpu(left, 0);
+		HeadlessMatch.createCpu(right, 0);
+		
+		players = new String[]{left, right};
+	}
+	
+	/**
+	 * Set the most ticks to play before giving up on a match.
+	 *
+	 * @param maxTicks Number of ticks
+	 */
+	public void setMaxTicks(long maxTicks)
+	{
+		this.maxTicks = maxTicks;
+	}
+	
+	/**
+	 * Play all matches.
+	 *
+	 * @return The results, in the order of the matches
+	 * @throws InterruptedException If interrupted while waiting for the matches
+	 * @throws IllegalStateException If a match failed
+	 */
+	public Result[] run() throws InterruptedException
+	{
+		ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable r)
+			{
+				Thread t = new Thread(r, "tournament match");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		
+		try
+		{
+			ArrayList<Future<Result>> futures = new ArrayList<Future<Result>>(matches);
+			
+			for (int i = 0; i < matches; ++i)
+			{
+				final long matchSeed = getMatchSeed(seed, i);
+				
+				futures.add(pool.submit(new Callable<Result>()
+				{
+					@Override
+					public Result call()
+					{
+						return play(matchSeed);
+					}
+				}));
+			}
+			
+			Result[] results = new Result[matches];
+			
+			for (int i = 0; i < matches; ++i)
+			{
+				try
+				{
+					results[i] = futures.get(i).get();
+				}
+				catch (ExecutionException e)
+				{
+					throw new IllegalStateException("Match " + i + " failed", e.getCause());
+				}
+			}
+			
+			return results;
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Play a single match.
+	 *
+	 * @param matchSeed Seed of the match
+	 * @return The result
+	 */
+	private Result play(long matchSeed)
+	{
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		boolean timed = bean.isCurrentThreadCpuTimeSupported();
+		long started = timed ? bean.getCurrentThreadCpuTime() : 0;
+		
+		GameEndingMechanic ender;
+		
+		if (scoreLimit > 0)
+		{
+			ender = new ScoreLimitedGame(scoreLimit);
+		}
+		else
+		{
+			ender = new TimedGame(seconds);
+		}
+		
+		// the players get seeds of their own, so that they don't depend on
+		// how much randomness the game uses
+		HeadlessMatch match = new HeadlessMatch(ender,
+				HeadlessMatch.createCpu(players[0], getMatchSeed(matchSeed, 1)),
+				HeadlessMatch.createCpu(players[1], getMatchSeed(matchSeed, 2)),
+				ballCount, matchSeed);
+		
+		Result result = new Result();
+		result.seed = matchSeed;
+		result.finished = match.run(maxTicks);
+		result.winner = match.getWinner();
+		result.ticks = match.getTicks();
+		result.statistics = match.getGame().getStatistics();
+		result.cpuNanos = timed ? bean.getCurrentThreadCpuTime() - started : -1;
+		
+		return result;
+	}
+	
+	/**
+	 * Work out the seed of a match from the seed of the tournament. Close
+	 * seeds give very different match seeds.
+	 *
+	 * @param seed Seed of the tournament
+	 * @param match Number of the match
+	 * @return Seed of the match
+	 */
+	static long getMatchSeed(long seed, long match)
+	{
+		long z = seed + (match + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		
+		return z ^ (z >>> 31);
+	}
+	
+	/**
+	 * Sum up the results of a tournament. Win rates and rally lengths are
+	 * taken from the decided matches only, as the matches given up on at the
+	 * tick limit are mostly long rallies between players who rarely miss, and
+	 * the player ahead when time ran out didn't win them. They are summed up
+	 * on a line of their own.
+	 *
+	 * @param results Results of the matches
+	 * @return A readable report
+	 */
+	public String report(Result[] results)
+	{
+		int[] wins = new int[2];
+		int[] pickups = new int[2];
+		int draws = 0;
+		int decided = 0;
+		long rallies = 0;
+		long returns = 0;
+		int longestRally = 0;
+		int capped = 0;
+		long cappedRallies = 0;
+		long cappedReturns = 0;
+		int cappedLongestRally = 0;
+		long drops = 0;
+		long ticks = 0;
+		long cpuNanos = 0;
+		
+		for (Result r : results)
+		{
+			MatchStatistics s = r.statistics;
+			
+			if (!r.finished)
+			{
+				++capped;
+				cappedRallies += s.getRallies();
+				cappedReturns += s.getReturns();
+				cappedLongestRally = Math.max(cappedLongestRally, s.getLongestRally());
+			}
+			else
+			{
+				++decided;
+				
+				if (r.winner < 0)
+				{
+					++draws;
+				}
+				else
+				{
+					++wins[r.winner];
+				}
+				
+				rallies += s.getRallies();
+				returns += s.getReturns();
+				longestRally = Math.max(longestRally, s.getLongestRally());
+			}
+			
+			drops += s.getDrops();
+			pickups[0] += s.getPickups(0);
+			pickups[1] += s.getPickups(1);
+			ticks += r.ticks;
+			cpuNanos += Math.max(0, r.cpuNanos);
+		}
+		
+		int n = Math.max(1, results.length);
+		int d = Math.max(1, decided);
+		StringBuilder sb = new StringBuilder();
+		
+		sb.append(String.format(Locale.ROOT, "Matches:          %d (%s, %d balls, seed %d)%n", results.length,
+				scoreLimit > 0 ? "first to " + scoreLimit : seconds + " s", ballCount, seed));
+		sb.append(String.format(Locale.ROOT, "Decided:          %d%n", decided));
+		sb.append(String.format(Locale.ROOT, "Player One:       %d (%.1f %%, %s)%n", wins[0], 100.0 * wins[0] / d, players[0]));
+		sb.append(String.format(Locale.ROOT, "Player Two:       %d (%.1f %%, %s)%n", wins[1], 100.0 * wins[1] / d, players[1]));
+		sb.append(String.format(Locale.ROOT, "Draws:            %d%n", draws));
+		sb.append(String.format(Locale.ROOT, "Rally length:     %.2f returns, longest %d%n", (double)returns / Math.max(1, rallies), longestRally));
+		sb.append(String.format(Locale.ROOT, "Capped:           %d (rally length %.2f returns, longest %d)%n", capped,
+				(double)cappedReturns / Math.max(1, cappedRallies), cappedLongestRally));
+		sb.append(String.format(Locale.ROOT, "Powerups dropped: %.2f per match%n", (double)drops / n));
+		sb.append(String.format(Locale.ROOT, "Picked up:        %.1f %% by player one, %.1f %% by player two%n",
+				100.0 * pickups[0] / Math.max(1, drops), 100.0 * pickups[1] / Math.max(1, drops)));
+		sb.append(String.format(Locale.ROOT, "Ticks:            %.0f per match%n", (double)ticks / n));
+		sb.append(String.format(Locale.ROOT, "CPU time:         %.1f ms per match%n", cpuNanos / 1e6 / n));
+		
+		return sb.toString();
+	}
+	
+	/**
+	 * Play a tournament and print a report. Options, each followed by a
+	 * value, are --matches, --seed, --threads, --balls, --score (points to
+	 * win), --time (seconds per match instead of points), --left and --right
+	 * (CPU players, "simple", "easy", "normal" or "hard").
+	 *
+	 * @param args Command line arguments
+	 * @throws InterruptedException If interrupted
+	 */
+	public static void main(String[] args) throws InterruptedException
+	{
+		int matches = 1000;
+		long seed = 0;
+		
+		for (int i = 0; i + 1 < args.length; i += 2)
+		{
+			if (args[i].equals("--matches"))
+			{
+				matches = Integer.parseInt(args[i + 1]);
+			}
+			else if (args[i].equals("--seed"))
+			{
+				seed = Long.parseLong(args[i + 1]);
+			}
+		}
+		
+		TournamentRunner runner = new TournamentRunner(matches, seed);
+		String left = "normal";
+		String right = "normal";
+		
+		for (int i = 0; i + 1 < args.length; i += 2)
+		{
+			if (args[i].equals("--threads"))
+			{
+				runner.setThreads(Integer.parseInt(args[i + 1]));
+			}
+			else if (args[i].equals("--balls"))
+			{
+				runner.setBallCount(Integer.parseInt(args[i + 1]));
+			}
+			else if (args[i].equals("--score"))
+			{
+				runner.setScoreLimit(Integer.parseInt(args[i + 1]));
+			}
+			else if (args[i].equals("--time"))
+			{
+				runner.setTimeLimit(Integer.parseInt(args[i + 1]));
+			}
+			else if (args[i].equals("--left"))
+			{
+				left = args[i + 1];
+			}
+			else if (args[i].equals("--right"))
+			{
+				right = args[i + 1];
+			}
+		}
+		
+		runner.setPlayers(left, right);
+		
+		long started = System.nanoTime();
+		Result[] results = runner.run();
+		double wall = (System.nanoTime() - started) / 1e9;
+		
+		System.out.print(runner.report(results));
+		System.out.println(String.format(Locale.ROOT, "Wall time:        %.2f s on %d threads", wall, runner.threads));
+	}
+}
@@ -0,0 +1,98 @@
+package se.gunning.flongout;
+
+import org.newdawn.slick.Color;
+import org.newdawn.slick.Graphics;
+import org.newdawn.slick.opengl.TextureImpl;
+import org.newdawn.slick.opengl.renderer.LineStripRenderer;
+import org.newdawn.slick.opengl.renderer.Renderer;
+
+/**
+ * Draws ball trails, each as a single line strip fading out towards its
+ * oldest point. The points are transformed to screen coordinates into an
+ * array that is kept between frames, so drawing a trail allocates nothing.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-11
+ */
+public class TrailRenderer
+{
+	/**
+	 * Renderer to submit the line strips to.
+	 */
+	private LineStripRenderer lines;
+	
+	/**
+	 * Color of the newest end of a trail.
+	 */
+	private Color color;
+	
+	/**
+	 * Width of a trail, in pixels.
+	 */
+	private float width;
+	
+	/**
+	 * Screen coordinates of the trail being drawn, X and Y interleaved.
+	 */
+	private float[] points;
+	
+	/**
+	 * Create a new trail renderer.
+	 *
+	 * @param color Color of the newest end of a trail
+	 * @param width Width of a trail, in pixels
+	 */
+	public TrailRenderer(Color color, float width)
+	{
+		lines = Renderer.getLineStripRenderer();
+		this.color = new Color(color);
+		this.width = width;
+		points = new float[0];
+	}
+	
+	/**
+	 * Draw a trail.
+	 *
+	 * @param g Graphics context to draw in
+	 * @param trail Trail to draw
+	 * @param ct Transformer from world to screen coordinates
+	 */
+	public void render(Graphics g, BallTrail trail, CoordinateTransformer ct)
+	{
+		int n = trail.size();
+		
+		if (n < 2)
+		{
+			return;
+		}
+		
+		// only grows when a longer trail comes along
+		if (points.length < 2 * n)
+		{
+			points = new float[2 * trail.getCapacity()];
+		}
+		
+		for (int i = 0; i < n; ++i)
+		{
+			points[2 * i] = ct.toScreenX(trail.getX(i));
+			points[2 * i + 1] = ct.toScreenY(trail.getY(i));
+		}
+		
+		g.setLineWidth(width);
+		TextureImpl.bindNone();
+		
+		lines.start();
+		
+		for (int i = 0; i < n; ++i)
+		{
+			// fade in from the oldest point to the newest
+			float alpha = color.a * (i + 1) / n;
+			lines.color(color.r, color.g, color.b, alpha);
+			lines.vertex(points[2 * i], points[2 * i + 1]);
+		}
+		
+		lines.end();
+	}
+}
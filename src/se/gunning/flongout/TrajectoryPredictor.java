@@ -0,0 +1,274 @@
+package se.gunning.flongout;
+
+/**
+ * Predicts where a ball will cross a vertical line, for CPU players that need
+ * to know where to be before the ball gets there. The ball is followed the
+ * same way Physics moves it: it moves in a straight line for a time step,
+ * bouncing off the floor and the ceiling and losing some speed each time,
+ * then falls with gravity and has its speed limited.
+ *
+ * Only the floor and the ceiling are taken into account, not bricks or
+ * paddles, so the prediction can be stepped many times per frame without
+ * touching the world. Nothing is allocated; the result of the last
+ * prediction is kept in the predictor.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-15
+ */
+public class TrajectoryPredictor
+{
+	/**
+	 * Y coordinate of the floor.
+	 */
+	private double floor;
+	
+	/**
+	 * Y coordinate of the ceiling.
+	 */
+	private double ceiling;
+	
+	/**
+	 * Time step, in seconds.
+	 */
+	private double timeStep;
+	
+	/**
+	 * Gravity, in world units per second squared.
+	 */
+	private double gravity;
+	
+	/**
+	 * Maximum speed of a ball.
+	 */
+	private double maxSpeed;
+	
+	/**
+	 * Y coordinate where the ball crossed the line in the last prediction.
+	 */
+	private double interceptY;
+	
+	/**
+	 * Time until the ball crossed the line in the last prediction, in seconds.
+	 */
+	private double interceptTime;
+	
+	/**
+	 * Velocity of the ball as it crossed the line in the last prediction.
+	 */
+	private double interceptVelocityX;
+	private double interceptVelocityY;
+	
+	/**
+	 * Number of steps taken by the last prediction.
+	 */
+	private int steps;
+	
+	/**
+	 * Create a new predictor for an arena with a given floor and ceiling.
+	 *
+	 * @param floor Y coordinate of the floor
+	 * @param ceiling Y coordinate of the ceiling
+	 * @param timeStep Time step, in seconds
+	 * @throws IllegalArgumentException If the ceiling isn't above the floor or
+	 * 			the time step isn't positive
+	 */
+	public TrajectoryPredictor(double floor, double ceiling, double timeStep)
+	{
+		if (ceiling <= floor)
+		{
+			throw new IllegalArgumentException("The ceiling must be above the floor");
+		}
+		
+		if (timeStep <= 0.0)
+		{
+			throw new IllegalArgumentException("The time step must be positive");
+		}
+		
+		this.floor = floor;
+		this.ceiling = ceiling;
+		this.timeStep = timeStep;
+		maxSpeed = Double.POSITIVE_INFINITY;
+	}
+	
+	/**
+	 * Set the gravity to predict with.
+	 *
+	 * @param g Gravity, in world units per second squared
+	 */
+	public void setGravity(double g)
+	{
+		gravity = g;
+	}
+	
+	/**
+	 * Set the maximum speed of a ball.
+	 *
+	 * @param speed Maximum speed
+	 */
+	public void setMaxSpeed(double speed)
+	{
+		maxSpeed = speed;
+	}
+	
+	/**
+	 * Take the gravity and maximum ball speed from a world.
+	 *
+	 * @param world World to predict the balls of
+	 */
+	public void setWorld(Physics world)
+	{
+		gravity = world.getGravity();
+		maxSpeed = world.getMaxBallSpeed();
+	}
+	
+	/**
+	 * Predict where a ball will cross a vertical line.
+	 *
+	 * @param b Ball
+	 * @param lineX X coordinate of the line
+	 * @param maxSteps Most steps to take before giving up
+	 * @return True if the ball crossed the line within the given steps
+	 */
+	public boolean predict(Ball b, double lineX, int maxSteps)
+	{
+		return predict(b.getX(), b.getY(), b.getVelocityX(), b.getVelocityY(), b.getRadius(), lineX, maxSteps);
+	}
+	
+	/**
+	 * Predict where a ball will cross a vertical line.
+	 *
+	 * @param x X coordinate of the ball
+	 * @param y Y coordinate of the ball
+	 * @param vx X velocity of the ball
+	 * @param vy Y velocity of the ball
+	 * @param radius Radius of the ball
+	 * @param lineX X coordinate of the line
+	 * @param maxSteps Most steps to take before giving up
+	 * @return True if the ball crossed the line within the given steps
+	 */
+	public boolean predict(double x, double y, double vx, double vy, double radius, double lineX, int maxSteps)
+	{
+		// the center of the ball stays this far from the floor and ceiling
+		double low = floor + radius;
+		double high = ceiling - radius;
+		double time = 0.0;
+		
+		for (steps = 0; steps < maxSteps; ++steps)
+		{
+			double remaining = timeStep;
+			
+			// at most one bounce off each of the floor and the ceiling
+			for (int bounces = 0; bounces < 3 && remaining > 0.0; ++bounces)
+			{
+				double t = remaining;
+				boolean bounce = false;
+				
+				if (vy < 0.0 && y + vy * t < low)
+				{
+					t = Math.max(0.0, (low - y) / vy);
+					bounce = true;
+				}
+				else if (vy > 0.0 && y + vy * t > high)
+				{
+					t = Math.max(0.0, (high - y) / vy);
+					bounce = true;
+				}
+				
+				// crossing the line on the way?
+				if (vx != 0.0)
+				{
+					double tx = (lineX - x) / vx;
+					
+					if (tx >= 0.0 && tx <= t)
+					{
+						interceptY = y + vy * tx;
+						interceptTime = time + tx;
+						interceptVelocityX = vx;
+						interceptVelocityY = vy;
+						++steps;
+						
+						return true;
+					}
+				}
+				
+				x += vx * t;
+				y += vy * t;
+				time += t;
+				remaining -= t;
+				
+				if (bounce)
+				{
+					vx *= Physics.WALL_RESTITUTION;
+					vy *= -Physics.WALL_RESTITUTION;
+				}
+			}
+			
+			vy += gravity * timeStep;
+			
+			double speed = Math.sqrt(vx * vx + vy * vy);
+			
+			if (speed > maxSpeed)
+			{
+				vx = vx / speed * maxSpeed;
+				vy = vy / speed * maxSpeed;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Get where the ball crossed the line in the last successful prediction.
+	 *
+	 * @return Y coordinate of the crossing
+	 */
+	public double getInterceptY()
+	{
+		return interceptY;
+	}
+	
+	/**
+	 * Get how long it took the ball to cross the line in the last successful
+	 * prediction.
+	 *
+	 * @return Time until the crossing, in seconds
+	 */
+	public double getInterceptTime()
+	{
+		return interceptTime;
+	}
+	
+	/**
+	 * Get the X velocity of the ball as it crossed the line in the last
+	 * successful prediction.
+	 *
+	 * @return X velocity
+	 */
+	public double getInterceptVelocityX()
+	{
+		return interceptVelocityX;
+	}
+	
+	/**
+	 * Get the Y velocity of the ball as it crossed the line in the last
+	 * successful prediction.
+	 *
+	 * @return Y velocity
+	 */
+	public double getInterceptVelocityY()
+	{
+		return interceptVelocityY;
+	}
+	
+	/**
+	 * Get the number of steps taken by the last prediction, successful or not.
+	 *
+	 * @return Number of steps
+	 */
+	public int getSteps()
+	{
+		return steps;
+	}
+}
@@ -195,12 +195,14 @@ public class Vec2 implements Comparable<Vec2>
 	 * Compare the length of this vector with a given vector.
 	 * 
 	 * @param other Vector to compare with
-	 * @return 1 if this vector is longer than the other, -1 otherwise.
+	 * @return 1 if this vector is longer than the other, -1 if it is shorter
+	 * 			and 0 if they are the same length
 	 */
 	@Override
 	public int compareTo(Vec2 other)
 	{
-		return (length() - other.length() > 0) ? 1 : -1;
+		// no need for square roots to compare lengths
+		return Double.compare(x * x + y * y, other.x * other.x + other.y * other.y);
 	}
 	
 	/**
@@ -0,0 +1,263 @@
+package se.gunning.flongout.net;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import se.gunning.flongout.Clock;
+
+/**
+ * One end of a pair of transports that hand packets to each other within the
+ * same process, for trying out netplay on a single machine. Packets can be
+ * held back by some latency and jitter and be lost at random, just like on a
+ * real network. Jitter lets later packets overtake earlier ones.
+ *
+ * The time a packet arrives is measured on a given clock, so on a simulation
+ * clock a network with a given latency behaves the same every run.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-17
+ */
+public class LoopbackTransport implements Transport
+{
+	/**
+	 * A packet on its way.
+	 *
+	 * @author Mikael Forsberg
+	 * @author Robin Gunning
+	 * @author Jonathan Yao Håkansson
+	 * @version 2015-06-17
+	 */
+	private static class Packet implements Comparable<Packet>
+	{
+		/**
+		 * Contents of the packet.
+		 */
+		private byte[] data;
+		
+		/**
+		 * Time the packet arrives, in milliseconds.
+		 */
+		private long arrival;
+		
+		/**
+		 * Number of the packet, so that packets arriving at the same time
+		 * arrive in the order they were sent.
+		 */
+		private long sequence;
+		
+		@Override
+		public int compareTo(Packet other)
+		{
+			if (arrival != other.arrival)
+			{
+				return arrival < other.arrival ? -1 : 1;
+			}
+			
+			return Long.compare(sequence, other.sequence);
+		}
+	}
+	
+	/**
+	 * Clock measuring when packets arrive.
+	 */
+	private Clock clock;
+	
+	/**
+	 * Random number generator for jitter and loss.
+	 */
+	private Random rng;
+	
+	/**
+	 * Other end of the pair.
+	 */
+	private LoopbackTransport peer;
+	
+	/**
+	 * Packets on their way to this end, the first to arrive first.
+	 */
+	private PriorityQueue<Packet> inbox;
+	
+	/**
+	 * Number of packets sent from this end.
+	 */
+	private long sent;
+	
+	/**
+	 * Time every packet takes, in milliseconds.
+	 */
+	private long latency;
+	
+	/**
+	 * Most extra time a packet may take, in milliseconds.
+	 */
+	private long jitter;
+	
+	/**
+	 * Chance of a packet being lost.
+	 */
+	private double loss;
+	
+	/**
+	 * Is the transport closed?
+	 */
+	private boolean closed;
+	
+	/**
+	 * Create one end of a pair.
+	 *
+	 * @param clock Clock measuring when packets arrive
+	 * @param rng Random number generator for jitter and loss
+	 */
+	private LoopbackTransport(Clock clock, Random rng)
+	{
+		this.clock = clock;
+		this.rng = rng;
+		inbox = new PriorityQueue<Packet>();
+	}
+	
+	/**
+	 * Create a pair of transports sending to each other, with no latency,
+	 * jitter or loss to begin with.
+	 *
+	 * @param clock Clock measuring when packets arrive
+	 * @param seed Seed for the random jitter and loss
+	 * @return The two ends of the pair
+	 */
+	public static LoopbackTransport[] createPair(Clock clock, long seed)
+	{
+		Random rng = new Random(seed);
+		LoopbackTransport[] pair = new LoopbackTransport[]{new LoopbackTransport(clock, rng), new LoopbackTransport(clock, rng)};
+		
+		pair[0].peer = pair[1];
+		pair[1].peer = pair[0];
+		
+		return pair;
+	}
+	
+	/**
+	 * Set the time every packet sent from this end takes.
+	 *
+	 * @param millis Latency in milliseconds
+	 * @throws IllegalArgumentException If the latency is negative
+	 */
+	public void setLatency(long millis)
+	{
+		if (millis < 0)
+		{
+			throw new IllegalArgumentException("Latency can't be negative");
+		}
+		
+		latency = millis;
+	}
+	
+	/**
+	 * Set the most extra time a packet sent from this end may take. Each
+	 * packet takes a random extra time up to this.
+	 *
+	 * @param millis Jitter in milliseconds
+	 * @throws IllegalArgumentException If the jitter is negative
+	 */
+	public void setJitter(long millis)
+	{
+		if (millis < 0)
+		{
+			throw new IllegalArgumentException("Jitter can't be negative");
+		}
+		
+		jitter = millis;
+	}
+	
+	/**
+	 * Set the chance of a packet sent from this end being lost.
+	 *
+	 * @param loss Chance between 0 and 1
+	 * @throws IllegalArgumentException If the chance isn't between 0 and 1
+	 */
+	public void setLoss(double loss)
+	{
+		if (loss < 0.0 || loss > 1.0)
+		{
+			throw new IllegalArgumentException("Loss must be between 0 and 1");
+		}
+		
+		this.loss = loss;
+	}
+	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public void send(byte[] data, int length)
+	{
+		if (closed || peer.closed)
+		{
+			return;
+		}
+		
+		synchronized (rng)
+		{
+			if (rng.nextDouble() < loss)
+			{
+				return;
+			}
+			
+			Packet p = new Packet();
+			p.data = Arrays.copyOf(data, length);
+			p.arrival = clock.getTimeMillis() + latency;
+			p.sequence = sent++;
+			
+			if (jitter > 0)
+			{
+				p.arrival += (long)(rng.nextDouble() * (jitter + 1));
+			}
+			
+			synchronized (peer.inbox)
+			{
+				peer.inbox.add(p);
+			}
+		}
+	}
+	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public int receive(byte[] buffer)
+	{
+		Packet p;
+		
+		synchronized (inbox)
+		{
+			p = inbox.peek();
+			
+			if (p == null || p.arrival > clock.getTimeMillis())
+			{
+				return -1;
+			}
+			
+			inbox.poll();
+		}
+		
+		int length = Math.min(p.data.length, buffer.length);
+		System.arraycopy(p.data, 0, buffer, 0, length);
+		
+		return length;
+	}
+	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public void close()
+	{
+		closed = true;
+		
+		synchronized (inbox)
+		{
+			inbox.clear();
+		}
+	}
+}
@@ -0,0 +1,544 @@
+package se.gunning.flongout.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import se.gunning.flongout.Controller;
+import se.gunning.flongout.GameScene;
+import se.gunning.flongout.Replay;
+import se.gunning.flongout.SimulationClock;
+
+/**
+ * Plays a game against a player on another machine without waiting for their
+ * input. Every tick the local input is sent to the other player, and the game
+ * goes on with a guess at theirs: that they are still doing what they did in
+ * the last tick we heard about. When their real input for a tick arrives and
+ * it differs from the guess, the game is put back the way it was at that tick
+ * and the ticks since are played again with the right input, all within the
+ * same frame. Both players end up with the same game, since the game does the
+ * same thing given the same inputs.
+ *
+ * Inputs are sent the way replays store them, as button bits and fixed point
+ * stick components, and the local input is rounded off the same way before
+ * it is used so that both players play with exactly the same numbers. Each
+ * packet carries every input the other player hasn't told us they have, so a
+ * lost packet costs nothing as long as the next one gets through.
+ *
+ * The game is at most MAX_ROLLBACK ticks ahead of the last tick it has the
+ * other player's input for. If it gets that far ahead it waits for them
+ * instead of ticking.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-17
+ */
+public class RollbackSession
+{
+	/**
+	 * Most ticks the game goes ahead of the other player's input.
+	 */
+	public static final int MAX_ROLLBACK = 15;
+	
+	/**
+	 * Number of ticks of input kept. Enough for both players to be as far
+	 * ahead of each other as they're allowed, twice over.
+	 */
+	private static final int INPUT_TICKS = 64;
+	
+	/**
+	 * Most inputs sent in one packet.
+	 */
+	private static final int MAX_INPUTS_PER_PACKET = INPUT_TICKS / 2;
+	
+	/**
+	 * Start of every packet, "FLNP".
+	 */
+	private static final int MAGIC = 0x464C4E50;
+	
+	/**
+	 * Bytes of the packet header: magic, acknowledged tick, first tick and
+	 * number of inputs.
+	 */
+	private static final int HEADER_SIZE = 4 + 8 + 8 + 1;
+	
+	/**
+	 * Bytes per input: button bits and four stick components.
+	 */
+	private static final int INPUT_SIZE = 1 + 4 * 2;
+	
+	/**
+	 * The game being played.
+	 */
+	private GameScene game;
+	
+	/**
+	 * Clock of the game, which also counts the ticks.
+	 */
+	private SimulationClock clock;
+	
+	/**
+	 * Index of the local player.
+	 */
+	private int local;
+	
+	/**
+	 * Transport to the other player.
+	 */
+	private Transport transport;
+	
+	/**
+	 * Inputs of both players, by player and tick, as button bits and stick
+	 * components. For the other player these are their real inputs where we
+	 * have them and the guesses that were played with otherwise.
+	 */
+	private int[][] buttons;
+	private short[][][] sticks;
+	
+	/**
+	 * Tick of the real input of the other player kept in each slot, or -1.
+	 */
+	private long[] received;
+	
+	/**
+	 * Snapshots of the game at the start of each of the last ticks.
+	 */
+	private GameScene.Snapshot[] snapshots;
+	
+	/**
+	 * Tick the game is about to play.
+	 */
+	private long tick;
+	
+	/**
+	 * Number of ticks we have all the other player's input for.
+	 */
+	private long confirmed;
+	
+	/**
+	 * Number of ticks the other player has all our input for, as far as we
+	 * know.
+	 */
+	private long acknowledged;
+	
+	/**
+	 * First tick played with a wrong guess, or -1 if none.
+	 */
+	private long firstWrong;
+	
+	/**
+	 * Controllers the game is ticked with.
+	 */
+	private Controller[] controllers;
+	
+	/**
+	 * Buffers for packets.
+	 */
+	private byte[] sendBuffer;
+	private byte[] receiveBuffer;
+	
+	/**
+	 * Counters for rollbacks, ticks played again, and waits for the other
+	 * player.
+	 */
+	private long rollbacks;
+	private long resimulatedTicks;
+	private long stalls;
+	
+	/**
+	 * Most ticks played again in a single rollback.
+	 */
+	private int deepestRollback;
+	
+	/**
+	 * Create a new session for a game that hasn't started. The game must be
+	 * run on the given clock, and the other player must have created their
+	 * game with the same seed and settings.
+	 *
+	 * @param game The game, initialized and not yet ticked
+	 * @param clock Clock of the game
+	 * @param localPlayer Index of the local player, 0 or 1
+	 * @param transport Transport to the other player
+	 * @throws IllegalArgumentException If the player index isn't 0 or 1, or the
+	 * 			game isn't on the given clock
+	 */
+	public RollbackSession(GameScene game, SimulationClock clock, int localPlayer, Transport transport)
+	{
+		if (localPlayer != 0 && localPlayer != 1)
+		{
+			throw new IllegalArgumentException("Player must be 0 or 1");
+		}
+		
+		if (game.getClock() != clock)
+		{
+			throw new IllegalArgumentException("The game must run on the given clock");
+		}
+		
+		this.game = game;
+		this.clock = clock;
+		this.local = localPlayer;
+		this.transport = transport;
+		
+		buttons = new int[2][INPUT_TICKS];
+		sticks = new short[2][INPUT_TICKS][4];
+		received = new long[INPUT_TICKS];
+		
+		for (int i = 0; i < INPUT_TICKS; ++i)
+		{
+			received[i] = -1;
+		}
+		
+		snapshots = new GameScene.Snapshot[MAX_ROLLBACK + 1];
+		
+		for (int i = 0; i < snapshots.length; ++i)
+		{
+			snapshots[i] = new GameScene.Snapshot();
+		}
+		
+		controllers = new Controller[]{new Controller(), new Controller()};
+		sendBuffer = new byte[HEADER_SIZE + MAX_INPUTS_PER_PACKET * INPUT_SIZE];
+		receiveBuffer = new byte[sendBuffer.length];
+		
+		tick = clock.getTicks();
+		confirmed = tick;
+		acknowledged = tick;
+		firstWrong = -1;
+	}
+	
+	/**
+	 * Play a tick with the given local input, unless the game is too far
+	 * ahead of the other player, in which case it waits for them. Either way,
+	 * the input of the other player that has arrived is taken in and any
+	 * wrong guesses are put right first. Call once per tick.
+	 *
+	 * @param input Input of the local player. Its sticks are rounded off the
+	 * 			way they are sent.
+	 * @return True if a tick was played, false if waiting for the other player
+	 * @throws IOException If the transport failed
+	 */
+	public boolean advance(Controller input) throws IOException
+	{
+		receive();
+		rollback();
+		
+		if (tick - confirmed >= MAX_ROLLBACK)
+		{
+			++stalls;
+			send(tick);
+			
+			return false;
+		}
+		
+		int slot = slot(tick);
+		buttons[local][slot] = encode(input, sticks[local][slot]);
+		decode(buttons[local][slot], sticks[local][slot], input);
+		
+		send(tick + 1);
+		play();
+		
+		return true;
+	}
+	
+	/**
+	 * Take in the input of the other player that has arrived, put any wrong
+	 * guesses right, and send our input again, without playing a tick. For
+	 * keeping in touch while the game isn't being played, such as when it is
+	 * over.
+	 *
+	 * @throws IOException If the transport failed
+	 */
+	public void poll() throws IOException
+	{
+		receive();
+		rollback();
+		send(tick);
+	}
+	
+	/**
+	 * Play the tick the game is on, guessing the other player's input if it
+	 * hasn't arrived, and snapshot the game first so that it can be played
+	 * again.
+	 */
+	private void play()
+	{
+		int slot = slot(tick);
+		int remote = 1 - local;
+		
+		game.snapshot(snapshots[(int)(tick % snapshots.length)]);
+		
+		// guess that the other player does what they did last
+		if (received[slot] != tick)
+		{
+			int last = slot(confirmed - 1);
+			
+			if (confirmed > 0 && received[last] == confirmed - 1)
+			{
+				buttons[remote][slot] = buttons[remote][last];
+				System.arraycopy(sticks[remote][last], 0, sticks[remote][slot], 0, 4);
+			}
+			else
+			{
+				buttons[remote][slot] = 0;
+				sticks[remote][slot][0] = sticks[remote][slot][1] = sticks[remote][slot][2] = sticks[remote][slot][3] = 0;
+			}
+		}
+		
+		for (int i = 0; i < 2; ++i)
+		{
+			decode(buttons[i][slot], sticks[i][slot], controllers[i]);
+		}
+		
+		game.tick(controllers);
+		clock.tick();
+		++tick;
+	}
+	
+	/**
+	 * Put the game back to the first tick played with a wrong guess, and play
+	 * the ticks since again, quietly.
+	 */
+	private void rollback()
+	{
+		if (firstWrong < 0)
+		{
+			return;
+		}
+		
+		long end = tick;
+		int depth = (int)(end - firstWrong);
+		
+		game.restore(snapshots[(int)(firstWrong % snapshots.length)]);
+		tick = firstWrong;
+		firstWrong = -1;
+		
+		game.setMuted(true);
+		
+		while (tick < end)
+		{
+			play();
+		}
+		
+		game.setMuted(false);
+		
+		++rollbacks;
+		resimulatedTicks += depth;
+		deepestRollback = Math.max(deepestRollback, depth);
+	}
+	
+	/**
+	 * Send the inputs the other player hasn't told us they have, along with
+	 * how many of theirs we have.
+	 *
+	 * @param end Tick after the last input to send
+	 * @throws IOException If the transport failed
+	 */
+	private void send(long end) throws IOException
+	{
+		long first = Math.max(acknowledged, end - MAX_INPUTS_PER_PACKET);
+		int count = (int)Math.max(0, end - first);
+		
+		ByteBuffer bb = ByteBuffer.wrap(sendBuffer);
+		bb.putInt(MAGIC);
+		bb.putLong(confirmed);
+		bb.putLong(first);
+		bb.put((byte)count);
+		
+		for (long t = first; t < first + count; ++t)
+		{
+			int slot = slot(t);
+			
+			bb.put((byte)buttons[local][slot]);
+			
+			for (int j = 0; j < 4; ++j)
+			{
+				bb.putShort(sticks[local][slot][j]);
+			}
+		}
+		
+		transport.send(sendBuffer, bb.position());
+	}
+	
+	/**
+	 * Take in every packet that has arrived from the other player, noting
+	 * where their real input differs from what was guessed.
+	 *
+	 * @throws IOException If the transport failed
+	 */
+	private void receive() throws IOException
+	{
+		int remote = 1 - local;
+		int length;
+		
+		while ((length = transport.receive(receiveBuffer)) >= 0)
+		{
+			if (length < HEADER_SIZE)
+			{
+				continue;
+			}
+			
+			ByteBuffer bb = ByteBuffer.wrap(receiveBuffer, 0, length);
+			
+			if (bb.getInt() != MAGIC)
+			{
+				continue;
+			}
+			
+			acknowledged = Math.max(acknowledged, bb.getLong());
+			long first = bb.getLong();
+			int count = bb.get() & 0xff;
+			
+			if (length < HEADER_SIZE + count * INPUT_SIZE)
+			{
+				continue;
+			}
+			
+			for (long t = first; t < first + count; ++t)
+			{
+				int bits = bb.get() & 0xff;
+				int slot = slot(t);
+				
+				// already have it, or too far off to keep
+				if (t < confirmed || t >= confirmed + INPUT_TICKS / 2 || received[slot] == t)
+				{
+					bb.position(bb.position() + 4 * 2);
+					continue;
+				}
+				
+				boolean same = buttons[remote][slot] == bits;
+				
+				for (int j = 0; j < 4; ++j)
+				{
+					short s = bb.getShort();
+					same = same && sticks[remote][slot][j] == s;
+					sticks[remote][slot][j] = s;
+				}
+				
+				buttons[remote][slot] = bits;
+				received[slot] = t;
+				
+				// played with a wrong guess?
+				if (t < tick && !same && (firstWrong < 0 || t < firstWrong))
+				{
+					firstWrong = t;
+				}
+			}
+			
+			while (received[slot(confirmed)] == confirmed)
+			{
+				++confirmed;
+			}
+		}
+	}
+	
+	/**
+	 * Encode an input as button bits and fixed point stick components.
+	 *
+	 * @param c Controller to encode
+	 * @param s Array to put the four stick components in
+	 * @return Button bits
+	 */
+	private static int encode(Controller c, short[] s)
+	{
+		s[0] = Replay.quantize(c.leftAnalog.getDirection().x);
+		s[1] = Replay.quantize(c.leftAnalog.getDirection().y);
+		s[2] = Replay.quantize(c.rightAnalog.getDirection().x);
+		s[3] = Replay.quantize(c.rightAnalog.getDirection().y);
+		
+		int bits = 0;
+		bits |= c.buttonOne.isPressed() ? Replay.BUTTON_ONE : 0;
+		bits |= c.buttonTwo.isPressed() ? Replay.BUTTON_TWO : 0;
+		bits |= c.buttonThree.isPressed() ? Replay.BUTTON_THREE : 0;
+		
+		return bits;
+	}
+	
+	/**
+	 * Decode an input into a controller.
+	 *
+	 * @param bits Button bits
+	 * @param s The four stick components
+	 * @param c Controller to decode into
+	 */
+	private static void decode(int bits, short[] s, Controller c)
+	{
+		c.leftAnalog.setDirection(Replay.dequantize(s[0]), Replay.dequantize(s[1]));
+		c.rightAnalog.setDirection(Replay.dequantize(s[2]), Replay.dequantize(s[3]));
+		c.buttonOne.setPressed((bits & Replay.BUTTON_ONE) != 0);
+		c.buttonTwo.setPressed((bits & Replay.BUTTON_TWO) != 0);
+		c.buttonThree.setPressed((bits & Replay.BUTTON_THREE) != 0);
+	}
+	
+	/**
+	 * Get the slot of a tick in the input arrays.
+	 *
+	 * @param t Tick
+	 * @return Slot
+	 */
+	private static int slot(long t)
+	{
+		return (int)(t % INPUT_TICKS);
+	}
+	
+	/**
+	 * Get the tick the game is about to play.
+	 *
+	 * @return Tick
+	 */
+	public long getTick()
+	{
+		return tick;
+	}
+	
+	/**
+	 * Get the number of ticks played with the other player's real input, and
+	 * so certain to be the same for both players.
+	 *
+	 * @return Number of ticks
+	 */
+	public long getConfirmedTick()
+	{
+		return Math.min(tick, confirmed);
+	}
+	
+	/**
+	 * Get the number of times the game has been put back to put a wrong guess
+	 * right.
+	 *
+	 * @return Number of rollbacks
+	 */
+	public long getRollbacks()
+	{
+		return rollbacks;
+	}
+	
+	/**
+	 * Get the number of ticks played again after rollbacks.
+	 *
+	 * @return Number of ticks
+	 */
+	public long getResimulatedTicks()
+	{
+		return resimulatedTicks;
+	}
+	
+	/**
+	 * Get the most ticks played again in a single rollback.
+	 *
+	 * @return Number of ticks
+	 */
+	public int getDeepestRollback()
+	{
+		return deepestRollback;
+	}
+	
+	/**
+	 * Get the number of times the game waited for the other player instead
+	 * of ticking.
+	 *
+	 * @return Number of waits
+	 */
+	public long getStalls()
+	{
+		return stalls;
+	}
+}
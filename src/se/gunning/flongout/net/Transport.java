@@ -0,0 +1,42 @@
+package se.gunning.flongout.net;
+
+import java.io.IOException;
+
+/**
+ * A way of sending packets to the other player and receiving theirs. Packets
+ * may be lost, come twice or come out of order, like UDP datagrams; whoever
+ * uses a transport has to cope. Neither sending nor receiving ever waits.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-17
+ */
+public interface Transport
+{
+	/**
+	 * Send a packet to the other player.
+	 *
+	 * @param data Buffer holding the packet
+	 * @param length Length of the packet
+	 * @throws IOException If the packet couldn't be sent
+	 */
+	public void send(byte[] data, int length) throws IOException;
+	
+	/**
+	 * Receive a packet from the other player, if one has arrived. Packets
+	 * longer than the buffer are cut short.
+	 *
+	 * @param buffer Buffer to receive the packet into
+	 * @return Length of the packet, or -1 if no packet has arrived
+	 * @throws IOException If receiving failed
+	 */
+	public int receive(byte[] buffer) throws IOException;
+	
+	/**
+	 * Close the transport.
+	 *
+	 * @throws IOException If closing failed
+	 */
+	public void close() throws IOException;
+}
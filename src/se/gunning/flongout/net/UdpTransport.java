@@ -0,0 +1,90 @@
+package se.gunning.flongout.net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * A transport sending UDP datagrams between two fixed addresses. The channel
+ * is non-blocking, so the game can poll it once per frame.
+ *
+ * @author Mikael Forsberg
+ * @author Robin Gunning
+ * @author Jonathan Yao Håkansson
+ * @version 2015-06-17
+ */
+public class UdpTransport implements Transport
+{
+	/**
+	 * Channel connected to the other player.
+	 */
+	private DatagramChannel channel;
+	
+	/**
+	 * Create a new UDP transport.
+	 *
+	 * @param localPort Port to receive on
+	 * @param remote Address of the other player
+	 * @throws IOException If the port couldn't be bound
+	 */
+	public UdpTransport(int localPort, SocketAddress remote) throws IOException
+	{
+		channel = DatagramChannel.open();
+		channel.configureBlocking(false);
+		channel.bind(new InetSocketAddress(localPort));
+		
+		// only take packets from the other player
+		channel.connect(remote);
+	}
+	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public void send(byte[] data, int length) throws IOException
+	{
+		try
+		{
+			channel.write(ByteBuffer.wrap(data, 0, length));
+		}
+		catch (PortUnreachableException e)
+		{
+			// the other player isn't listening yet; the packet is just lost
+		}
+	}
+	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public int receive(byte[] buffer) throws IOException
+	{
+		ByteBuffer bb = ByteBuffer.wrap(buffer);
+		
+		try
+		{
+			if (channel.receive(bb) == null)
+			{
+				return -1;
+			}
+		}
+		catch (PortUnreachableException e)
+		{
+			return -1;
+		}
+		
+		return bb.position();
+	}
+	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+}
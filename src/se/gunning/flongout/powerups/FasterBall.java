@@ -1,5 +1,6 @@
 package se.gunning.flongout.powerups;
 
+import se.gunning.flongout.Ball;
 import se.gunning.flongout.GameScene;
 import se.gunning.flongout.Paddle;
 import se.gunning.flongout.Powerup;
@@ -17,7 +18,10 @@ public class FasterBall extends Powerup {
 	 */
 	@Override
 	public void applyStaticEffects(Paddle collector, Paddle other,GameScene game) {
-	game.getBall().accelerate(game.getBall().getVelocity().normalize().scale(faster));	
+	for (Ball b : game.getBalls())
+	{
+		b.accelerate(b.getVelocity().normalize().scale(faster));
+	}
 		
 	}
 	/**
@@ -28,6 +32,13 @@ public class FasterBall extends Powerup {
 			GameScene game) {
 		
 	}
+	/**
+	 * A burst of speed is over at once, there's nothing to take away
+	 */
+	@Override
+	public int getDuration() {
+		return 0;
+	}
 	/**
 	 * Returns Type that is normal
 	 */
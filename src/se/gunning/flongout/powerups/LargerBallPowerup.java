@@ -1,5 +1,6 @@
 package se.gunning.flongout.powerups;
 
+import se.gunning.flongout.Ball;
 import se.gunning.flongout.GameScene;
 import se.gunning.flongout.Paddle;
 import se.gunning.flongout.Powerup;
@@ -33,8 +34,10 @@ public class LargerBallPowerup extends Powerup
 	public void applyStaticEffects(Paddle collector, Paddle other, GameScene game)
 	{
 		// make the ball larger
-		game.getBall().setRadius(0.6);
-		game.rescaleGraphics();
+		for (Ball b : game.getBalls())
+		{
+			b.setRadius(0.6);
+		}
 	}
 	
 	/**
@@ -44,8 +47,28 @@ public class LargerBallPowerup extends Powerup
 	public void removeStaticEffects(Paddle collector, Paddle other, GameScene game)
 	{
 		// make the ball normal size
-		game.getBall().setRadius(0.15);
-		game.rescaleGraphics();
+		for (Ball b : game.getBalls())
+		{
+			b.setRadius(0.15);
+		}
+	}
+	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public String getEffectGroup()
+	{
+		return "ball-size";
+	}
+	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public Stacking getStacking()
+	{
+		return Stacking.REPLACE;
 	}
 	
 	/**
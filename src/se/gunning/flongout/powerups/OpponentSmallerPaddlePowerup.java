@@ -40,7 +40,6 @@ public class OpponentSmallerPaddlePowerup extends Powerup
 	{
 		opponent = other;
 		other.setScale(0.7);
-		game.rescaleGraphics();
 	}
 	
 	/**
@@ -52,10 +51,36 @@ public class OpponentSmallerPaddlePowerup extends Powerup
 		if (opponent != null)
 		{
 			opponent.setScale(1.0);
-			game.rescaleGraphics();
 		}
 	}
 	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public String getEffectGroup()
+	{
+		return "paddle-size";
+	}
+	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public Object getEffectTarget(Paddle collector, Paddle other)
+	{
+		return other;
+	}
+	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public Stacking getStacking()
+	{
+		return Stacking.REPLACE;
+	}
+	
 	/**
 	 * @{inheritDoc}
 	 */
@@ -1,5 +1,6 @@
 package se.gunning.flongout.powerups;
 
+import se.gunning.flongout.Ball;
 import se.gunning.flongout.GameScene;
 import se.gunning.flongout.Paddle;
 import se.gunning.flongout.Powerup;
@@ -33,7 +34,10 @@ public class PowerfulBallPowerup extends Powerup
 	public void applyStaticEffects(Paddle collector, Paddle other, GameScene game)
 	{
 		// increase the power of the ball
-		game.getBall().setPenetrationPower(3);
+		for (Ball b : game.getBalls())
+		{
+			b.setPenetrationPower(3);
+		}
 	}
 	
 	/**
@@ -43,7 +47,10 @@ public class PowerfulBallPowerup extends Powerup
 	public void removeStaticEffects(Paddle collector, Paddle other, GameScene game)
 	{
 		// reset the power of the ball
-		game.getBall().setPenetrationPower(1);
+		for (Ball b : game.getBalls())
+		{
+			b.setPenetrationPower(1);
+		}
 	}
 	
 	/**
@@ -73,6 +73,15 @@ public class SelfBiggerAreaPowerup extends Powerup
 		}
 	}
 	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public Object getEffectTarget(Paddle collector, Paddle other)
+	{
+		return collector;
+	}
+	
 	/**
 	 * @{inheritDoc}
 	 */
@@ -41,7 +41,6 @@ public class SelfBiggerPaddlePowerup extends Powerup
 	{
 		self = collector;
 		self.setScale(1.5);
-		game.rescaleGraphics();
 	}
 	
 	/**
@@ -53,10 +52,36 @@ public class SelfBiggerPaddlePowerup extends Powerup
 		if (self != null)
 		{
 			self.setScale(1.0);
-			game.rescaleGraphics();
 		}
 	}
 	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public String getEffectGroup()
+	{
+		return "paddle-size";
+	}
+	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public Object getEffectTarget(Paddle collector, Paddle other)
+	{
+		return collector;
+	}
+	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public Stacking getStacking()
+	{
+		return Stacking.REPLACE;
+	}
+	
 	/**
 	 * @{inheritDoc}
 	 */
@@ -45,7 +45,6 @@ public class SelfSmallerPaddlePowerup extends Powerup
 	{
 		self = collector;
 		self.setScale(0.5);
-		game.rescaleGraphics();
 	}
 	
 	/**
@@ -57,10 +56,36 @@ public class SelfSmallerPaddlePowerup extends Powerup
 		if (self != null)
 		{
 			self.setScale(1.0);
-			game.rescaleGraphics();
 		}
 	}
 	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public String getEffectGroup()
+	{
+		return "paddle-size";
+	}
+	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public Object getEffectTarget(Paddle collector, Paddle other)
+	{
+		return collector;
+	}
+	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public Stacking getStacking()
+	{
+		return Stacking.REPLACE;
+	}
+	
 	/**
 	 * @{inheritDoc}
 	 */
@@ -2,6 +2,7 @@ package se.gunning.flongout.powerups;
 
 import org.newdawn.slick.Color;
 
+import se.gunning.flongout.Ball;
 import se.gunning.flongout.GameScene;
 import se.gunning.flongout.Paddle;
 import se.gunning.flongout.Powerup;
@@ -37,8 +38,10 @@ public class SmallerBallPowerup extends Powerup
 	public void applyStaticEffects(Paddle collector, Paddle other, GameScene game)
 	{
 		// make the ball smaller
-		game.getBall().setRadius(0.08);
-		game.rescaleGraphics();
+		for (Ball b : game.getBalls())
+		{
+			b.setRadius(0.08);
+		}
 	}
 	
 	/**
@@ -48,8 +51,28 @@ public class SmallerBallPowerup extends Powerup
 	public void removeStaticEffects(Paddle collector, Paddle other, GameScene game)
 	{
 		// set the normal size
-		game.getBall().setRadius(0.15);
-		game.rescaleGraphics();
+		for (Ball b : game.getBalls())
+		{
+			b.setRadius(0.15);
+		}
+	}
+	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public String getEffectGroup()
+	{
+		return "ball-size";
+	}
+	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public Stacking getStacking()
+	{
+		return Stacking.REPLACE;
 	}
 	
 	/**
@@ -0,0 +1,76 @@
+package se.gunning.flongout;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import org.junit.Test;
+import org.newdawn.slick.openal.OggData;
+import org.newdawn.slick.openal.OggDecoder;
+
+public class AssetManagerTest
+{
+	@Test
+	public void testWavHeader() throws Exception
+	{
+		OggData ogg = new OggData();
+		ogg.channels = 2;
+		ogg.rate = 22050;
+		ogg.data = ByteBuffer.allocateDirect(8).order(ByteOrder.nativeOrder());
+		ogg.data.putShort((short)1).putShort((short)-2).putShort((short)300).putShort((short)-400);
+		ogg.data.rewind();
+		
+		byte[] wav = AssetManager.toWav(ogg);
+		assertEquals(44 + 8, wav.length);
+		
+		AudioInputStream in = AudioSystem.getAudioInputStream(new ByteArrayInputStream(wav));
+		AudioFormat format = in.getFormat();
+		
+		assertEquals(2, format.getChannels());
+		assertEquals(22050.0f, format.getSampleRate(), 0.0f);
+		assertEquals(16, format.getSampleSizeInBits());
+		assertFalse(format.isBigEndian());
+		assertEquals(2, in.getFrameLength());
+		
+		ByteBuffer samples = ByteBuffer.wrap(wav, 44, 8).order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(1, samples.getShort());
+		assertEquals(-2, samples.getShort());
+		assertEquals(300, samples.getShort());
+		assertEquals(-400, samples.getShort());
+	}
+	
+	@Test
+	public void testDecodedSoundIsAWav() throws Exception
+	{
+		InputStream in = new FileInputStream("assets/sounds/hit.ogg");
+		OggData ogg = new OggDecoder().getData(in);
+		in.close();
+		
+		byte[] wav = AssetManager.toWav(ogg);
+		AudioInputStream stream = AudioSystem.getAudioInputStream(new ByteArrayInputStream(wav));
+		
+		assertEquals(ogg.channels, stream.getFormat().getChannels());
+		assertEquals(ogg.data.capacity(), stream.getFrameLength() * 2 * ogg.channels);
+	}
+	
+	@Test
+	public void testNoWorkers()
+	{
+		try
+		{
+			new AssetManager(0);
+			fail("Expected an IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e)
+		{
+		}
+	}
+}
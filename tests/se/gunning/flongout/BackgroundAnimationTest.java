@@ -0,0 +1,46 @@
+package se.gunning.flongout;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class BackgroundAnimationTest
+{
+	@Test
+	public void testEveryBeatLooksTheSame()
+	{
+		for (int step = 0; step < BackgroundAnimation.STEPS; ++step)
+		{
+			double phase = BackgroundAnimation.getStepPhase(step);
+			
+			// the innermost circle shrinks to nothing once per beat
+			for (int i = 1; i < BackgroundAnimation.CIRCLES; ++i)
+			{
+				assertEquals(BackgroundAnimation.getRadius(phase, i), BackgroundAnimation.getRadius(phase + 7 * Math.PI, i), 1e-9);
+				
+				for (int c = 0; c < 3; ++c)
+				{
+					assertEquals(BackgroundAnimation.getColor(phase, i, c), BackgroundAnimation.getColor(phase + 7 * Math.PI, i, c), 1e-4f);
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testSteps()
+	{
+		assertEquals(0, BackgroundAnimation.getStep(0.0));
+		assertEquals(0, BackgroundAnimation.getStep(Math.PI));
+		assertEquals(0, BackgroundAnimation.getStep(-Math.PI));
+		assertEquals(BackgroundAnimation.STEPS / 2, BackgroundAnimation.getStep(0.5 * Math.PI));
+		assertEquals(BackgroundAnimation.STEPS / 4, BackgroundAnimation.getStep(100.25 * Math.PI));
+		
+		// just before the end of a beat is closest to the start of the next
+		assertEquals(0, BackgroundAnimation.getStep(Math.PI - 1e-6));
+		
+		for (int step = 0; step < BackgroundAnimation.STEPS; ++step)
+		{
+			assertEquals(step, BackgroundAnimation.getStep(BackgroundAnimation.getStepPhase(step)));
+		}
+	}
+}
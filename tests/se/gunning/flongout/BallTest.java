@@ -94,6 +94,23 @@ public class BallTest
 		assertEquals(-4.5, b.getVelocity().y, 0.0);
 	}
 	
+	@Test
+	public void testInterpolation()
+	{
+		Ball b = new Ball(radius);
+		
+		b.setPosition(new Vec2(1.0, 2.0));
+		b.storePreviousPosition();
+		b.move(4.0, -2.0);
+		
+		assertEquals(1.0, b.getInterpolatedX(0.0), 0.0);
+		assertEquals(2.0, b.getInterpolatedY(0.0), 0.0);
+		assertEquals(3.0, b.getInterpolatedX(0.5), 1e-12);
+		assertEquals(1.0, b.getInterpolatedY(0.5), 1e-12);
+		assertEquals(5.0, b.getInterpolatedX(1.0), 1e-12);
+		assertEquals(0.0, b.getInterpolatedY(1.0), 1e-12);
+	}
+	
 	@Test
 	public void testPenetrationPower()
 	{
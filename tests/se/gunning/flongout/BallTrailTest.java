@@ -0,0 +1,87 @@
+package se.gunning.flongout;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class BallTrailTest
+{
+	@Test
+	public void testFillingUp()
+	{
+		BallTrail trail = new BallTrail(3);
+		assertEquals(0, trail.size());
+		assertEquals(3, trail.getCapacity());
+		
+		trail.add(1.0, 10.0);
+		trail.add(2.0, 20.0);
+		
+		assertEquals(2, trail.size());
+		assertEquals(1.0, trail.getX(0), 0.0);
+		assertEquals(20.0, trail.getY(1), 0.0);
+	}
+	
+	@Test
+	public void testOldestPointsAreDropped()
+	{
+		BallTrail trail = new BallTrail(3);
+		
+		for (int i = 0; i < 10; ++i)
+		{
+			trail.add(i, -i);
+		}
+		
+		assertEquals(3, trail.size());
+		
+		for (int i = 0; i < 3; ++i)
+		{
+			assertEquals(7.0 + i, trail.getX(i), 0.0);
+			assertEquals(-7.0 - i, trail.getY(i), 0.0);
+		}
+	}
+	
+	@Test
+	public void testClear()
+	{
+		BallTrail trail = new BallTrail(2);
+		trail.add(1.0, 1.0);
+		trail.add(2.0, 2.0);
+		trail.add(3.0, 3.0);
+		trail.clear();
+		
+		assertEquals(0, trail.size());
+		
+		trail.add(4.0, 4.0);
+		assertEquals(1, trail.size());
+		assertEquals(4.0, trail.getX(0), 0.0);
+	}
+	
+	@Test
+	public void testOutOfRange()
+	{
+		BallTrail trail = new BallTrail(4);
+		trail.add(1.0, 1.0);
+		
+		try
+		{
+			trail.getX(1);
+			fail("Expected an IndexOutOfBoundsException");
+		}
+		catch (IndexOutOfBoundsException e)
+		{
+		}
+	}
+	
+	@Test
+	public void testTooShort()
+	{
+		try
+		{
+			new BallTrail(1);
+			fail("Expected an IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e)
+		{
+		}
+	}
+}
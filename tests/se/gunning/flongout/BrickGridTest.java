@@ -2,6 +2,9 @@ package se.gunning.flongout;
 
 import static org.junit.Assert.*;
 
+import java.io.StringReader;
+import java.util.Random;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -17,5 +20,178 @@ public class BrickGridTest {
 		
 		assertEquals(grid.getRect(), new Rect(0.0, 0.0, 1.0, 1.0));
 	}
+	
+	@Test
+	public void testGetBrickRect() {
+		Physics world = new Physics();
+		BrickGrid grid = new BrickGrid(new Rect(-0.5, -2.0, 1.0, 4.0), 2, 2, new Random(3));
+		Physics.CollisionAction action = grid.getCollisionAction();
+		Ball ball = new Ball(0.15);
+		
+		ball.setPosition(10.0, 10.0);
+		ball.setPenetrationPower(3);
+		world.addBall(ball);
+		
+		assertNull(grid.getBrickRect(1, 1));
+		
+		for (int i = 0; i < 4; ++i) {
+			grid.spawnRandomBrick(world);
+		}
+		
+		Rect wall = grid.getBrickRect(1, 1);
+		assertEquals(new Rect(0.0, 0.0, 0.5, 2.0), wall);
+		assertEquals("brickgrid-brick", world.getGroupForWall(wall));
+		
+		action.onCollision(ball, wall, "brickgrid-brick", world);
+		assertNull(grid.getBrickRect(1, 1));
+		assertEquals(3, grid.getBrickCount());
+		
+		try {
+			grid.getBrickRect(2, 0);
+			fail("Expected an IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+	
+	@Test
+	public void testSnapshotRestore() {
+		Physics world = new Physics();
+		BrickGrid grid = new BrickGrid(new Rect(-0.5, -2.0, 1.0, 4.0), 2, 2, new Random(3));
+		Physics.CollisionAction action = grid.getCollisionAction();
+		Ball ball = new Ball(0.15);
+		
+		// broken bricks are removed when a ball is stepped, so keep one well away
+		ball.setPosition(10.0, 10.0);
+		world.addBall(ball);
+		
+		grid.spawnRandomBrick(world);
+		grid.spawnRandomBrick(world);
+		
+		BrickGrid.Snapshot bricks = grid.snapshot();
+		Physics.Snapshot walls = world.snapshot();
+		long version = grid.getVersion();
+		
+		// break a brick, which takes up to three hits
+		Rect wall = new Rect(0.0, 0.0, 0.5, 2.0);
+		int hits = 0;
+		
+		while (world.getWallCount() == 2 && hits < 3) {
+			action.onCollision(ball, wall, "brickgrid-brick", world);
+			world.step(0.0);
+			++hits;
+		}
+		
+		assertEquals(1, world.getWallCount());
+		assertTrue(grid.getVersion() != version);
+		
+		grid.restore(bricks);
+		world.restore(walls);
+		
+		assertEquals(version, grid.getVersion());
+		assertEquals(2, world.getWallCount());
+		
+		// the restored brick takes as many hits to break again
+		for (int i = 0; i < hits; ++i) {
+			assertEquals(2, world.getWallCount());
+			action.onCollision(ball, wall, "brickgrid-brick", world);
+			world.step(0.0);
+		}
+		
+		assertEquals(1, world.getWallCount());
+	}
+	
+	@Test
+	public void testFillAndBreakGrid() {
+		Physics world = new Physics();
+		BrickGrid grid = new BrickGrid(new Rect(-4.0, -4.0, 8.0, 8.0), 64, 64, new Random(5));
+		Physics.CollisionAction action = grid.getCollisionAction();
+		Ball ball = new Ball(0.15);
+		
+		ball.setPosition(10.0, 10.0);
+		ball.setPenetrationPower(3);
+		world.addBall(ball);
+		
+		// more than fits, the rest do nothing
+		for (int i = 0; i < 64 * 64 + 10; ++i) {
+			grid.spawnRandomBrick(world);
+		}
+		
+		assertEquals(64 * 64, grid.getBrickCount());
+		assertEquals(64 * 64, world.getWallCount());
+		
+		// walls that aren't bricks of the grid are left alone
+		action.onCollision(ball, new Rect(-4.0, -4.0, 8.0, 8.0), "brickgrid-brick", world);
+		action.onCollision(ball, new Rect(-4.0, -4.0, 0.125, 0.125), "static", world);
+		assertEquals(64 * 64, grid.getBrickCount());
+		
+		// break a row, each brick in one hit
+		for (int j = 0; j < 64; ++j) {
+			action.onCollision(ball, new Rect(-4.0 + j * 0.125, 0.0, 0.125, 0.125), "brickgrid-brick", world);
+		}
+		
+		world.step(0.0);
+		
+		assertEquals(63 * 64, grid.getBrickCount());
+		assertEquals(63 * 64, world.getWallCount());
+		
+		// and they all come back
+		for (int j = 0; j < 64; ++j) {
+			grid.spawnRandomBrick(world);
+		}
+		
+		assertEquals(64 * 64, grid.getBrickCount());
+		assertEquals(64 * 64, world.getWallCount());
+	}
+	
+	@Test
+	public void testLoadLayout() throws Exception {
+		Physics world = new Physics();
+		BrickGrid grid = new BrickGrid(new Rect(-0.5, -2.0, 1.0, 4.0), 8, 2, new Random(3));
+		Physics.CollisionAction action = grid.getCollisionAction();
+		Ball ball = new Ball(0.15);
+		
+		ball.setPosition(10.0, 10.0);
+		ball.setPenetrationPower(3);
+		world.addBall(ball);
+		world.addWall("static", -9.0, 4.5, 18.0, 5.0);
+		
+		for (int i = 0; i < 16; ++i) {
+			grid.spawnRandomBrick(world);
+		}
+		
+		BrickGrid.Snapshot bricks = grid.snapshot();
+		
+		// a solid brick on top and a normal one at the bottom, the old bricks go
+		BrickLayout layout = BrickLayout.parse(new StringReader("2 2\n#.\n.1\n"));
+		grid.load(layout, world);
+		
+		assertEquals(2, grid.getBrickCount());
+		assertEquals(3, world.getWallCount());
+		
+		action.onCollision(ball, new Rect(-0.5, 0.0, 0.5, 2.0), "brickgrid-brick", world);
+		action.onCollision(ball, new Rect(0.0, -2.0, 0.5, 2.0), "brickgrid-brick", world);
+		world.step(0.0);
+		
+		assertEquals(1, grid.getBrickCount());
+		assertEquals("brickgrid-brick", world.getGroupForWall(new Rect(-0.5, 0.0, 0.5, 2.0)));
+		
+		// the layout's empty cells and its broken brick stay empty
+		for (int i = 0; i < 4; ++i) {
+			grid.spawnRandomBrick(world);
+		}
+		
+		assertEquals(1, grid.getBrickCount());
+		assertEquals(2, world.getWallCount());
+		assertNull(grid.getBrickRect(0, 0));
+		assertNull(grid.getBrickRect(0, 1));
+		assertNull(grid.getBrickRect(1, 1));
+		
+		try {
+			grid.restore(bricks);
+			fail("Expected an IllegalStateException");
+		}
+		catch (IllegalStateException e) {
+		}
+	}
 
 }
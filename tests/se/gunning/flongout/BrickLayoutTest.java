@@ -0,0 +1,138 @@
+package se.gunning.flongout;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+public class BrickLayoutTest
+{
+	private static final String LAYOUT =
+			"; two walls with a gap in the middle\n" +
+			"4 2\n" +
+			"3#\n" +
+			"..\n" +
+			"\n" +
+			"..\n" +
+			"#1\n";
+	
+	@Test
+	public void testParse() throws IOException
+	{
+		BrickLayout layout = BrickLayout.parse(new StringReader(LAYOUT));
+		
+		assertEquals(4, layout.getRows());
+		assertEquals(2, layout.getColumns());
+		
+		// the top row comes first
+		assertEquals(3, layout.getHp(3, 0));
+		assertEquals(Brick.Type.NORMAL, layout.getType(3, 0));
+		assertEquals(Brick.Type.SOLID, layout.getType(3, 1));
+		assertEquals(0, layout.getHp(2, 0));
+		assertEquals(Brick.Type.SOLID, layout.getType(0, 0));
+		assertEquals(1, layout.getHp(0, 1));
+	}
+	
+	@Test
+	public void testBinaryAndTextRoundTrip() throws IOException
+	{
+		BrickLayout layout = new BrickLayout(64, 64);
+		
+		for (int i = 0; i < 64; ++i)
+		{
+			if (i % 5 == 0)
+			{
+				layout.setBrick(i, (i * 7) % 64, 1, Brick.Type.SOLID);
+			}
+			else
+			{
+				layout.setBrick(i, (i * 7) % 64, 1 + i % 9, Brick.Type.NORMAL);
+			}
+		}
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		layout.write(bytes);
+		
+		// a byte per cell after the header
+		assertEquals(9 + 64 * 64, bytes.size());
+		assertSameLayout(layout, BrickLayout.read(new ByteArrayInputStream(bytes.toByteArray())));
+		
+		StringWriter text = new StringWriter();
+		layout.writeText(text);
+		
+		assertSameLayout(layout, BrickLayout.read(new ByteArrayInputStream(text.toString().getBytes("UTF-8"))));
+	}
+	
+	@Test
+	public void testBrokenLayouts()
+	{
+		String[] broken = new String[]
+				{ "",
+				  "2\n..\n..\n",
+				  "2 2\n..\n",
+				  "2 2\n..\n..\n..\n",
+				  "2 2\n..\n...\n",
+				  "2 2\n..\nx.\n",
+				  "0 2\n" };
+		
+		for (int i = 0; i < broken.length; ++i)
+		{
+			try
+			{
+				BrickLayout.parse(new StringReader(broken[i]));
+				fail("Expected an IOException for layout " + i);
+			}
+			catch (IOException e)
+			{
+			}
+		}
+	}
+	
+	@Test
+	public void testBadBrick()
+	{
+		BrickLayout layout = new BrickLayout(2, 2);
+		
+		try
+		{
+			layout.setBrick(2, 0, 1, Brick.Type.NORMAL);
+			fail("Expected an IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e)
+		{
+		}
+		
+		try
+		{
+			layout.setBrick(0, 0, BrickLayout.MAX_HP + 1, Brick.Type.NORMAL);
+			fail("Expected an IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e)
+		{
+		}
+	}
+	
+	private static void assertSameLayout(BrickLayout expected, BrickLayout actual)
+	{
+		assertEquals(expected.getRows(), actual.getRows());
+		assertEquals(expected.getColumns(), actual.getColumns());
+		
+		for (int i = 0; i < expected.getRows(); ++i)
+		{
+			for (int j = 0; j < expected.getColumns(); ++j)
+			{
+				assertEquals(expected.getHp(i, j), actual.getHp(i, j));
+				
+				if (expected.getHp(i, j) > 0)
+				{
+					assertEquals(expected.getType(i, j), actual.getType(i, j));
+				}
+			}
+		}
+	}
+}
@@ -2,6 +2,8 @@ package se.gunning.flongout;
 
 import static org.junit.Assert.*;
 
+import java.util.Random;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -40,4 +42,20 @@ public class BrickTest {
 		assertEquals(0, b1.getHp());
 		assertTrue(b1.isBroken());
 	}
+	
+	@Test
+	public void testSeededHitpoints()
+	{
+		Random a = new Random(42);
+		Random b = new Random(42);
+		
+		for (int i = 0; i < 20; ++i)
+		{
+			Brick b1 = new Brick(new Rect(0.0, 0.0, 1.0, 1.0), a);
+			Brick b2 = new Brick(new Rect(0.0, 0.0, 1.0, 1.0), b);
+			
+			assertEquals(b1.getHp(), b2.getHp());
+			assertTrue(b1.getHp() >= 1 && b1.getHp() <= 3);
+		}
+	}
 }
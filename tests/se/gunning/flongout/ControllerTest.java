@@ -55,5 +55,34 @@ public class ControllerTest {
 		assertFalse(c.buttonThree.isPressed());
 	}
 	
+	@Test
+	public void testButtonEdges()
+	{
+		Controller c = new Controller();
+		
+		c.buttonOne.press();
+		
+		assertTrue(c.buttonOne.isJustPressed());
+		assertFalse(c.buttonOne.isJustReleased());
+		assertFalse(c.buttonTwo.isJustPressed());
+		
+		// held down through the next frame
+		c.endFrame();
+		c.buttonOne.press();
+		
+		assertTrue(c.buttonOne.isPressed());
+		assertFalse(c.buttonOne.isJustPressed());
+		
+		c.endFrame();
+		c.buttonOne.release();
+		
+		assertTrue(c.buttonOne.isJustReleased());
+		assertFalse(c.buttonOne.isJustPressed());
+		
+		c.endFrame();
+		
+		assertFalse(c.buttonOne.isJustReleased());
+	}
+	
 	// TODO: test analog sticks
 }
@@ -0,0 +1,207 @@
+package se.gunning.flongout;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+public class EffectSchedulerTest
+{
+	/**
+	 * Powerup counting how many times its effects are applied and taken away.
+	 */
+	private static class CountingPowerup extends Powerup
+	{
+		private int duration;
+		private Stacking stacking;
+		private boolean onOpponent;
+		private int applied;
+		private int removed;
+		
+		CountingPowerup(int duration, Stacking stacking, boolean onOpponent)
+		{
+			super(new Vec2(0, 0), DropDirection.LEFT);
+			this.duration = duration;
+			this.stacking = stacking;
+			this.onOpponent = onOpponent;
+		}
+		
+		@Override
+		public void applyStaticEffects(Paddle collector, Paddle other, GameScene game)
+		{
+			++applied;
+		}
+		
+		@Override
+		public void removeStaticEffects(Paddle collector, Paddle other, GameScene game)
+		{
+			++removed;
+		}
+		
+		@Override
+		public int getDuration()
+		{
+			return duration;
+		}
+		
+		@Override
+		public String getEffectGroup()
+		{
+			return "counting";
+		}
+		
+		@Override
+		public Object getEffectTarget(Paddle collector, Paddle other)
+		{
+			return onOpponent ? other : collector;
+		}
+		
+		@Override
+		public Stacking getStacking()
+		{
+			return stacking;
+		}
+		
+		@Override
+		public Type getType()
+		{
+			return Type.NEUTRAL;
+		}
+		
+		@Override
+		public String getText()
+		{
+			return "Counting";
+		}
+	}
+	
+	private Paddle one = new Paddle(1.0, 0.0);
+	private Paddle two = new Paddle(1.0, Math.PI);
+	private ArrayList<Powerup> finished = new ArrayList<Powerup>();
+	
+	private void advance(EffectScheduler effects, int ticks)
+	{
+		for (int i = 0; i < ticks; ++i)
+		{
+			effects.advance(null, finished);
+		}
+	}
+	
+	@Test
+	public void testEffectsRunOut()
+	{
+		EffectScheduler effects = new EffectScheduler();
+		CountingPowerup shorter = new CountingPowerup(10, Powerup.Stacking.STACK, false);
+		CountingPowerup longer = new CountingPowerup(20, Powerup.Stacking.STACK, false);
+		CountingPowerup instant = new CountingPowerup(0, Powerup.Stacking.STACK, false);
+		CountingPowerup lasting = new CountingPowerup(Powerup.UNTIL_ROUND_ENDS, Powerup.Stacking.STACK, false);
+		
+		effects.add(longer, one, two, null, finished);
+		effects.add(shorter, one, two, null, finished);
+		effects.add(instant, one, two, null, finished);
+		effects.add(lasting, one, two, null, finished);
+		
+		assertEquals(1, instant.applied);
+		assertEquals(0, instant.removed);
+		assertEquals(3, effects.getEffectCount());
+		assertEquals(1, finished.size());
+		
+		advance(effects, 9);
+		assertEquals(0, shorter.removed);
+		assertEquals(1, effects.getTicksLeft(shorter));
+		
+		advance(effects, 1);
+		assertEquals(1, shorter.removed);
+		assertEquals(0, longer.removed);
+		assertEquals(2, effects.getEffectCount());
+		
+		advance(effects, 100);
+		assertEquals(1, longer.removed);
+		assertEquals(0, lasting.removed);
+		assertEquals(Powerup.UNTIL_ROUND_ENDS, effects.getTicksLeft(lasting));
+		
+		effects.clear(null, finished);
+		assertEquals(1, lasting.removed);
+		assertEquals(0, effects.getEffectCount());
+		assertEquals(4, finished.size());
+	}
+	
+	@Test
+	public void testStacking()
+	{
+		EffectScheduler effects = new EffectScheduler();
+		CountingPowerup first = new CountingPowerup(10, Powerup.Stacking.REFRESH, false);
+		CountingPowerup refresh = new CountingPowerup(10, Powerup.Stacking.REFRESH, false);
+		
+		effects.add(first, one, two, null, finished);
+		advance(effects, 5);
+		
+		// the running effect lasts another ten ticks
+		assertSame(first, effects.add(refresh, one, two, null, finished));
+		assertEquals(0, refresh.applied);
+		assertEquals(10, effects.getTicksLeft(first));
+		
+		advance(effects, 9);
+		assertEquals(0, first.removed);
+		advance(effects, 1);
+		assertEquals(1, first.removed);
+		
+		// a replacing effect takes the other one away at once
+		CountingPowerup replaced = new CountingPowerup(10, Powerup.Stacking.REPLACE, false);
+		CountingPowerup replacing = new CountingPowerup(10, Powerup.Stacking.REPLACE, false);
+		
+		effects.add(replaced, one, two, null, finished);
+		effects.add(replacing, one, two, null, finished);
+		assertEquals(1, replaced.removed);
+		assertEquals(1, replacing.applied);
+		assertEquals(1, effects.getEffectCount());
+		
+		// the same group on another target doesn't
+		CountingPowerup opponent = new CountingPowerup(10, Powerup.Stacking.REPLACE, true);
+		effects.add(opponent, one, two, null, finished);
+		assertEquals(0, replacing.removed);
+		assertEquals(2, effects.getEffectCount());
+		
+		advance(effects, 10);
+		assertEquals(1, replaced.removed);
+		assertEquals(1, replacing.removed);
+		assertEquals(1, opponent.removed);
+	}
+	
+	@Test
+	public void testRestore()
+	{
+		EffectScheduler effects = new EffectScheduler();
+		CountingPowerup a = new CountingPowerup(10, Powerup.Stacking.STACK, false);
+		CountingPowerup b = new CountingPowerup(20, Powerup.Stacking.REFRESH, false);
+		
+		effects.add(a, one, two, null, finished);
+		effects.add(b, one, two, null, finished);
+		advance(effects, 5);
+		
+		EffectScheduler.Snapshot s = effects.snapshot();
+		advance(effects, 30);
+		assertEquals(0, effects.getEffectCount());
+		
+		effects.restore(s);
+		assertEquals(2, effects.getEffectCount());
+		assertEquals(5, effects.getTick());
+		assertEquals(5, effects.getTicksLeft(a));
+		assertEquals(15, effects.getTicksLeft(b));
+		
+		// refreshing after the restore still finds the restored effect
+		effects.add(new CountingPowerup(20, Powerup.Stacking.REFRESH, false), one, two, null, finished);
+		assertEquals(2, effects.getEffectCount());
+		assertEquals(20, effects.getTicksLeft(b));
+		
+		try
+		{
+			new EffectScheduler().restore(s);
+			fail("Expected an IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e)
+		{
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package se.gunning.flongout;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+public class FrameProfilerTest
+{
+	@Test
+	public void testPercentiles()
+	{
+		FrameProfiler profiler = new FrameProfiler();
+		FrameProfiler.Metric hits = profiler.counter("hits");
+		
+		assertEquals(0, profiler.getPercentile(hits, 50.0));
+		
+		// frames with 1 to 100 hits
+		for (int i = 1; i <= 100; ++i)
+		{
+			hits.add(i);
+			profiler.endFrame();
+		}
+		
+		assertEquals(100, profiler.getFrames());
+		assertEquals(1, profiler.getPercentile(hits, 0.0));
+		assertEquals(50, profiler.getPercentile(hits, 50.0));
+		assertEquals(95, profiler.getPercentile(hits, 95.0));
+		assertEquals(100, profiler.getPercentile(hits, 100.0));
+	}
+	
+	@Test
+	public void testWindow()
+	{
+		FrameProfiler profiler = new FrameProfiler();
+		FrameProfiler.Metric hits = profiler.counter("hits");
+		
+		// a busy frame that falls out of the window
+		hits.add(1000);
+		profiler.endFrame();
+		
+		for (int i = 0; i < FrameProfiler.WINDOW; ++i)
+		{
+			hits.add(1);
+			profiler.endFrame();
+		}
+		
+		assertEquals(1, profiler.getPercentile(hits, 100.0));
+	}
+	
+	@Test
+	public void testTimer()
+	{
+		FrameProfiler profiler = new FrameProfiler();
+		FrameProfiler.Metric timer = profiler.timer("work");
+		
+		assertSame(timer, profiler.timer("work"));
+		assertTrue(timer.isTimer());
+		
+		timer.begin();
+		timer.end();
+		
+		// ending again without beginning adds nothing
+		timer.end();
+		timer.add(5000000);
+		profiler.endFrame();
+		
+		assertTrue(profiler.getPercentile(timer, 100.0) >= 5000000);
+		assertTrue(profiler.getPercentile(timer, 100.0) < 1000000000);
+		
+		try
+		{
+			profiler.counter("work");
+			fail("Expected an IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e)
+		{
+		}
+	}
+	
+	@Test
+	public void testCsv() throws IOException
+	{
+		FrameProfiler profiler = new FrameProfiler();
+		profiler.counter("hits").add(3);
+		profiler.endFrame();
+		
+		StringWriter out = new StringWriter();
+		profiler.writeCsv(out, true);
+		
+		String[] lines = out.toString().split("\n");
+		
+		assertEquals("frame,metric,unit,p50,p95,p99,max", lines[0]);
+		assertEquals(1 + profiler.getMetrics().size(), lines.length);
+		assertEquals("1,hits,count,3,3,3,3", lines[lines.length - 1]);
+	}
+}
@@ -0,0 +1,99 @@
+package se.gunning.flongout;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class GameSceneTest
+{
+	private static GameScene createGame(SimulationClock clock, long seed)
+	{
+		GameScene game = new GameScene(null, false, new ScoreLimitedGame(1000), clock, 1, seed);
+		
+		CPUInput[] cpus = new CPUInput[]{HeadlessMatch.createCpu("hard", 1), HeadlessMatch.createCpu("easy", 2)};
+		
+		for (int i = 0; i < cpus.length; ++i)
+		{
+			game.setupCpuPaddle(cpus[i], i);
+		}
+		
+		game.initHeadless();
+		
+		return game;
+	}
+	
+	private static void run(GameScene game, SimulationClock clock, Controller[] input, int ticks)
+	{
+		for (int i = 0; i < ticks; ++i)
+		{
+			game.tick(input);
+			clock.tick();
+		}
+	}
+	
+	@Test
+	public void testRestoredGamePlaysOutTheSame()
+	{
+		SimulationClock clock = new SimulationClock(GameScene.TICK_MILLIS);
+		GameScene game = createGame(clock, 3);
+		Controller[] input = new Controller[]{new Controller(), new Controller()};
+		input[0].leftAnalog.setDirection(0.0, 0.3);
+		input[1].rightAnalog.setDirection(0.0, 1.0);
+		
+		run(game, clock, input, 600);
+		
+		GameScene.Snapshot s = game.snapshot();
+		run(game, clock, input, 3000);
+		
+		long ticks = clock.getTicks();
+		int score0 = game.getPlayerScore(0);
+		int score1 = game.getPlayerScore(1);
+		int drops = game.getStatistics().getDrops();
+		double x = game.getBall().getX();
+		double y = game.getBall().getY();
+		
+		game.restore(s);
+		assertEquals(600, clock.getTicks());
+		
+		run(game, clock, input, 3000);
+		
+		assertEquals(ticks, clock.getTicks());
+		assertEquals(score0, game.getPlayerScore(0));
+		assertEquals(score1, game.getPlayerScore(1));
+		assertEquals(drops, game.getStatistics().getDrops());
+		assertEquals(x, game.getBall().getX(), 0.0);
+		assertEquals(y, game.getBall().getY(), 0.0);
+	}
+	
+	@Test
+	public void testSnapshotOfAnotherGame()
+	{
+		SimulationClock clock = new SimulationClock(GameScene.TICK_MILLIS);
+		GameScene.Snapshot s = createGame(clock, 1).snapshot();
+		
+		try
+		{
+			createGame(new SimulationClock(GameScene.TICK_MILLIS), 1).restore(s);
+			fail("Expected an IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e)
+		{
+		}
+	}
+	
+	@Test
+	public void testSnapshotNeedsSimulationClock()
+	{
+		GameScene game = new GameScene(null, false, new EndlessGame(), new SystemClock(), 1, 1);
+		game.initHeadless();
+		
+		try
+		{
+			game.snapshot();
+			fail("Expected an IllegalStateException");
+		}
+		catch (IllegalStateException e)
+		{
+		}
+	}
+}
@@ -0,0 +1,219 @@
+package se.gunning.flongout;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class GeometryTest
+{
+	@Test
+	public void testPointToRectMatchesReference()
+	{
+		Random rand = new Random(1234);
+		MutableVec2 out = new MutableVec2();
+		
+		for (int i = 0; i < 10000; ++i)
+		{
+			Rect r = new Rect(rand.nextDouble() * 4.0 - 2.0, rand.nextDouble() * 4.0 - 2.0, rand.nextDouble() * 3.0, rand.nextDouble() * 3.0);
+			Vec2 pt = new Vec2(rand.nextDouble() * 10.0 - 5.0, rand.nextDouble() * 10.0 - 5.0);
+			
+			Vec2 expected = referenceRect(r, pt);
+			double d = Geometry.pointToRectSquared(pt.x, pt.y, r.getX(), r.getY(), r.getWidth(), r.getHeight(), out);
+			
+			assertEquals(expected.x, out.x, 1e-12);
+			assertEquals(expected.y, out.y, 1e-12);
+			assertEquals(expected.length() * expected.length(), d, 1e-12);
+		}
+	}
+	
+	@Test
+	public void testPointToRectInside()
+	{
+		MutableVec2 out = new MutableVec2();
+		
+		// closest to the bottom side, the vector points inwards
+		assertEquals(0.25, Geometry.pointToRectSquared(2.0, 2.5, 1.0, 2.0, 3.0, 4.0, out), 0.0);
+		assertEquals(0.0, out.x, 0.0);
+		assertEquals(0.5, out.y, 0.0);
+		
+		// right in the middle, where the later sides win
+		Geometry.pointToRectSquared(2.0, 2.0, 0.0, 0.0, 4.0, 4.0, out);
+		assertEquals(0.0, out.x, 0.0);
+		assertEquals(2.0, out.y, 0.0);
+	}
+	
+	@Test
+	public void testPointToCapsuleMatchesReference()
+	{
+		Random rand = new Random(4321);
+		MutableVec2 out = new MutableVec2();
+		
+		for (int i = 0; i < 10000; ++i)
+		{
+			Paddle p = new Paddle(0.5 + rand.nextDouble(), 0.0);
+			p.setPosition(new Vec2(rand.nextDouble() * 2.0 - 1.0, rand.nextDouble() * 2.0 - 1.0));
+			p.setAngle(rand.nextDouble() * 2.0 * Math.PI);
+			
+			Vec2 pt = new Vec2(rand.nextDouble() * 6.0 - 3.0, rand.nextDouble() * 6.0 - 3.0);
+			
+			Vec2 expected = referencePaddle(p, pt);
+			double d = Geometry.pointToCapsuleSquared(pt.x, pt.y, p.getX(), p.getY(), p.getDirectionX(), p.getDirectionY(),
+					p.getLength(), p.getButtRadius(), p.getTipRadius(), out);
+			
+			assertEquals(expected.x, out.x, 1e-12);
+			assertEquals(expected.y, out.y, 1e-12);
+			assertEquals(expected.length() * expected.length(), d, 1e-12);
+			
+			// and the shortcuts on the paddle itself
+			assertEquals(Math.sqrt(d), p.getShortestVectorToPoint(pt.x, pt.y, out), 1e-12);
+			assertEquals(expected.x, p.getShortestVectorToPoint(pt).x, 1e-12);
+		}
+	}
+	
+	@Test
+	public void testSweepPointToCircle()
+	{
+		// straight towards it, from three away
+		assertEquals(0.5, Geometry.sweepPointToCircle(-3.0, 0.0, 4.0, 0.0, 0.0, 0.0, 1.0), 1e-14);
+		
+		// too short, moving away and passing by
+		assertEquals(Double.POSITIVE_INFINITY, Geometry.sweepPointToCircle(-3.0, 0.0, 1.0, 0.0, 0.0, 0.0, 1.0), 0.0);
+		assertEquals(Double.POSITIVE_INFINITY, Geometry.sweepPointToCircle(-3.0, 0.0, -4.0, 0.0, 0.0, 0.0, 1.0), 0.0);
+		assertEquals(Double.POSITIVE_INFINITY, Geometry.sweepPointToCircle(-3.0, 1.5, 6.0, 0.0, 0.0, 0.0, 1.0), 0.0);
+		
+		// already inside
+		assertEquals(Double.POSITIVE_INFINITY, Geometry.sweepPointToCircle(0.5, 0.0, 1.0, 0.0, 0.0, 0.0, 1.0), 0.0);
+	}
+	
+	/**
+	 * How Rect.shortestVectorToPoint(Vec2) used to work.
+	 */
+	private static Vec2 referenceRect(Rect r, Vec2 pt)
+	{
+		double x = r.getX();
+		double y = r.getY();
+		double width = r.getWidth();
+		double height = r.getHeight();
+		
+		double x_on_hsides = x + new Vec2(pt.x - x, pt.y - y).projectOnto(new Vec2(width, 0.0)).x;
+		double y_on_vsides = y + new Vec2(pt.x - x, pt.y - y).projectOnto(new Vec2(0.0, height)).y;
+		
+		Vec2 from_left;
+		Vec2 from_right;
+		Vec2 from_top;
+		Vec2 from_bottom;
+		
+		if (y_on_vsides < y)
+		{
+			from_left = new Vec2(pt.x - x, pt.y - y);
+			from_right = new Vec2(pt.x - (x + width), pt.y - y);
+		}
+		else if (y_on_vsides > (y + height))
+		{
+			from_left = new Vec2(pt.x - x, pt.y - (y + height));
+			from_right = new Vec2(pt.x - (x + width), pt.y - (y + height));
+		}
+		else
+		{
+			from_left = new Vec2(pt.x - x, pt.y - y_on_vsides);
+			from_right = new Vec2(pt.x - (x + width), pt.y - y_on_vsides);
+		}
+		
+		if (x_on_hsides < x)
+		{
+			from_top = new Vec2(pt.x - x, pt.y - (y + height));
+			from_bottom = new Vec2(pt.x - x, pt.y - y);
+		}
+		else if (x_on_hsides > (x + width))
+		{
+			from_top = new Vec2(pt.x - (x + width), pt.y - (y + height));
+			from_bottom = new Vec2(pt.x - (x + width), pt.y - y);
+		}
+		else
+		{
+			from_top = new Vec2(pt.x - x_on_hsides, pt.y - (y + height));
+			from_bottom = new Vec2(pt.x - x_on_hsides, pt.y - y);
+		}
+		
+		ArrayList<Vec2> vectors = new ArrayList<Vec2>();
+		vectors.add(from_left);
+		vectors.add(from_right);
+		vectors.add(from_top);
+		vectors.add(from_bottom);
+		
+		return shortest(vectors);
+	}
+	
+	/**
+	 * How Paddle.getShortestVectorToPoint(Vec2) used to work.
+	 */
+	private static Vec2 referencePaddle(Paddle p, Vec2 pt)
+	{
+		ArrayList<Vec2> vectors = new ArrayList<Vec2>();
+		
+		double angle = p.getAngle();
+		double buttRadius = p.getButtRadius();
+		double tipRadius = p.getTipRadius();
+		
+		Vec2 position = p.getPosition();
+		Vec2 tip = p.getTipPosition();
+		
+		Vec2 tiptop = new Vec2(tip.x + Math.cos(angle + Math.PI / 2.0) * tipRadius, tip.y + Math.sin(angle + Math.PI / 2.0) * tipRadius);
+		Vec2 tipbottom = new Vec2(tip.x + Math.cos(angle - Math.PI / 2.0) * tipRadius, tip.y + Math.sin(angle - Math.PI / 2.0) * tipRadius);
+		
+		Vec2 butttop = new Vec2(position.x + Math.cos(angle + Math.PI / 2.0) * buttRadius, position.y + Math.sin(angle + Math.PI / 2.0) * buttRadius);
+		Vec2 buttbottom = new Vec2(position.x + Math.cos(angle - Math.PI / 2.0) * buttRadius, position.y + Math.sin(angle - Math.PI / 2.0) * buttRadius);
+		
+		Vec2 topedge = new Vec2(tiptop.x - butttop.x, tiptop.y - butttop.y);
+		Vec2 bottomedge = new Vec2(tipbottom.x - buttbottom.x, tipbottom.y - buttbottom.y);
+		
+		Vec2 topcenter = new Vec2(butttop.x + topedge.x / 2.0, butttop.y + topedge.y / 2.0);
+		Vec2 projtop = new Vec2(pt.x - topcenter.x, pt.y - topcenter.y).projectOnto(topedge);
+		
+		Vec2 bottomcenter = new Vec2(buttbottom.x + bottomedge.x / 2.0, buttbottom.y + bottomedge.y / 2.0);
+		Vec2 projbottom = new Vec2(pt.x - bottomcenter.x, pt.y - bottomcenter.y).projectOnto(bottomedge);
+		
+		if (projtop.length() < topedge.length() / 2.0)
+		{
+			vectors.add(new Vec2(pt.x - topcenter.x, pt.y - topcenter.y).subtract(projtop));
+		}
+		
+		if (projbottom.length() < bottomedge.length() / 2.0)
+		{
+			vectors.add(new Vec2(pt.x - bottomcenter.x, pt.y - bottomcenter.y).subtract(projbottom));
+		}
+		
+		Vec2 from_tip = new Vec2(pt.x - tip.x, pt.y - tip.y);
+		from_tip = new Vec2(pt.x - (tip.x + Math.cos(from_tip.getAngle()) * tipRadius), pt.y - (tip.y + Math.sin(from_tip.getAngle()) * tipRadius));
+		
+		Vec2 from_butt = new Vec2(pt.x - position.x, pt.y - position.y);
+		from_butt = new Vec2(pt.x - (position.x + Math.cos(from_butt.getAngle()) * buttRadius), pt.y - (position.y + Math.sin(from_butt.getAngle()) * buttRadius));
+		
+		vectors.add(from_tip);
+		vectors.add(from_butt);
+		
+		return shortest(vectors);
+	}
+	
+	/**
+	 * Pick the shortest vector, with ties going to the later one like
+	 * Collections.min used to with the old Vec2.compareTo.
+	 */
+	private static Vec2 shortest(ArrayList<Vec2> vectors)
+	{
+		Vec2 best = vectors.get(0);
+		
+		for (int i = 1; i < vectors.size(); ++i)
+		{
+			if (vectors.get(i).length() <= best.length())
+			{
+				best = vectors.get(i);
+			}
+		}
+		
+		return best;
+	}
+}
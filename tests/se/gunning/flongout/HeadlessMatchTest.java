@@ -0,0 +1,22 @@
+package se.gunning.flongout;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class HeadlessMatchTest
+{
+	@Test
+	public void testHardPlayersFinishMatch()
+	{
+		HeadlessMatch match = new HeadlessMatch(new ScoreLimitedGame(5),
+				HeadlessMatch.createCpu("hard", 1), HeadlessMatch.createCpu("hard", 2), 1, 3);
+		
+		// ten minutes of game time, as HeadlessMatch gives a match
+		assertTrue(match.run((long)(10 * 60 * 1000 / HeadlessMatch.MILLIS_PER_TICK)));
+		
+		GameScene game = match.getGame();
+		assertEquals(5, Math.max(game.getPlayerScore(0), game.getPlayerScore(1)));
+		assertTrue(match.getWinner() >= 0);
+	}
+}
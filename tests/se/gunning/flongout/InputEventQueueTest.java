@@ -0,0 +1,63 @@
+package se.gunning.flongout;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class InputEventQueueTest
+{
+	@Test
+	public void testFirstInFirstOut()
+	{
+		InputEventQueue q = new InputEventQueue(3);
+		
+		// go round the ring a few times
+		for (int i = 0; i < 10; ++i)
+		{
+			q.add(i, i % 2 == 0, 100 + i);
+			q.add(i + 1, false, 200 + i);
+			
+			assertEquals(2, q.size());
+			assertEquals(i, q.getCode());
+			assertEquals(i % 2 == 0, q.isPress());
+			assertEquals(100 + i, q.getTime());
+			q.remove();
+			
+			assertEquals(i + 1, q.getCode());
+			assertEquals(200 + i, q.getTime());
+			q.remove();
+			
+			assertTrue(q.isEmpty());
+		}
+	}
+	
+	@Test
+	public void testFull()
+	{
+		InputEventQueue q = new InputEventQueue(2);
+		q.add(1, true, 0);
+		q.add(2, true, 0);
+		assertTrue(q.isFull());
+		
+		try
+		{
+			q.add(3, true, 0);
+			fail("Expected an IllegalStateException");
+		}
+		catch (IllegalStateException e)
+		{
+		}
+		
+		q.clear();
+		assertTrue(q.isEmpty());
+		
+		try
+		{
+			q.remove();
+			fail("Expected an IllegalStateException");
+		}
+		catch (IllegalStateException e)
+		{
+		}
+	}
+}
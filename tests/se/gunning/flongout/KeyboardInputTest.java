@@ -1,5 +1,79 @@
 package se.gunning.flongout;
 
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
 public class KeyboardInputTest {
 // jonathan gör denna
+
+	private static final int W = 17;
+	private static final int A = 30;
+	private static final int D = 32;
+	private static final int H = 35;
+	
+	@Test
+	public void testTapBetweenTicks() {
+		KeyboardInput in = new KeyboardInput();
+		Controller c = new Controller();
+		
+		in.addEvent(H, true, 100);
+		in.addEvent(H, false, 200);
+		
+		in.mapInputUntil(1000, c);
+		assertTrue(c.buttonOne.isPressed());
+		
+		in.mapInputUntil(2000, c);
+		assertFalse(c.buttonOne.isPressed());
+	}
+	
+	@Test
+	public void testLaterEventsWait() {
+		KeyboardInput in = new KeyboardInput();
+		Controller c = new Controller();
+		
+		in.addEvent(W, true, 500);
+		
+		in.mapInputUntil(400, c);
+		assertEquals(0.0, c.leftAnalog.getDirection().y, 0.0);
+		
+		in.mapInputUntil(600, c);
+		assertEquals(1.0, c.leftAnalog.getDirection().y, 0.0);
+		
+		// still held
+		in.mapInputUntil(700, c);
+		assertEquals(1.0, c.leftAnalog.getDirection().y, 0.0);
+	}
+	
+	@Test
+	public void testDiagonal() {
+		KeyboardInput in = new KeyboardInput();
+		Controller c = new Controller();
+		
+		in.addEvent(W, true, 0);
+		in.addEvent(D, true, 0);
+		in.mapInputUntil(0, c);
+		
+		assertEquals(Math.sqrt(0.5), c.leftAnalog.getDirection().x, 1e-12);
+		assertEquals(Math.sqrt(0.5), c.leftAnalog.getDirection().y, 1e-12);
+	}
+	
+	@Test
+	public void testManyEventsKeepState() {
+		KeyboardInput in = new KeyboardInput();
+		Controller c = new Controller();
+		
+		for (int i = 0; i < 1000; ++i) {
+			in.addEvent(A, i % 2 == 0, i);
+		}
+		
+		in.addEvent(A, true, 1000);
+		in.mapInputUntil(1000, c);
+		assertEquals(-1.0, c.leftAnalog.getDirection().x, 0.0);
+		
+		in.addEvent(A, false, 1001);
+		in.mapInputUntil(1001, c);
+		in.mapInputUntil(1002, c);
+		assertEquals(0.0, c.leftAnalog.getDirection().x, 0.0);
+	}
 }
@@ -0,0 +1,43 @@
+package se.gunning.flongout;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class MatchStatisticsTest
+{
+	@Test
+	public void testRallies()
+	{
+		MatchStatistics s = new MatchStatistics();
+		
+		// touching the ball twice in a row isn't a return
+		s.recordHit(0);
+		s.recordHit(0);
+		s.recordHit(1);
+		s.recordHit(0);
+		s.recordPoint(0);
+		
+		s.recordHit(1);
+		s.recordPoint(0);
+		
+		assertEquals(2, s.getRallies());
+		assertEquals(2, s.getReturns());
+		assertEquals(2, s.getLongestRally());
+		assertEquals(2, s.getPoints(0));
+		assertEquals(0, s.getPoints(1));
+	}
+	
+	@Test
+	public void testPowerups()
+	{
+		MatchStatistics s = new MatchStatistics();
+		s.recordDrop();
+		s.recordDrop();
+		s.recordPickup(1);
+		
+		assertEquals(2, s.getDrops());
+		assertEquals(0, s.getPickups(0));
+		assertEquals(1, s.getPickups(1));
+	}
+}
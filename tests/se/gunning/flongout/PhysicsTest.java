@@ -0,0 +1,458 @@
+package se.gunning.flongout;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class PhysicsTest
+{
+	private Physics world;
+	private Ball ball;
+	private Paddle paddle;
+	private int wallHits;
+	private int paddleHits;
+	private Physics.CollisionAction[] actions;
+
+	@Before
+	public void setUp()
+	{
+		world = new Physics();
+
+		// a closed box
+		world.addWall("left", -14.0, -4.5, 5.0, 9.0);
+		world.addWall("right", 9.0, -4.5, 5.0, 9.0);
+		world.addWall("static", -9.0, 4.5, 18.0, 5.0);
+		world.addWall("static", -9.0, -9.5, 18.0, 5.0);
+
+		ball = new Ball(0.15);
+		ball.setPosition(new Vec2(2.0, 1.0));
+		ball.setVelocity(new Vec2(7.0, 3.0));
+		world.addBall(ball);
+
+		paddle = new Paddle(1.0, Math.PI);
+		paddle.setArea(new Rect(-6.4, -3.0, 2.0, 6.0));
+		paddle.setPosition(new Vec2(-6.0, 0.0));
+		paddle.setVelocity(new Vec2(0.0, 1.0));
+		paddle.setDirection(new Vec2(1, 0));
+		paddle.setAngularVelocity(2.0);
+		world.addPaddle(paddle);
+
+		wallHits = 0;
+		paddleHits = 0;
+
+		actions = new Physics.CollisionAction[]{new Physics.CollisionAction()
+		{
+			@Override
+			public void onCollision(Ball ball, Rect wall, String group, Physics world)
+			{
+				++wallHits;
+			}
+
+			@Override
+			public void onCollision(Ball ball, Paddle paddle, Physics world)
+			{
+				++paddleHits;
+			}
+
+			@Override
+			public void onPaddleHit(Ball ball, Paddle paddle, Physics world)
+			{
+				++paddleHits;
+			}
+		}};
+	}
+
+	@Test
+	public void testBounceOffWall()
+	{
+		ball.setPosition(new Vec2(8.0, 0.0));
+		ball.setVelocity(new Vec2(10.0, 0.0));
+
+		for (int i = 0; i < 200; ++i)
+		{
+			world.step(1.0/1000.0, actions);
+		}
+
+		assertTrue(wallHits > 0);
+		assertTrue(ball.getVelocity().x < 0.0);
+		assertEquals(0.0, ball.getVelocity().y, 1e-9);
+		assertEquals(9.5, ball.getVelocity().length(), 1e-9);
+		assertTrue(ball.getPosition().x < 9.0 - ball.getRadius());
+	}
+
+	@Test
+	public void testBallStaysInBox()
+	{
+		for (int i = 0; i < 20000; ++i)
+		{
+			world.step(1.0/1000.0, actions);
+
+			assertTrue(new Rect(-9.0, -4.5, 18.0, 9.0).containsPoint(ball.getPosition()));
+		}
+
+		assertTrue(wallHits > 0);
+	}
+
+	@Test
+	public void testFastBallDoesNotTunnel()
+	{
+		world.setMaxBallSpeed(1000.0);
+		world.addWall("thin", 3.0, -4.5, 0.05, 9.0);
+
+		ball.setPosition(new Vec2(1.0, 0.0));
+		ball.setVelocity(new Vec2(400.0, 0.0));
+
+		// moves four units per step, much further than the wall is thick
+		world.step(1.0/100.0, actions);
+
+		assertEquals(1, wallHits);
+		assertTrue(ball.getVelocity().x < 0.0);
+		assertTrue(ball.getPosition().x < 3.0 - ball.getRadius());
+	}
+
+	@Test
+	public void testCounters()
+	{
+		world.setMaxBallSpeed(1000.0);
+		world.addWall("thin", 3.0, -4.5, 0.05, 9.0);
+
+		ball.setPosition(new Vec2(1.0, 0.0));
+		ball.setVelocity(new Vec2(400.0, 0.0));
+
+		// one sweep up to the wall, and one more for the rest of the step
+		world.step(1.0/100.0, actions);
+
+		assertEquals(1, world.getContactCount());
+		assertEquals(2, world.getSweepCount());
+
+		world.resetCounters();
+
+		assertEquals(0, world.getContactCount());
+		assertEquals(0, world.getSweepCount());
+	}
+
+	@Test
+	public void testFastBallBouncesOffPaddle()
+	{
+		world.setMaxBallSpeed(1000.0);
+		paddle.setVelocity(new Vec2(0.0, 0.0));
+		paddle.setAngularVelocity(0.0);
+
+		// straight at the butt of the paddle, fast enough to pass right through it in one step
+		ball.setPosition(new Vec2(-6.0, 3.5));
+		ball.setVelocity(new Vec2(0.0, -400.0));
+
+		world.step(1.0/100.0, actions);
+
+		assertEquals(1, paddleHits);
+		assertTrue(ball.getVelocity().y > 0.0);
+		assertTrue(ball.getPosition().y > paddle.getButtRadius() + ball.getRadius() - 1e-9);
+	}
+
+	@Test
+	public void testBallInCornerKeepsMoving()
+	{
+		world.setGravity(-20.0);
+
+		// straight into the bottom right corner
+		ball.setPosition(new Vec2(8.0, -3.5));
+		ball.setVelocity(new Vec2(20.0, -20.0));
+
+		for (int i = 0; i < 1000; ++i)
+		{
+			world.step(1.0/1000.0, actions);
+
+			assertTrue(new Rect(-9.0, -4.5, 18.0, 9.0).containsPoint(ball.getPosition()));
+		}
+
+		assertTrue(wallHits >= 2);
+	}
+
+	@Test
+	public void testMaxBallSpeedMustBePositive()
+	{
+		try
+		{
+			world.setMaxBallSpeed(0.0);
+			fail();
+		}
+		catch (IllegalArgumentException e)
+		{
+		}
+
+		assertEquals(25.0, world.getMaxBallSpeed(), 0.0);
+	}
+
+	@Test
+	public void testStepDoesNotAllocate()
+	{
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+		if (!(bean instanceof com.sun.management.ThreadMXBean))
+		{
+			return;
+		}
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)bean;
+
+		if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled())
+		{
+			return;
+		}
+
+		long id = Thread.currentThread().getId();
+
+		// warm up so that the measurement isn't of the interpreter and the JIT
+		for (int i = 0; i < 100000; ++i)
+		{
+			world.step(1.0/1000.0, actions);
+		}
+
+		// what the measuring itself costs
+		long overhead = -threads.getThreadAllocatedBytes(id) + threads.getThreadAllocatedBytes(id);
+
+		int hitsBefore = wallHits + paddleHits;
+
+		// the JIT may still allocate a little when it recompiles something, so
+		// go by the best of a few rounds
+		long allocated = Long.MAX_VALUE;
+
+		for (int round = 0; round < 5; ++round)
+		{
+			long before = threads.getThreadAllocatedBytes(id);
+
+			for (int i = 0; i < 10000; ++i)
+			{
+				world.step(1.0/1000.0, actions);
+			}
+
+			allocated = Math.min(allocated, threads.getThreadAllocatedBytes(id) - before);
+		}
+
+		// make sure collisions were part of what got measured
+		assertTrue(wallHits + paddleHits > hitsBefore);
+		assertTrue("step allocated " + (allocated - overhead) + " bytes", allocated <= overhead);
+	}
+
+	@Test
+	public void testMultiBallIsDeterministic()
+	{
+		ArrayList<String> serial = new ArrayList<String>();
+		ArrayList<String> threaded = new ArrayList<String>();
+
+		Physics one = createMultiBallWorld(300);
+		one.setThreads(1);
+
+		Physics four = createMultiBallWorld(300);
+		four.setThreads(4);
+
+		for (int i = 0; i < 2000; ++i)
+		{
+			one.step(1.0/1000.0, recordingActions(serial));
+			four.step(1.0/1000.0, recordingActions(threaded));
+		}
+
+		assertTrue(serial.size() > 0);
+		assertEquals(serial, threaded);
+
+		for (int i = 0; i < one.getBalls().size(); ++i)
+		{
+			assertEquals(one.getBalls().get(i).getX(), four.getBalls().get(i).getX(), 0.0);
+			assertEquals(one.getBalls().get(i).getY(), four.getBalls().get(i).getY(), 0.0);
+		}
+	}
+
+	@Test
+	public void testMultiBallPaddleMovesOncePerStep()
+	{
+		Physics multi = createMultiBallWorld(100);
+		Paddle p = multi.getPaddles().get(0);
+		p.setVelocity(new Vec2(0.0, 1.0));
+
+		double before = p.getY();
+		multi.step(1.0/1000.0);
+
+		assertEquals(before + 1.0/1000.0, p.getY(), 1e-12);
+	}
+
+	@Test
+	public void testRestoredWorldPlaysOutTheSame()
+	{
+		Physics w = createMultiBallWorld(50);
+		ArrayList<String> first = new ArrayList<String>();
+		ArrayList<String> second = new ArrayList<String>();
+
+		for (int i = 0; i < 200; ++i)
+		{
+			w.step(1.0/1000.0, recordingActions(first));
+		}
+
+		Physics.Snapshot snapshot = w.snapshot();
+		int walls = w.getWallCount();
+		first.clear();
+
+		for (int i = 0; i < 2000; ++i)
+		{
+			w.step(1.0/1000.0, recordingActions(first));
+		}
+
+		double[] positions = new double[2 * w.getBalls().size()];
+
+		for (int i = 0; i < w.getBalls().size(); ++i)
+		{
+			positions[2 * i] = w.getBalls().get(i).getX();
+			positions[2 * i + 1] = w.getBalls().get(i).getY();
+		}
+
+		int wallsAfter = w.getWallCount();
+
+		// bricks should have been broken, or the walls weren't put to the test
+		assertTrue(wallsAfter < walls);
+
+		w.restore(snapshot);
+		assertEquals(walls, w.getWallCount());
+
+		for (int i = 0; i < 2000; ++i)
+		{
+			w.step(1.0/1000.0, recordingActions(second));
+		}
+
+		assertEquals(first, second);
+		assertEquals(wallsAfter, w.getWallCount());
+
+		for (int i = 0; i < w.getBalls().size(); ++i)
+		{
+			assertEquals(positions[2 * i], w.getBalls().get(i).getX(), 0.0);
+			assertEquals(positions[2 * i + 1], w.getBalls().get(i).getY(), 0.0);
+		}
+	}
+
+	@Test
+	public void testSnapshotOfAnotherWorld()
+	{
+		Physics.Snapshot snapshot = createMultiBallWorld(1).snapshot();
+
+		try
+		{
+			world.restore(snapshot);
+			fail("Expected an IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e)
+		{
+		}
+	}
+
+	@Test
+	public void testRestoreAfterAddingBall()
+	{
+		Physics.Snapshot snapshot = world.snapshot();
+		world.addBall(new Ball(0.15));
+
+		try
+		{
+			world.restore(snapshot);
+			fail("Expected an IllegalStateException");
+		}
+		catch (IllegalStateException e)
+		{
+		}
+	}
+
+	@Test
+	public void testRemoveWalls()
+	{
+		Rect brick = new Rect(0.0, 0.0, 0.5, 0.5);
+		world.addWall("brick", brick);
+		world.addWall("brick", 0.5, 0.0, 0.5, 0.5);
+		world.addWall("brick", 1.0, 0.0, 0.5, 0.5);
+
+		assertEquals("brick", world.getGroupForWall(brick));
+		assertEquals("static", world.getGroupForWall(new Rect(-9.0, 4.5, 18.0, 5.0)));
+		assertNull(world.getGroupForWall(new Rect(0.0, 0.0, 1.0, 1.0)));
+
+		// walls are removed when stepped, found by the same rectangle or an equal one
+		world.removeWall("brick", brick);
+		world.removeWall("brick", new Rect(1.0, 0.0, 0.5, 0.5));
+		assertEquals(7, world.getWallCount());
+		world.step(0.0);
+
+		assertEquals(5, world.getWallCount());
+		assertNull(world.getGroupForWall(brick));
+		assertEquals("brick", world.getGroupForWall(new Rect(0.5, 0.0, 0.5, 0.5)));
+
+		world.clearWallGroup("static");
+
+		assertEquals(3, world.getWallCount());
+		assertNull(world.getGroupForWall(new Rect(-9.0, 4.5, 18.0, 5.0)));
+		assertEquals("left", world.getGroupForWall(new Rect(-14.0, -4.5, 5.0, 9.0)));
+	}
+
+	private Physics createMultiBallWorld(int count)
+	{
+		Physics w = new Physics();
+		w.setMultiBall(true);
+		w.setGravity(-20.0);
+
+		w.addWall("left", -14.0, -4.5, 5.0, 9.0);
+		w.addWall("right", 9.0, -4.5, 5.0, 9.0);
+		w.addWall("static", -9.0, 4.5, 18.0, 5.0);
+		w.addWall("static", -9.0, -9.5, 18.0, 5.0);
+
+		for (int i = 0; i < 8; ++i)
+		{
+			w.addWall("brick", -0.5 + i * 0.125, -4.5, 0.125, 2.25);
+		}
+
+		for (int i = 0; i < count; ++i)
+		{
+			Ball b = new Ball(0.15);
+			b.setPosition(new Vec2(-4.0 + (i % 25) * 0.32, 4.0 - (i / 25) * 0.32));
+			b.setVelocity(new Vec2(Math.cos(i) * 10.0, Math.sin(i) * 10.0));
+			w.addBall(b);
+		}
+
+		Paddle p = new Paddle(1.0, Math.PI);
+		p.setArea(new Rect(-6.4, -3.0, 2.0, 6.0));
+		p.setPosition(new Vec2(-6.0, 0.0));
+		p.setVelocity(new Vec2(0.0, 0.0));
+		p.setDirection(new Vec2(1, 0));
+		p.setAngularVelocity(3.0);
+		w.addPaddle(p);
+
+		return w;
+	}
+
+	private Physics.CollisionAction[] recordingActions(final ArrayList<String> log)
+	{
+		return new Physics.CollisionAction[]{new Physics.CollisionAction()
+		{
+			@Override
+			public void onCollision(Ball ball, Rect wall, String group, Physics world)
+			{
+				log.add(world.getBalls().indexOf(ball) + " " + group);
+
+				// bricks break at once, which must happen the same way every time
+				if (group.equals("brick"))
+				{
+					world.removeWall(group, wall);
+				}
+			}
+
+			@Override
+			public void onCollision(Ball ball, Paddle paddle, Physics world)
+			{
+				log.add(world.getBalls().indexOf(ball) + " paddle");
+			}
+
+			@Override
+			public void onPaddleHit(Ball ball, Paddle paddle, Physics world)
+			{
+				log.add(world.getBalls().indexOf(ball) + " hit");
+			}
+		}};
+	}
+}
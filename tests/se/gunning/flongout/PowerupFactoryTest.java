@@ -6,8 +6,12 @@ import org.junit.Before;
 import org.junit.Test;
 
 import se.gunning.flongout.Powerup.DropDirection;
+import se.gunning.flongout.powerups.FasterBall;
+import se.gunning.flongout.powerups.ZeroGravityPowerup;
 
 import java.util.HashSet;
+import java.util.Properties;
+import java.util.Random;
 
 public class PowerupFactoryTest {
 
@@ -27,7 +31,97 @@ public class PowerupFactoryTest {
 			seen.add(pf.createRandomPowerup(new Vec2(0, 0), DropDirection.LEFT).getClass().toString());
 		}
 		
-		assertEquals(8, seen.size());
+		// every registered kind drops
+		assertEquals(pf.getNames().size(), seen.size());
+	}
+	
+	@Test
+	public void testWeights() {
+		PowerupFactory pf = new PowerupFactory(new Random(1));
+		
+		for (String name : pf.getNames()) {
+			pf.setWeight(name, 0.0);
+		}
+		
+		pf.setWeight("zero-gravity", 3.0);
+		pf.setWeight("faster-ball", 1.0);
+		
+		int gravity = 0;
+		
+		for (int i = 0; i < 100000; ++i) {
+			Powerup p = pf.createRandomPowerup(new Vec2(0, 0), DropDirection.LEFT);
+			
+			if (p instanceof ZeroGravityPowerup) {
+				++gravity;
+			}
+			else {
+				assertTrue(p instanceof FasterBall);
+			}
+		}
+		
+		assertEquals(75000, gravity, 1000);
+		
+		pf.setWeight("zero-gravity", 0.0);
+		pf.setWeight("faster-ball", 0.0);
+		
+		try {
+			pf.createRandomPowerup(new Vec2(0, 0), DropDirection.LEFT);
+			fail("Expected an IllegalStateException");
+		}
+		catch (IllegalStateException e) {
+		}
+	}
+	
+	@Test
+	public void testRecycledPowerupsAreReused() {
+		PowerupFactory pf = new PowerupFactory(new Random(1));
+		Powerup p = pf.createRandomPowerup(new Vec2(1, 2), DropDirection.LEFT);
+		
+		pf.recycle(p);
+		assertEquals(1, pf.getPooledCount());
+		
+		// keep drawing until the same kind comes up again
+		Powerup q = pf.createRandomPowerup(new Vec2(3, 4), DropDirection.RIGHT);
+		
+		while (q.getClass() != p.getClass()) {
+			q = pf.createRandomPowerup(new Vec2(3, 4), DropDirection.RIGHT);
+		}
+		
+		assertSame(p, q);
+		assertEquals(0, pf.getPooledCount());
+		assertEquals(3.0, q.getPosition().x, 0.0);
+		
+		// it moves the new way
+		q.move();
+		assertTrue(q.getPosition().x > 3.0);
+	}
+	
+	@Test
+	public void testConfigure() {
+		PowerupFactory pf = new PowerupFactory(new Random(1));
+		Properties config = new Properties();
+		
+		config.setProperty("faster-ball", "2.5");
+		config.setProperty("se.gunning.flongout.powerups.ZeroGravityPowerup", "4");
+		pf.configure(config);
+		
+		assertEquals(2.5, pf.getWeight("faster-ball"), 0.0);
+		assertEquals(4.0, pf.getWeight("se.gunning.flongout.powerups.ZeroGravityPowerup"), 0.0);
+		
+		String[] broken = new String[]{"faster-ball=-1", "faster-ball=lots", "no.such.Powerup=1", "java.lang.String=1"};
+		
+		for (int i = 0; i < broken.length; ++i) {
+			String[] kv = broken[i].split("=");
+			config = new Properties();
+			config.setProperty(kv[0], kv[1]);
+			
+			try {
+				pf.configure(config);
+				fail("Expected an IllegalArgumentException for " + broken[i]);
+			}
+			catch (IllegalArgumentException e) {
+			}
+		}
 	}
 
 }
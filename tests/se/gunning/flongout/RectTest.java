@@ -74,7 +74,53 @@ public class RectTest {
 		assertEquals(1.0, r.shortestVectorToPoint(new Vec2(5.0, 3.0)).x, 1e-14);
 		assertEquals(0.0, r.shortestVectorToPoint(new Vec2(5.0, 3.0)).y, 1e-14);
 	}
-	
+
+	@Test
+	public void testShortestVectorToPointWithoutAllocating()
+	{
+		Rect r = new Rect(1.0, 2.0, 3.0, 4.0);
+		MutableVec2 out = new MutableVec2();
+
+		// outside at a corner, outside at a side and inside
+		double[][] points = {{0.0, 0.0}, {5.0, 3.0}, {2.0, 3.0}, {3.5, 5.75}};
+
+		for (double[] pt : points)
+		{
+			Vec2 expected = r.shortestVectorToPoint(new Vec2(pt[0], pt[1]));
+			double len = r.shortestVectorToPoint(pt[0], pt[1], out);
+
+			assertEquals(expected.x, out.x, 1e-14);
+			assertEquals(expected.y, out.y, 1e-14);
+			assertEquals(expected.length(), len, 1e-14);
+		}
+	}
+
+	@Test
+	public void testSweepCircle()
+	{
+		Rect r = new Rect(1.0, 2.0, 3.0, 4.0);
+
+		// straight at the left side
+		assertEquals(0.5, r.sweepCircle(-1.5, 3.0, 4.0, 0.0, 0.5), 1e-14);
+
+		// passing below, and stopping short
+		assertEquals(Double.POSITIVE_INFINITY, r.sweepCircle(-1.5, 1.0, 10.0, 0.0, 0.5), 0.0);
+		assertEquals(Double.POSITIVE_INFINITY, r.sweepCircle(-1.5, 3.0, 1.0, 0.0, 0.5), 0.0);
+
+		// right through, however far it goes
+		assertEquals(0.02, r.sweepCircle(0.0, 4.0, 50.0, 0.0, 0.0), 1e-14);
+
+		// at the rounded bottom left corner, diagonally
+		double t = r.sweepCircle(0.0, 1.0, 1.0, 1.0, 0.5);
+		assertEquals(1.0 - 0.5 / Math.sqrt(2.0), t, 1e-14);
+
+		// inside the square corner of the grown rectangle, but not the rounded one
+		assertEquals(Double.POSITIVE_INFINITY, r.sweepCircle(0.55, 1.55, -0.1, 0.1, 0.5), 0.0);
+
+		// already overlapping
+		assertEquals(Double.POSITIVE_INFINITY, r.sweepCircle(0.8, 3.0, 1.0, 0.0, 0.5), 0.0);
+	}
+
 	@Test
 	public void testToString()
 	{
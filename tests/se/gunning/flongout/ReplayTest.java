@@ -0,0 +1,118 @@
+package se.gunning.flongout;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class ReplayTest
+{
+	@Test
+	public void testReplayPlaysOutTheSame()
+	{
+		assertReplaysTheSame(1, 3000);
+	}
+	
+	@Test
+	public void testMultiBallReplayPlaysOutTheSame()
+	{
+		assertReplaysTheSame(20, 1000);
+	}
+	
+	@Test
+	public void testIdleTicksAreOneBytePerPlayer()
+	{
+		ReplayRecorder recorder = new ReplayRecorder(1, 1, new ScoreLimitedGame(5));
+		Controller[] input = new Controller[]{new Controller(), new Controller()};
+		
+		for (int i = 0; i < 100; ++i)
+		{
+			recorder.record(input);
+		}
+		
+		Replay replay = recorder.getReplay();
+		
+		assertEquals(100, replay.getTicks());
+		assertEquals(200, replay.getInputs().length);
+		assertEquals(Replay.MODE_SCORE_LIMITED, replay.getMode());
+		assertEquals(5, replay.getModeParameter());
+	}
+	
+	@Test
+	public void testRecordingRoundsOffSticks()
+	{
+		ReplayRecorder recorder = new ReplayRecorder(1, 1, new EndlessGame());
+		Controller c = new Controller();
+		c.leftAnalog.setDirection(0.123456789, -0.987654321);
+		c.rightAnalog.setDirection(5.0, 0.0);
+		
+		recorder.record(new Controller[]{c});
+		
+		assertEquals(0.123456789, c.leftAnalog.getDirection().x, 1e-4);
+		assertEquals(-0.987654321, c.leftAnalog.getDirection().y, 1e-4);
+		assertEquals(Replay.STICK_LIMIT, c.rightAnalog.getDirection().x, 0.0);
+		
+		// and rounding off again changes nothing
+		double x = c.leftAnalog.getDirection().x;
+		assertEquals(x, Replay.dequantize(Replay.quantize(x)), 0.0);
+	}
+	
+	@Test
+	public void testReadingGarbage()
+	{
+		try
+		{
+			Replay.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}));
+			fail("Expected an IOException");
+		}
+		catch (IOException e)
+		{
+		}
+	}
+	
+	/**
+	 * Record a CPU versus CPU match, play the recording back and check that
+	 * everything ends up in the same place.
+	 */
+	private static void assertReplaysTheSame(int ballCount, long ticks)
+	{
+		HeadlessMatch match = new HeadlessMatch(new ScoreLimitedGame(3), new CPUInput(), new CPUInput(), ballCount);
+		match.getGame().setRecorder(new ReplayRecorder(match.getGame()));
+		match.run(ticks);
+		
+		Replay replay;
+		
+		try
+		{
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			match.getGame().getRecorder().getReplay().write(out);
+			replay = Replay.read(new ByteArrayInputStream(out.toByteArray()));
+		}
+		catch (IOException e)
+		{
+			throw new AssertionError(e);
+		}
+		
+		assertEquals(match.getTicks(), replay.getTicks());
+		
+		ReplayPlayer player = new ReplayPlayer(replay);
+		player.run();
+		
+		GameScene recorded = match.getGame();
+		GameScene replayed = player.getGame();
+		
+		assertEquals(match.getTicks(), player.getTicks());
+		assertEquals(recorded.getPlayerScore(0), replayed.getPlayerScore(0));
+		assertEquals(recorded.getPlayerScore(1), replayed.getPlayerScore(1));
+		assertEquals(recorded.isGameOver(), replayed.isGameOver());
+		
+		for (int i = 0; i < ballCount; ++i)
+		{
+			assertEquals(recorded.getBalls().get(i).getX(), replayed.getBalls().get(i).getX(), 0.0);
+			assertEquals(recorded.getBalls().get(i).getY(), replayed.getBalls().get(i).getY(), 0.0);
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package se.gunning.flongout;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RestorableRandomTest
+{
+	@Test
+	public void testSameNumbersAsRandom()
+	{
+		Random expected = new Random(42);
+		RestorableRandom actual = new RestorableRandom(42);
+		
+		for (int i = 0; i < 100; ++i)
+		{
+			assertEquals(expected.nextInt(), actual.nextInt());
+			assertEquals(expected.nextInt(17), actual.nextInt(17));
+			assertEquals(expected.nextDouble(), actual.nextDouble(), 0.0);
+			assertEquals(expected.nextLong(), actual.nextLong());
+		}
+	}
+	
+	@Test
+	public void testRestoreState()
+	{
+		RestorableRandom rng = new RestorableRandom(7);
+		rng.nextInt();
+		
+		long state = rng.getState();
+		double[] first = new double[10];
+		
+		for (int i = 0; i < first.length; ++i)
+		{
+			first[i] = rng.nextDouble();
+		}
+		
+		rng.setState(state);
+		
+		for (int i = 0; i < first.length; ++i)
+		{
+			assertEquals(first[i], rng.nextDouble(), 0.0);
+		}
+	}
+}
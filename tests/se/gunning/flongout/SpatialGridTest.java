@@ -0,0 +1,125 @@
+package se.gunning.flongout;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SpatialGridTest
+{
+	private SpatialGrid<Rect> grid;
+	private ArrayList<Rect> result;
+
+	@Before
+	public void setUp()
+	{
+		grid = new SpatialGrid<Rect>(new Rect(-10.0, -10.0, 20.0, 20.0), 1.0);
+		result = new ArrayList<Rect>();
+	}
+
+	@Test
+	public void testQueryFindsNearbyOnly()
+	{
+		Rect near = new Rect(0.2, 0.2, 0.5, 0.5);
+		Rect far = new Rect(8.0, 8.0, 0.5, 0.5);
+
+		grid.insert(near, near);
+		grid.insert(far, far);
+
+		grid.query(-0.5, -0.5, 0.5, 0.5, result);
+
+		assertEquals(1, result.size());
+		assertSame(near, result.get(0));
+	}
+
+	@Test
+	public void testLargeItemReportedOnce()
+	{
+		Rect big = new Rect(-5.0, -5.0, 10.0, 10.0);
+		grid.insert(big, big);
+
+		grid.query(-3.0, -3.0, 3.0, 3.0, result);
+
+		assertEquals(1, result.size());
+	}
+
+	@Test
+	public void testOutsideBounds()
+	{
+		Rect outside = new Rect(15.0, 0.0, 2.0, 2.0);
+		grid.insert(outside, outside);
+
+		grid.query(15.5, 0.5, 16.0, 1.0, result);
+
+		assertEquals(1, result.size());
+		assertSame(outside, result.get(0));
+	}
+
+	@Test
+	public void testRemove()
+	{
+		Rect a = new Rect(0.0, 0.0, 3.0, 3.0);
+		Rect b = new Rect(0.0, 0.0, 3.0, 3.0);
+
+		grid.insert(a, a);
+		grid.insert(b, b);
+
+		// matched by identity, not equality
+		assertTrue(grid.remove(a, a));
+		assertFalse(grid.remove(a, a));
+		assertEquals(1, grid.size());
+
+		grid.query(1.0, 1.0, 2.0, 2.0, result);
+
+		assertEquals(1, result.size());
+		assertSame(b, result.get(0));
+
+		grid.clear();
+		grid.query(-10.0, -10.0, 10.0, 10.0, result);
+
+		assertEquals(0, result.size());
+		assertEquals(0, grid.size());
+	}
+
+	@Test
+	public void testMatchesBruteForce()
+	{
+		Random rand = new Random(1234);
+		ArrayList<Rect> all = new ArrayList<Rect>();
+
+		for (int i = 0; i < 300; ++i)
+		{
+			Rect r = new Rect(rand.nextDouble() * 24.0 - 12.0, rand.nextDouble() * 24.0 - 12.0, rand.nextDouble() * 3.0, rand.nextDouble() * 3.0);
+			all.add(r);
+			grid.insert(r, r);
+		}
+
+		for (int i = 0; i < 300; ++i)
+		{
+			double x = rand.nextDouble() * 24.0 - 12.0;
+			double y = rand.nextDouble() * 24.0 - 12.0;
+			double d = rand.nextDouble();
+
+			grid.query(x - d, y - d, x + d, y + d, result);
+
+			for (Rect r : all)
+			{
+				boolean overlaps = r.getX() <= x + d && r.getX() + r.getWidth() >= x - d
+						&& r.getY() <= y + d && r.getY() + r.getHeight() >= y - d;
+
+				if (overlaps)
+				{
+					assertTrue(result.contains(r));
+				}
+			}
+
+			for (int j = 0; j < result.size(); ++j)
+			{
+				assertEquals(j, result.indexOf(result.get(j)));
+			}
+		}
+	}
+}
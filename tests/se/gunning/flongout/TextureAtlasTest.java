@@ -0,0 +1,78 @@
+package se.gunning.flongout;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TextureAtlasTest
+{
+	@Test
+	public void testNextPowerOfTwo()
+	{
+		assertEquals(1, TextureAtlas.nextPowerOfTwo(1));
+		assertEquals(2, TextureAtlas.nextPowerOfTwo(2));
+		assertEquals(4, TextureAtlas.nextPowerOfTwo(3));
+		assertEquals(256, TextureAtlas.nextPowerOfTwo(230));
+		assertEquals(256, TextureAtlas.nextPowerOfTwo(256));
+	}
+	
+	@Test
+	public void testLayoutOfGameImages()
+	{
+		// ball, three powerups, paddle and three bricks
+		int[] widths = new int[]{38, 38, 38, 38, 228, 62, 62, 62};
+		int[] heights = new int[]{38, 38, 38, 38, 76, 68, 68, 68};
+		
+		TextureAtlas.Layout layout = TextureAtlas.layout(widths, heights);
+		
+		assertEquals(256, layout.width);
+		assertEquals(256, layout.height);
+		assertLayoutFits(layout, widths, heights);
+	}
+	
+	@Test
+	public void testLayoutOfManyImages()
+	{
+		int[] widths = new int[100];
+		int[] heights = new int[100];
+		
+		for (int i = 0; i < widths.length; ++i)
+		{
+			widths[i] = 5 + (i * 37) % 60;
+			heights[i] = 5 + (i * 53) % 70;
+		}
+		
+		TextureAtlas.Layout layout = TextureAtlas.layout(widths, heights);
+		
+		assertEquals(layout.width, TextureAtlas.nextPowerOfTwo(layout.width));
+		assertEquals(layout.height, TextureAtlas.nextPowerOfTwo(layout.height));
+		assertLayoutFits(layout, widths, heights);
+	}
+	
+	/**
+	 * Check that every image and its border is inside the atlas and that no
+	 * two of them overlap.
+	 */
+	private static void assertLayoutFits(TextureAtlas.Layout layout, int[] widths, int[] heights)
+	{
+		int pad = TextureAtlas.PADDING;
+		
+		for (int i = 0; i < widths.length; ++i)
+		{
+			assertTrue(layout.x[i] - pad >= 0);
+			assertTrue(layout.y[i] - pad >= 0);
+			assertTrue(layout.x[i] + widths[i] + pad <= layout.width);
+			assertTrue(layout.y[i] + heights[i] + pad <= layout.height);
+			
+			for (int j = 0; j < i; ++j)
+			{
+				boolean apart = layout.x[i] + widths[i] + pad <= layout.x[j] - pad
+						|| layout.x[j] + widths[j] + pad <= layout.x[i] - pad
+						|| layout.y[i] + heights[i] + pad <= layout.y[j] - pad
+						|| layout.y[j] + heights[j] + pad <= layout.y[i] - pad;
+				
+				assertTrue("images " + i + " and " + j + " overlap", apart);
+			}
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package se.gunning.flongout;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TournamentRunnerTest
+{
+	private TournamentRunner.Result[] play(int threads) throws InterruptedException
+	{
+		TournamentRunner runner = new TournamentRunner(6, 42);
+		runner.setThreads(threads);
+		runner.setScoreLimit(1);
+		runner.setPlayers("simple", "hard");
+		runner.setMaxTicks(60 * 60);
+		
+		return runner.run();
+	}
+	
+	@Test
+	public void testSameResultsOnAnyNumberOfThreads() throws InterruptedException
+	{
+		TournamentRunner.Result[] one = play(1);
+		TournamentRunner.Result[] three = play(3);
+		
+		assertEquals(6, one.length);
+		assertEquals(6, three.length);
+		
+		for (int i = 0; i < one.length; ++i)
+		{
+			assertEquals(one[i].seed, three[i].seed);
+			assertEquals(one[i].finished, three[i].finished);
+			assertEquals(one[i].winner, three[i].winner);
+			assertEquals(one[i].ticks, three[i].ticks);
+			assertEquals(one[i].statistics.getReturns(), three[i].statistics.getReturns());
+			assertEquals(one[i].statistics.getDrops(), three[i].statistics.getDrops());
+			assertEquals(one[i].statistics.getPickups(0), three[i].statistics.getPickups(0));
+			assertEquals(one[i].statistics.getPickups(1), three[i].statistics.getPickups(1));
+		}
+	}
+	
+	private TournamentRunner.Result result(boolean finished, int winner, int returns)
+	{
+		TournamentRunner.Result r = new TournamentRunner.Result();
+		r.finished = finished;
+		r.winner = winner;
+		r.statistics = new MatchStatistics();
+		
+		for (int i = 0; i <= returns; ++i)
+		{
+			r.statistics.recordHit(i % 2);
+		}
+		
+		r.statistics.recordPoint(Math.max(0, winner));
+		
+		return r;
+	}
+	
+	@Test
+	public void testReportLeavesOutCappedMatches()
+	{
+		TournamentRunner runner = new TournamentRunner(3, 0);
+		runner.setPlayers("normal", "hard");
+		
+		// player two is ahead in the capped match, but didn't win it
+		String report = runner.report(new TournamentRunner.Result[]{
+				result(true, 0, 2), result(true, 1, 4), result(false, 1, 100)});
+		
+		assertTrue(report.contains("Decided:          2" + String.format("%n")));
+		assertTrue(report.contains("Player One:       1 (50.0 %, normal)"));
+		assertTrue(report.contains("Player Two:       1 (50.0 %, hard)"));
+		assertTrue(report.contains("Rally length:     3.00 returns, longest 4"));
+		assertTrue(report.contains("Capped:           1 (rally length 100.00 returns, longest 100)"));
+	}
+	
+	@Test
+	public void testMatchSeedsDiffer()
+	{
+		assertTrue(TournamentRunner.getMatchSeed(0, 0) != TournamentRunner.getMatchSeed(0, 1));
+		assertTrue(TournamentRunner.getMatchSeed(0, 1) != TournamentRunner.getMatchSeed(1, 0));
+		assertEquals(TournamentRunner.getMatchSeed(7, 3), TournamentRunner.getMatchSeed(7, 3));
+	}
+	
+	@Test
+	public void testUnknownPlayer()
+	{
+		try
+		{
+			new TournamentRunner(1, 0).setPlayers("simple", "impossible");
+			fail("Expected an IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e)
+		{
+		}
+	}
+}
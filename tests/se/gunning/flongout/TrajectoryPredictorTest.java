@@ -0,0 +1,84 @@
+package se.gunning.flongout;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TrajectoryPredictorTest
+{
+	/**
+	 * Step a ball in a world with just a floor and a ceiling until it
+	 * crosses a line, and check that the prediction agrees.
+	 */
+	private void assertPredicts(double x, double y, double vx, double vy, double lineX)
+	{
+		Physics world = new Physics();
+		world.setGravity(-20.0);
+		world.addWall("static", -20.0, 4.5, 40.0, 5.0);
+		world.addWall("static", -20.0, -9.5, 40.0, 5.0);
+		
+		Ball ball = new Ball(0.15);
+		ball.setPosition(x, y);
+		ball.setVelocity(vx, vy);
+		world.addBall(ball);
+		
+		TrajectoryPredictor predictor = new TrajectoryPredictor(-4.5, 4.5, 1.0/1000.0);
+		predictor.setWorld(world);
+		assertTrue(predictor.predict(ball, lineX, 10000));
+		
+		int steps = 0;
+		
+		while ((lineX - ball.getX()) * vx > 0.0)
+		{
+			world.step(1.0/1000.0);
+			++steps;
+		}
+		
+		assertEquals(steps, predictor.getSteps());
+		assertEquals(ball.getY(), predictor.getInterceptY(), 0.05);
+		assertEquals(steps / 1000.0, predictor.getInterceptTime(), 1.0/1000.0);
+	}
+	
+	@Test
+	public void testFalling()
+	{
+		assertPredicts(0.0, 2.0, -6.0, 0.0, -6.0);
+	}
+	
+	@Test
+	public void testBounces()
+	{
+		// off the ceiling and then the floor, twice
+		assertPredicts(6.0, 0.0, -3.0, 20.0, -6.0);
+	}
+	
+	@Test
+	public void testSpeedLimit()
+	{
+		assertPredicts(-6.0, -4.0, 24.0, 10.0, 6.0);
+	}
+	
+	@Test
+	public void testOutOfSteps()
+	{
+		TrajectoryPredictor predictor = new TrajectoryPredictor(-4.5, 4.5, 1.0/100.0);
+		
+		assertFalse(predictor.predict(0.0, 0.0, 1.0, 0.0, 0.15, 6.0, 100));
+		assertEquals(100, predictor.getSteps());
+		assertTrue(predictor.predict(0.0, 0.0, 1.0, 0.0, 0.15, 6.0, 1000));
+		assertEquals(6.0, predictor.getInterceptTime(), 1e-9);
+	}
+	
+	@Test
+	public void testNoRoom()
+	{
+		try
+		{
+			new TrajectoryPredictor(1.0, 1.0, 0.01);
+			fail("Expected an IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e)
+		{
+		}
+	}
+}
@@ -155,5 +155,6 @@ public class Vec2Test
 		
 		assertEquals(-1, v.compareTo(u));
 		assertEquals(1, u.compareTo(v));
+		assertEquals(0, v.compareTo(new Vec2(-1.0, 1.0)));
 	}
 }
@@ -0,0 +1,221 @@
+package se.gunning.flongout.net;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import se.gunning.flongout.Ball;
+import se.gunning.flongout.Controller;
+import se.gunning.flongout.GameScene;
+import se.gunning.flongout.Paddle;
+import se.gunning.flongout.Replay;
+import se.gunning.flongout.ScoreLimitedGame;
+import se.gunning.flongout.SimulationClock;
+
+public class RollbackSessionTest
+{
+	private static final long SEED = 1234;
+	private static final int TICKS = 1500;
+	
+	private int[][] buttons = new int[2][TICKS];
+	private double[][][] sticks = new double[2][TICKS][4];
+	
+	private void script(long seed)
+	{
+		Random rng = new Random(seed);
+		
+		// change what each player does every few ticks
+		for (int p = 0; p < 2; ++p)
+		{
+			for (int t = 0; t < TICKS; ++t)
+			{
+				if (t > 0 && rng.nextInt(8) != 0)
+				{
+					buttons[p][t] = buttons[p][t - 1];
+					sticks[p][t] = sticks[p][t - 1];
+					continue;
+				}
+				
+				buttons[p][t] = rng.nextInt(4);
+				sticks[p][t] = new double[]{rng.nextDouble() * 2.0 - 1.0, rng.nextDouble() * 2.0 - 1.0, rng.nextDouble() * 2.0 - 1.0, rng.nextDouble() * 2.0 - 1.0};
+			}
+		}
+	}
+	
+	private Controller input(int player, long tick)
+	{
+		Controller c = new Controller();
+		c.leftAnalog.setDirection(sticks[player][(int)tick][0], sticks[player][(int)tick][1]);
+		c.rightAnalog.setDirection(sticks[player][(int)tick][2], sticks[player][(int)tick][3]);
+		c.buttonOne.setPressed((buttons[player][(int)tick] & 1) != 0);
+		c.buttonTwo.setPressed((buttons[player][(int)tick] & 2) != 0);
+		
+		return c;
+	}
+	
+	private Controller rounded(int player, long tick)
+	{
+		Controller c = input(player, tick);
+		c.leftAnalog.setDirection(Replay.dequantize(Replay.quantize(c.leftAnalog.getDirection().x)), Replay.dequantize(Replay.quantize(c.leftAnalog.getDirection().y)));
+		c.rightAnalog.setDirection(Replay.dequantize(Replay.quantize(c.rightAnalog.getDirection().x)), Replay.dequantize(Replay.quantize(c.rightAnalog.getDirection().y)));
+		
+		return c;
+	}
+	
+	private static GameScene createGame(SimulationClock clock)
+	{
+		GameScene game = new GameScene(null, false, new ScoreLimitedGame(1000), clock, 2, SEED);
+		game.initHeadless();
+		
+		return game;
+	}
+	
+	private static void assertSameGame(GameScene expected, GameScene actual)
+	{
+		assertEquals(expected.getPlayerScore(0), actual.getPlayerScore(0));
+		assertEquals(expected.getPlayerScore(1), actual.getPlayerScore(1));
+		assertEquals(expected.getStatistics().getReturns(), actual.getStatistics().getReturns());
+		assertEquals(expected.getStatistics().getDrops(), actual.getStatistics().getDrops());
+		assertEquals(expected.getWorld().getWallCount(), actual.getWorld().getWallCount());
+		
+		for (int i = 0; i < expected.getBalls().size(); ++i)
+		{
+			Ball e = expected.getBalls().get(i);
+			Ball a = actual.getBalls().get(i);
+			
+			assertEquals(e.getX(), a.getX(), 0.0);
+			assertEquals(e.getY(), a.getY(), 0.0);
+			assertEquals(e.getVelocityX(), a.getVelocityX(), 0.0);
+			assertEquals(e.getVelocityY(), a.getVelocityY(), 0.0);
+			assertEquals(e.getRadius(), a.getRadius(), 0.0);
+		}
+		
+		for (int i = 0; i < 2; ++i)
+		{
+			Paddle e = expected.getWorld().getPaddles().get(i);
+			Paddle a = actual.getWorld().getPaddles().get(i);
+			
+			assertEquals(e.getX(), a.getX(), 0.0);
+			assertEquals(e.getY(), a.getY(), 0.0);
+			assertEquals(e.getAngle(), a.getAngle(), 0.0);
+			assertEquals(e.getScale(), a.getScale(), 0.0);
+		}
+	}
+	
+	@Test
+	public void testBothPlayersEndUpWithTheSameGame() throws IOException
+	{
+		script(99);
+		
+		// the network runs on its own clock, one tick per frame
+		SimulationClock network = new SimulationClock(GameScene.TICK_MILLIS);
+		LoopbackTransport[] pair = LoopbackTransport.createPair(network, 5);
+		
+		for (int i = 0; i < 2; ++i)
+		{
+			pair[i].setLatency(60);
+			pair[i].setJitter(40);
+			pair[i].setLoss(0.1);
+		}
+		
+		SimulationClock[] clocks = new SimulationClock[2];
+		GameScene[] games = new GameScene[2];
+		RollbackSession[] sessions = new RollbackSession[2];
+		
+		for (int i = 0; i < 2; ++i)
+		{
+			clocks[i] = new SimulationClock(GameScene.TICK_MILLIS);
+			games[i] = createGame(clocks[i]);
+			sessions[i] = new RollbackSession(games[i], clocks[i], i, pair[i]);
+		}
+		
+		for (int frame = 0; frame < 10 * TICKS; ++frame)
+		{
+			boolean done = true;
+			
+			for (int i = 0; i < 2; ++i)
+			{
+				if (sessions[i].getTick() < TICKS)
+				{
+					sessions[i].advance(input(i, sessions[i].getTick()));
+				}
+				else
+				{
+					sessions[i].poll();
+				}
+				
+				done = done && sessions[i].getConfirmedTick() == TICKS;
+			}
+			
+			if (done)
+			{
+				break;
+			}
+			
+			network.tick();
+		}
+		
+		assertEquals(TICKS, sessions[0].getConfirmedTick());
+		assertEquals(TICKS, sessions[1].getConfirmedTick());
+		
+		// the guesses were wrong, and were put right
+		assertTrue(sessions[0].getRollbacks() > 0);
+		assertTrue(sessions[1].getRollbacks() > 0);
+		assertTrue(sessions[0].getDeepestRollback() <= RollbackSession.MAX_ROLLBACK);
+		
+		// the same game as if both had played on the same machine
+		SimulationClock clock = new SimulationClock(GameScene.TICK_MILLIS);
+		GameScene reference = createGame(clock);
+		
+		for (int t = 0; t < TICKS; ++t)
+		{
+			reference.tick(new Controller[]{rounded(0, t), rounded(1, t)});
+			clock.tick();
+		}
+		
+		assertTrue(reference.getPlayerScore(0) + reference.getPlayerScore(1) > 0);
+		
+		assertSameGame(reference, games[0]);
+		assertSameGame(reference, games[1]);
+	}
+	
+	@Test
+	public void testWaitsForASilentPlayer() throws IOException
+	{
+		script(7);
+		
+		SimulationClock network = new SimulationClock(GameScene.TICK_MILLIS);
+		LoopbackTransport[] pair = LoopbackTransport.createPair(network, 5);
+		
+		SimulationClock clock = new SimulationClock(GameScene.TICK_MILLIS);
+		RollbackSession session = new RollbackSession(createGame(clock), clock, 0, pair[0]);
+		
+		for (int frame = 0; frame < 3 * RollbackSession.MAX_ROLLBACK; ++frame)
+		{
+			session.advance(input(0, session.getTick()));
+			network.tick();
+		}
+		
+		assertEquals(RollbackSession.MAX_ROLLBACK, session.getTick());
+		assertEquals(0, session.getConfirmedTick());
+		assertEquals(2 * RollbackSession.MAX_ROLLBACK, session.getStalls());
+	}
+	
+	@Test
+	public void testBadPlayer()
+	{
+		SimulationClock clock = new SimulationClock(GameScene.TICK_MILLIS);
+		
+		try
+		{
+			new RollbackSession(createGame(clock), clock, 2, LoopbackTransport.createPair(clock, 0)[0]);
+			fail("Expected an IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e)
+		{
+		}
+	}
+}